@@ -81,7 +81,9 @@ public abstract class TransformingClassLoader extends VisitableURLClassLoader {
         if (p == null) {
             definePackage(packageName, null, null, null, null, null, null, null);
         }
-        return defineClass(name, bytes, 0, bytes.length, codeSource);
+        Class<?> type = defineClass(name, bytes, 0, bytes.length, codeSource);
+        classDefined(name);
+        return type;
     }
 
     @Nullable
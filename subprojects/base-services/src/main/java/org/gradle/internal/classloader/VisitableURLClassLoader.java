@@ -18,6 +18,7 @@ package org.gradle.internal.classloader;
 
 import org.gradle.internal.classpath.ClassPath;
 
+import javax.annotation.Nullable;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.Arrays;
@@ -34,6 +35,8 @@ public class VisitableURLClassLoader extends URLClassLoader implements ClassLoad
         }
     }
 
+    private volatile Collection<String> definedClassNames;
+
     public VisitableURLClassLoader(ClassLoader parent, Collection<URL> urls) {
         super(urls.toArray(new URL[0]), parent);
     }
@@ -42,6 +45,31 @@ public class VisitableURLClassLoader extends URLClassLoader implements ClassLoad
         super(classPath.getAsURLArray(), parent);
     }
 
+    /**
+     * Adds the names of the classes defined by this class loader from now on to the given collection, which must be thread-safe.
+     * Recording stops when called with {@code null}.
+     */
+    public void recordDefinedClasses(@Nullable Collection<String> classNames) {
+        definedClassNames = classNames;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        Class<?> type = super.findClass(name);
+        classDefined(name);
+        return type;
+    }
+
+    /**
+     * Called by subclasses that define classes without calling {@link #findClass(String)} of this class.
+     */
+    protected final void classDefined(String name) {
+        Collection<String> classNames = definedClassNames;
+        if (classNames != null) {
+            classNames.add(name);
+        }
+    }
+
     public void visit(ClassLoaderVisitor visitor) {
         URL[] urls = getURLs();
         visitor.visitSpec(new Spec(Arrays.asList(urls)));
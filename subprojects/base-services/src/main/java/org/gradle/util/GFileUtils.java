@@ -17,14 +17,17 @@ package org.gradle.util;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.gradle.api.Action;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.util.internal.LimitedDescription;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
@@ -205,6 +208,35 @@ public class GFileUtils {
         }
     }
 
+    /**
+     * Writes a file by writing a temporary file next to it and then moving that into place, so that a concurrent reader never sees a partially written file.
+     *
+     * @param destination The file to write.
+     * @param writer Writes the content to the given stream.
+     */
+    public static void writeFileAtomically(File destination, Action<? super OutputStream> writer) {
+        File parent = parentMkdirs(destination);
+        try {
+            File tempFile = File.createTempFile(destination.getName(), ".tmp", parent);
+            try {
+                OutputStream outputStream = new FileOutputStream(tempFile);
+                try {
+                    writer.execute(outputStream);
+                } finally {
+                    outputStream.close();
+                }
+                // Replacing an existing file fails on Windows
+                if (!tempFile.renameTo(destination) && !(destination.delete() && tempFile.renameTo(destination))) {
+                    throw new IOException("Could not move " + tempFile + " to " + destination + ".");
+                }
+            } finally {
+                tempFile.delete();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     public static void forceDelete(File file) {
         try {
             FileUtils.forceDelete(file);
@@ -36,4 +36,21 @@ class VisitableURLClassLoaderTest extends Specification {
         1 * visitor.visitParent(parent)
         0 * visitor._
     }
+
+    def "records names of classes defined while recording"() {
+        def classPath = [ClasspathUtil.getClasspathForClass(ClassLoaderVisitor).toURI().toURL()]
+        def cl = new VisitableURLClassLoader((ClassLoader) null, classPath)
+        def recorded = [] as Set
+
+        when:
+        cl.loadClass(ClassLoaderVisitor.name)
+        cl.recordDefinedClasses(recorded)
+        cl.loadClass(ClassLoaderSpec.name)
+        cl.loadClass(Object.name)
+        cl.recordDefinedClasses(null)
+        cl.loadClass(ClassLoaderHierarchy.name)
+
+        then:
+        recorded == [ClassLoaderSpec.name] as Set
+    }
 }
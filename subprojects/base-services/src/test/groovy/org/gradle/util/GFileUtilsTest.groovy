@@ -16,6 +16,7 @@
 
 package org.gradle.util
 
+import org.gradle.api.Action
 import org.gradle.api.UncheckedIOException
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
@@ -108,4 +109,31 @@ three
         readFileQuietly(new File("missing")) == "Unable to read file 'missing' due to: org.gradle.api.UncheckedIOException: java.io.FileNotFoundException: File 'missing' does not exist"
         readFileQuietly(temp.createDir("dir")).startsWith "Unable to read file"
     }
+
+    def "writes file atomically replacing existing file"() {
+        def f = temp.file("a/b/foo.bin")
+
+        when:
+        writeFileAtomically(f, { OutputStream out -> out.write("one".bytes) } as Action)
+        writeFileAtomically(f, { OutputStream out -> out.write("two".bytes) } as Action)
+
+        then:
+        f.text == "two"
+        f.parentFile.list() as List == ["foo.bin"]
+    }
+
+    def "leaves existing file untouched when writing fails"() {
+        def f = temp.file("foo.bin") << "one"
+
+        when:
+        writeFileAtomically(f, { OutputStream out ->
+            out.write("two".bytes)
+            throw new RuntimeException("broken")
+        } as Action)
+
+        then:
+        thrown RuntimeException
+        f.text == "one"
+        f.parentFile.list() as List == ["foo.bin"]
+    }
 }
@@ -25,6 +25,10 @@ import org.gradle.caching.BuildCacheKey
 import org.gradle.caching.BuildCacheService
 import org.gradle.caching.BuildCacheServiceFactory
 import org.gradle.caching.http.HttpBuildCache
+import org.gradle.caching.internal.controller.service.BuildCacheServiceRole
+import org.gradle.caching.internal.controller.service.OpFiringBuildCacheServiceHandle
+import org.gradle.caching.internal.operations.BuildCacheRemoteLoadBuildOperationType
+import org.gradle.internal.operations.TestBuildOperationExecutor
 import org.gradle.internal.resource.transport.http.DefaultSslContextFactory
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.test.fixtures.server.http.AuthScheme
@@ -292,6 +296,143 @@ class HttpBuildCacheServiceTest extends Specification {
         server.authenticationAttempts == ['Basic'] as Set
     }
 
+    def "can query many entries with a single request"() {
+        def otherKey = key("abcdef0123456")
+        cache = createBatchingCache()
+        server.expect("/cache/batch/contains", ["POST"], new HttpServer.ActionSupport("return existing keys") {
+            void handle(HttpServletRequest request, HttpServletResponse response) {
+                assert request.reader.readLines() == [key.hashCode, otherKey.hashCode]
+                response.contentType = "text/plain"
+                response.writer.println(otherKey.hashCode)
+            }
+        })
+
+        expect:
+        cache.contains([key, otherKey]) == [otherKey] as Set
+    }
+
+    def "can load many entries with a single request"() {
+        def otherKey = key("abcdef0123456")
+        def missingKey = key("fedcba6543210")
+        cache = createBatchingCache()
+        server.expect("/cache/batch/load", ["POST"], new HttpServer.ActionSupport("return existing entries") {
+            void handle(HttpServletRequest request, HttpServletResponse response) {
+                assert request.getHeader(HttpHeaders.ACCEPT) == HttpBuildCacheService.BUILD_CACHE_BATCH_CONTENT_TYPE
+                assert request.reader.readLines() == [key.hashCode, otherKey.hashCode, missingKey.hashCode]
+                response.contentType = HttpBuildCacheService.BUILD_CACHE_BATCH_CONTENT_TYPE
+                def output = new DataOutputStream(response.outputStream)
+                [(key.hashCode): "Data", (otherKey.hashCode): "Other data"].each { hashCode, data ->
+                    output.writeUTF(hashCode)
+                    output.writeLong(data.bytes.length)
+                    output.write(data.bytes)
+                }
+                output.writeUTF("")
+                output.flush()
+            }
+        })
+
+        when:
+        def received = [:]
+        def loaded = cache.loadAll([key, otherKey, missingKey]) { BuildCacheKey key, InputStream input ->
+            received[key.hashCode] = input.text
+        }
+
+        then:
+        loaded == [key, otherKey] as Set
+        received == [(key.hashCode): "Data", (otherKey.hashCode): "Other data"]
+    }
+
+    def "fires a remote load operation for each key of a batched load"() {
+        def otherKey = key("abcdef0123456")
+        def missingKey = key("fedcba6543210")
+        def buildOperationExecutor = new TestBuildOperationExecutor()
+        def handle = new OpFiringBuildCacheServiceHandle(createBatchingCache(), false, BuildCacheServiceRole.REMOTE, buildOperationExecutor, false)
+        server.expect("/cache/batch/load", ["POST"], new HttpServer.ActionSupport("return existing entries") {
+            void handle(HttpServletRequest request, HttpServletResponse response) {
+                response.contentType = HttpBuildCacheService.BUILD_CACHE_BATCH_CONTENT_TYPE
+                def output = new DataOutputStream(response.outputStream)
+                [(key.hashCode): "Data", (otherKey.hashCode): "Other data"].each { hashCode, data ->
+                    output.writeUTF(hashCode)
+                    output.writeLong(data.bytes.length)
+                    output.write(data.bytes)
+                }
+                output.writeUTF("")
+                output.flush()
+            }
+        })
+
+        when:
+        def loaded = handle.loadAll([key, otherKey, missingKey]) { BuildCacheKey key, InputStream input -> input.text }
+
+        then:
+        loaded == [key, otherKey] as Set
+        def operations = buildOperationExecutor.log.all(BuildCacheRemoteLoadBuildOperationType)
+        operations*.descriptor*.details*.cacheKey == [key.hashCode, otherKey.hashCode, missingKey.hashCode]
+        operations*.result*.hit == [true, true, false]
+        operations*.result*.archiveSize == [4L, 10L, 0L]
+    }
+
+    def "fires a remote load operation for each key missing from a batched query"() {
+        def otherKey = key("abcdef0123456")
+        def buildOperationExecutor = new TestBuildOperationExecutor()
+        def handle = new OpFiringBuildCacheServiceHandle(createBatchingCache(), false, BuildCacheServiceRole.REMOTE, buildOperationExecutor, false)
+        server.expect("/cache/batch/contains", ["POST"], new HttpServer.ActionSupport("return existing keys") {
+            void handle(HttpServletRequest request, HttpServletResponse response) {
+                response.contentType = "text/plain"
+                response.writer.println(otherKey.hashCode)
+            }
+        })
+
+        when:
+        def found = handle.contains([key, otherKey])
+
+        then:
+        found == [otherKey] as Set
+        def operations = buildOperationExecutor.log.all(BuildCacheRemoteLoadBuildOperationType)
+        operations*.descriptor*.details*.cacheKey == [key.hashCode]
+        operations*.result*.hit == [false]
+    }
+
+    def "falls back to single requests when server does not support batch requests"() {
+        cache = createBatchingCache()
+        server.expect("/cache/batch/contains", false, ["POST"], new HttpServer.ActionSupport("return 404") {
+            @Override
+            void handle(HttpServletRequest request, HttpServletResponse response) {
+                response.sendError(HttpStatus.SC_NOT_FOUND, "not found")
+            }
+        })
+
+        expect:
+        cache.contains([key]) == null
+        cache.loadAll([key]) { BuildCacheKey key, InputStream input -> throw new RuntimeException("That should never be called") } == null
+    }
+
+    def "does not send batch requests unless enabled"() {
+        expect:
+        (cache as HttpBuildCacheService).contains([key]) == null
+    }
+
+    private HttpBuildCacheService createBatchingCache() {
+        def config = new HttpBuildCache()
+        config.url = server.uri.resolve("/cache/")
+        config.useBatchRequests = true
+        new DefaultHttpBuildCacheServiceFactory(new DefaultSslContextFactory()).createBuildCacheService(config, buildCacheDescriber) as HttpBuildCacheService
+    }
+
+    private static BuildCacheKey key(String hashCode) {
+        return new BuildCacheKey() {
+            @Override
+            String getHashCode() {
+                return hashCode
+            }
+
+            @Override
+            String getDisplayName() {
+                return hashCode
+            }
+        }
+    }
+
     private HttpResourceInteraction expectError(int httpCode, String method) {
         server.expect("/cache/${key.hashCode}", false, [method], new HttpServer.ActionSupport("return ${httpCode} broken") {
             @Override
@@ -42,6 +42,7 @@ public class HttpBuildCache extends AbstractBuildCache {
     private final HttpBuildCacheCredentials credentials;
     private URI url;
     private boolean allowUntrustedServer;
+    private boolean useBatchRequests;
 
     public HttpBuildCache() {
         this.credentials = new HttpBuildCacheCredentials();
@@ -127,4 +128,31 @@ public class HttpBuildCache extends AbstractBuildCache {
     public void setAllowUntrustedServer(boolean allowUntrustedServer) {
         this.allowUntrustedServer = allowUntrustedServer;
     }
+
+    /**
+     * Specifies whether many cache entries may be looked up with a single request.
+     * Defaults to {@code false}.
+     * <p>
+     * Batch requests are sent with {@code POST} to {@code batch/contains} and {@code batch/load} below the cache URL.
+     * The request body lists one cache key per line. {@code batch/contains} responds with the keys that have an entry,
+     * one per line. {@code batch/load} responds with the entries found, each written as the key in modified UTF-8,
+     * followed by the entry length as a 64-bit big-endian integer and the entry content, and ends with an empty key.
+     * <p>
+     * If the server does not support batch requests, entries are looked up one at a time.
+     *
+     * @since 4.5
+     */
+    public boolean isUseBatchRequests() {
+        return useBatchRequests;
+    }
+
+    /**
+     * Specifies whether many cache entries may be looked up with a single request.
+     *
+     * @see #isUseBatchRequests()
+     * @since 4.5
+     */
+    public void setUseBatchRequests(boolean useBatchRequests) {
+        this.useBatchRequests = useBatchRequests;
+    }
 }
@@ -79,7 +79,12 @@ public class DefaultHttpBuildCacheServiceFactory implements BuildCacheServiceFac
             .config("authenticated", Boolean.toString(authenticated))
             .config("allowUntrustedServer", Boolean.toString(allowUntrustedServer));
 
-        return new HttpBuildCacheService(httpClientHelper, noUserInfoUrl);
+        boolean useBatchRequests = configuration.isUseBatchRequests();
+        if (useBatchRequests) {
+            describer.config("useBatchRequests", "true");
+        }
+
+        return new HttpBuildCacheService(httpClientHelper, noUserInfoUrl, useBatchRequests);
     }
 
     @VisibleForTesting
@@ -16,7 +16,12 @@
 
 package org.gradle.caching.http.internal;
 
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
 import org.apache.commons.lang.IncompleteArgumentException;
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpMessage;
@@ -24,15 +29,18 @@ import org.apache.http.HttpStatus;
 import org.apache.http.StatusLine;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.utils.HttpClientUtils;
 import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.caching.BuildCacheEntryReader;
 import org.gradle.caching.BuildCacheEntryWriter;
 import org.gradle.caching.BuildCacheException;
 import org.gradle.caching.BuildCacheKey;
-import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.internal.BatchingBuildCacheService;
 import org.gradle.caching.internal.tasks.TaskOutputPacker;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.resource.transport.http.HttpClientHelper;
@@ -40,20 +48,31 @@ import org.gradle.util.GradleVersion;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * Build cache implementation that delegates to a service accessible via HTTP.
+ *
+ * When batch requests are enabled, many entries can be looked up with a single {@code POST} request. See {@link org.gradle.caching.http.HttpBuildCache#isUseBatchRequests()} for the protocol.
  */
-public class HttpBuildCacheService implements BuildCacheService {
+public class HttpBuildCacheService implements BatchingBuildCacheService {
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpBuildCacheService.class);
     static final String BUILD_CACHE_CONTENT_TYPE = "application/vnd.gradle.build-cache-artifact.v" + TaskOutputPacker.CACHE_ENTRY_FORMAT;
+    static final String BUILD_CACHE_BATCH_CONTENT_TYPE = "application/vnd.gradle.build-cache-batch.v" + TaskOutputPacker.CACHE_ENTRY_FORMAT;
 
     private static final Set<Integer> FATAL_HTTP_ERROR_CODES = ImmutableSet.of(
         HttpStatus.SC_USE_PROXY,
@@ -66,15 +85,21 @@ public class HttpBuildCacheService implements BuildCacheService {
         511 // network authentication required
     );
 
+    private static final Set<Integer> BATCH_UNSUPPORTED_HTTP_ERROR_CODES = ImmutableSet.of(
+        HttpStatus.SC_NOT_FOUND, HttpStatus.SC_METHOD_NOT_ALLOWED, HttpStatus.SC_NOT_IMPLEMENTED
+    );
+
     private final URI root;
     private final HttpClientHelper httpClientHelper;
+    private volatile boolean useBatchRequests;
 
-    public HttpBuildCacheService(HttpClientHelper httpClientHelper, URI url) {
+    public HttpBuildCacheService(HttpClientHelper httpClientHelper, URI url, boolean useBatchRequests) {
         if (!url.getPath().endsWith("/")) {
             throw new IncompleteArgumentException("HTTP cache root URI must end with '/'");
         }
         this.root = url;
         this.httpClientHelper = httpClientHelper;
+        this.useBatchRequests = useBatchRequests;
     }
 
     @Override
@@ -173,6 +198,115 @@ public class HttpBuildCacheService implements BuildCacheService {
         }
     }
 
+    @Nullable
+    @Override
+    public Set<BuildCacheKey> contains(Collection<BuildCacheKey> keys) throws BuildCacheException {
+        if (!useBatchRequests) {
+            return null;
+        }
+        Map<String, BuildCacheKey> keysByHashCode = indexByHashCode(keys);
+        URI uri = root.resolve("batch/contains");
+        CloseableHttpResponse response = null;
+        try {
+            response = performBatchRequest(uri, keysByHashCode, ContentType.TEXT_PLAIN.getMimeType());
+            if (response == null) {
+                return null;
+            }
+            Set<BuildCacheKey> found = Sets.newHashSet();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(response.getEntity().getContent(), Charsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                BuildCacheKey key = keysByHashCode.get(line.trim());
+                if (key != null) {
+                    found.add(key);
+                }
+            }
+            return found;
+        } catch (IOException e) {
+            throw new BuildCacheException(String.format("Unable to query entries at '%s': %s", safeUri(uri), e.getMessage()), e);
+        } finally {
+            HttpClientUtils.closeQuietly(response);
+        }
+    }
+
+    @Nullable
+    @Override
+    public Set<BuildCacheKey> loadAll(Collection<BuildCacheKey> keys, EntryReader reader) throws BuildCacheException {
+        if (!useBatchRequests) {
+            return null;
+        }
+        Map<String, BuildCacheKey> keysByHashCode = indexByHashCode(keys);
+        URI uri = root.resolve("batch/load");
+        CloseableHttpResponse response = null;
+        try {
+            response = performBatchRequest(uri, keysByHashCode, BUILD_CACHE_BATCH_CONTENT_TYPE);
+            if (response == null) {
+                return null;
+            }
+            Set<BuildCacheKey> loaded = Sets.newHashSet();
+            DataInputStream input = new DataInputStream(new BufferedInputStream(response.getEntity().getContent()));
+            String hashCode;
+            while (!(hashCode = input.readUTF()).isEmpty()) {
+                long length = input.readLong();
+                BuildCacheKey key = keysByHashCode.get(hashCode);
+                if (key == null) {
+                    throw new IOException(String.format("Unexpected entry '%s' in response", hashCode));
+                }
+                InputStream entryInput = new UncloseableInputStream(ByteStreams.limit(input, length));
+                reader.readFrom(key, entryInput);
+                // Skip whatever the reader did not consume, to get to the next entry
+                ByteStreams.copy(entryInput, ByteStreams.nullOutputStream());
+                loaded.add(key);
+            }
+            return loaded;
+        } catch (IOException e) {
+            throw new BuildCacheException(String.format("Unable to load entries from '%s': %s", safeUri(uri), e.getMessage()), e);
+        } finally {
+            HttpClientUtils.closeQuietly(response);
+        }
+    }
+
+    /**
+     * Sends a batch request for the given keys.
+     *
+     * @return the response, or {@code null} when the server does not support batch requests.
+     */
+    @Nullable
+    private CloseableHttpResponse performBatchRequest(URI uri, Map<String, BuildCacheKey> keysByHashCode, String accept) throws IOException {
+        HttpPost httpPost = new HttpPost(uri);
+        httpPost.addHeader(HttpHeaders.ACCEPT, accept);
+        addDiagnosticHeaders(httpPost);
+        httpPost.setEntity(new StringEntity(Joiner.on('\n').join(keysByHashCode.keySet()), ContentType.create(ContentType.TEXT_PLAIN.getMimeType(), Charsets.UTF_8)));
+
+        CloseableHttpResponse response = httpClientHelper.performHttpRequest(httpPost);
+        StatusLine statusLine = response.getStatusLine();
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Response for POST {} with {} keys: {}", safeUri(uri), keysByHashCode.size(), statusLine);
+        }
+        int statusCode = statusLine.getStatusCode();
+        if (isHttpSuccess(statusCode)) {
+            return response;
+        }
+        HttpClientUtils.closeQuietly(response);
+        if (BATCH_UNSUPPORTED_HTTP_ERROR_CODES.contains(statusCode)) {
+            LOGGER.info("HTTP build cache at '{}' does not support batch requests (response status {}), looking up entries one at a time.", safeUri(root), statusCode);
+            useBatchRequests = false;
+            return null;
+        }
+        throwHttpStatusCodeException(
+            statusCode,
+            String.format("Batch request to '%s' response status %d: %s", safeUri(uri), statusCode, statusLine.getReasonPhrase()));
+        return null;
+    }
+
+    private static Map<String, BuildCacheKey> indexByHashCode(Collection<BuildCacheKey> keys) {
+        Map<String, BuildCacheKey> keysByHashCode = Maps.newLinkedHashMap();
+        for (BuildCacheKey key : keys) {
+            keysByHashCode.put(key.getHashCode(), key);
+        }
+        return keysByHashCode;
+    }
+
     private boolean isHttpSuccess(int statusCode) {
         return statusCode >= 200 && statusCode < 300;
     }
@@ -203,4 +337,14 @@ public class HttpBuildCacheService implements BuildCacheService {
             throw UncheckedException.throwAsUncheckedException(e);
         }
     }
+
+    private static class UncloseableInputStream extends FilterInputStream {
+        UncloseableInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
 }
@@ -19,6 +19,8 @@ package org.gradle.caching.internal
 import org.gradle.caching.BuildCacheException
 import org.gradle.caching.internal.operations.BuildCacheArchivePackBuildOperationType
 import org.gradle.caching.internal.operations.BuildCacheArchiveUnpackBuildOperationType
+import org.gradle.caching.internal.operations.BuildCacheLocalLoadBuildOperationType
+import org.gradle.caching.internal.operations.BuildCacheLocalStoreBuildOperationType
 import org.gradle.caching.internal.operations.BuildCacheRemoteLoadBuildOperationType
 import org.gradle.caching.internal.operations.BuildCacheRemoteStoreBuildOperationType
 import org.gradle.caching.local.internal.DefaultBuildCacheTempFileStore
@@ -126,7 +128,7 @@ class BuildCacheBuildOperationsIntegrationTest extends AbstractIntegrationSpec i
         """
     }
 
-    def "emits only pack/unpack operations for local"() {
+    def "emits only local and pack/unpack operations for local"() {
         when:
         buildFile << cacheableTask() << """
             apply plugin: "base"
@@ -144,13 +146,22 @@ class BuildCacheBuildOperationsIntegrationTest extends AbstractIntegrationSpec i
         packOp.result.archiveSize == localCacheArtifact(packOp.details.cacheKey.toString()).length()
         packOp.result.archiveEntryCount == 4
 
+        def localStoreOp = operations.only(BuildCacheLocalStoreBuildOperationType)
+        localStoreOp.details.cacheKey == packOp.details.cacheKey
+        localStoreOp.details.archiveSize == packOp.result.archiveSize
+
         when:
         succeeds("clean", "t")
 
         then:
         operations.none(BuildCacheRemoteStoreBuildOperationType)
+        operations.none(BuildCacheLocalStoreBuildOperationType)
+        def localLoadOp = operations.only(BuildCacheLocalLoadBuildOperationType)
+        localLoadOp.details.cacheKey == packOp.details.cacheKey
+        localLoadOp.result.hit
         def unpackOp = operations.only(BuildCacheArchiveUnpackBuildOperationType)
         unpackOp.details.cacheKey == packOp.details.cacheKey
+        operations.search(localLoadOp, BuildCacheArchiveUnpackBuildOperationType) == [unpackOp]
 
         // Not all of the tar.gz bytes need to be read in order to unpack the archive.
         // On Linux at least, the archive may have redundant padding bytes
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal;
+
+import org.gradle.caching.BuildCacheException;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.BuildCacheService;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * A {@link BuildCacheService} that can look up many entries with a single request.
+ */
+public interface BatchingBuildCacheService extends BuildCacheService {
+
+    /**
+     * Returns the given keys that have an entry in the cache.
+     *
+     * @return the keys found, or {@code null} when the cache cannot answer batch requests.
+     */
+    @Nullable
+    Set<BuildCacheKey> contains(Collection<BuildCacheKey> keys) throws BuildCacheException;
+
+    /**
+     * Loads the entries for the given keys, calling the reader once for each entry found.
+     *
+     * @return the keys loaded, or {@code null} when the cache cannot answer batch requests.
+     */
+    @Nullable
+    Set<BuildCacheKey> loadAll(Collection<BuildCacheKey> keys, EntryReader reader) throws BuildCacheException;
+
+    interface EntryReader {
+        void readFrom(BuildCacheKey key, InputStream input) throws IOException;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller;
+
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.internal.UncheckedException;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Prefetches the entries of tasks that were not found in the local build cache, grouping the keys of tasks that are resolved concurrently into a single request.
+ *
+ * <p>While one batch is being fetched, the keys of other tasks are collected into the next batch. The first of these tasks to run once the fetch completes fetches the whole batch, so at most one prefetch request is in flight at any time.</p>
+ */
+public class BatchingBuildCachePrefetcher {
+
+    private final BuildCacheController buildCacheController;
+    private final Object lock = new Object();
+    private Batch collecting = new Batch();
+    private boolean fetching;
+
+    public BatchingBuildCachePrefetcher(BuildCacheController buildCacheController) {
+        this.buildCacheController = buildCacheController;
+    }
+
+    /**
+     * Makes sure that the entry for the given key has been prefetched, fetching it together with any other keys requested in the meantime.
+     */
+    public void prefetch(BuildCacheKey key) {
+        Batch batch;
+        synchronized (lock) {
+            batch = collecting;
+            batch.keys.add(key);
+            while (fetching && !batch.done) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+            if (batch.done) {
+                return;
+            }
+            fetching = true;
+            collecting = new Batch();
+        }
+        try {
+            buildCacheController.prefetch(batch.keys);
+        } finally {
+            synchronized (lock) {
+                batch.done = true;
+                fetching = false;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private static class Batch {
+        private final Set<BuildCacheKey> keys = new LinkedHashSet<BuildCacheKey>();
+        private boolean done;
+    }
+}
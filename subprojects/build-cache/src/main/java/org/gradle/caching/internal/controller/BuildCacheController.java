@@ -16,10 +16,12 @@
 
 package org.gradle.caching.internal.controller;
 
+import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.BuildCacheService;
 
 import javax.annotation.Nullable;
 import java.io.Closeable;
+import java.util.Collection;
 
 /**
  * Internal coordinator of build cache operations.
@@ -33,6 +35,16 @@ public interface BuildCacheController extends Closeable {
 
     void store(BuildCacheStoreCommand command);
 
+    /**
+     * Looks up the given keys in the remote cache with a single request, if the remote cache supports it.
+     *
+     * Entries found are copied to the local cache when it can be written to. Keys not found are remembered,
+     * so that later calls to {@link #load(BuildCacheLoadCommand)} do not request them from the remote cache again.
+     *
+     * {@link #load(BuildCacheLoadCommand)} prefetches keys itself once they are not found in the local cache.
+     */
+    void prefetch(Collection<BuildCacheKey> keys);
+
     @Override
     void close();
 
@@ -23,6 +23,7 @@ import org.gradle.api.GradleException;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.internal.BatchingBuildCacheService;
 import org.gradle.caching.internal.controller.operations.PackOperationDetails;
 import org.gradle.caching.internal.controller.operations.PackOperationResult;
 import org.gradle.caching.internal.controller.operations.UnpackOperationDetails;
@@ -31,12 +32,12 @@ import org.gradle.caching.internal.controller.service.BaseBuildCacheServiceHandl
 import org.gradle.caching.internal.controller.service.BuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.BuildCacheServiceRole;
 import org.gradle.caching.internal.controller.service.BuildCacheServicesConfiguration;
-import org.gradle.caching.internal.controller.service.DefaultLocalBuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.LoadTarget;
 import org.gradle.caching.internal.controller.service.LocalBuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.NullBuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.NullLocalBuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.OpFiringBuildCacheServiceHandle;
+import org.gradle.caching.internal.controller.service.OpFiringLocalBuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.StoreTarget;
 import org.gradle.caching.local.internal.BuildCacheTempFileStore;
 import org.gradle.caching.local.internal.DefaultBuildCacheTempFileStore;
@@ -55,6 +56,11 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DefaultBuildCacheController implements BuildCacheController {
 
@@ -69,7 +75,11 @@ public class DefaultBuildCacheController implements BuildCacheController {
 
     private final BuildCacheTempFileStore tmp;
     private final BuildOperationExecutor buildOperationExecutor;
+    private final BatchingBuildCachePrefetcher prefetcher = new BatchingBuildCachePrefetcher(this);
+    private final Set<String> prefetchedKeys = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final Set<String> knownRemoteMisses = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
+    private volatile boolean remoteSupportsBatches = true;
     private boolean closed;
 
     public DefaultBuildCacheController(
@@ -82,7 +92,7 @@ public class DefaultBuildCacheController implements BuildCacheController {
 
         if (config.local instanceof LocalBuildCacheService) {
             LocalBuildCacheService castLocal = (LocalBuildCacheService) config.local;
-            this.local = toHandle(castLocal, config.localPush);
+            this.local = toHandle(castLocal, config.localPush, buildOperationExecutor);
             this.tmp = castLocal;
             this.legacyLocal = NullBuildCacheServiceHandle.INSTANCE;
         } else {
@@ -100,12 +110,7 @@ public class DefaultBuildCacheController implements BuildCacheController {
         final Unpack<T> unpack = new Unpack<T>(command);
 
         if (local.canLoad()) {
-            try {
-                local.load(command.getKey(), unpack);
-            } catch (Exception e) {
-                throw new GradleException("Build cache entry " + command.getKey() + " from local build cache is invalid", e);
-            }
-
+            loadLocal(command, unpack);
             if (unpack.result != null) {
                 return unpack.result.getMetadata();
             }
@@ -123,8 +128,13 @@ public class DefaultBuildCacheController implements BuildCacheController {
                     }
 
                     if (remote.canLoad() && !loadTarget.isLoaded()) {
-                        loadedRole = BuildCacheServiceRole.REMOTE;
-                        remote.load(command.getKey(), loadTarget);
+                        if (prefetchAfterLocalMiss(command, unpack)) {
+                            return;
+                        }
+                        if (!knownRemoteMisses.contains(command.getKey().getHashCode())) {
+                            loadedRole = BuildCacheServiceRole.REMOTE;
+                            remote.load(command.getKey(), loadTarget);
+                        }
                     }
 
                     if (loadTarget.isLoaded()) {
@@ -150,6 +160,33 @@ public class DefaultBuildCacheController implements BuildCacheController {
         }
     }
 
+    private <T> void loadLocal(BuildCacheLoadCommand<T> command, Unpack<T> unpack) {
+        try {
+            local.load(command.getKey(), unpack);
+        } catch (Exception e) {
+            throw new GradleException("Build cache entry " + command.getKey() + " from local build cache is invalid", e);
+        }
+    }
+
+    /**
+     * Prefetches the entry after it was not found locally, batched with the keys of other tasks that missed at the same time.
+     * Keys found locally are never sent to the remote cache.
+     *
+     * @return whether the prefetched entry was loaded from the local build cache
+     */
+    private <T> boolean prefetchAfterLocalMiss(BuildCacheLoadCommand<T> command, Unpack<T> unpack) {
+        String hashCode = command.getKey().getHashCode();
+        if (!remoteSupportsBatches || prefetchedKeys.contains(hashCode)) {
+            return false;
+        }
+        prefetcher.prefetch(command.getKey());
+        if (!local.canLoad() || !local.canStore() || !prefetchedKeys.contains(hashCode) || knownRemoteMisses.contains(hashCode)) {
+            return false;
+        }
+        loadLocal(command, unpack);
+        return unpack.result != null;
+    }
+
     private class Unpack<T> implements Action<File> {
         private final BuildCacheLoadCommand<T> command;
 
@@ -239,7 +276,16 @@ public class DefaultBuildCacheController implements BuildCacheController {
                 @Override
                 public void run(BuildOperationContext context) {
                     try {
-                        BuildCacheStoreCommand.Result result = command.store(new FileOutputStream(file));
+                        OutputStream output = new FileOutputStream(file);
+                        if (local.canStore()) {
+                            output = local.decoratePackOutput(command.getKey(), output);
+                        }
+                        BuildCacheStoreCommand.Result result;
+                        try {
+                            result = command.store(output);
+                        } finally {
+                            output.close();
+                        }
                         context.setResult(new PackOperationResult(
                             result.getArtifactEntryCount(),
                             file.length()
@@ -259,6 +305,55 @@ public class DefaultBuildCacheController implements BuildCacheController {
         }
     }
 
+    @Override
+    public void prefetch(Collection<BuildCacheKey> keys) {
+        if (keys.isEmpty() || !remote.canLoad()) {
+            return;
+        }
+
+        Set<BuildCacheKey> found;
+        if (local.canStore()) {
+            found = remote.loadAll(keys, new BatchingBuildCacheService.EntryReader() {
+                @Override
+                public void readFrom(final BuildCacheKey key, final InputStream input) {
+                    tmp.allocateTempFile(key, new Action<File>() {
+                        @Override
+                        public void execute(File file) {
+                            copy(input, file);
+                            local.store(key, file);
+                        }
+                    });
+                }
+            });
+        } else {
+            found = remote.contains(keys);
+        }
+
+        if (found == null) {
+            remoteSupportsBatches = false;
+        } else {
+            for (BuildCacheKey key : keys) {
+                prefetchedKeys.add(key.getHashCode());
+                if (!found.contains(key)) {
+                    knownRemoteMisses.add(key.getHashCode());
+                }
+            }
+        }
+    }
+
+    private static void copy(InputStream input, File file) {
+        try {
+            OutputStream output = new FileOutputStream(file);
+            try {
+                IOUtils.copyLarge(input, output);
+            } finally {
+                IOUtils.closeQuietly(output);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     @Override
     public void close() {
         if (!closed) {
@@ -281,11 +376,11 @@ public class DefaultBuildCacheController implements BuildCacheController {
         }
     }
 
-    private static LocalBuildCacheServiceHandle toHandle(LocalBuildCacheService local, boolean localPush) {
+    private static LocalBuildCacheServiceHandle toHandle(LocalBuildCacheService local, boolean localPush, BuildOperationExecutor buildOperationExecutor) {
         if (local == null) {
             return NullLocalBuildCacheServiceHandle.INSTANCE;
         } else {
-            return new DefaultLocalBuildCacheServiceHandle(local, localPush);
+            return new OpFiringLocalBuildCacheServiceHandle(local, localPush, buildOperationExecutor);
         }
     }
 
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller.operations;
+
+import org.gradle.caching.internal.operations.BuildCacheLocalLoadBuildOperationType;
+
+public class LocalLoadOperationResult implements BuildCacheLocalLoadBuildOperationType.Result {
+
+    public static final BuildCacheLocalLoadBuildOperationType.Result MISS = new LocalLoadOperationResult(false, 0);
+
+    private final boolean hit;
+    private final long archiveSize;
+
+    private LocalLoadOperationResult(boolean hit, long archiveSize) {
+        this.hit = hit;
+        this.archiveSize = archiveSize;
+    }
+
+    public static BuildCacheLocalLoadBuildOperationType.Result hit(long archiveSize) {
+        return new LocalLoadOperationResult(true, archiveSize);
+    }
+
+    @Override
+    public boolean isHit() {
+        return hit;
+    }
+
+    @Override
+    public long getArchiveSize() {
+        return archiveSize;
+    }
+}
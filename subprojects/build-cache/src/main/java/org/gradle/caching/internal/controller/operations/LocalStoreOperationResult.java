@@ -1,5 +1,5 @@
 /*
- * Copyright 2009 the original author or authors.
+ * Copyright 2017 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -14,8 +14,15 @@
  * limitations under the License.
  */
 
-package org.gradle.api.internal.tasks.testing.detection;
+package org.gradle.caching.internal.controller.operations;
+
+import org.gradle.caching.internal.operations.BuildCacheLocalStoreBuildOperationType;
+
+public class LocalStoreOperationResult implements BuildCacheLocalStoreBuildOperationType.Result {
+
+    public static final BuildCacheLocalStoreBuildOperationType.Result INSTANCE = new LocalStoreOperationResult();
+
+    private LocalStoreOperationResult() {
+    }
 
-public interface JarFilePackageListener {
-    void receivePackage(String packageName);
 }
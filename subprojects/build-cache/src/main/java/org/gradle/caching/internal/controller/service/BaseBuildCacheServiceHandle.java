@@ -21,8 +21,12 @@ import org.gradle.api.logging.Logging;
 import org.gradle.caching.BuildCacheEntryReader;
 import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.internal.BatchingBuildCacheService;
 
 import javax.annotation.Nullable;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Set;
 
 public class BaseBuildCacheServiceHandle implements BuildCacheServiceHandle {
 
@@ -73,6 +77,58 @@ public class BaseBuildCacheServiceHandle implements BuildCacheServiceHandle {
         service.load(key, entryReader);
     }
 
+    @Nullable
+    @Override
+    public Set<BuildCacheKey> contains(Collection<BuildCacheKey> keys) {
+        if (disabled || !(service instanceof BatchingBuildCacheService)) {
+            return null;
+        }
+        LOGGER.debug("Query {} entries in {} build cache", keys.size(), role.getDisplayName());
+        try {
+            return containsInner((BatchingBuildCacheService) service, keys);
+        } catch (Exception e) {
+            failure("query", "in", keys.size() + " entries", e);
+            return null;
+        }
+    }
+
+    @Nullable
+    @Override
+    public Set<BuildCacheKey> loadAll(Collection<BuildCacheKey> keys, final BatchingBuildCacheService.EntryReader reader) {
+        if (disabled || !(service instanceof BatchingBuildCacheService)) {
+            return null;
+        }
+        LOGGER.debug("Load {} entries from {} build cache", keys.size(), role.getDisplayName());
+        // A failure to read an entry is not a failure of this build cache, so it should not disable it.
+        // If the failure was caused by reading from this cache, skipping the rest of the entry fails as well.
+        BatchingBuildCacheService.EntryReader failureTolerantReader = new BatchingBuildCacheService.EntryReader() {
+            @Override
+            public void readFrom(BuildCacheKey key, InputStream input) {
+                try {
+                    reader.readFrom(key, input);
+                } catch (Exception e) {
+                    readFailure(key, e);
+                }
+            }
+        };
+        try {
+            return loadAllInner((BatchingBuildCacheService) service, keys, failureTolerantReader);
+        } catch (Exception e) {
+            failure("load", "from", keys.size() + " entries", e);
+            return null;
+        }
+    }
+
+    @Nullable
+    protected Set<BuildCacheKey> containsInner(BatchingBuildCacheService service, Collection<BuildCacheKey> keys) {
+        return service.contains(keys);
+    }
+
+    @Nullable
+    protected Set<BuildCacheKey> loadAllInner(BatchingBuildCacheService service, Collection<BuildCacheKey> keys, BatchingBuildCacheService.EntryReader reader) {
+        return service.loadAll(keys, reader);
+    }
+
     @Override
     public boolean canStore() {
         return pushEnabled && !disabled;
@@ -93,10 +149,25 @@ public class BaseBuildCacheServiceHandle implements BuildCacheServiceHandle {
         service.store(key, storeTarget);
     }
 
+    private void readFailure(BuildCacheKey key, Throwable e) {
+        String description = "Could not read entry " + key.getDisplayName() + " loaded from " + role.getDisplayName() + " build cache";
+        if (LOGGER.isWarnEnabled()) {
+            if (logStackTraces) {
+                LOGGER.warn(description, e);
+            } else {
+                LOGGER.warn(description + ": " + e.getMessage());
+            }
+        }
+    }
+
     private void failure(String verb, String preposition, BuildCacheKey key, Throwable e) {
+        failure(verb, preposition, "entry " + key.getDisplayName(), e);
+    }
+
+    private void failure(String verb, String preposition, String entriesDisplayName, Throwable e) {
         disabled = true;
 
-        String description = "Could not " + verb + " entry " + key.getDisplayName() + " " + preposition + " " + role.getDisplayName() + " build cache";
+        String description = "Could not " + verb + " " + entriesDisplayName + " " + preposition + " " + role.getDisplayName() + " build cache";
         if (LOGGER.isWarnEnabled()) {
             if (logStackTraces) {
                 LOGGER.warn(description, e);
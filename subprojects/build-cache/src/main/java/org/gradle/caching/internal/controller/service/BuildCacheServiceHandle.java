@@ -19,9 +19,12 @@ package org.gradle.caching.internal.controller.service;
 import com.google.common.annotations.VisibleForTesting;
 import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.internal.BatchingBuildCacheService;
 
 import javax.annotation.Nullable;
 import java.io.Closeable;
+import java.util.Collection;
+import java.util.Set;
 
 public interface BuildCacheServiceHandle extends Closeable {
 
@@ -33,6 +36,18 @@ public interface BuildCacheServiceHandle extends Closeable {
 
     void load(BuildCacheKey key, LoadTarget loadTarget);
 
+    /**
+     * Returns the given keys that have an entry in the cache, or {@code null} if that is not known.
+     */
+    @Nullable
+    Set<BuildCacheKey> contains(Collection<BuildCacheKey> keys);
+
+    /**
+     * Loads the entries for the given keys with a single request, returning the keys loaded or {@code null} if that is not supported.
+     */
+    @Nullable
+    Set<BuildCacheKey> loadAll(Collection<BuildCacheKey> keys, BatchingBuildCacheService.EntryReader reader);
+
     boolean canStore();
 
     void store(BuildCacheKey key, StoreTarget storeTarget);
@@ -19,9 +19,11 @@ package org.gradle.caching.internal.controller.service;
 import org.gradle.api.Action;
 import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.local.internal.LocalBuildCacheService;
+import org.gradle.caching.local.internal.PackAwareLocalBuildCacheService;
 
 import javax.annotation.Nullable;
 import java.io.File;
+import java.io.OutputStream;
 
 public class DefaultLocalBuildCacheServiceHandle implements LocalBuildCacheServiceHandle {
 
@@ -54,6 +56,14 @@ public class DefaultLocalBuildCacheServiceHandle implements LocalBuildCacheServi
         return pushEnabled;
     }
 
+    @Override
+    public OutputStream decoratePackOutput(BuildCacheKey key, OutputStream output) {
+        if (service instanceof PackAwareLocalBuildCacheService) {
+            return ((PackAwareLocalBuildCacheService) service).decoratePackOutput(key, output);
+        }
+        return output;
+    }
+
     @Override
     public void store(BuildCacheKey key, File file) {
         service.store(key, file);
@@ -24,6 +24,7 @@ import org.gradle.caching.local.internal.LocalBuildCacheService;
 import javax.annotation.Nullable;
 import java.io.Closeable;
 import java.io.File;
+import java.io.OutputStream;
 
 public interface LocalBuildCacheServiceHandle extends Closeable {
 
@@ -38,6 +39,11 @@ public interface LocalBuildCacheServiceHandle extends Closeable {
 
     boolean canStore();
 
+    /**
+     * Decorates the stream the entry for the given key is packed into, before it is passed to {@link #store(BuildCacheKey, File)}.
+     */
+    OutputStream decoratePackOutput(BuildCacheKey key, OutputStream output);
+
     // TODO: what if this errors?
     void store(BuildCacheKey key, File file);
 
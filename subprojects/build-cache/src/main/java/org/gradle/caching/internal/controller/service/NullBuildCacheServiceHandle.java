@@ -18,8 +18,11 @@ package org.gradle.caching.internal.controller.service;
 
 import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.internal.BatchingBuildCacheService;
 
 import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Set;
 
 public class NullBuildCacheServiceHandle implements BuildCacheServiceHandle {
 
@@ -41,6 +44,18 @@ public class NullBuildCacheServiceHandle implements BuildCacheServiceHandle {
         throw new UnsupportedOperationException();
     }
 
+    @Nullable
+    @Override
+    public Set<BuildCacheKey> contains(Collection<BuildCacheKey> keys) {
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public Set<BuildCacheKey> loadAll(Collection<BuildCacheKey> keys, BatchingBuildCacheService.EntryReader reader) {
+        return null;
+    }
+
     @Override
     public boolean canStore() {
         return false;
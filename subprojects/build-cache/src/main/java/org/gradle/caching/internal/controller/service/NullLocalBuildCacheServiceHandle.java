@@ -22,6 +22,7 @@ import org.gradle.caching.local.internal.LocalBuildCacheService;
 
 import javax.annotation.Nullable;
 import java.io.File;
+import java.io.OutputStream;
 
 public class NullLocalBuildCacheServiceHandle implements LocalBuildCacheServiceHandle {
 
@@ -51,6 +52,11 @@ public class NullLocalBuildCacheServiceHandle implements LocalBuildCacheServiceH
         return false;
     }
 
+    @Override
+    public OutputStream decoratePackOutput(BuildCacheKey key, OutputStream output) {
+        return output;
+    }
+
     @Override
     public void store(BuildCacheKey key, File file) {
         throw new UnsupportedOperationException();
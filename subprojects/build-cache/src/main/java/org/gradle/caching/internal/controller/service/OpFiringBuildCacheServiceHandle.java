@@ -16,9 +16,11 @@
 
 package org.gradle.caching.internal.controller.service;
 
+import org.apache.commons.io.input.CountingInputStream;
 import org.gradle.caching.BuildCacheEntryReader;
 import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.internal.BatchingBuildCacheService;
 import org.gradle.caching.internal.controller.operations.LoadOperationDetails;
 import org.gradle.caching.internal.controller.operations.LoadOperationHitResult;
 import org.gradle.caching.internal.controller.operations.LoadOperationMissResult;
@@ -29,8 +31,11 @@ import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.operations.RunnableBuildOperation;
 import org.gradle.internal.progress.BuildOperationDescriptor;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collection;
+import java.util.Set;
 
 public class OpFiringBuildCacheServiceHandle extends BaseBuildCacheServiceHandle {
 
@@ -63,6 +68,83 @@ public class OpFiringBuildCacheServiceHandle extends BaseBuildCacheServiceHandle
         });
     }
 
+    /**
+     * Fires a remote load operation for each key that is missing, as the keys found are loaded one at a time afterwards.
+     */
+    @Nullable
+    @Override
+    protected Set<BuildCacheKey> containsInner(BatchingBuildCacheService service, Collection<BuildCacheKey> keys) {
+        Set<BuildCacheKey> found = super.containsInner(service, keys);
+        if (found != null) {
+            fireMisses(keys, found);
+        }
+        return found;
+    }
+
+    /**
+     * Fires a remote load operation for each key, while its entry is being read for the keys found.
+     */
+    @Nullable
+    @Override
+    protected Set<BuildCacheKey> loadAllInner(BatchingBuildCacheService service, Collection<BuildCacheKey> keys, final BatchingBuildCacheService.EntryReader reader) {
+        Set<BuildCacheKey> found = super.loadAllInner(service, keys, new BatchingBuildCacheService.EntryReader() {
+            @Override
+            public void readFrom(final BuildCacheKey key, final InputStream input) throws IOException {
+                try {
+                    buildOperationExecutor.run(new RunnableBuildOperation() {
+                        @Override
+                        public void run(BuildOperationContext context) {
+                            CountingInputStream countingInput = new CountingInputStream(input);
+                            try {
+                                reader.readFrom(key, countingInput);
+                            } catch (IOException e) {
+                                throw new UncheckedWrapper(e);
+                            }
+                            context.setResult(new LoadOperationHitResult(countingInput.getByteCount()));
+                        }
+
+                        @Override
+                        public BuildOperationDescriptor.Builder description() {
+                            return loadDescription(key)
+                                .progressDisplayName("Downloading from remote build cache");
+                        }
+                    });
+                } catch (UncheckedWrapper uncheckedWrapper) {
+                    throw uncheckedWrapper.getIOException();
+                }
+            }
+        });
+        if (found != null) {
+            fireMisses(keys, found);
+        }
+        return found;
+    }
+
+    private void fireMisses(Collection<BuildCacheKey> keys, Set<BuildCacheKey> found) {
+        for (final BuildCacheKey key : keys) {
+            if (found.contains(key)) {
+                continue;
+            }
+            buildOperationExecutor.run(new RunnableBuildOperation() {
+                @Override
+                public void run(BuildOperationContext context) {
+                    context.setResult(LoadOperationMissResult.INSTANCE);
+                }
+
+                @Override
+                public BuildOperationDescriptor.Builder description() {
+                    return loadDescription(key)
+                        .progressDisplayName("Requesting from remote build cache");
+                }
+            });
+        }
+    }
+
+    private BuildOperationDescriptor.Builder loadDescription(BuildCacheKey key) {
+        return BuildOperationDescriptor.displayName("Load entry " + key.getHashCode() + " from " + role.getDisplayName() + " build cache")
+            .details(new LoadOperationDetails(key));
+    }
+
     @Override
     protected void storeInner(final String description, final BuildCacheKey key, final StoreTarget storeTarget) {
         buildOperationExecutor.run(new RunnableBuildOperation() {
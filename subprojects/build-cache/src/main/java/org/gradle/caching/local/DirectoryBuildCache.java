@@ -31,6 +31,7 @@ import javax.annotation.Nullable;
 public class DirectoryBuildCache extends AbstractBuildCache {
     private Object directory;
     private long targetSizeInMB = 5 * 1024; // 5 GB
+    private boolean deduplicateContent;
 
     /**
      * Returns the directory to use to store the build cache.
@@ -75,4 +76,25 @@ public class DirectoryBuildCache extends AbstractBuildCache {
         }
         this.targetSizeInMB = targetSizeInMB;
     }
+
+    /**
+     * Whether files with identical content are stored only once across all cache entries.
+     * Defaults to {@code false}.
+     * <p>
+     * This saves disk space when many task outputs contain the same files, at the cost of some extra work when storing and loading entries.
+     *
+     * @since 4.5
+     */
+    public boolean isDeduplicateContent() {
+        return deduplicateContent;
+    }
+
+    /**
+     * Sets whether files with identical content are stored only once across all cache entries.
+     *
+     * @since 4.5
+     */
+    public void setDeduplicateContent(boolean deduplicateContent) {
+        this.deduplicateContent = deduplicateContent;
+    }
 }
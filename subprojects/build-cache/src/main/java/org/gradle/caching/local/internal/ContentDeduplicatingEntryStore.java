@@ -0,0 +1,442 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.hash.HashingOutputStream;
+import org.gradle.internal.resource.local.LocallyAvailableResource;
+import org.gradle.internal.resource.local.PathKeyFileStore;
+import org.gradle.util.GFileUtils;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.google.common.util.concurrent.Uninterruptibles.getUninterruptibly;
+
+/**
+ * Stores build cache entries as a manifest plus blobs keyed by the hash of their content.
+ *
+ * <p>Task output archives are gzipped TAR files. When storing, the archive is split up so that each
+ * larger file in it is kept only once in the cache directory, no matter how many entries contain it.
+ * Archives packed through {@link #splitWhileWriting(BuildCacheKey, OutputStream)} are split while they are
+ * written, so that storing them does not need to read them again.
+ * When loading, the archive is assembled again from the manifest and the blobs.</p>
+ *
+ * <p>Manifests are stored under the key with {@link #MANIFEST_SUFFIX} appended, so that they can be found
+ * without opening the entries of the cache.</p>
+ *
+ * <p>Blobs live next to the manifests in the cache directory, so the regular size based cleanup
+ * evicts them like any other file. Loading an entry marks all of its blobs as recently used.
+ * When a blob referenced by a manifest has been evicted, the entry is treated as a cache miss.</p>
+ */
+public class ContentDeduplicatingEntryStore implements Closeable {
+    public static final String BLOB_SUFFIX = ".blob";
+    public static final String MANIFEST_SUFFIX = ".manifest";
+
+    private static final int MANIFEST_MAGIC = 0x47424d46;
+    private static final int MANIFEST_VERSION = 1;
+
+    private static final byte DIRECTORY_ENTRY = 0;
+    private static final byte INLINE_FILE_ENTRY = 1;
+    private static final byte BLOB_FILE_ENTRY = 2;
+
+    // Files smaller than this are kept in the manifest, as a separate blob would cost more than it saves
+    private static final long INLINE_THRESHOLD = 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final PathKeyFileStore fileStore;
+    private final File tempDir;
+    private final ExecutorFactory executorFactory;
+    // Manifests of archives split while they were written, waiting for the archive to be stored
+    private final ConcurrentMap<String, File> splitManifests = new ConcurrentHashMap<String, File>();
+    private ManagedExecutor splitterExecutor;
+
+    public ContentDeduplicatingEntryStore(PathKeyFileStore fileStore, File tempDir, ExecutorFactory executorFactory) {
+        this.fileStore = fileStore;
+        this.tempDir = tempDir;
+        this.executorFactory = executorFactory;
+    }
+
+    /**
+     * Returns the key under which the manifest for the given key is stored.
+     */
+    public static String manifestKey(BuildCacheKey key) {
+        return key.getHashCode() + MANIFEST_SUFFIX;
+    }
+
+    /**
+     * Returns a stream that writes the archive for the given key to the given output, and splits it into a manifest
+     * and blobs on a separate thread at the same time. A later {@link #store(BuildCacheKey, File)} for the key uses
+     * the manifest instead of reading the archive again.
+     */
+    public OutputStream splitWhileWriting(final BuildCacheKey key, OutputStream output) {
+        final PipedInputStream pipeInput = new PipedInputStream(BUFFER_SIZE);
+        PipedOutputStream pipeOutput;
+        try {
+            pipeOutput = new PipedOutputStream(pipeInput);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Future<File> manifest = getSplitterExecutor().submit(new Callable<File>() {
+            @Override
+            public File call() {
+                try {
+                    return splitArchive(key, pipeInput);
+                } finally {
+                    // Keep reading until the writer is done, so that it never blocks on a full pipe
+                    try {
+                        IOUtils.copyLarge(pipeInput, NullOutputStream.NULL_OUTPUT_STREAM);
+                    } catch (IOException e) {
+                        // Writer has gone away
+                    }
+                    IOUtils.closeQuietly(pipeInput);
+                }
+            }
+        });
+        return new SplittingOutputStream(key, output, pipeOutput, manifest);
+    }
+
+    private synchronized ManagedExecutor getSplitterExecutor() {
+        if (splitterExecutor == null) {
+            splitterExecutor = executorFactory.create("Build cache content splitter");
+        }
+        return splitterExecutor;
+    }
+
+    @Nullable
+    private File splitArchive(BuildCacheKey key, InputStream archive) {
+        File manifestFile = createTempFile(key);
+        try {
+            writeManifest(key, archive, manifestFile);
+            return manifestFile;
+        } catch (IOException e) {
+            GFileUtils.deleteQuietly(manifestFile);
+            return null;
+        }
+    }
+
+    /**
+     * Splits the given archive into a manifest and blobs and stores them for the given key.
+     *
+     * @return false if the archive could not be read as a gzipped TAR file, and has not been stored.
+     */
+    public boolean store(BuildCacheKey key, File archive) {
+        File manifestFile = splitManifests.remove(key.getHashCode());
+        try {
+            if (manifestFile == null) {
+                manifestFile = createTempFile(key);
+                try {
+                    InputStream archiveInput = new BufferedInputStream(new FileInputStream(archive), BUFFER_SIZE);
+                    try {
+                        writeManifest(key, archiveInput, manifestFile);
+                    } finally {
+                        IOUtils.closeQuietly(archiveInput);
+                    }
+                } catch (IOException e) {
+                    return false;
+                }
+            }
+            fileStore.move(manifestKey(key), manifestFile);
+            return true;
+        } finally {
+            GFileUtils.deleteQuietly(manifestFile);
+        }
+    }
+
+    private void writeManifest(BuildCacheKey key, InputStream archive, File manifestFile) throws IOException {
+        // Leaves the archive stream open, the caller is responsible for it
+        TarArchiveInputStream tarInput = new TarArchiveInputStream(new GZIPInputStream(new CloseShieldInputStream(archive), BUFFER_SIZE), "utf-8");
+        DataOutputStream manifest = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(manifestFile)));
+        try {
+            manifest.writeInt(MANIFEST_MAGIC);
+            manifest.writeInt(MANIFEST_VERSION);
+            TarArchiveEntry entry;
+            while ((entry = tarInput.getNextTarEntry()) != null) {
+                manifest.writeBoolean(true);
+                writeString(manifest, entry.getName());
+                manifest.writeInt(entry.getMode());
+                if (entry.isDirectory()) {
+                    manifest.writeByte(DIRECTORY_ENTRY);
+                } else if (entry.getSize() < INLINE_THRESHOLD) {
+                    manifest.writeByte(INLINE_FILE_ENTRY);
+                    manifest.writeLong(entry.getSize());
+                    IOUtils.copyLarge(tarInput, manifest);
+                } else {
+                    manifest.writeByte(BLOB_FILE_ENTRY);
+                    manifest.writeLong(entry.getSize());
+                    writeString(manifest, storeBlob(key, tarInput));
+                }
+            }
+            manifest.writeBoolean(false);
+        } finally {
+            IOUtils.closeQuietly(manifest);
+            IOUtils.closeQuietly(tarInput);
+        }
+    }
+
+    private String storeBlob(BuildCacheKey key, InputStream content) throws IOException {
+        File blobFile = createTempFile(key);
+        try {
+            HashingOutputStream output = new HashingOutputStream(Hashing.md5(), new BufferedOutputStream(new FileOutputStream(blobFile)));
+            try {
+                IOUtils.copyLarge(content, output, new byte[BUFFER_SIZE]);
+            } finally {
+                IOUtils.closeQuietly(output);
+            }
+            String blobKey = output.hash().toString() + BLOB_SUFFIX;
+            LocallyAvailableResource existingBlob = fileStore.get(blobKey);
+            if (existingBlob != null) {
+                // Mark as recently used, so that cleanup evicts the blob only after all entries using it
+                GFileUtils.touch(existingBlob.getFile());
+            } else {
+                fileStore.move(blobKey, blobFile);
+            }
+            return blobKey;
+        } finally {
+            GFileUtils.deleteQuietly(blobFile);
+        }
+    }
+
+    /**
+     * Assembles the archive described by the given manifest into the target file.
+     *
+     * @return false if any of the blobs referenced by the manifest are not available anymore.
+     */
+    public boolean restore(File manifestFile, File target) {
+        try {
+            DataInputStream manifest = new DataInputStream(new BufferedInputStream(new FileInputStream(manifestFile)));
+            try {
+                if (manifest.readInt() != MANIFEST_MAGIC || manifest.readInt() != MANIFEST_VERSION) {
+                    throw new IllegalStateException("Unsupported build cache manifest format: " + manifestFile);
+                }
+                List<File> blobs = Lists.newArrayList();
+                OutputStream output = new FileOutputStream(target);
+                try {
+                    // The archive is only read back locally, so spend no time on compressing it again
+                    GZIPOutputStream gzipOutput = new GZIPOutputStream(new BufferedOutputStream(output, BUFFER_SIZE)) {
+                        {
+                            def.setLevel(Deflater.NO_COMPRESSION);
+                        }
+                    };
+                    TarArchiveOutputStream tarOutput = new TarArchiveOutputStream(gzipOutput, "utf-8");
+                    tarOutput.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+                    tarOutput.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+                    tarOutput.setAddPaxHeadersForNonAsciiNames(true);
+                    try {
+                        while (manifest.readBoolean()) {
+                            if (!restoreEntry(manifest, tarOutput, blobs)) {
+                                return false;
+                            }
+                        }
+                    } finally {
+                        IOUtils.closeQuietly(tarOutput);
+                    }
+                } finally {
+                    IOUtils.closeQuietly(output);
+                }
+                for (File blob : blobs) {
+                    GFileUtils.touch(blob);
+                }
+                return true;
+            } finally {
+                IOUtils.closeQuietly(manifest);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean restoreEntry(DataInputStream manifest, TarArchiveOutputStream tarOutput, List<File> blobs) throws IOException {
+        String name = readString(manifest);
+        int mode = manifest.readInt();
+        byte type = manifest.readByte();
+        TarArchiveEntry entry = new TarArchiveEntry(name, true);
+        entry.setMode(mode);
+        switch (type) {
+            case DIRECTORY_ENTRY:
+                entry.setSize(0);
+                tarOutput.putArchiveEntry(entry);
+                break;
+            case INLINE_FILE_ENTRY:
+                long inlineSize = manifest.readLong();
+                entry.setSize(inlineSize);
+                tarOutput.putArchiveEntry(entry);
+                IOUtils.copyLarge(manifest, tarOutput, 0, inlineSize);
+                break;
+            case BLOB_FILE_ENTRY:
+                long blobSize = manifest.readLong();
+                File blob = findBlob(readString(manifest));
+                if (blob == null || blob.length() != blobSize) {
+                    return false;
+                }
+                InputStream blobInput;
+                try {
+                    blobInput = new FileInputStream(blob);
+                } catch (FileNotFoundException e) {
+                    // Cleaned up by another process since we looked it up, reading is not affected once the blob is open
+                    return false;
+                }
+                entry.setSize(blobSize);
+                tarOutput.putArchiveEntry(entry);
+                try {
+                    IOUtils.copyLarge(blobInput, tarOutput, new byte[BUFFER_SIZE]);
+                } finally {
+                    IOUtils.closeQuietly(blobInput);
+                }
+                blobs.add(blob);
+                break;
+            default:
+                throw new IllegalStateException("Unknown build cache manifest entry type: " + type);
+        }
+        tarOutput.closeArchiveEntry();
+        return true;
+    }
+
+    @Nullable
+    private File findBlob(String blobKey) {
+        LocallyAvailableResource resource = fileStore.get(blobKey);
+        return resource == null ? null : resource.getFile();
+    }
+
+    private File createTempFile(BuildCacheKey key) {
+        try {
+            return File.createTempFile(key.getHashCode(), BuildCacheTempFileStore.PARTIAL_FILE_SUFFIX, tempDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Deletes the manifests of archives that have been split but not stored.
+     */
+    @Override
+    public void close() {
+        for (File manifestFile : splitManifests.values()) {
+            GFileUtils.deleteQuietly(manifestFile);
+        }
+        splitManifests.clear();
+        synchronized (this) {
+            CompositeStoppable.stoppable(splitterExecutor).stop();
+            splitterExecutor = null;
+        }
+    }
+
+    private class SplittingOutputStream extends OutputStream {
+        private final BuildCacheKey key;
+        private final OutputStream output;
+        private final PipedOutputStream pipe;
+        private final Future<File> manifest;
+        private boolean closed;
+
+        SplittingOutputStream(BuildCacheKey key, OutputStream output, PipedOutputStream pipe, Future<File> manifest) {
+            this.key = key;
+            this.output = output;
+            this.pipe = pipe;
+            this.manifest = manifest;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            output.write(b);
+            pipe.write(b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) throws IOException {
+            output.write(bytes, off, len);
+            pipe.write(bytes, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            output.flush();
+            pipe.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                output.close();
+            } finally {
+                pipe.close();
+                File manifestFile;
+                try {
+                    manifestFile = getUninterruptibly(manifest);
+                } catch (ExecutionException e) {
+                    manifestFile = null;
+                }
+                if (manifestFile != null) {
+                    File previous = splitManifests.put(key.getHashCode(), manifestFile);
+                    if (previous != null) {
+                        GFileUtils.deleteQuietly(previous);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(Charsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, Charsets.UTF_8);
+    }
+}
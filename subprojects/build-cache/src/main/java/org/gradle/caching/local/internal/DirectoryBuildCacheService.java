@@ -27,26 +27,39 @@ import org.gradle.caching.BuildCacheKey;
 import org.gradle.caching.BuildCacheService;
 import org.gradle.internal.Factory;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.resource.local.LocallyAvailableResource;
 import org.gradle.internal.resource.local.PathKeyFileStore;
 import org.gradle.util.GFileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 
-public class DirectoryBuildCacheService implements LocalBuildCacheService, BuildCacheService {
+public class DirectoryBuildCacheService implements PackAwareLocalBuildCacheService, BuildCacheService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DirectoryBuildCacheService.class);
 
     private final PathKeyFileStore fileStore;
     private final PersistentCache persistentCache;
     private final BuildCacheTempFileStore tempFileStore;
+    private final ContentDeduplicatingEntryStore deduplicatingEntryStore;
+    private final boolean deduplicateContent;
     private final String failedFileSuffix;
+    private volatile boolean pinningSupported = true;
 
-    public DirectoryBuildCacheService(PathKeyFileStore fileStore, PersistentCache persistentCache, BuildCacheTempFileStore tempFileStore, String failedFileSuffix) {
+    public DirectoryBuildCacheService(PathKeyFileStore fileStore, PersistentCache persistentCache, BuildCacheTempFileStore tempFileStore, ContentDeduplicatingEntryStore deduplicatingEntryStore, boolean deduplicateContent, String failedFileSuffix) {
         this.fileStore = fileStore;
         this.persistentCache = persistentCache;
         this.tempFileStore = tempFileStore;
+        this.deduplicatingEntryStore = deduplicatingEntryStore;
+        this.deduplicateContent = deduplicateContent;
         this.failedFileSuffix = failedFileSuffix;
     }
 
@@ -87,33 +100,128 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
 
     @Override
     public void load(final BuildCacheKey key, final Action<? super File> reader) {
+        if (!pinningSupported) {
+            loadLocked(key, reader);
+            return;
+        }
+
+        LocallyAvailableResource resource = findEntry(key);
+        if (resource == null) {
+            return;
+        }
+        final File file = resource.getFile();
+        tempFileStore.allocateTempFile(key, new Action<File>() {
+            @Override
+            public void execute(File pinnedFile) {
+                // Link the entry into a file of our own, so that cleanup in another process can delete the entry
+                // at any time without a file lock. The content stays around until our link is removed.
+                // Cleanup ignores partial files, so it will not remove the link itself.
+                try {
+                    GFileUtils.deleteQuietly(pinnedFile);
+                    Files.createLink(pinnedFile.toPath(), file.toPath());
+                } catch (NoSuchFileException e) {
+                    // Removed since we looked it up
+                    return;
+                } catch (UnsupportedOperationException e) {
+                    disablePinning(e);
+                    loadLocked(key, reader);
+                    return;
+                } catch (IOException e) {
+                    if (!file.exists()) {
+                        return;
+                    }
+                    disablePinning(e);
+                    loadLocked(key, reader);
+                    return;
+                }
+                load(key, file, pinnedFile, reader);
+            }
+        });
+    }
+
+    private void disablePinning(Exception e) {
+        LOGGER.info("Could not link build cache entries in {}, falling back to locking the cache for loads.", persistentCache.getBaseDir(), e);
+        pinningSupported = false;
+    }
+
+    private void loadLocked(final BuildCacheKey key, final Action<? super File> reader) {
         // We need to lock here because garbage collection can be under way in another process
         persistentCache.withFileLock(new Factory<Void>() {
             @Override
             public Void create() {
-                LocallyAvailableResource resource = fileStore.get(key.getHashCode());
+                LocallyAvailableResource resource = findEntry(key);
                 if (resource != null) {
-                    final File file = resource.getFile();
-                    GFileUtils.touch(file); // Mark as recently used
-
-                    try {
-                        reader.execute(file);
-                    } catch (Exception e) {
-                        // Try to move the file out of the way in case its permanently corrupt
-                        // Don't delete, so that it can be potentially used for debugging
-                        File failedFile = new File(file.getAbsolutePath() + failedFileSuffix);
-                        GFileUtils.deleteQuietly(failedFile);
-                        //noinspection ResultOfMethodCallIgnored
-                        file.renameTo(failedFile);
-
-                        throw UncheckedException.throwAsUncheckedException(e);
-                    }
+                    File file = resource.getFile();
+                    load(key, file, file, reader);
                 }
                 return null;
             }
         });
     }
 
+    /**
+     * Looks up the entry for the given key. Entries stored with content deduplication are found even when it has been turned off since.
+     */
+    @Nullable
+    private LocallyAvailableResource findEntry(BuildCacheKey key) {
+        String manifestKey = ContentDeduplicatingEntryStore.manifestKey(key);
+        if (deduplicateContent) {
+            LocallyAvailableResource manifest = fileStore.get(manifestKey);
+            return manifest != null ? manifest : fileStore.get(key.getHashCode());
+        }
+        LocallyAvailableResource archive = fileStore.get(key.getHashCode());
+        return archive != null ? archive : fileStore.get(manifestKey);
+    }
+
+    private void load(BuildCacheKey key, File entryFile, File file, Action<? super File> reader) {
+        GFileUtils.touch(file); // Mark as recently used
+
+        if (entryFile.getName().endsWith(ContentDeduplicatingEntryStore.MANIFEST_SUFFIX)) {
+            loadFromManifest(key, entryFile, file, reader);
+        } else {
+            loadFromFile(entryFile, file, reader);
+        }
+    }
+
+    private void loadFromManifest(final BuildCacheKey key, final File entryFile, final File manifest, final Action<? super File> reader) {
+        tempFileStore.allocateTempFile(key, new Action<File>() {
+            @Override
+            public void execute(File archive) {
+                boolean restored;
+                try {
+                    restored = deduplicatingEntryStore.restore(manifest, archive);
+                } catch (Exception e) {
+                    markFailed(entryFile);
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+                if (restored) {
+                    loadFromFile(entryFile, archive, reader);
+                } else {
+                    // Some of the content has been cleaned up already, so the entry is not usable anymore
+                    GFileUtils.deleteQuietly(entryFile);
+                }
+            }
+        });
+    }
+
+    private void loadFromFile(File entryFile, File file, Action<? super File> reader) {
+        try {
+            reader.execute(file);
+        } catch (Exception e) {
+            markFailed(entryFile);
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    private void markFailed(File file) {
+        // Try to move the file out of the way in case its permanently corrupt
+        // Don't delete, so that it can be potentially used for debugging
+        File failedFile = new File(file.getAbsolutePath() + failedFileSuffix);
+        GFileUtils.deleteQuietly(failedFile);
+        //noinspection ResultOfMethodCallIgnored
+        file.renameTo(failedFile);
+    }
+
     @Override
     public void store(final BuildCacheKey key, final BuildCacheEntryWriter result) throws BuildCacheException {
         tempFileStore.allocateTempFile(key, new Action<File>() {
@@ -142,11 +250,18 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
         persistentCache.useCache(new Runnable() {
             @Override
             public void run() {
-                fileStore.move(key.getHashCode(), file);
+                if (!deduplicateContent || !deduplicatingEntryStore.store(key, file)) {
+                    fileStore.move(key.getHashCode(), file);
+                }
             }
         });
     }
 
+    @Override
+    public OutputStream decoratePackOutput(BuildCacheKey key, OutputStream output) {
+        return deduplicateContent ? deduplicatingEntryStore.splitWhileWriting(key, output) : output;
+    }
+
     @Override
     public void allocateTempFile(final BuildCacheKey key, final Action<? super File> action) {
         tempFileStore.allocateTempFile(key, action);
@@ -154,6 +269,6 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
 
     @Override
     public void close() {
-        persistentCache.close();
+        CompositeStoppable.stoppable(deduplicatingEntryStore, persistentCache).stop();
     }
 }
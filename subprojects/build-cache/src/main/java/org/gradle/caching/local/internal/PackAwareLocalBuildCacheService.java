@@ -0,0 +1,32 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal;
+
+import org.gradle.caching.BuildCacheKey;
+
+import java.io.OutputStream;
+
+/**
+ * A {@link LocalBuildCacheService} that processes an entry while it is being packed, rather than reading it again when it is stored.
+ */
+public interface PackAwareLocalBuildCacheService extends LocalBuildCacheService {
+
+    /**
+     * Decorates the stream the entry for the given key is packed into. The entry is stored with {@link #store(BuildCacheKey, java.io.File)} once the stream has been closed.
+     */
+    OutputStream decoratePackOutput(BuildCacheKey key, OutputStream output);
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.controller
+
+import org.gradle.caching.BuildCacheKey
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+class BatchingBuildCachePrefetcherTest extends ConcurrentSpec {
+    def batches = new CopyOnWriteArrayList<List<String>>()
+    Closure onFetch = {}
+    def controller = new BuildCacheController() {
+        @Override
+        def <T> T load(BuildCacheLoadCommand<T> command) {
+            throw new UnsupportedOperationException()
+        }
+
+        @Override
+        void store(BuildCacheStoreCommand command) {
+            throw new UnsupportedOperationException()
+        }
+
+        @Override
+        void prefetch(Collection<BuildCacheKey> keys) {
+            batches << keys*.hashCode
+            onFetch.call(keys)
+        }
+
+        @Override
+        void close() {
+        }
+    }
+    def prefetcher = new BatchingBuildCachePrefetcher(controller)
+
+    def "fetches single key when there is no concurrent request"() {
+        when:
+        prefetcher.prefetch(key("a"))
+        prefetcher.prefetch(key("b"))
+
+        then:
+        batches == [["a"], ["b"]]
+    }
+
+    def "fetches keys requested while a fetch is in progress in a single batch"() {
+        def waiting = new CopyOnWriteArrayList<Thread>()
+        onFetch = { Collection<BuildCacheKey> keys ->
+            if (keys*.hashCode == ["a"]) {
+                instant.fetchingA
+                thread.blockUntil.bRequested
+                thread.blockUntil.cRequested
+                // Wait until both threads are waiting for this fetch to complete
+                while (waiting.any { it.state != Thread.State.WAITING }) {
+                    Thread.yield()
+                }
+            }
+        }
+
+        when:
+        async {
+            start {
+                prefetcher.prefetch(key("a"))
+                instant.aDone
+            }
+            start {
+                thread.blockUntil.fetchingA
+                waiting << Thread.currentThread()
+                instant.bRequested
+                prefetcher.prefetch(key("b"))
+                instant.bDone
+            }
+            start {
+                thread.blockUntil.fetchingA
+                waiting << Thread.currentThread()
+                instant.cRequested
+                prefetcher.prefetch(key("c"))
+                instant.cDone
+            }
+        }
+
+        then:
+        batches.size() == 2
+        batches[0] == ["a"]
+        batches[1] as Set == ["b", "c"] as Set
+        instant.bDone > instant.aDone
+        instant.cDone > instant.aDone
+    }
+
+    def "next batch is fetched when fetch fails"() {
+        onFetch = { Collection<BuildCacheKey> keys ->
+            if (keys*.hashCode == ["a"]) {
+                throw new RuntimeException("broken")
+            }
+        }
+
+        when:
+        prefetcher.prefetch(key("a"))
+
+        then:
+        thrown RuntimeException
+
+        when:
+        prefetcher.prefetch(key("b"))
+
+        then:
+        batches == [["a"], ["b"]]
+    }
+
+    private static BuildCacheKey key(String hashCode) {
+        return new BuildCacheKey() {
+            @Override
+            String getHashCode() {
+                return hashCode
+            }
+
+            @Override
+            String getDisplayName() {
+                return hashCode
+            }
+        }
+    }
+}
@@ -21,7 +21,10 @@ import org.gradle.caching.BuildCacheEntryReader
 import org.gradle.caching.BuildCacheEntryWriter
 import org.gradle.caching.BuildCacheKey
 import org.gradle.caching.BuildCacheService
+import org.gradle.caching.internal.BatchingBuildCacheService
 import org.gradle.caching.internal.controller.service.BuildCacheServicesConfiguration
+import org.gradle.caching.internal.operations.BuildCacheLocalLoadBuildOperationType
+import org.gradle.caching.internal.operations.BuildCacheLocalStoreBuildOperationType
 import org.gradle.caching.local.internal.LocalBuildCacheService
 import org.gradle.internal.operations.TestBuildOperationExecutor
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -159,6 +162,40 @@ class DefaultBuildCacheControllerTest extends Specification {
         0 * local.store(key, _)
     }
 
+    def "local loads and stores emit ops"() {
+        given:
+        remote = null
+        1 * local.load(key, _) >> { BuildCacheKey key, Action<File> action ->
+            def file = tmpDir.file("file")
+            file.text = "alma"
+            action.execute(file)
+        }
+
+        when:
+        controller.load(loadCommand)
+        controller.store(storeCommand)
+
+        then:
+        with(operations.log.mostRecentResult(BuildCacheLocalLoadBuildOperationType)) {
+            hit
+            archiveSize == 4
+        }
+        operations.log.mostRecentDetails(BuildCacheLocalLoadBuildOperationType).cacheKey == key.hashCode
+        operations.log.mostRecentDetails(BuildCacheLocalStoreBuildOperationType).cacheKey == key.hashCode
+    }
+
+    def "local miss emits op"() {
+        given:
+        remote = null
+
+        when:
+        controller.load(loadCommand)
+
+        then:
+        1 * local.load(key, _)
+        !operations.log.mostRecentResult(BuildCacheLocalLoadBuildOperationType).hit
+    }
+
     def "remote load also stores to local"() {
         given:
         1 * local.load(key, _) // miss
@@ -337,4 +374,132 @@ class DefaultBuildCacheControllerTest extends Specification {
         }
     }
 
+    def "prefetch copies entries found in batching remote to local"() {
+        given:
+        remote = Mock(BatchingBuildCacheService)
+
+        when:
+        controller.prefetch([key])
+
+        then:
+        1 * remote.loadAll([key], _) >> { Collection<BuildCacheKey> keys, BatchingBuildCacheService.EntryReader reader ->
+            reader.readFrom(key, new ByteArrayInputStream("foo".bytes))
+            [key] as Set
+        }
+        1 * local.store(key, _)
+    }
+
+    def "prefetch does not disable remote when storing an entry locally fails"() {
+        given:
+        remote = Mock(BatchingBuildCacheService)
+        def otherKey = Mock(BuildCacheKey) {
+            getHashCode() >> "other"
+        }
+
+        when:
+        def controller = getController()
+        controller.prefetch([key, otherKey])
+        controller.load(loadCommand)
+
+        then:
+        1 * remote.loadAll([key, otherKey], _) >> { Collection<BuildCacheKey> keys, BatchingBuildCacheService.EntryReader reader ->
+            reader.readFrom(key, new ByteArrayInputStream("foo".bytes))
+            reader.readFrom(otherKey, new ByteArrayInputStream("bar".bytes))
+            [key, otherKey] as Set
+        }
+        1 * local.store(key, _) >> { throw new RuntimeException("local failure") }
+        1 * local.store(otherKey, _)
+
+        then:
+        1 * local.load(key, _) // miss
+        1 * remote.load(key, _)
+    }
+
+    def "local hit makes no request to batching remote"() {
+        given:
+        remote = Mock(BatchingBuildCacheService)
+
+        when:
+        controller.load(loadCommand)
+
+        then:
+        1 * local.load(key, _) >> { BuildCacheKey key, Action<File> action ->
+            def file = tmpDir.file("file")
+            file.text = "alma"
+            action.execute(file)
+        }
+        0 * remote._
+    }
+
+    def "local miss prefetches entry from batching remote and loads it locally"() {
+        given:
+        remote = Mock(BatchingBuildCacheService)
+
+        when:
+        controller.load(loadCommand)
+
+        then:
+        1 * local.load(key, _) // miss
+
+        then:
+        1 * remote.loadAll([key] as Set, _) >> { Collection<BuildCacheKey> keys, BatchingBuildCacheService.EntryReader reader ->
+            reader.readFrom(key, new ByteArrayInputStream("foo".bytes))
+            [key] as Set
+        }
+        1 * local.store(key, _)
+
+        then:
+        1 * local.load(key, _) >> { BuildCacheKey key, Action<File> action ->
+            def file = tmpDir.file("file")
+            file.text = "alma"
+            action.execute(file)
+        }
+        0 * remote.load(_, _)
+    }
+
+    def "prefetch only queries batching remote if local push is disabled"() {
+        given:
+        localPush = false
+        remote = Mock(BatchingBuildCacheService)
+
+        when:
+        controller.prefetch([key])
+
+        then:
+        1 * remote.contains([key]) >> ([key] as Set)
+        0 * remote.loadAll(_, _)
+        0 * local.store(_, _)
+    }
+
+    def "does not load keys from remote that prefetch did not find"() {
+        given:
+        localPush = false
+        remote = Mock(BatchingBuildCacheService)
+        1 * remote.contains([key]) >> ([] as Set)
+
+        when:
+        def controller = getController()
+        controller.prefetch([key])
+        controller.load(loadCommand)
+
+        then:
+        1 * local.load(key, _) // miss
+        0 * remote.load(key, _)
+    }
+
+    def "loads keys from remote one by one if remote does not support batches"() {
+        given:
+        localPush = false
+        remote = Mock(BatchingBuildCacheService)
+        1 * remote.contains([key]) >> null
+
+        when:
+        def controller = getController()
+        controller.prefetch([key])
+        controller.load(loadCommand)
+
+        then:
+        1 * remote.load(key, _)
+    }
+
 }
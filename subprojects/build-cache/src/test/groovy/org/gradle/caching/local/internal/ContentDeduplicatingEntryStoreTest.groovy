@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.local.internal
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream
+import org.gradle.caching.BuildCacheKey
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.resource.local.LocallyAvailableResource
+import org.gradle.internal.resource.local.PathKeyFileStore
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.zip.GZIPInputStream
+import java.util.zip.GZIPOutputStream
+
+@CleanupTestDirectory
+class ContentDeduplicatingEntryStoreTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+    def cacheDir = temporaryFolder.createDir("cache")
+    def fileStore = Stub(PathKeyFileStore) {
+        move(_, _) >> { String path, File source ->
+            def target = cacheDir.file(path)
+            assert source.renameTo(target)
+            resource(target)
+        }
+        get(_) >> { String path ->
+            def file = cacheDir.file(path)
+            file.exists() ? resource(file) : null
+        }
+    }
+    def store = new ContentDeduplicatingEntryStore(fileStore, cacheDir, new DefaultExecutorFactory())
+    def largeContent = "large-content\n" * 1000
+
+    def cleanup() {
+        store.close()
+    }
+
+    def "stores files shared between entries only once"() {
+        when:
+        store.store(key("0123"), archive(METADATA: "first", "property-out/a.txt": largeContent, "property-out/small.txt": "small"))
+        store.store(key("4567"), archive(METADATA: "second", "property-out/b.txt": largeContent))
+
+        then:
+        blobs().size() == 1
+        cacheDir.file("0123.manifest").exists()
+        cacheDir.file("4567.manifest").exists()
+        !cacheDir.file("0123").exists()
+    }
+
+    def "restores original archive contents"() {
+        def entries = [METADATA: "metadata", "property-out/": null, "property-out/a.txt": largeContent, "property-out/small.txt": "small"]
+        store.store(key("0123"), archive(entries))
+        def restored = temporaryFolder.file("restored.tar.gz")
+
+        when:
+        def result = store.restore(cacheDir.file("0123.manifest"), restored)
+
+        then:
+        result
+        read(restored) == entries
+    }
+
+    def "splits archive while it is being written"() {
+        def entries = [METADATA: "metadata", "property-out/a.txt": largeContent, "property-out/small.txt": "small"]
+        def packed = temporaryFolder.file("packed.tar.gz")
+        def output = store.splitWhileWriting(key("0123"), new FileOutputStream(packed))
+        def restored = temporaryFolder.file("restored.tar.gz")
+
+        when:
+        try {
+            output.write(archive(entries).bytes)
+        } finally {
+            output.close()
+        }
+        // The archive is not read again when it is stored
+        packed.text = "not an archive"
+
+        then:
+        store.store(key("0123"), packed)
+        blobs().size() == 1
+        store.restore(cacheDir.file("0123.manifest"), restored)
+        read(restored) == entries
+    }
+
+    def "does not restore entry when a blob has been removed"() {
+        store.store(key("0123"), archive(METADATA: "metadata", "property-out/a.txt": largeContent))
+        blobs()*.delete()
+
+        expect:
+        !store.restore(cacheDir.file("0123.manifest"), temporaryFolder.file("restored.tar.gz"))
+    }
+
+    def "does not store files that are not archives"() {
+        def file = temporaryFolder.file("not-an-archive") << "not an archive"
+
+        expect:
+        !store.store(key("0123"), file)
+        !cacheDir.file("0123.manifest").exists()
+    }
+
+    private List<File> blobs() {
+        cacheDir.listFiles().findAll { it.name.endsWith(ContentDeduplicatingEntryStore.BLOB_SUFFIX) }
+    }
+
+    private TestFile archive(Map<String, String> entries) {
+        def file = temporaryFolder.file("archive-${entries.hashCode()}.tar.gz")
+        def tarOutput = new TarArchiveOutputStream(new GZIPOutputStream(new FileOutputStream(file)))
+        try {
+            entries.each { name, content ->
+                def entry = new TarArchiveEntry(name, true)
+                def bytes = content == null ? new byte[0] : content.bytes
+                entry.size = bytes.length
+                tarOutput.putArchiveEntry(entry)
+                tarOutput.write(bytes)
+                tarOutput.closeArchiveEntry()
+            }
+        } finally {
+            tarOutput.close()
+        }
+        return file
+    }
+
+    private static Map<String, String> read(File file) {
+        def entries = [:]
+        def tarInput = new TarArchiveInputStream(new GZIPInputStream(new FileInputStream(file)))
+        try {
+            TarArchiveEntry entry
+            while ((entry = tarInput.nextTarEntry) != null) {
+                entries[entry.name] = entry.directory ? null : new String(tarInput.bytes)
+            }
+        } finally {
+            tarInput.close()
+        }
+        return entries
+    }
+
+    private BuildCacheKey key(String hashCode) {
+        Stub(BuildCacheKey) {
+            getHashCode() >> hashCode
+        }
+    }
+
+    private LocallyAvailableResource resource(File file) {
+        Stub(LocallyAvailableResource) {
+            getFile() >> file
+        }
+    }
+}
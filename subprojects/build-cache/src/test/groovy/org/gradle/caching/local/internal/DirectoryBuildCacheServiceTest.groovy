@@ -16,9 +16,12 @@
 
 package org.gradle.caching.local.internal
 
+import org.gradle.api.Action
 import org.gradle.cache.PersistentCache
 import org.gradle.caching.BuildCacheEntryWriter
 import org.gradle.caching.BuildCacheKey
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.resource.local.LocallyAvailableResource
 import org.gradle.internal.resource.local.PathKeyFileStore
 import org.gradle.test.fixtures.file.CleanupTestDirectory
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -36,7 +39,7 @@ class DirectoryBuildCacheServiceTest extends Specification {
         getBaseDir() >> cacheDir
     }
     def tempFileStore = new DefaultBuildCacheTempFileStore(cacheDir, ".part")
-    def service = new DirectoryBuildCacheService(fileStore, persistentCache, tempFileStore, ".failed")
+    def service = new DirectoryBuildCacheService(fileStore, persistentCache, tempFileStore, new ContentDeduplicatingEntryStore(fileStore, cacheDir, new DefaultExecutorFactory()), false, ".failed")
     def key = Mock(BuildCacheKey)
 
     def "does not store partial result"() {
@@ -68,4 +71,63 @@ class DirectoryBuildCacheServiceTest extends Specification {
         cacheDir.listFiles() as List == []
         1 * key.getHashCode() >> hashCode
     }
+
+    def "loads entry without locking the cache"() {
+        def entry = cacheDir.file("1234abcd") << "content"
+        key.getHashCode() >> "1234abcd"
+        fileStore.get("1234abcd") >> resource(entry)
+        def loadedFile = null
+        def loadedContent = null
+
+        when:
+        service.load(key, { File file ->
+            loadedFile = file
+            loadedContent = file.text
+        } as Action<File>)
+
+        then:
+        0 * persistentCache.withFileLock(_)
+        loadedContent == "content"
+        loadedFile != entry
+
+        and:
+        entry.text == "content"
+        cacheDir.listFiles() as List == [entry]
+    }
+
+    def "loaded entry stays readable when it is removed while loading"() {
+        def entry = cacheDir.file("1234abcd") << "content"
+        key.getHashCode() >> "1234abcd"
+        fileStore.get("1234abcd") >> resource(entry)
+        def loadedContent = null
+
+        when:
+        service.load(key, { File file ->
+            assert entry.delete()
+            loadedContent = file.text
+        } as Action<File>)
+
+        then:
+        loadedContent == "content"
+        cacheDir.listFiles() as List == []
+    }
+
+    def "entry removed after lookup is a miss"() {
+        key.getHashCode() >> "1234abcd"
+        fileStore.get("1234abcd") >> resource(cacheDir.file("1234abcd"))
+        def action = Mock(Action)
+
+        when:
+        service.load(key, action)
+
+        then:
+        0 * action.execute(_)
+        0 * persistentCache.withFileLock(_)
+    }
+
+    private LocallyAvailableResource resource(File file) {
+        Stub(LocallyAvailableResource) {
+            getFile() >> file
+        }
+    }
 }
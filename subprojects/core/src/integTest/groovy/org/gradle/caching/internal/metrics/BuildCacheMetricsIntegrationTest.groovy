@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.metrics
+
+import groovy.json.JsonSlurper
+import org.gradle.integtests.fixtures.AbstractIntegrationSpec
+
+class BuildCacheMetricsIntegrationTest extends AbstractIntegrationSpec {
+
+    def "writes metrics to a path relative to the directory the build was started from"() {
+        given:
+        buildFile << """
+            @CacheableTask
+            class Produce extends DefaultTask {
+                @OutputFile
+                File output = project.file("build/output.txt")
+
+                @TaskAction
+                void produce() {
+                    output.text = "done"
+                }
+            }
+
+            task produce(type: Produce)
+        """
+
+        when:
+        run 'produce', '--build-cache', "-D${BuildCacheMetricsCollector.SYSPROP}=metrics.json"
+
+        then:
+        outputContains("Build cache metrics:")
+        new JsonSlurper().parse(file("metrics.json")) != null
+    }
+}
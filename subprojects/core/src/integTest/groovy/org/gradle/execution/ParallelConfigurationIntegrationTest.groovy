@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution
+
+import org.gradle.integtests.fixtures.AbstractIntegrationSpec
+import org.gradle.test.fixtures.server.http.BlockingHttpServer
+import org.junit.Rule
+
+import static org.hamcrest.Matchers.containsString
+
+class ParallelConfigurationIntegrationTest extends AbstractIntegrationSpec {
+    @Rule BlockingHttpServer barrier = new BlockingHttpServer()
+
+    def setup() {
+        barrier.start()
+        settingsFile << """
+            rootProject.name = 'root'
+            include 'a', 'b', 'c'
+        """
+        executer.beforeExecute {
+            withArguments("--parallel", "--max-workers=3", "-D${TaskPathProjectEvaluator.PARALLEL_CONFIGURATION_PROPERTY}=true")
+        }
+    }
+
+    def "configures projects in parallel once they are known not to reach outside themselves"() {
+        given:
+        ['a', 'b', 'c'].each { name ->
+            file("${name}/build.gradle") << """
+                if (hasProperty('sync')) {
+                    ${barrier.callFromBuild(name)}
+                }
+                task work
+            """
+        }
+
+        when:
+        run 'work'
+
+        then:
+        result.assertTasksExecuted(':a:work', ':b:work', ':c:work')
+
+        when:
+        barrier.expectConcurrent('a', 'b', 'c')
+        run 'work', '-Psync'
+
+        then:
+        result.assertTasksExecuted(':a:work', ':b:work', ':c:work')
+    }
+
+    def "configures projects that reach outside themselves one at a time"() {
+        given:
+        file("a/build.gradle") << """
+            evaluationDependsOn(':b')
+            assert project(':b').value == 'b'
+            task work(dependsOn: ':c:work')
+        """
+        file("b/build.gradle") << """
+            ext.value = 'b'
+            task work
+        """
+        file("c/build.gradle") << """
+            task work
+        """
+
+        when:
+        run 'work'
+
+        then:
+        result.assertTasksExecuted(':b:work', ':c:work', ':a:work')
+
+        when:
+        run 'work'
+
+        then:
+        result.assertTasksExecuted(':b:work', ':c:work', ':a:work')
+    }
+
+    def "configures projects that configure the root project one at a time"() {
+        given:
+        buildFile << """
+            ext.configuring = new java.util.concurrent.atomic.AtomicInteger()
+            task aggregate
+        """
+        ['a', 'b'].each { name ->
+            file("${name}/build.gradle") << """
+                assert rootProject.configuring.incrementAndGet() == 1 : 'configured concurrently with another project'
+                Thread.sleep(200)
+                task work
+                rootProject.tasks.getByName('aggregate').dependsOn(work)
+                rootProject.configuring.decrementAndGet()
+            """
+        }
+        file("c/build.gradle") << "task work"
+
+        when:
+        run 'aggregate'
+
+        then:
+        result.assertTasksExecuted(':a:work', ':b:work', ':aggregate')
+
+        when:
+        run 'aggregate'
+
+        then:
+        result.assertTasksExecuted(':a:work', ':b:work', ':aggregate')
+    }
+
+    def "fails when projects depend on the evaluation of each other"() {
+        given:
+        file("a/build.gradle") << "evaluationDependsOn(':b')"
+        file("b/build.gradle") << "evaluationDependsOn(':a')"
+
+        when:
+        fails 'help'
+
+        then:
+        failure.assertThatCause(containsString("Circular referencing during evaluation"))
+    }
+}
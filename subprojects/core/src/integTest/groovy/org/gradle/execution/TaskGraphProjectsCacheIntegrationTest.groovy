@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution
+
+import org.gradle.integtests.fixtures.AbstractIntegrationSpec
+
+class TaskGraphProjectsCacheIntegrationTest extends AbstractIntegrationSpec {
+
+    def setup() {
+        settingsFile << """
+            rootProject.name = 'root'
+            include 'a', 'b'
+        """
+        ['a', 'b'].each { name ->
+            file("${name}/build.gradle") << """
+                println "configuring \$path"
+                task work {
+                    group = 'custom'
+                    description = 'Does the work of ${name}'
+                }
+            """
+        }
+        executer.beforeExecute {
+            withArguments("-D${TaskGraphProjectsCache.CACHE_PROPERTY}=true")
+        }
+    }
+
+    def "lists the tasks of all projects when tasks are selected by name"() {
+        when:
+        run 'tasks', '--all'
+        def firstReport = taskReport()
+
+        then:
+        firstReport.contains('a:work - Does the work of a')
+        firstReport.contains('b:work - Does the work of b')
+
+        when:
+        run 'tasks', '--all'
+
+        then:
+        outputContains('configuring :a')
+        outputContains('configuring :b')
+        taskReport() == firstReport
+    }
+
+    def "configures only the projects of the task graph when tasks are given by path"() {
+        when:
+        run ':a:work'
+
+        then:
+        outputContains('configuring :a')
+        outputContains('configuring :b')
+
+        when:
+        run ':a:work'
+
+        then:
+        result.assertTasksExecuted(':a:work')
+        outputContains('configuring :a')
+        !output.contains('configuring :b')
+    }
+
+    def "configures the projects that reach into the projects of the task graph"() {
+        given:
+        file('b/build.gradle') << """
+            project(':a').tasks.work.doLast {
+                println 'work extended by b'
+            }
+        """
+
+        when:
+        run ':a:work'
+
+        then:
+        outputContains('work extended by b')
+
+        when:
+        run ':a:work'
+
+        then:
+        result.assertTasksExecuted(':a:work')
+        outputContains('configuring :b')
+        outputContains('work extended by b')
+    }
+
+    private String taskReport() {
+        def output = result.output
+        output.substring(output.indexOf('All tasks runnable from root project'), output.indexOf('BUILD SUCCESSFUL'))
+    }
+}
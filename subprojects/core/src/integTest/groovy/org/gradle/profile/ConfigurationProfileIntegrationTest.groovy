@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.profile
+
+import groovy.json.JsonSlurper
+import org.gradle.integtests.fixtures.AbstractIntegrationSpec
+
+class ConfigurationProfileIntegrationTest extends AbstractIntegrationSpec {
+
+    def "writes profile to a path relative to the directory the build was started from"() {
+        given:
+        buildFile << """
+            afterEvaluate {
+                println "after evaluate"
+            }
+        """
+
+        when:
+        run 'help', "-D${ConfigurationProfileCollector.SYSPROP}=profile.json"
+
+        then:
+        def entries = new JsonSlurper().parse(file("profile.json")).entries
+        entries.find { it.type == "script" && it.name == buildFile.absolutePath }
+        entries.find { it.type == "afterEvaluate" && it.name == ": registered by script '${buildFile.absolutePath}'" }
+    }
+}
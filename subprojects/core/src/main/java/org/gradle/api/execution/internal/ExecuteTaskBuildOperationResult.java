@@ -54,6 +54,12 @@ public class ExecuteTaskBuildOperationResult implements ExecuteTaskBuildOperatio
         return originBuildInvocationId == null ? null : originBuildInvocationId.asString();
     }
 
+    @Nullable
+    @Override
+    public Long getOriginExecutionTime() {
+        return ctx.getOriginExecutionTime();
+    }
+
     @Nullable
     @Override
     public String getCachingDisabledReasonMessage() {
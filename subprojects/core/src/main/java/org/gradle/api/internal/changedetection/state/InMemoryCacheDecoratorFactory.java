@@ -31,8 +31,12 @@ import org.gradle.cache.internal.CrossBuildInMemoryCache;
 import org.gradle.cache.internal.CrossBuildInMemoryCacheFactory;
 import org.gradle.cache.internal.CrossProcessSynchronizingCache;
 import org.gradle.cache.internal.HeapProportionalCacheSizer;
+import org.gradle.cache.internal.InMemoryCacheCapacityListener;
 import org.gradle.cache.internal.MultiProcessSafeAsyncPersistentIndexedCache;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -40,12 +44,17 @@ import java.util.concurrent.atomic.AtomicReference;
  * The in-memory cache is invalidated when the backing cache is changed by another process.
  *
  * Also decorates each cache so that updates to the backing cache are made asynchronously.
+ *
+ * The maximum size of each in-memory cache is scaled by the capacity factor last received as an {@link InMemoryCacheCapacityListener}.
  */
-public class InMemoryCacheDecoratorFactory {
+public class InMemoryCacheDecoratorFactory implements InMemoryCacheCapacityListener {
     private final static Logger LOG = Logging.getLogger(InMemoryCacheDecoratorFactory.class);
     private final boolean longLivingProcess;
     private final HeapProportionalCacheSizer cacheSizer = new HeapProportionalCacheSizer();
     private final CrossBuildInMemoryCache<String, CacheDetails> caches;
+    // Used only to resize the in-memory caches, which are kept alive by the cross build cache above
+    private final Set<CacheDetails> resizableCaches = Collections.newSetFromMap(new WeakHashMap<CacheDetails, Boolean>());
+    private double capacityFactor = 1;
 
     public InMemoryCacheDecoratorFactory(boolean longLivingProcess, CrossBuildInMemoryCacheFactory cacheFactory) {
         this.longLivingProcess = longLivingProcess;
@@ -64,17 +73,49 @@ public class InMemoryCacheDecoratorFactory {
         }
         int targetSize = cacheSizer.scaleCacheSize(maxEntriesToKeepInMemory);
         CacheDetails cacheDetails = getCache(cacheId, targetSize);
-        return new InMemoryDecoratedCache<K, V>(backingCache, cacheDetails.entries, cacheId, cacheDetails.lockState);
+        return new InMemoryDecoratedCache<K, V>(backingCache, cacheDetails.entries, cacheDetails.previousEntries, cacheId, cacheDetails.lockState);
+    }
+
+    @Override
+    public void capacityChanged(double capacityFactor) {
+        synchronized (resizableCaches) {
+            if (capacityFactor == this.capacityFactor) {
+                return;
+            }
+            boolean shrinking = capacityFactor < this.capacityFactor;
+            this.capacityFactor = capacityFactor;
+            for (CacheDetails cacheDetails : resizableCaches) {
+                int maxSize = scaleToCapacity(cacheDetails.maxEntries);
+                Cache<Object, Object> entries = createInMemoryCache(cacheDetails.cacheId, maxSize);
+                // Guava caches cannot be resized, so replace the cache with a new one. Guava does not expose the access order of the entries, so
+                // when shrinking, the entries are moved over as they are used rather than all at once, which would keep an arbitrary subset of them
+                if (shrinking) {
+                    cacheDetails.previousEntries.set(cacheDetails.entries.get());
+                } else {
+                    entries.putAll(cacheDetails.entries.get().asMap());
+                }
+                cacheDetails.entries.set(entries);
+                LOG.debug("Resized in-memory store for cache {} (max size: {})", cacheDetails.cacheId, maxSize);
+            }
+        }
+    }
+
+    private int scaleToCapacity(int maxEntries) {
+        return Math.max((int) (maxEntries * capacityFactor), 10);
     }
 
     private CacheDetails getCache(final String cacheId, final int maxSize) {
         CacheDetails cacheDetails = caches.get(cacheId, new Transformer<CacheDetails, String>() {
             @Override
             public CacheDetails transform(String cacheId) {
-                Cache<Object, Object> entries = createInMemoryCache(cacheId, maxSize);
-                CacheDetails cacheDetails = new CacheDetails(cacheId, maxSize, entries, new AtomicReference<FileLock.State>(null));
-                LOG.debug("Creating in-memory store for cache {} (max size: {})", cacheId, maxSize);
-                return cacheDetails;
+                synchronized (resizableCaches) {
+                    int scaledSize = scaleToCapacity(maxSize);
+                    Cache<Object, Object> entries = createInMemoryCache(cacheId, scaledSize);
+                    CacheDetails cacheDetails = new CacheDetails(cacheId, maxSize, new AtomicReference<Cache<Object, Object>>(entries), new AtomicReference<Cache<Object, Object>>(null), new AtomicReference<FileLock.State>(null));
+                    resizableCaches.add(cacheDetails);
+                    LOG.debug("Creating in-memory store for cache {} (max size: {})", cacheId, scaledSize);
+                    return cacheDetails;
+                }
             }
         });
         if (cacheDetails.maxEntries != maxSize) {
@@ -128,13 +169,16 @@ public class InMemoryCacheDecoratorFactory {
     private static class CacheDetails {
         private final String cacheId;
         private final int maxEntries;
-        private final Cache<Object, Object> entries;
+        private final AtomicReference<Cache<Object, Object>> entries;
+        // The entries before the in-memory cache was last shrunk, that have not been used since
+        private final AtomicReference<Cache<Object, Object>> previousEntries;
         private final AtomicReference<FileLock.State> lockState;
 
-        CacheDetails(String cacheId, int maxEntries, Cache<Object, Object> entries, AtomicReference<FileLock.State> lockState) {
+        CacheDetails(String cacheId, int maxEntries, AtomicReference<Cache<Object, Object>> entries, AtomicReference<Cache<Object, Object>> previousEntries, AtomicReference<FileLock.State> lockState) {
             this.cacheId = cacheId;
             this.maxEntries = maxEntries;
             this.entries = entries;
+            this.previousEntries = previousEntries;
             this.lockState = lockState;
         }
     }
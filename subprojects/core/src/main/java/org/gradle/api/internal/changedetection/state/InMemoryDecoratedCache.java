@@ -27,22 +27,33 @@ import org.gradle.cache.internal.MultiProcessSafeAsyncPersistentIndexedCache;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.hash.HashCode;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Short-circuits reads from the backing cache with an in-memory cache.
+ *
+ * When the in-memory cache has been replaced by a smaller one, the entries of the previous in-memory cache are moved over to the current one
+ * as they are used, so that the entries that survive are the ones used since. The previous in-memory cache is dropped once it is empty, or when
+ * the backing cache has been changed by another process.
+ */
 class InMemoryDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentIndexedCache<K, V> {
     private final static Logger LOG = Logging.getLogger(InMemoryDecoratedCache.class);
     private final static Object NULL = new Object();
     private final MultiProcessSafeAsyncPersistentIndexedCache<K, V> delegate;
-    private final Cache<Object, Object> inMemoryCache;
+    private final AtomicReference<Cache<Object, Object>> inMemoryCacheReference;
+    private final AtomicReference<Cache<Object, Object>> previousInMemoryCacheReference;
     private final String cacheId;
     private final AtomicReference<FileLock.State> fileLockStateReference;
 
-    public InMemoryDecoratedCache(MultiProcessSafeAsyncPersistentIndexedCache<K, V> delegate, Cache<Object, Object> inMemoryCache, String cacheId, AtomicReference<FileLock.State> fileLockStateReference) {
+    public InMemoryDecoratedCache(MultiProcessSafeAsyncPersistentIndexedCache<K, V> delegate, AtomicReference<Cache<Object, Object>> inMemoryCacheReference,
+                                  AtomicReference<Cache<Object, Object>> previousInMemoryCacheReference, String cacheId, AtomicReference<FileLock.State> fileLockStateReference) {
         this.delegate = delegate;
-        this.inMemoryCache = inMemoryCache;
+        this.inMemoryCacheReference = inMemoryCacheReference;
+        this.previousInMemoryCacheReference = previousInMemoryCacheReference;
         this.cacheId = cacheId;
         this.fileLockStateReference = fileLockStateReference;
     }
@@ -55,12 +66,17 @@ class InMemoryDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentInd
     @Override
     public V get(final K key) {
         assert key instanceof String || key instanceof Long || key instanceof File || key instanceof HashCode : "Unsupported key type: " + key;
+        Cache<Object, Object> inMemoryCache = inMemoryCacheReference.get();
         Object value;
         try {
             value = inMemoryCache.get(key, new Callable<Object>() {
                 @Override
                 public Object call() throws Exception {
-                    Object out = delegate.get(key);
+                    Object out = takeFromPreviousInMemoryCache(key);
+                    if (out != null) {
+                        return out;
+                    }
+                    out = delegate.get(key);
                     return out == null ? NULL : out;
                 }
             });
@@ -79,10 +95,18 @@ class InMemoryDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentInd
     @Override
     public V get(final K key, final Transformer<? extends V, ? super K> producer, final Runnable completion) {
         assert key instanceof String || key instanceof Long || key instanceof File || key instanceof HashCode : "Unsupported key type: " + key;
+        Cache<Object, Object> inMemoryCache = inMemoryCacheReference.get();
         final AtomicReference<Runnable> completionRef = new AtomicReference<Runnable>(completion);
         Object value;
         try {
             value = inMemoryCache.getIfPresent(key);
+            if (value == null) {
+                value = takeFromPreviousInMemoryCache(key);
+                if (value != null && value != NULL) {
+                    inMemoryCache.put(key, value);
+                    return (V) value;
+                }
+            }
             final boolean wasNull = value == NULL;
             if (wasNull) {
                 inMemoryCache.invalidate(key);
@@ -120,13 +144,15 @@ class InMemoryDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentInd
 
     @Override
     public void putLater(K key, V value, Runnable completion) {
-        inMemoryCache.put(key, value);
+        inMemoryCacheReference.get().put(key, value);
+        invalidatePreviousInMemoryCache(key);
         delegate.putLater(key, value, completion);
     }
 
     @Override
     public void removeLater(K key, Runnable completion) {
-        inMemoryCache.put(key, NULL);
+        inMemoryCacheReference.get().put(key, NULL);
+        invalidatePreviousInMemoryCache(key);
         delegate.removeLater(key, completion);
     }
 
@@ -141,11 +167,38 @@ class InMemoryDecoratedCache<K, V> implements MultiProcessSafeAsyncPersistentInd
             outOfDate = true;
         }
         if (outOfDate) {
-            inMemoryCache.invalidateAll();
+            inMemoryCacheReference.get().invalidateAll();
+            previousInMemoryCacheReference.set(null);
         }
         delegate.afterLockAcquire(currentCacheState);
     }
 
+    /**
+     * Removes the entry for the given key from the previous in-memory cache, if any, and returns its value.
+     */
+    @Nullable
+    private Object takeFromPreviousInMemoryCache(Object key) {
+        Cache<Object, Object> previousInMemoryCache = previousInMemoryCacheReference.get();
+        if (previousInMemoryCache == null) {
+            return null;
+        }
+        Object value = previousInMemoryCache.getIfPresent(key);
+        if (value != null) {
+            previousInMemoryCache.invalidate(key);
+        }
+        if (previousInMemoryCache.size() == 0) {
+            previousInMemoryCacheReference.compareAndSet(previousInMemoryCache, null);
+        }
+        return value;
+    }
+
+    private void invalidatePreviousInMemoryCache(Object key) {
+        Cache<Object, Object> previousInMemoryCache = previousInMemoryCacheReference.get();
+        if (previousInMemoryCache != null) {
+            previousInMemoryCache.invalidate(key);
+        }
+    }
+
     @Override
     public void finishWork() {
         delegate.finishWork();
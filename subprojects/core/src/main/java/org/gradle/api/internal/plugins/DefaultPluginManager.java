@@ -30,6 +30,7 @@ import org.gradle.api.plugins.PluginContainer;
 import org.gradle.api.plugins.PluginInstantiationException;
 import org.gradle.api.plugins.UnknownPluginException;
 import org.gradle.configuration.ConfigurationTargetIdentifier;
+import org.gradle.configuration.UserCodeSource;
 import org.gradle.internal.Cast;
 import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationExecutor;
@@ -249,7 +250,12 @@ public class DefaultPluginManager implements PluginManagerInternal {
 
         @Override
         public void run(BuildOperationContext context) {
-            addPlugin(adder, plugin, pluginId, pluginClass);
+            String previousSource = UserCodeSource.enter(UserCodeSource.plugin(pluginIdentifier(plugin)));
+            try {
+                addPlugin(adder, plugin, pluginId, pluginClass);
+            } finally {
+                UserCodeSource.exit(previousSource);
+            }
             context.setResult(OPERATION_RESULT);
         }
 
@@ -259,19 +265,20 @@ public class DefaultPluginManager implements PluginManagerInternal {
         }
 
         private BuildOperationDescriptor.Builder computeApplyPluginBuildOperationDetails(final PluginImplementation<?> pluginImplementation) {
-            String pluginIdentifier;
-            if (pluginImplementation.getPluginId() != null) {
-                pluginIdentifier = pluginImplementation.getPluginId().toString();
-            } else {
-                pluginIdentifier = pluginImplementation.asClass().getName();
-            }
-            String name = "Apply plugin " + pluginIdentifier;
+            String name = "Apply plugin " + pluginIdentifier(pluginImplementation);
             return BuildOperationDescriptor.displayName(name + " to " + target.toString())
                 .name(name)
                 .details(new OperationDetails(pluginImplementation, target.getConfigurationTargetIdentifier()));
         }
     }
 
+    private static String pluginIdentifier(PluginImplementation<?> pluginImplementation) {
+        if (pluginImplementation.getPluginId() != null) {
+            return pluginImplementation.getPluginId().toString();
+        }
+        return pluginImplementation.asClass().getName();
+    }
+
     private static class OperationDetails implements ApplyPluginBuildOperationType.Details {
 
         private final PluginImplementation<?> pluginImplementation;
@@ -74,17 +74,22 @@ import org.gradle.api.provider.ProviderFactory;
 import org.gradle.api.resources.ResourceHandler;
 import org.gradle.api.tasks.WorkResult;
 import org.gradle.configuration.ScriptPluginFactory;
+import org.gradle.configuration.project.BuildOperationAfterEvaluateDispatch;
 import org.gradle.configuration.project.ProjectConfigurationActionContainer;
 import org.gradle.configuration.project.ProjectEvaluator;
 import org.gradle.groovy.scripts.ScriptSource;
+import org.gradle.initialization.ProjectAccessListener;
 import org.gradle.internal.Actions;
 import org.gradle.internal.Factories;
 import org.gradle.internal.Factory;
+import org.gradle.internal.dispatch.Dispatch;
+import org.gradle.internal.dispatch.MethodInvocation;
 import org.gradle.internal.event.ListenerBroadcast;
 import org.gradle.internal.logging.LoggingManagerInternal;
 import org.gradle.internal.logging.StandardOutputCapture;
 import org.gradle.internal.metaobject.BeanDynamicObject;
 import org.gradle.internal.metaobject.DynamicObject;
+import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.resource.TextResourceLoader;
 import org.gradle.internal.service.ServiceRegistry;
@@ -109,6 +114,7 @@ import org.gradle.normalization.InputNormalizationHandler;
 import org.gradle.process.ExecResult;
 import org.gradle.process.ExecSpec;
 import org.gradle.process.JavaExecSpec;
+import org.gradle.profile.ConfigurationProfileCollector;
 import org.gradle.util.Configurable;
 import org.gradle.util.ConfigureUtil;
 import org.gradle.util.DeprecationLogger;
@@ -188,6 +194,8 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
 
     private ArtifactHandler artifactHandler;
 
+    private ProjectAccessListener projectAccessListener;
+
     private ListenerBroadcast<ProjectEvaluationListener> evaluationListener = new ListenerBroadcast<ProjectEvaluationListener>(ProjectEvaluationListener.class);
 
     private ExtensibleDynamicObject extensibleDynamicObject;
@@ -326,7 +334,7 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
 
     @Override
     public ProjectInternal getRootProject() {
-        return rootProject;
+        return beforeAccessing(rootProject);
     }
 
     @Override
@@ -375,7 +383,7 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
 
     @Override
     public ProjectInternal getParent() {
-        return parent;
+        return beforeAccessing(parent);
     }
 
     @Override
@@ -415,7 +423,7 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
         } else if (this == rootProject) {
             return "";
         }
-        group = rootProject.getName() + (getParent() == rootProject ? "" : "." + getParent().getPath().substring(1).replace(':', '.'));
+        group = rootProject.getName() + (parent == rootProject ? "" : "." + parent.getPath().substring(1).replace(':', '.'));
         return group;
     }
 
@@ -446,6 +454,7 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
 
     @Override
     public Map<String, Project> getChildProjects() {
+        beforeAccessing(childProjects.values());
         return childProjects;
     }
 
@@ -599,17 +608,46 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
         if (isNullOrEmpty(path)) {
             throw new InvalidUserDataException("A path must be specified!");
         }
-        return getProjectRegistry().getProject(absoluteProjectPath(path));
+        return beforeAccessing(getProjectRegistry().getProject(absoluteProjectPath(path)));
     }
 
     @Override
     public Set<Project> getAllprojects() {
-        return new TreeSet<Project>(getProjectRegistry().getAllProjects(getPath()));
+        return beforeAccessing(new TreeSet<Project>(getProjectRegistry().getAllProjects(getPath())));
     }
 
     @Override
     public Set<Project> getSubprojects() {
-        return new TreeSet<Project>(getProjectRegistry().getSubProjects(getPath()));
+        return beforeAccessing(new TreeSet<Project>(getProjectRegistry().getSubProjects(getPath())));
+    }
+
+    /**
+     * Reports that this project reaches into the given project, unless it is this project, so that parallel configuration
+     * does not configure this project concurrently with others.
+     */
+    @Nullable
+    private <T extends Project> T beforeAccessing(@Nullable T project) {
+        if (project != null && project != this) {
+            getProjectAccessListener().beforeEvaluatingProject((ProjectInternal) project);
+        }
+        return project;
+    }
+
+    private <T extends Iterable<? extends Project>> T beforeAccessing(T projects) {
+        for (Project project : projects) {
+            if (project != this) {
+                beforeAccessing(project);
+                break;
+            }
+        }
+        return projects;
+    }
+
+    private ProjectAccessListener getProjectAccessListener() {
+        if (projectAccessListener == null) {
+            projectAccessListener = services.get(ProjectAccessListener.class);
+        }
+        return projectAccessListener;
     }
 
     @Override
@@ -729,11 +767,13 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
     }
 
     private Project evaluationDependsOn(DefaultProject projectToEvaluate) {
-        if (projectToEvaluate.getState().getExecuting()) {
+        if (projectToEvaluate.getState().isExecutingOnCurrentThread()) {
             throw new CircularReferenceException(String.format("Circular referencing during evaluation for %s.",
                 projectToEvaluate));
         }
-        return projectToEvaluate.evaluate();
+        getProjectAccessListener().beforeEvaluatingProject(projectToEvaluate);
+        projectToEvaluate.evaluate();
+        return projectToEvaluate;
     }
 
     @Override
@@ -797,6 +837,12 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
         return foundTasks;
     }
 
+    @Inject
+    protected BuildOperationExecutor getBuildOperationExecutor() {
+        // Decoration takes care of the implementation
+        throw new UnsupportedOperationException();
+    }
+
     @Inject
     protected FileOperations getFileOperations() {
         // Decoration takes care of the implementation
@@ -953,8 +999,18 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
     }
 
     @Override
-    public void afterEvaluate(Action<? super Project> action) {
-        evaluationListener.add("afterEvaluate", action);
+    public void afterEvaluate(final Action<? super Project> action) {
+        if (ConfigurationProfileCollector.isEnabled(gradle.getStartParameter())) {
+            // Attribute the time spent in the listener to the plugin or script that registered it
+            evaluationListener.add(new BuildOperationAfterEvaluateDispatch(new Dispatch<MethodInvocation>() {
+                @Override
+                public void dispatch(MethodInvocation message) {
+                    action.execute(DefaultProject.this);
+                }
+            }, this, getBuildOperationExecutor()));
+        } else {
+            evaluationListener.add("afterEvaluate", action);
+        }
     }
 
     @Override
@@ -964,7 +1020,12 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
 
     @Override
     public void afterEvaluate(Closure closure) {
-        evaluationListener.add(new ClosureBackedMethodInvocationDispatch("afterEvaluate", closure));
+        Dispatch<MethodInvocation> dispatch = new ClosureBackedMethodInvocationDispatch("afterEvaluate", closure);
+        if (ConfigurationProfileCollector.isEnabled(gradle.getStartParameter())) {
+            // Attribute the time spent in the listener to the plugin or script that registered it
+            dispatch = new BuildOperationAfterEvaluateDispatch(dispatch, this, getBuildOperationExecutor());
+        }
+        evaluationListener.add(dispatch);
     }
 
     @Override
@@ -1295,7 +1356,7 @@ public class DefaultProject extends AbstractPluginAware implements ProjectIntern
     public void model(Closure<?> modelRules) {
         ModelRegistry modelRegistry = getModelRegistry();
         if (TransformedModelDslBacking.isTransformedBlock(modelRules)) {
-            ClosureBackedAction.execute(new TransformedModelDslBacking(modelRegistry, this.getRootProject().getFileResolver()), modelRules);
+            ClosureBackedAction.execute(new TransformedModelDslBacking(modelRegistry, rootProject.getFileResolver()), modelRules);
         } else {
             new NonTransformedModelDslBacking(modelRegistry).configure(modelRules);
         }
@@ -16,20 +16,36 @@
 
 package org.gradle.api.internal.project;
 
+import org.gradle.execution.ProjectIsolationCache;
 import org.gradle.initialization.ProjectAccessListener;
 
 public class DefaultProjectAccessListener implements ProjectAccessListener {
+    private final ProjectIsolationCache projectIsolationCache;
+
+    public DefaultProjectAccessListener(ProjectIsolationCache projectIsolationCache) {
+        this.projectIsolationCache = projectIsolationCache;
+    }
 
     public void beforeRequestingTaskByPath(ProjectInternal targetProject) {
+        projectIsolationCache.projectAccessed(targetProject);
         evaluateProjectAndDiscoverTasks(targetProject);
     }
 
     public void beforeResolvingProjectDependency(ProjectInternal targetProject) {
+        projectIsolationCache.projectAccessed(targetProject);
         evaluateProjectAndDiscoverTasks(targetProject);
     }
 
-    private synchronized void evaluateProjectAndDiscoverTasks(final ProjectInternal targetProject) {
+    public void beforeEvaluatingProject(ProjectInternal targetProject) {
+        projectIsolationCache.projectAccessed(targetProject);
+    }
+
+    private void evaluateProjectAndDiscoverTasks(final ProjectInternal targetProject) {
+        // Evaluation takes care of concurrent requests itself. Holding a lock while waiting for
+        // a project that is configured by another thread could dead lock with parallel configuration.
         targetProject.evaluate();
-        targetProject.getTasks().discoverTasks();
+        synchronized (this) {
+            targetProject.getTasks().discoverTasks();
+        }
     }
 }
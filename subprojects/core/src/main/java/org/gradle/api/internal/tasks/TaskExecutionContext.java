@@ -38,6 +38,11 @@ public interface TaskExecutionContext {
 
     void setOriginBuildInvocationId(@Nullable UniqueId originBuildInvocationId);
 
+    @Nullable
+    Long getOriginExecutionTime();
+
+    void setOriginExecutionTime(@Nullable Long originExecutionTime);
+
     @Nullable
     List<String> getUpToDateMessages();
 
@@ -28,6 +28,7 @@ public class DefaultTaskExecutionContext implements TaskExecutionContext {
     private TaskArtifactState taskArtifactState;
     private TaskOutputCachingBuildCacheKey buildCacheKey;
     private UniqueId originBuildInvocationId;
+    private Long originExecutionTime;
     private List<String> upToDateMessages;
 
     @Override
@@ -60,6 +61,17 @@ public class DefaultTaskExecutionContext implements TaskExecutionContext {
         this.originBuildInvocationId = originBuildInvocationId;
     }
 
+    @Override
+    @Nullable
+    public Long getOriginExecutionTime() {
+        return originExecutionTime;
+    }
+
+    @Override
+    public void setOriginExecutionTime(@Nullable Long originExecutionTime) {
+        this.originExecutionTime = originExecutionTime;
+    }
+
     @Override
     @Nullable
     public List<String> getUpToDateMessages() {
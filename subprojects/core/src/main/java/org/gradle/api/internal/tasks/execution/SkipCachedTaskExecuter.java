@@ -87,6 +87,7 @@ public class SkipCachedTaskExecuter implements TaskExecuter {
                         if (originMetadata != null) {
                             state.setOutcome(TaskExecutionOutcome.FROM_CACHE);
                             context.setOriginBuildInvocationId(originMetadata.getBuildInvocationId());
+                            context.setOriginExecutionTime(originMetadata.getExecutionTime());
                             return;
                         }
                     } catch (UnrecoverableTaskOutputUnpackingException e) {
@@ -36,6 +36,7 @@ import java.util.WeakHashMap;
  * Note that this implementation currently retains strong references to keys and values during the whole lifetime of a build session.
  *
  * Uses a simple algorithm to collect unused values, by retaining strong references to all keys and values used during the current build session, and the previous build session. All other values are referenced only by soft references.
+ * While the capacity of in-memory caches is reduced, the values of the previous build session are referenced only by soft references as well.
  */
 @ThreadSafe
 public class CrossBuildInMemoryCacheFactory {
@@ -67,12 +68,13 @@ public class CrossBuildInMemoryCacheFactory {
         return cache;
     }
 
-    private static class DefaultCrossBuildInMemoryCache<K, V> implements CrossBuildInMemoryCache<K, V>, SessionLifecycleListener {
+    private static class DefaultCrossBuildInMemoryCache<K, V> implements CrossBuildInMemoryCache<K, V>, SessionLifecycleListener, InMemoryCacheCapacityListener {
         private final Object lock = new Object();
         private final Map<K, V> valuesForThisSession = new HashMap<K, V>();
         // This is used only to retain strong references to the values
         private final Set<V> valuesForPreviousSession = new HashSet<V>();
         private final Map<K, SoftReference<V>> allValues;
+        private boolean retainPreviousSession = true;
 
         public DefaultCrossBuildInMemoryCache(Map<K, SoftReference<V>> allValues) {
             this.allValues = allValues;
@@ -87,11 +89,24 @@ public class CrossBuildInMemoryCacheFactory {
             synchronized (lock) {
                 // Retain strong references to the values created for this session
                 valuesForPreviousSession.clear();
-                valuesForPreviousSession.addAll(valuesForThisSession.values());
+                if (retainPreviousSession) {
+                    valuesForPreviousSession.addAll(valuesForThisSession.values());
+                }
                 valuesForThisSession.clear();
             }
         }
 
+        @Override
+        public void capacityChanged(double capacityFactor) {
+            synchronized (lock) {
+                retainPreviousSession = capacityFactor >= 1;
+                if (!retainPreviousSession) {
+                    // Let the garbage collector reclaim the values that are not used by the next build
+                    valuesForPreviousSession.clear();
+                }
+            }
+        }
+
         @Override
         public void clear() {
             synchronized (lock) {
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+/**
+ * Notified when the amount of heap that caches may use to keep entries in memory across builds changes.
+ *
+ * Implementations are registered with the global {@link org.gradle.internal.event.ListenerManager}. Notifications are sent between builds only.
+ */
+public interface InMemoryCacheCapacityListener {
+    /**
+     * @param capacityFactor The factor to apply to the default capacity of in-memory caches. Values below 1 ask caches to give up memory, values above 1 allow them to grow.
+     */
+    void capacityChanged(double capacityFactor);
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.metrics;
+
+import javax.annotation.Nullable;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Counters and latency histograms for the build cache operations of a build, in total and by task type.
+ */
+public class BuildCacheMetrics {
+
+    public enum Operation {
+        PACK("pack", false),
+        UNPACK("unpack", false),
+        LOCAL_LOAD("localLoad", true),
+        LOCAL_STORE("localStore", false),
+        REMOTE_LOAD("remoteLoad", true),
+        REMOTE_STORE("remoteStore", false);
+
+        private final String displayName;
+        private final boolean load;
+
+        Operation(String displayName, boolean load) {
+            this.displayName = displayName;
+            this.load = load;
+        }
+    }
+
+    private final TaskTypeMetrics total = new TaskTypeMetrics();
+    private final Map<String, TaskTypeMetrics> byTaskType = new TreeMap<String, TaskTypeMetrics>();
+
+    /**
+     * Records a completed operation. Loads are counted as a hit when {@code bytes} is not negative, and as a miss otherwise.
+     */
+    public synchronized void completed(@Nullable String taskType, Operation operation, long durationMillis, long bytes) {
+        total.get(operation).completed(operation, durationMillis, bytes);
+        if (taskType != null) {
+            forTaskType(taskType).get(operation).completed(operation, durationMillis, bytes);
+        }
+    }
+
+    public synchronized void failed(@Nullable String taskType, Operation operation) {
+        total.get(operation).failures++;
+        if (taskType != null) {
+            forTaskType(taskType).get(operation).failures++;
+        }
+    }
+
+    /**
+     * Records a task that took its outputs from the cache instead of executing, to work out the time saved.
+     */
+    public synchronized void loadedFromCache(String taskType, long originExecutionTimeMillis, long executionTimeMillis) {
+        total.loadedFromCache(originExecutionTimeMillis, executionTimeMillis);
+        forTaskType(taskType).loadedFromCache(originExecutionTimeMillis, executionTimeMillis);
+    }
+
+    private TaskTypeMetrics forTaskType(String taskType) {
+        TaskTypeMetrics metrics = byTaskType.get(taskType);
+        if (metrics == null) {
+            metrics = new TaskTypeMetrics();
+            byTaskType.put(taskType, metrics);
+        }
+        return metrics;
+    }
+
+    public synchronized boolean isEmpty() {
+        return total.operations.isEmpty() && total.tasksLoadedFromCache == 0;
+    }
+
+    public synchronized Map<String, Object> toMap() {
+        Map<String, Object> result = new LinkedHashMap<String, Object>();
+        result.put("total", total.toMap());
+        Map<String, Object> taskTypes = new LinkedHashMap<String, Object>();
+        for (Map.Entry<String, TaskTypeMetrics> entry : byTaskType.entrySet()) {
+            taskTypes.put(entry.getKey(), entry.getValue().toMap());
+        }
+        result.put("taskTypes", taskTypes);
+        return result;
+    }
+
+    /**
+     * A one line summary of the totals.
+     */
+    public synchronized String getSummary() {
+        OperationMetrics localLoad = total.get(Operation.LOCAL_LOAD);
+        OperationMetrics remoteLoad = total.get(Operation.REMOTE_LOAD);
+        OperationMetrics remoteStore = total.get(Operation.REMOTE_STORE);
+        return String.format("Build cache metrics: local %d hits, %d misses; remote %d hits, %d misses, %d failures; %d bytes downloaded, %d bytes uploaded; %d tasks loaded from cache saving %d ms",
+            localLoad.hits, localLoad.misses,
+            remoteLoad.hits, remoteLoad.misses, remoteLoad.failures + remoteStore.failures,
+            remoteLoad.bytes, remoteStore.bytes,
+            total.tasksLoadedFromCache, total.timeSavedMillis);
+    }
+
+    private static class TaskTypeMetrics {
+        private final Map<Operation, OperationMetrics> operations = new EnumMap<Operation, OperationMetrics>(Operation.class);
+        private long tasksLoadedFromCache;
+        private long originExecutionTimeMillis;
+        private long timeSavedMillis;
+
+        OperationMetrics get(Operation operation) {
+            OperationMetrics metrics = operations.get(operation);
+            if (metrics == null) {
+                metrics = new OperationMetrics();
+                operations.put(operation, metrics);
+            }
+            return metrics;
+        }
+
+        void loadedFromCache(long originExecutionTimeMillis, long executionTimeMillis) {
+            tasksLoadedFromCache++;
+            this.originExecutionTimeMillis += originExecutionTimeMillis;
+            timeSavedMillis += originExecutionTimeMillis - executionTimeMillis;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> result = new LinkedHashMap<String, Object>();
+            for (Map.Entry<Operation, OperationMetrics> entry : operations.entrySet()) {
+                result.put(entry.getKey().displayName, entry.getValue().toMap(entry.getKey()));
+            }
+            result.put("tasksLoadedFromCache", tasksLoadedFromCache);
+            result.put("originExecutionTimeMillis", originExecutionTimeMillis);
+            result.put("timeSavedMillis", timeSavedMillis);
+            return result;
+        }
+    }
+
+    private static class OperationMetrics {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private long hits;
+        private long misses;
+        private long failures;
+        private long bytes;
+
+        void completed(Operation operation, long durationMillis, long bytes) {
+            latency.record(durationMillis);
+            if (bytes >= 0) {
+                this.bytes += bytes;
+                if (operation.load) {
+                    hits++;
+                }
+            } else if (operation.load) {
+                misses++;
+            }
+        }
+
+        Map<String, Object> toMap(Operation operation) {
+            Map<String, Object> result = new LinkedHashMap<String, Object>();
+            if (operation.load) {
+                result.put("hits", hits);
+                result.put("misses", misses);
+            }
+            result.put("failures", failures);
+            result.put("bytes", bytes);
+            result.put("latency", latency.toMap());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.metrics;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import groovy.json.JsonOutput;
+import org.gradle.StartParameter;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.caching.internal.metrics.BuildCacheMetrics.Operation;
+import org.gradle.caching.internal.operations.BuildCacheArchivePackBuildOperationType;
+import org.gradle.caching.internal.operations.BuildCacheArchiveUnpackBuildOperationType;
+import org.gradle.caching.internal.operations.BuildCacheLocalLoadBuildOperationType;
+import org.gradle.caching.internal.operations.BuildCacheLocalStoreBuildOperationType;
+import org.gradle.caching.internal.operations.BuildCacheRemoteLoadBuildOperationType;
+import org.gradle.caching.internal.operations.BuildCacheRemoteStoreBuildOperationType;
+import org.gradle.internal.concurrent.ThreadSafe;
+import org.gradle.internal.execution.ExecuteTaskBuildOperationType;
+import org.gradle.internal.progress.BuildOperationDescriptor;
+import org.gradle.internal.progress.BuildOperationListener;
+import org.gradle.internal.progress.OperationFinishEvent;
+import org.gradle.internal.progress.OperationStartEvent;
+import org.gradle.util.GFileUtils;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Collects {@link BuildCacheMetrics} from the build cache and task execution build operations.
+ *
+ * Can be enabled for any build with `-Dorg.gradle.caching.metrics`, in which case the metrics are written
+ * as JSON to `build/reports/build-cache/metrics.json` of the root project at the end of the build,
+ * and a one line summary is logged at lifecycle level, so that it also ends up in the daemon log next to the daemon health information.
+ * Use `-Dorg.gradle.caching.metrics=«path»` to write the JSON file somewhere else. A relative path is resolved against the directory the build
+ * was started from.
+ *
+ * Operations are attributed to the type of the task they are executed for.
+ */
+public class BuildCacheMetricsCollector implements BuildOperationListener, ThreadSafe {
+
+    public static final String SYSPROP = "org.gradle.caching.metrics";
+
+    private static final Logger LOGGER = Logging.getLogger(BuildCacheMetricsCollector.class);
+
+    private final BuildCacheMetrics metrics = new BuildCacheMetrics();
+    private final ConcurrentMap<Object, String> taskTypes = new ConcurrentHashMap<Object, String>();
+    private final ConcurrentMap<Object, Long> localLoadUnpackTimes = new ConcurrentHashMap<Object, Long>();
+
+    /**
+     * Returns the value of the system property enabling the metrics, or {@code null} when they are not enabled, either because
+     * the property is not set or because it is set to {@code false}.
+     */
+    @Nullable
+    public static String getReportPath(StartParameter startParameter) {
+        String path = startParameter.getSystemPropertiesArgs().get(SYSPROP);
+        if (path == null) {
+            path = System.getProperty(SYSPROP);
+        }
+        return "false".equalsIgnoreCase(path) ? null : path;
+    }
+
+    public BuildCacheMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void started(BuildOperationDescriptor buildOperation, OperationStartEvent startEvent) {
+        Object details = buildOperation.getDetails();
+        if (details instanceof ExecuteTaskBuildOperationType.Details) {
+            taskTypes.put(buildOperation.getId(), ((ExecuteTaskBuildOperationType.Details) details).getTaskClass().getName());
+        } else if (buildOperation.getParentId() != null) {
+            String taskType = taskTypes.get(buildOperation.getParentId());
+            if (taskType != null) {
+                taskTypes.put(buildOperation.getId(), taskType);
+            }
+        }
+        if (details instanceof BuildCacheLocalLoadBuildOperationType.Details) {
+            localLoadUnpackTimes.put(buildOperation.getId(), 0L);
+        }
+    }
+
+    @Override
+    public void finished(BuildOperationDescriptor buildOperation, OperationFinishEvent finishEvent) {
+        String taskType = taskTypes.remove(buildOperation.getId());
+        Object details = buildOperation.getDetails();
+        Object result = finishEvent.getResult();
+        long duration = finishEvent.getEndTime() - finishEvent.getStartTime();
+
+        if (details instanceof ExecuteTaskBuildOperationType.Details) {
+            if (result instanceof ExecuteTaskBuildOperationType.Result) {
+                Long originExecutionTime = ((ExecuteTaskBuildOperationType.Result) result).getOriginExecutionTime();
+                if (originExecutionTime != null && taskType != null) {
+                    metrics.loadedFromCache(taskType, originExecutionTime, duration);
+                }
+            }
+        } else if (details instanceof BuildCacheArchivePackBuildOperationType.Details) {
+            if (result instanceof BuildCacheArchivePackBuildOperationType.Result) {
+                metrics.completed(taskType, Operation.PACK, duration, ((BuildCacheArchivePackBuildOperationType.Result) result).getArchiveSize());
+            } else {
+                metrics.failed(taskType, Operation.PACK);
+            }
+        } else if (details instanceof BuildCacheArchiveUnpackBuildOperationType.Details) {
+            Object parentId = buildOperation.getParentId();
+            if (parentId != null && localLoadUnpackTimes.containsKey(parentId)) {
+                localLoadUnpackTimes.put(parentId, duration);
+            }
+            if (finishEvent.getFailure() == null) {
+                metrics.completed(taskType, Operation.UNPACK, duration, ((BuildCacheArchiveUnpackBuildOperationType.Details) details).getArchiveSize());
+            } else {
+                metrics.failed(taskType, Operation.UNPACK);
+            }
+        } else if (details instanceof BuildCacheLocalLoadBuildOperationType.Details) {
+            // Local entries are unpacked while they are being loaded, so leave out the time spent unpacking
+            Long unpackTime = localLoadUnpackTimes.remove(buildOperation.getId());
+            long loadTime = unpackTime == null ? duration : duration - unpackTime;
+            if (result instanceof BuildCacheLocalLoadBuildOperationType.Result) {
+                BuildCacheLocalLoadBuildOperationType.Result loadResult = (BuildCacheLocalLoadBuildOperationType.Result) result;
+                metrics.completed(taskType, Operation.LOCAL_LOAD, loadTime, loadResult.isHit() ? loadResult.getArchiveSize() : -1);
+            } else {
+                metrics.failed(taskType, Operation.LOCAL_LOAD);
+            }
+        } else if (details instanceof BuildCacheLocalStoreBuildOperationType.Details) {
+            if (finishEvent.getFailure() == null) {
+                metrics.completed(taskType, Operation.LOCAL_STORE, duration, ((BuildCacheLocalStoreBuildOperationType.Details) details).getArchiveSize());
+            } else {
+                metrics.failed(taskType, Operation.LOCAL_STORE);
+            }
+        } else if (details instanceof BuildCacheRemoteLoadBuildOperationType.Details) {
+            if (result instanceof BuildCacheRemoteLoadBuildOperationType.Result) {
+                BuildCacheRemoteLoadBuildOperationType.Result loadResult = (BuildCacheRemoteLoadBuildOperationType.Result) result;
+                metrics.completed(taskType, Operation.REMOTE_LOAD, duration, loadResult.isHit() ? loadResult.getArchiveSize() : -1);
+            } else {
+                metrics.failed(taskType, Operation.REMOTE_LOAD);
+            }
+        } else if (details instanceof BuildCacheRemoteStoreBuildOperationType.Details) {
+            if (result instanceof BuildCacheRemoteStoreBuildOperationType.Result) {
+                boolean stored = ((BuildCacheRemoteStoreBuildOperationType.Result) result).isStored();
+                metrics.completed(taskType, Operation.REMOTE_STORE, duration, stored ? ((BuildCacheRemoteStoreBuildOperationType.Details) details).getArchiveSize() : 0);
+            } else {
+                metrics.failed(taskType, Operation.REMOTE_STORE);
+            }
+        }
+    }
+
+    /**
+     * Writes the metrics collected so far to the given file, and logs a summary.
+     */
+    public void report(File reportFile) {
+        if (metrics.isEmpty()) {
+            return;
+        }
+        LOGGER.lifecycle(metrics.getSummary());
+        try {
+            GFileUtils.mkdirs(reportFile.getParentFile());
+            Files.write(JsonOutput.prettyPrint(JsonOutput.toJson(metrics.toMap())), reportFile, Charsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        LOGGER.info("Build cache metrics written to {}", reportFile);
+    }
+}
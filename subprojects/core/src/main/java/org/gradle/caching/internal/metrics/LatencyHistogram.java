@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts durations in buckets of exponentially growing size.
+ *
+ * <p>The first bucket holds durations below 1 ms, each further bucket holds durations up to twice
+ * the upper bound of the previous one, and the last bucket holds everything longer.</p>
+ *
+ * <p>Not thread-safe.</p>
+ */
+class LatencyHistogram {
+    private static final int BUCKETS = 20;
+
+    private final long[] buckets = new long[BUCKETS];
+    private long count;
+    private long totalMillis;
+    private long maxMillis;
+
+    void record(long millis) {
+        long duration = Math.max(0, millis);
+        buckets[bucketFor(duration)]++;
+        count++;
+        totalMillis += duration;
+        maxMillis = Math.max(maxMillis, duration);
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    long getTotalMillis() {
+        return totalMillis;
+    }
+
+    long getMaxMillis() {
+        return maxMillis;
+    }
+
+    static int bucketFor(long millis) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(millis));
+    }
+
+    /**
+     * Returns the non-empty buckets, keyed by their bounds, from the shortest durations to the longest.
+     */
+    Map<String, Long> getBuckets() {
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        for (int i = 0; i < BUCKETS; i++) {
+            if (buckets[i] > 0) {
+                result.put(bucketName(i), buckets[i]);
+            }
+        }
+        return result;
+    }
+
+    private static String bucketName(int bucket) {
+        if (bucket == BUCKETS - 1) {
+            return ">=" + (1L << (bucket - 1)) + "ms";
+        }
+        return "<" + (1L << bucket) + "ms";
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> result = new LinkedHashMap<String, Object>();
+        result.put("count", count);
+        result.put("totalMillis", totalMillis);
+        result.put("maxMillis", maxMillis);
+        result.put("buckets", getBuckets());
+        return result;
+    }
+}
@@ -16,6 +16,9 @@
 
 package org.gradle.caching.internal.tasks;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.changedetection.state.FileCollectionSnapshot;
 import org.gradle.api.internal.changedetection.state.TaskExecution;
@@ -23,23 +26,39 @@ import org.gradle.api.internal.changedetection.state.ValueSnapshot;
 import org.gradle.caching.internal.DefaultBuildCacheHasher;
 import org.gradle.internal.hash.HashCode;
 
+import javax.annotation.Nonnull;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.SortedSet;
 
+/**
+ * Calculates build cache keys for tasks.
+ *
+ * <p>Value snapshots are immutable and are reused by the task history as long as the value does not change,
+ * also across builds in the same daemon. Their hashes are therefore remembered for as long as the snapshot is in use.
+ * File collection snapshots remember their own hash.</p>
+ */
 public class TaskCacheKeyCalculator {
 
-    public static TaskOutputCachingBuildCacheKey calculate(TaskInternal task, TaskExecution execution) {
+    private final LoadingCache<ValueSnapshot, HashCode> inputPropertyHashes = CacheBuilder.newBuilder()
+        .weakKeys()
+        .build(new CacheLoader<ValueSnapshot, HashCode>() {
+            @Override
+            public HashCode load(@Nonnull ValueSnapshot snapshot) {
+                DefaultBuildCacheHasher newHasher = new DefaultBuildCacheHasher();
+                snapshot.appendToHasher(newHasher);
+                return newHasher.hash();
+            }
+        });
+
+    public TaskOutputCachingBuildCacheKey calculate(TaskInternal task, TaskExecution execution) {
         TaskOutputCachingBuildCacheKeyBuilder builder = new DefaultTaskOutputCachingBuildCacheKeyBuilder(task.getIdentityPath());
         builder.appendTaskImplementation(execution.getTaskImplementation());
         builder.appendTaskActionImplementations(execution.getTaskActionImplementations());
 
         SortedMap<String, ValueSnapshot> inputProperties = execution.getInputProperties();
         for (Map.Entry<String, ValueSnapshot> entry : inputProperties.entrySet()) {
-            DefaultBuildCacheHasher newHasher = new DefaultBuildCacheHasher();
-            entry.getValue().appendToHasher(newHasher);
-            HashCode hash = newHasher.hash();
-            builder.appendInputPropertyHash(entry.getKey(), hash);
+            builder.appendInputPropertyHash(entry.getKey(), inputPropertyHashes.getUnchecked(entry.getValue()));
         }
 
         SortedMap<String, FileCollectionSnapshot> inputFilesSnapshots = execution.getInputFilesSnapshot();
@@ -39,7 +39,8 @@ public class TaskOutputOriginFactory {
     private static final Logger LOGGER = LoggerFactory.getLogger(TaskOutputOriginFactory.class);
 
     private static final String BUILD_INVOCATION_ID_KEY = "buildInvocationId";
-    private static final List<String> METADATA_KEYS = Arrays.asList(BUILD_INVOCATION_ID_KEY, "type", "path", "gradleVersion", "creationTime", "executionTime", "rootPath", "operatingSystem", "hostName", "userName");
+    private static final String EXECUTION_TIME_KEY = "executionTime";
+    private static final List<String> METADATA_KEYS = Arrays.asList(BUILD_INVOCATION_ID_KEY, "type", "path", "gradleVersion", "creationTime", EXECUTION_TIME_KEY, "rootPath", "operatingSystem", "hostName", "userName");
 
     private final InetAddressFactory inetAddressFactory;
     private final String userName;
@@ -70,7 +71,7 @@ public class TaskOutputOriginFactory {
                 properties.setProperty("path", task.getPath());
                 properties.setProperty("gradleVersion", gradleVersion.getVersion());
                 properties.setProperty("creationTime", Long.toString(clock.getCurrentTime()));
-                properties.setProperty("executionTime", Long.toString(elapsedTime));
+                properties.setProperty(EXECUTION_TIME_KEY, Long.toString(elapsedTime));
                 properties.setProperty("rootPath", rootDir.getAbsolutePath());
                 properties.setProperty("operatingSystem", operatingSystem);
                 properties.setProperty("hostName", inetAddressFactory.getHostname());
@@ -103,7 +104,8 @@ public class TaskOutputOriginFactory {
 
                 String originBuildInvocationIdString = properties.getProperty(BUILD_INVOCATION_ID_KEY);
                 UniqueId originBuildInvocationId = UniqueId.from(originBuildInvocationIdString);
-                return new TaskOutputOriginMetadata(originBuildInvocationId);
+                long originExecutionTime = Long.parseLong(properties.getProperty(EXECUTION_TIME_KEY));
+                return new TaskOutputOriginMetadata(originBuildInvocationId, originExecutionTime);
             }
         };
     }
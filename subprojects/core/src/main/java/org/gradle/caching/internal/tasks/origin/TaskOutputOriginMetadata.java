@@ -21,13 +21,22 @@ import org.gradle.internal.id.UniqueId;
 public class TaskOutputOriginMetadata {
 
     private final UniqueId buildInvocationId;
+    private final long executionTime;
 
-    public TaskOutputOriginMetadata(UniqueId buildInvocationId) {
+    public TaskOutputOriginMetadata(UniqueId buildInvocationId, long executionTime) {
         this.buildInvocationId = buildInvocationId;
+        this.executionTime = executionTime;
     }
 
     public UniqueId getBuildInvocationId() {
         return buildInvocationId;
     }
 
+    /**
+     * The time it took to execute the task in the build that produced the outputs, in milliseconds.
+     */
+    public long getExecutionTime() {
+        return executionTime;
+    }
+
 }
@@ -58,7 +58,12 @@ public class BuildOperationScriptPlugin implements ScriptPlugin {
             buildOperationExecutor.run(new RunnableBuildOperation() {
                 @Override
                 public void run(BuildOperationContext context) {
-                    decorated.apply(target);
+                    String previousSource = UserCodeSource.enter(UserCodeSource.script(scriptLocation()));
+                    try {
+                        decorated.apply(target);
+                    } finally {
+                        UserCodeSource.exit(previousSource);
+                    }
                     context.setResult(OPERATION_RESULT);
                 }
 
@@ -78,6 +83,16 @@ public class BuildOperationScriptPlugin implements ScriptPlugin {
         }
     }
 
+    private String scriptLocation() {
+        ScriptSource source = getSource();
+        File file = source.getResource().getLocation().getFile();
+        if (file != null) {
+            return file.getAbsolutePath();
+        }
+        URI uri = source.getResource().getLocation().getURI();
+        return uri != null ? uri.toASCIIString() : source.getDisplayName();
+    }
+
     private static class OperationDetails implements ApplyScriptPluginBuildOperationType.Details {
 
         private final File file;
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.configuration;
+
+import javax.annotation.Nullable;
+
+/**
+ * Keeps track of the plugin or script being applied by the current thread, such as {@code plugin 'java'} or {@code script '/root/build.gradle'},
+ * so that callbacks can be attributed to the plugin or script that registered them.
+ */
+public final class UserCodeSource {
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<String>();
+
+    private UserCodeSource() {
+    }
+
+    /**
+     * Returns the plugin or script being applied by the current thread, or {@code null} when none is.
+     */
+    @Nullable
+    public static String getCurrent() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Makes the given plugin or script the current one, and returns the previous one, which should be passed to {@link #exit(String)} once done.
+     */
+    @Nullable
+    public static String enter(@Nullable String source) {
+        String previous = CURRENT.get();
+        set(source);
+        return previous;
+    }
+
+    public static void exit(@Nullable String previous) {
+        set(previous);
+    }
+
+    public static String plugin(String pluginIdentifier) {
+        return "plugin '" + pluginIdentifier + "'";
+    }
+
+    public static String script(String location) {
+        return "script '" + location + "'";
+    }
+
+    private static void set(@Nullable String source) {
+        if (source == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(source);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.configuration.project;
+
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.configuration.UserCodeSource;
+import org.gradle.internal.dispatch.Dispatch;
+import org.gradle.internal.dispatch.MethodInvocation;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.progress.BuildOperationDescriptor;
+
+import javax.annotation.Nullable;
+
+/**
+ * A decorating afterEvaluate listener that notifies the listener it decorates in a
+ * {@link NotifyProjectAfterEvaluatedBuildOperationType} build operation, naming the plugin or script
+ * that was being applied when the listener was registered.
+ *
+ * Listeners registered by the decorated listener are attributed to the same plugin or script.
+ */
+public class BuildOperationAfterEvaluateDispatch implements Dispatch<MethodInvocation> {
+    private static final String AFTER_EVALUATE = "afterEvaluate";
+
+    private final Dispatch<MethodInvocation> delegate;
+    private final ProjectInternal project;
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final String registeredBy;
+
+    public BuildOperationAfterEvaluateDispatch(Dispatch<MethodInvocation> delegate, ProjectInternal project, BuildOperationExecutor buildOperationExecutor) {
+        this.delegate = delegate;
+        this.project = project;
+        this.buildOperationExecutor = buildOperationExecutor;
+        this.registeredBy = UserCodeSource.getCurrent();
+    }
+
+    @Nullable
+    public String getRegisteredBy() {
+        return registeredBy;
+    }
+
+    @Override
+    public void dispatch(final MethodInvocation message) {
+        if (!message.getMethod().getName().equals(AFTER_EVALUATE)) {
+            return;
+        }
+        buildOperationExecutor.run(new RunnableBuildOperation() {
+            @Override
+            public void run(BuildOperationContext context) {
+                String previousSource = UserCodeSource.enter(registeredBy);
+                try {
+                    delegate.dispatch(message);
+                } finally {
+                    UserCodeSource.exit(previousSource);
+                }
+                context.setResult(NotifyProjectAfterEvaluatedBuildOperationType.RESULT);
+            }
+
+            @Override
+            public BuildOperationDescriptor.Builder description() {
+                String displayName = "Notify afterEvaluate listener of " + project.getIdentityPath();
+                return BuildOperationDescriptor.displayName(registeredBy == null ? displayName : displayName + " registered by " + registeredBy)
+                    .details(new NotifyProjectAfterEvaluatedBuildOperationType.DetailsImpl(project.getProjectPath(), project.getGradle().getIdentityPath(), registeredBy));
+            }
+        });
+    }
+}
@@ -15,11 +15,13 @@
  */
 package org.gradle.configuration.project;
 
+import org.gradle.api.CircularReferenceException;
 import org.gradle.api.ProjectConfigurationException;
 import org.gradle.api.ProjectEvaluationListener;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.internal.project.ProjectStateInternal;
 import org.gradle.api.logging.configuration.ShowStacktrace;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.operations.RunnableBuildOperation;
@@ -28,14 +30,25 @@ import org.gradle.internal.progress.BuildOperationDescriptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Manages lifecycle concerns while delegating actual evaluation to another evaluator
+ *
+ * Projects can be evaluated by several threads at the same time when they are configured in parallel. Each project is evaluated once only,
+ * by the first thread that asks for it. Other threads asking for the project wait until it has been evaluated. A thread asking for a project
+ * that is evaluated by a thread waiting for it fails with a {@link CircularReferenceException}.
  */
 public class LifecycleProjectEvaluator implements ProjectEvaluator {
     private static final Logger LOGGER = LoggerFactory.getLogger(LifecycleProjectEvaluator.class);
 
     private final BuildOperationExecutor buildOperationExecutor;
     private final ProjectEvaluator delegate;
+    // The projects being evaluated and the threads evaluating them
+    private final Map<ProjectInternal, Thread> evaluatingThreads = new HashMap<ProjectInternal, Thread>();
+    // The projects that threads are waiting for to be evaluated by another thread, guarded by evaluatingThreads
+    private final Map<Thread, ProjectInternal> awaitedProjects = new HashMap<Thread, ProjectInternal>();
 
     public LifecycleProjectEvaluator(BuildOperationExecutor buildOperationExecutor, ProjectEvaluator delegate) {
         this.buildOperationExecutor = buildOperationExecutor;
@@ -43,11 +56,73 @@ public class LifecycleProjectEvaluator implements ProjectEvaluator {
     }
 
     public void evaluate(final ProjectInternal project, final ProjectStateInternal state) {
-        if (state.getExecuted() || state.getExecuting()) {
+        if (!startEvaluation(project, state)) {
             return;
         }
 
-        buildOperationExecutor.run(new ConfigureProject(project, state));
+        try {
+            buildOperationExecutor.run(new ConfigureProject(project, state));
+        } finally {
+            finishEvaluation(project);
+        }
+    }
+
+    private boolean startEvaluation(ProjectInternal project, ProjectStateInternal state) {
+        Thread currentThread = Thread.currentThread();
+        synchronized (evaluatingThreads) {
+            while (!state.getExecuted()) {
+                Thread evaluatingThread = evaluatingThreads.get(project);
+                if (evaluatingThread == null) {
+                    if (state.getExecuting()) {
+                        return false;
+                    }
+                    evaluatingThreads.put(project, currentThread);
+                    return true;
+                }
+                if (evaluatingThread == currentThread) {
+                    // The project is being evaluated further up the call stack
+                    return false;
+                }
+                if (isWaitingFor(evaluatingThread, currentThread)) {
+                    // Waiting for the project would never end, as the thread evaluating it waits for this thread
+                    throw new CircularReferenceException(String.format("Circular referencing during evaluation for %s.", project));
+                }
+                awaitedProjects.put(currentThread, project);
+                try {
+                    evaluatingThreads.wait();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                } finally {
+                    awaitedProjects.remove(currentThread);
+                }
+            }
+            return false;
+        }
+    }
+
+    // Caller must be holding the lock on evaluatingThreads
+    private boolean isWaitingFor(Thread thread, Thread target) {
+        Thread waitingThread = thread;
+        while (true) {
+            ProjectInternal awaitedProject = awaitedProjects.get(waitingThread);
+            if (awaitedProject == null) {
+                return false;
+            }
+            waitingThread = evaluatingThreads.get(awaitedProject);
+            if (waitingThread == null) {
+                return false;
+            }
+            if (waitingThread == target) {
+                return true;
+            }
+        }
+    }
+
+    private void finishEvaluation(ProjectInternal project) {
+        synchronized (evaluatingThreads) {
+            evaluatingThreads.remove(project);
+            evaluatingThreads.notifyAll();
+        }
     }
 
     private void doConfigure(ProjectInternal project, ProjectStateInternal state) {
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.configuration.project;
+
+import org.gradle.internal.operations.BuildOperationType;
+import org.gradle.util.Path;
+
+import javax.annotation.Nullable;
+
+/**
+ * Notification of an afterEvaluate listener registered with {@link org.gradle.api.Project#afterEvaluate(org.gradle.api.Action)}
+ * or {@link org.gradle.api.Project#afterEvaluate(groovy.lang.Closure)}, once the project has been configured.
+ *
+ * Only emitted when the configuration profile is enabled, see {@link org.gradle.profile.ConfigurationProfileCollector}.
+ *
+ * @since 4.4
+ */
+public final class NotifyProjectAfterEvaluatedBuildOperationType implements BuildOperationType<NotifyProjectAfterEvaluatedBuildOperationType.Details, NotifyProjectAfterEvaluatedBuildOperationType.Result> {
+
+    public interface Details {
+
+        String getProjectPath();
+
+        String getBuildPath();
+
+        /**
+         * The plugin or script that registered the listener, such as {@code plugin 'java'} or {@code script '/root/build.gradle'},
+         * or {@code null} when the listener was not registered while applying a plugin or script.
+         */
+        @Nullable
+        String getRegisteredBy();
+
+    }
+
+    public interface Result {
+
+    }
+
+    static class DetailsImpl implements Details {
+
+        private final Path buildPath;
+        private final Path projectPath;
+        private final String registeredBy;
+
+        DetailsImpl(Path projectPath, Path buildPath, @Nullable String registeredBy) {
+            this.projectPath = projectPath;
+            this.buildPath = buildPath;
+            this.registeredBy = registeredBy;
+        }
+
+        public String getProjectPath() {
+            return projectPath.getPath();
+        }
+
+        public String getBuildPath() {
+            return buildPath.getPath();
+        }
+
+        @Nullable
+        public String getRegisteredBy() {
+            return registeredBy;
+        }
+
+    }
+
+    final static Result RESULT = new Result() {
+    };
+
+    private NotifyProjectAfterEvaluatedBuildOperationType() {
+    }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution;
+
+import org.gradle.StartParameter;
+import org.gradle.api.Project;
+import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.groovy.scripts.internal.ScriptSourceHasher;
+import org.gradle.internal.classloader.ClassLoaderHierarchyHasher;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.util.GradleVersion;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Fingerprints the inputs to the configuration of a build, so that what was learned while configuring a build can be reused by a later
+ * build with the same inputs.
+ *
+ * <p>The fingerprint is taken once the root project has been configured. It covers the Gradle version, the root directory, the requested
+ * and excluded tasks, the project and system properties given on the command line, the init scripts, the settings script, the build script
+ * and {@code gradle.properties} file of every project, the {@code gradle.properties} file in the Gradle user home and the class loader of the
+ * root project, which contains {@code buildSrc} and the plugins of the root project. Other files and environment variables read while
+ * configuring the build are not tracked.</p>
+ */
+public class BuildConfigurationFingerprinter {
+    private static final int FINGERPRINT_VERSION = 1;
+
+    private final ScriptSourceHasher scriptSourceHasher;
+    private final FileHasher fileHasher;
+    private final ClassLoaderHierarchyHasher classLoaderHierarchyHasher;
+    private boolean fingerprinted;
+    private HashCode fingerprint;
+
+    public BuildConfigurationFingerprinter(ScriptSourceHasher scriptSourceHasher, FileHasher fileHasher, ClassLoaderHierarchyHasher classLoaderHierarchyHasher) {
+        this.scriptSourceHasher = scriptSourceHasher;
+        this.fileHasher = fileHasher;
+        this.classLoaderHierarchyHasher = classLoaderHierarchyHasher;
+    }
+
+    /**
+     * Returns the fingerprint of the given build, or {@code null} when the class loader of the root project cannot be fingerprinted.
+     * Must only be called once the root project has been configured. The fingerprint is only taken once per build.
+     */
+    @Nullable
+    public synchronized HashCode fingerprint(GradleInternal gradle) {
+        if (!fingerprinted) {
+            fingerprinted = true;
+            fingerprint = takeFingerprint(gradle);
+        }
+        return fingerprint;
+    }
+
+    @Nullable
+    private HashCode takeFingerprint(GradleInternal gradle) {
+        ProjectInternal rootProject = gradle.getRootProject();
+        HashCode classLoaderHash = classLoaderHierarchyHasher.getClassLoaderHash(rootProject.getClassLoaderScope().getExportClassLoader());
+        if (classLoaderHash == null) {
+            return null;
+        }
+        StartParameter startParameter = gradle.getStartParameter();
+        Hasher hasher = Hashing.md5().newHasher();
+        hasher.putInt(FINGERPRINT_VERSION);
+        hasher.putString(GradleVersion.current().getVersion());
+        hasher.putString(rootProject.getProjectDir().getAbsolutePath());
+        hasher.putString(gradle.getDefaultProject().getPath());
+        putStrings(hasher, startParameter.getTaskNames());
+        putStrings(hasher, startParameter.getExcludedTaskNames());
+        putMap(hasher, startParameter.getProjectProperties());
+        putMap(hasher, startParameter.getSystemPropertiesArgs());
+        for (File initScript : startParameter.getAllInitScripts()) {
+            putFile(hasher, initScript);
+        }
+        putFile(hasher, startParameter.getSettingsFile() != null ? startParameter.getSettingsFile() : new File(rootProject.getProjectDir(), "settings.gradle"));
+        putFile(hasher, new File(startParameter.getGradleUserHomeDir(), Project.GRADLE_PROPERTIES));
+        for (Project project : rootProject.getAllprojects()) {
+            ProjectInternal projectInternal = (ProjectInternal) project;
+            hasher.putString(project.getPath());
+            if (project.getBuildFile().isFile()) {
+                hasher.putHash(scriptSourceHasher.hash(projectInternal.getBuildScriptSource()));
+            } else {
+                hasher.putBoolean(false);
+            }
+            putFile(hasher, new File(project.getProjectDir(), Project.GRADLE_PROPERTIES));
+        }
+        hasher.putHash(classLoaderHash);
+        return hasher.hash();
+    }
+
+    private void putFile(Hasher hasher, File file) {
+        hasher.putString(file.getAbsolutePath());
+        if (file.isFile()) {
+            hasher.putHash(fileHasher.hash(file));
+        } else {
+            hasher.putBoolean(false);
+        }
+    }
+
+    private static void putStrings(Hasher hasher, Collection<String> values) {
+        hasher.putInt(values.size());
+        for (String value : values) {
+            hasher.putString(value);
+        }
+    }
+
+    private static void putMap(Hasher hasher, Map<String, String> values) {
+        hasher.putInt(values.size());
+        for (Map.Entry<String, String> entry : new TreeMap<String, String>(values).entrySet()) {
+            hasher.putString(entry.getKey());
+            hasher.putString(entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution;
+
+import org.gradle.api.Project;
+import org.gradle.api.ProjectEvaluationListener;
+import org.gradle.api.ProjectState;
+import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.internal.concurrent.ThreadSafe;
+import org.gradle.internal.hash.HashCode;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which projects were configured without reaching outside themselves, for a fingerprint of the inputs to the configuration of the build.
+ *
+ * <p>Used when configuring projects in parallel, where only the projects that a previous build with the same fingerprint configured without
+ * reaching outside themselves are configured concurrently with other projects. A project reaches outside itself when, while it is being
+ * configured, it asks for a task of another project by path, resolves a dependency on another project, depends on the evaluation of
+ * another project or navigates to another project, for example through {@code project(path)}, {@code rootProject}, {@code parent},
+ * {@code allprojects}, {@code subprojects} or {@code childProjects}, as reported to the {@link org.gradle.initialization.ProjectAccessListener}.
+ * See {@link BuildConfigurationFingerprinter} for what the fingerprint covers.</p>
+ */
+public class ProjectIsolationCache implements ProjectEvaluationListener, ThreadSafe {
+    private final ProjectPathsStore store;
+    private final BuildConfigurationFingerprinter fingerprinter;
+    // The projects being configured by the current thread, innermost last
+    private final ThreadLocal<Deque<ProjectInternal>> configuringProjects = new ThreadLocal<Deque<ProjectInternal>>() {
+        @Override
+        protected Deque<ProjectInternal> initialValue() {
+            return new ArrayDeque<ProjectInternal>();
+        }
+    };
+    private final Set<String> projectsReachingOutside = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private boolean tracking;
+    private boolean recording;
+    private HashCode fingerprint;
+
+    public ProjectIsolationCache(File cacheFile, BuildConfigurationFingerprinter fingerprinter) {
+        this.store = new ProjectPathsStore(cacheFile);
+        this.fingerprinter = fingerprinter;
+    }
+
+    /**
+     * Starts recording which projects reach outside themselves, and returns the paths of the projects that a previous build with the same
+     * fingerprint configured without doing so. Returns an empty set when there was no such build. Must only be called once the root project
+     * has been configured.
+     */
+    public synchronized Set<String> startRecording(GradleInternal gradle) {
+        if (!recording) {
+            recording = true;
+            fingerprint = fingerprinter.fingerprint(gradle);
+            startTracking(gradle);
+        }
+        ProjectPathsStore.Entry entry = fingerprint == null ? null : store.get(fingerprint);
+        return entry == null ? Collections.<String>emptySet() : entry.getProjectPaths();
+    }
+
+    /**
+     * Starts tracking which projects reach outside themselves, without remembering them for later builds. Must be called before the projects to
+     * track are configured.
+     */
+    public synchronized void startTracking(GradleInternal gradle) {
+        if (!tracking) {
+            tracking = true;
+            gradle.addProjectEvaluationListener(this);
+        }
+    }
+
+    /**
+     * Records that the project being configured by the current thread, if any, asks for the given project.
+     */
+    public void projectAccessed(ProjectInternal targetProject) {
+        ProjectInternal currentProject = configuringProjects.get().peekLast();
+        if (currentProject != null && currentProject != targetProject) {
+            projectsReachingOutside.add(currentProject.getPath());
+        }
+    }
+
+    /**
+     * Returns the paths of the projects that have reached outside themselves so far.
+     */
+    public Set<String> getProjectsReachingOutside() {
+        return Collections.unmodifiableSet(projectsReachingOutside);
+    }
+
+    /**
+     * Remembers the projects that were configured successfully without reaching outside themselves, for later builds with the same fingerprint.
+     */
+    public synchronized void store(GradleInternal gradle) {
+        if (fingerprint == null) {
+            return;
+        }
+        ProjectInternal rootProject = gradle.getRootProject();
+        Set<String> isolatedProjects = new TreeSet<String>();
+        for (Project project : rootProject.getAllprojects()) {
+            ProjectState state = project.getState();
+            if (project != rootProject && state.getExecuted() && state.getFailure() == null && !projectsReachingOutside.contains(project.getPath())) {
+                isolatedProjects.add(project.getPath());
+            }
+        }
+        store.put(fingerprint, new ProjectPathsStore.Entry(isolatedProjects));
+    }
+
+    @Override
+    public void beforeEvaluate(Project project) {
+        configuringProjects.get().addLast((ProjectInternal) project);
+    }
+
+    @Override
+    public void afterEvaluate(Project project, ProjectState state) {
+        configuringProjects.get().removeLastOccurrence(project);
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import org.gradle.api.Action;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.FlushableEncoder;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.gradle.util.GFileUtils;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A file that holds a set of project paths for each of the most recently stored build configuration fingerprints, along with the hashes
+ * of the inputs that the fingerprint does not cover. Any problem reading or writing the file is logged and otherwise treated like a missing entry.
+ */
+class ProjectPathsStore {
+    private static final Logger LOGGER = Logging.getLogger(ProjectPathsStore.class);
+    private static final int STORE_VERSION = 2;
+    private static final int MAX_ENTRIES = 16;
+
+    private final File file;
+
+    ProjectPathsStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the entry stored for the given fingerprint, or {@code null} when there is none.
+     */
+    @Nullable
+    synchronized Entry get(HashCode fingerprint) {
+        return read().get(fingerprint.toString());
+    }
+
+    /**
+     * Stores the entry for the given fingerprint, dropping the least recently stored entries beyond the maximum.
+     */
+    synchronized void put(HashCode fingerprint, Entry entry) {
+        final Map<String, Entry> entries = read();
+        entries.remove(fingerprint.toString());
+        entries.put(fingerprint.toString(), entry);
+        Iterator<String> oldest = entries.keySet().iterator();
+        while (entries.size() > MAX_ENTRIES) {
+            oldest.next();
+            oldest.remove();
+        }
+        try {
+            // Replace the file as a whole, so that a build running concurrently never reads a partial file
+            GFileUtils.writeFileAtomically(file, new Action<OutputStream>() {
+                @Override
+                public void execute(OutputStream outputStream) {
+                    try {
+                        FlushableEncoder encoder = new KryoBackedEncoder(outputStream);
+                        encoder.writeSmallInt(STORE_VERSION);
+                        encoder.writeSmallInt(entries.size());
+                        for (Map.Entry<String, Entry> storedEntry : entries.entrySet()) {
+                            encoder.writeString(storedEntry.getKey());
+                            writeEntry(encoder, storedEntry.getValue());
+                        }
+                        encoder.flush();
+                    } catch (IOException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            LOGGER.debug("Could not write the project paths to " + file + ".", e);
+        }
+    }
+
+    /**
+     * Reads the entries, with the most recently stored one last.
+     */
+    private Map<String, Entry> read() {
+        Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+        if (!file.isFile()) {
+            return entries;
+        }
+        try {
+            InputStream inputStream = new FileInputStream(file);
+            try {
+                Decoder decoder = new KryoBackedDecoder(inputStream);
+                if (decoder.readSmallInt() != STORE_VERSION) {
+                    return entries;
+                }
+                int entryCount = decoder.readSmallInt();
+                for (int i = 0; i < entryCount; i++) {
+                    String fingerprint = decoder.readString();
+                    entries.put(fingerprint, readEntry(decoder));
+                }
+            } finally {
+                inputStream.close();
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Could not read the project paths from " + file + ".", e);
+            entries.clear();
+        }
+        return entries;
+    }
+
+    private static void writeEntry(Encoder encoder, Entry entry) throws IOException {
+        encoder.writeSmallInt(entry.getProjectPaths().size());
+        for (String projectPath : entry.getProjectPaths()) {
+            encoder.writeString(projectPath);
+        }
+        writeHashes(encoder, entry.getScripts());
+        writeHashes(encoder, entry.getClassLoaders());
+    }
+
+    private static Entry readEntry(Decoder decoder) throws IOException {
+        int projectCount = decoder.readSmallInt();
+        Set<String> projectPaths = Sets.newLinkedHashSetWithExpectedSize(projectCount);
+        for (int i = 0; i < projectCount; i++) {
+            projectPaths.add(decoder.readString());
+        }
+        Map<String, HashCode> scripts = readHashes(decoder);
+        Map<String, HashCode> classLoaders = readHashes(decoder);
+        return new Entry(projectPaths, scripts, classLoaders);
+    }
+
+    private static void writeHashes(Encoder encoder, Map<String, HashCode> hashes) throws IOException {
+        encoder.writeSmallInt(hashes.size());
+        for (Map.Entry<String, HashCode> entry : hashes.entrySet()) {
+            encoder.writeString(entry.getKey());
+            encoder.writeBinary(entry.getValue().toByteArray());
+        }
+    }
+
+    private static Map<String, HashCode> readHashes(Decoder decoder) throws IOException {
+        int count = decoder.readSmallInt();
+        ImmutableMap.Builder<String, HashCode> hashes = ImmutableMap.builder();
+        for (int i = 0; i < count; i++) {
+            hashes.put(decoder.readString(), HashCode.fromBytes(decoder.readBinary()));
+        }
+        return hashes.build();
+    }
+
+    static class Entry {
+        private final Set<String> projectPaths;
+        private final Map<String, HashCode> scripts;
+        private final Map<String, HashCode> classLoaders;
+
+        Entry(Set<String> projectPaths) {
+            this(projectPaths, Collections.<String, HashCode>emptyMap(), Collections.<String, HashCode>emptyMap());
+        }
+
+        Entry(Set<String> projectPaths, Map<String, HashCode> scripts, Map<String, HashCode> classLoaders) {
+            this.projectPaths = projectPaths;
+            this.scripts = scripts;
+            this.classLoaders = classLoaders;
+        }
+
+        Set<String> getProjectPaths() {
+            return projectPaths;
+        }
+
+        /**
+         * The hashes of the script files applied while configuring the build, by absolute path.
+         */
+        Map<String, HashCode> getScripts() {
+            return scripts;
+        }
+
+        /**
+         * The hashes of the class loaders of the configured projects, by project path.
+         */
+        Map<String, HashCode> getClassLoaders() {
+            return classLoaders;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution;
+
+import com.google.common.collect.Sets;
+import org.gradle.StartParameter;
+import org.gradle.TaskExecutionRequest;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.execution.TaskExecutionGraph;
+import org.gradle.api.execution.TaskExecutionGraphListener;
+import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.configuration.ApplyScriptPluginBuildOperationType;
+import org.gradle.internal.classloader.ClassLoaderHierarchyHasher;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.ThreadSafe;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.progress.BuildOperationDescriptor;
+import org.gradle.internal.progress.BuildOperationListener;
+import org.gradle.internal.progress.BuildOperationListenerManager;
+import org.gradle.internal.progress.OperationFinishEvent;
+import org.gradle.internal.progress.OperationStartEvent;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Remembers the projects that the tasks of the task graph belong to, for a fingerprint of the inputs to the configuration of the build.
+ *
+ * <p>Can be enabled with {@code -Dorg.gradle.taskgraph.cache=true}. When the fingerprint of a build matches the one of a previous build,
+ * only the remembered projects are configured when configuring a project hierarchy, instead of all projects. Other projects are still
+ * configured when they are asked for, for example through a project dependency or a task path. The projects that reached into other projects
+ * while they were configured, as tracked by the {@link ProjectIsolationCache}, are remembered along with the projects of the task graph, as
+ * they may configure the projects of the task graph, for example through {@code project(path) {}}. Only the projects that did not reach
+ * outside themselves are left out. Only builds that give all requested and excluded tasks by path are cached, as selecting tasks by name is
+ * expected to configure all projects.</p>
+ *
+ * <p>See {@link BuildConfigurationFingerprinter} for what the fingerprint covers. In addition, the hashes of the script files applied while
+ * configuring the build, as reported by the {@link ApplyScriptPluginBuildOperationType} build operations, and of the class loaders of the
+ * configured projects are remembered along with the projects. The remembered projects are not used when one of those scripts has changed,
+ * and all projects are configured when the class loader of one of the remembered projects turns out to have changed once it has been
+ * configured. The class loaders of the projects that are not configured cannot be checked. Builds that apply scripts from a URI are not
+ * remembered.</p>
+ */
+public class TaskGraphProjectsCache implements Stoppable {
+    public static final String CACHE_PROPERTY = "org.gradle.taskgraph.cache";
+
+    private static final Logger LOGGER = Logging.getLogger(TaskGraphProjectsCache.class);
+
+    private final ProjectPathsStore store;
+    private final BuildConfigurationFingerprinter fingerprinter;
+    private final FileHasher fileHasher;
+    private final ClassLoaderHierarchyHasher classLoaderHierarchyHasher;
+    private final BuildOperationListenerManager buildOperationListenerManager;
+    private final ProjectIsolationCache projectIsolationCache;
+    private final AppliedScriptsRecorder appliedScripts = new AppliedScriptsRecorder();
+    private boolean recordingScripts;
+    private boolean initialized;
+    private HashCode fingerprint;
+    private ProjectPathsStore.Entry cachedEntry;
+
+    public TaskGraphProjectsCache(File cacheFile, BuildConfigurationFingerprinter fingerprinter, FileHasher fileHasher, ClassLoaderHierarchyHasher classLoaderHierarchyHasher,
+                                  BuildOperationListenerManager buildOperationListenerManager, ProjectIsolationCache projectIsolationCache, StartParameter startParameter) {
+        this.store = new ProjectPathsStore(cacheFile);
+        this.fingerprinter = fingerprinter;
+        this.fileHasher = fileHasher;
+        this.classLoaderHierarchyHasher = classLoaderHierarchyHasher;
+        this.buildOperationListenerManager = buildOperationListenerManager;
+        this.projectIsolationCache = projectIsolationCache;
+        if (isEnabled(startParameter)) {
+            // Scripts are applied from the start of the build, long before the cache is first asked for the projects
+            buildOperationListenerManager.addListener(appliedScripts);
+            recordingScripts = true;
+        }
+    }
+
+    public static boolean isEnabled(StartParameter startParameter) {
+        if (startParameter.isConfigureOnDemand()) {
+            return false;
+        }
+        String value = startParameter.getSystemPropertiesArgs().get(CACHE_PROPERTY);
+        if (value == null) {
+            value = System.getProperty(CACHE_PROPERTY);
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    /**
+     * Whether all requested and excluded tasks are given by path. Selecting a task by name configures the whole project hierarchy the task is
+     * looked up in, and tasks that look at other projects while they run, such as {@code tasks}, rely on those projects having been configured.
+     * The default tasks of the build are selected by name.
+     */
+    private static boolean selectsTasksByPathOnly(StartParameter startParameter) {
+        if (startParameter.getTaskRequests().isEmpty()) {
+            return false;
+        }
+        for (TaskExecutionRequest request : startParameter.getTaskRequests()) {
+            boolean optionValue = false;
+            for (String arg : request.getArgs()) {
+                if (arg.startsWith("-")) {
+                    // The value of a task option follows it, unless it is given as --option=value
+                    optionValue = !arg.contains("=");
+                } else if (optionValue) {
+                    optionValue = false;
+                } else if (!arg.contains(Project.PATH_SEPARATOR)) {
+                    return false;
+                }
+            }
+        }
+        for (String excludedTaskName : startParameter.getExcludedTaskNames()) {
+            if (!excludedTaskName.contains(Project.PATH_SEPARATOR)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the paths of the projects the task graph of a previous build with the same fingerprint consisted of,
+     * or {@code null} when all projects need to be configured. Must only be called once the root project has been configured.
+     */
+    @Nullable
+    public synchronized Set<String> getProjectsOfTaskGraph(GradleInternal gradle) {
+        if (!initialized) {
+            initialized = true;
+            if (isEnabled(gradle.getStartParameter())) {
+                if (!selectsTasksByPathOnly(gradle.getStartParameter())) {
+                    LOGGER.info("Configuring all projects, as tasks are selected by name.");
+                    stopRecordingScripts();
+                    return null;
+                }
+                fingerprint = fingerprinter.fingerprint(gradle);
+                if (fingerprint == null) {
+                    LOGGER.info("Configuring all projects, as the class loader of {} cannot be fingerprinted.", gradle.getRootProject().getDisplayName());
+                    stopRecordingScripts();
+                } else {
+                    // Track the projects reaching into other projects, in case the task graph needs to be remembered
+                    projectIsolationCache.startTracking(gradle);
+                    cachedEntry = store.get(fingerprint);
+                    if (cachedEntry != null && !scriptsUnchanged(cachedEntry)) {
+                        LOGGER.info("Configuring all projects, as a script applied by the build has changed.");
+                        cachedEntry = null;
+                    }
+                    if (cachedEntry == null) {
+                        gradle.getTaskGraph().addTaskExecutionGraphListener(new TaskGraphRecorder(gradle));
+                    } else {
+                        // Keep recording the scripts, in case the task graph needs to be remembered again
+                        LOGGER.info("Configuring only the {} projects of the cached task graph.", cachedEntry.getProjectPaths().size());
+                    }
+                }
+            }
+        }
+        return cachedEntry == null ? null : cachedEntry.getProjectPaths();
+    }
+
+    /**
+     * Checks that the class loaders of the configured projects of the cached task graph are the same as when the task graph was remembered.
+     * When one of them has changed, the task graph of this build is remembered instead and all projects need to be configured.
+     */
+    public synchronized boolean verifyClassLoaders(GradleInternal gradle) {
+        if (cachedEntry == null) {
+            return true;
+        }
+        for (Map.Entry<String, HashCode> entry : cachedEntry.getClassLoaders().entrySet()) {
+            ProjectInternal project = gradle.getRootProject().findProject(entry.getKey());
+            if (project != null && project.getState().getExecuted() && !entry.getValue().equals(hashClassLoader(project))) {
+                LOGGER.info("Configuring all projects, as the class loader of {} has changed.", project.getDisplayName());
+                cachedEntry = null;
+                gradle.getTaskGraph().addTaskExecutionGraphListener(new TaskGraphRecorder(gradle));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized void stop() {
+        stopRecordingScripts();
+    }
+
+    private void stopRecordingScripts() {
+        if (recordingScripts) {
+            recordingScripts = false;
+            buildOperationListenerManager.removeListener(appliedScripts);
+        }
+    }
+
+    private boolean scriptsUnchanged(ProjectPathsStore.Entry entry) {
+        for (Map.Entry<String, HashCode> script : entry.getScripts().entrySet()) {
+            File file = new File(script.getKey());
+            if (!file.isFile() || !fileHasher.hash(file).equals(script.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hashes of the script files applied by the given build, or {@code null} when they cannot be hashed.
+     */
+    @Nullable
+    private Map<String, HashCode> hashAppliedScripts(GradleInternal gradle) {
+        String buildPath = gradle.getIdentityPath().getPath();
+        Map<String, HashCode> scripts = new TreeMap<String, HashCode>();
+        for (ApplyScriptPluginBuildOperationType.Details details : appliedScripts.scripts) {
+            if (details.getBuildPath() != null && !details.getBuildPath().equals(buildPath)) {
+                // Applied by another build of the build tree
+                continue;
+            }
+            if (details.getUri() != null) {
+                LOGGER.info("Not caching the task graph, as the build applies the script {}.", details.getUri());
+                return null;
+            }
+            if (details.getFile() != null) {
+                File file = new File(details.getFile());
+                if (!file.isFile()) {
+                    return null;
+                }
+                scripts.put(file.getAbsolutePath(), fileHasher.hash(file));
+            }
+        }
+        return scripts;
+    }
+
+    /**
+     * Returns the hashes of the class loaders of the configured projects, or {@code null} when one of them cannot be hashed.
+     */
+    @Nullable
+    private Map<String, HashCode> hashClassLoaders(GradleInternal gradle) {
+        Map<String, HashCode> classLoaders = new TreeMap<String, HashCode>();
+        for (Project project : gradle.getRootProject().getAllprojects()) {
+            if (project.getState().getExecuted()) {
+                HashCode classLoaderHash = hashClassLoader((ProjectInternal) project);
+                if (classLoaderHash == null) {
+                    return null;
+                }
+                classLoaders.put(project.getPath(), classLoaderHash);
+            }
+        }
+        return classLoaders;
+    }
+
+    @Nullable
+    private HashCode hashClassLoader(ProjectInternal project) {
+        return classLoaderHierarchyHasher.getClassLoaderHash(project.getClassLoaderScope().getExportClassLoader());
+    }
+
+    private class TaskGraphRecorder implements TaskExecutionGraphListener {
+        private final GradleInternal gradle;
+
+        TaskGraphRecorder(GradleInternal gradle) {
+            this.gradle = gradle;
+        }
+
+        @Override
+        public void graphPopulated(TaskExecutionGraph graph) {
+            Set<String> projectPaths = Sets.newTreeSet();
+            for (Task task : graph.getAllTasks()) {
+                addWithParents(task.getProject(), projectPaths);
+            }
+            // Projects reaching into other projects may configure the projects of the task graph
+            for (String path : projectIsolationCache.getProjectsReachingOutside()) {
+                addWithParents(gradle.getRootProject().findProject(path), projectPaths);
+            }
+            synchronized (TaskGraphProjectsCache.this) {
+                stopRecordingScripts();
+                Map<String, HashCode> scripts = hashAppliedScripts(gradle);
+                Map<String, HashCode> classLoaders = hashClassLoaders(gradle);
+                if (scripts != null && classLoaders != null) {
+                    store.put(fingerprint, new ProjectPathsStore.Entry(projectPaths, scripts, classLoaders));
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the path of the given project and of its parent projects, through which the project is reached when configuring the hierarchy.
+     */
+    private static void addWithParents(@Nullable Project project, Set<String> projectPaths) {
+        while (project != null && projectPaths.add(project.getPath())) {
+            project = project.getParent();
+        }
+    }
+
+    private static class AppliedScriptsRecorder implements BuildOperationListener, ThreadSafe {
+        private final Queue<ApplyScriptPluginBuildOperationType.Details> scripts = new ConcurrentLinkedQueue<ApplyScriptPluginBuildOperationType.Details>();
+
+        @Override
+        public void started(BuildOperationDescriptor buildOperation, OperationStartEvent startEvent) {
+            if (buildOperation.getDetails() instanceof ApplyScriptPluginBuildOperationType.Details) {
+                scripts.add((ApplyScriptPluginBuildOperationType.Details) buildOperation.getDetails());
+            }
+        }
+
+        @Override
+        public void finished(BuildOperationDescriptor buildOperation, OperationFinishEvent finishEvent) {
+        }
+    }
+}
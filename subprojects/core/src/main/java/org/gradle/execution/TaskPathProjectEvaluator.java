@@ -16,16 +16,62 @@
 
 package org.gradle.execution;
 
+import org.gradle.StartParameter;
+import org.gradle.api.Action;
 import org.gradle.api.BuildCancelledException;
 import org.gradle.api.Project;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.initialization.BuildCancellationToken;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.MultipleBuildOperationFailures;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.progress.BuildOperationDescriptor;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Configures projects in the order they are requested.
+ *
+ * When configuring a project hierarchy with {@code --parallel} and {@code -Dorg.gradle.parallel.configuration=true}, each project is
+ * configured once its parent project has been configured. Only the projects that the {@link ProjectIsolationCache} knows to be configured
+ * without reaching outside themselves are configured in parallel, other projects are configured one at a time. As soon as a project reaches
+ * outside itself when it was expected not to, the remaining projects are configured one at a time as well. A project that needs another one
+ * to be configured first, through {@link Project#evaluationDependsOn(String)}, a task path or a project dependency, waits for it to be configured.
+ *
+ * When the {@link TaskGraphProjectsCache} knows the projects of the task graph, only those projects are configured when configuring a project hierarchy,
+ * unless the class loader of one of them turns out to have changed.
+ */
 public class TaskPathProjectEvaluator implements ProjectConfigurer {
+    public static final String PARALLEL_CONFIGURATION_PROPERTY = "org.gradle.parallel.configuration";
+
     private final BuildCancellationToken cancellationToken;
+    private final BuildOperationExecutor buildOperationExecutor;
+    private final TaskGraphProjectsCache taskGraphProjectsCache;
+    private final ProjectIsolationCache projectIsolationCache;
 
-    public TaskPathProjectEvaluator(BuildCancellationToken cancellationToken) {
+    public TaskPathProjectEvaluator(BuildCancellationToken cancellationToken, BuildOperationExecutor buildOperationExecutor, TaskGraphProjectsCache taskGraphProjectsCache, ProjectIsolationCache projectIsolationCache) {
         this.cancellationToken = cancellationToken;
+        this.buildOperationExecutor = buildOperationExecutor;
+        this.taskGraphProjectsCache = taskGraphProjectsCache;
+        this.projectIsolationCache = projectIsolationCache;
+    }
+
+    public static boolean isParallelConfiguration(StartParameter startParameter) {
+        if (!startParameter.isParallelProjectExecutionEnabled() || startParameter.isConfigureOnDemand()) {
+            return false;
+        }
+        String value = startParameter.getSystemPropertiesArgs().get(PARALLEL_CONFIGURATION_PROPERTY);
+        if (value == null) {
+            value = System.getProperty(PARALLEL_CONFIGURATION_PROPERTY);
+        }
+        return Boolean.parseBoolean(value);
     }
 
     public void configure(ProjectInternal project) {
@@ -58,11 +104,56 @@ public class TaskPathProjectEvaluator implements ProjectConfigurer {
 
     public void configureHierarchy(ProjectInternal project) {
         configure(project);
+        Set<String> taskGraphProjects = taskGraphProjectsCache.getProjectsOfTaskGraph(project.getGradle());
+        if (taskGraphProjects != null) {
+            configureTaskGraphProjects(project, taskGraphProjects);
+            if (taskGraphProjectsCache.verifyClassLoaders(project.getGradle())) {
+                return;
+            }
+            // Some projects have changed in ways the fingerprint does not cover, configure the remaining ones as well
+        }
+        if (isParallelConfiguration(project.getGradle().getStartParameter())) {
+            configureChildrenInParallel(project);
+            return;
+        }
         for (Project sub : project.getSubprojects()) {
             configure((ProjectInternal) sub);
         }
     }
 
+    private void configureTaskGraphProjects(ProjectInternal project, Set<String> taskGraphProjects) {
+        for (Project child : project.getChildProjects().values()) {
+            if (taskGraphProjects.contains(child.getPath())) {
+                configure((ProjectInternal) child);
+                configureTaskGraphProjects((ProjectInternal) child, taskGraphProjects);
+            }
+        }
+    }
+
+    private void configureChildrenInParallel(final ProjectInternal project) {
+        final ParallelConfiguration configuration = new ParallelConfiguration(projectIsolationCache.startRecording(project.getGradle()));
+        try {
+            buildOperationExecutor.runAll(new Action<BuildOperationQueue<ConfigureProjectHierarchy>>() {
+                @Override
+                public void execute(BuildOperationQueue<ConfigureProjectHierarchy> queue) {
+                    scheduleChildren(project, queue, configuration);
+                }
+            });
+        } catch (MultipleBuildOperationFailures e) {
+            if (e.getCauses().size() == 1) {
+                throw UncheckedException.throwAsUncheckedException(e.getCauses().get(0));
+            }
+            throw e;
+        }
+        projectIsolationCache.store(project.getGradle());
+    }
+
+    private void scheduleChildren(ProjectInternal project, BuildOperationQueue<ConfigureProjectHierarchy> queue, ParallelConfiguration configuration) {
+        for (Project child : project.getChildProjects().values()) {
+            queue.add(new ConfigureProjectHierarchy((ProjectInternal) child, queue, configuration));
+        }
+    }
+
     @Override
     public void configureHierarchyFully(ProjectInternal project) {
         configureFully(project);
@@ -70,4 +161,51 @@ public class TaskPathProjectEvaluator implements ProjectConfigurer {
             configureFully((ProjectInternal) sub);
         }
     }
+
+    private class ParallelConfiguration {
+        private final Set<String> isolatedProjects;
+        // Isolated projects are configured holding the read lock, other projects holding the write lock
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        ParallelConfiguration(Set<String> isolatedProjects) {
+            this.isolatedProjects = isolatedProjects;
+        }
+
+        Lock lockFor(ProjectInternal project) {
+            if (isolatedProjects.contains(project.getPath()) && Collections.disjoint(isolatedProjects, projectIsolationCache.getProjectsReachingOutside())) {
+                return lock.readLock();
+            }
+            return lock.writeLock();
+        }
+    }
+
+    private class ConfigureProjectHierarchy implements RunnableBuildOperation {
+        private final ProjectInternal project;
+        private final BuildOperationQueue<ConfigureProjectHierarchy> queue;
+        private final ParallelConfiguration configuration;
+
+        ConfigureProjectHierarchy(ProjectInternal project, BuildOperationQueue<ConfigureProjectHierarchy> queue, ParallelConfiguration configuration) {
+            this.project = project;
+            this.queue = queue;
+            this.configuration = configuration;
+        }
+
+        @Override
+        public void run(BuildOperationContext context) {
+            Lock lock = configuration.lockFor(project);
+            lock.lock();
+            try {
+                configure(project);
+            } finally {
+                lock.unlock();
+            }
+            // Child projects are scheduled only once their parent has been configured, as the parent may configure them
+            scheduleChildren(project, queue, configuration);
+        }
+
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName("Configure hierarchy of " + project.getDisplayName());
+        }
+    }
 }
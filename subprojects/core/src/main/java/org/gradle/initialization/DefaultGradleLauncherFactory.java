@@ -20,15 +20,20 @@ import com.google.common.collect.ImmutableList;
 import org.gradle.BuildAdapter;
 import org.gradle.BuildResult;
 import org.gradle.StartParameter;
+import org.gradle.api.Action;
+import org.gradle.api.Project;
 import org.gradle.api.internal.ExceptionAnalyser;
 import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.internal.tasks.execution.statistics.TaskExecutionStatisticsEventAdapter;
+import org.gradle.api.invocation.Gradle;
 import org.gradle.api.logging.Logging;
 import org.gradle.api.logging.configuration.ShowStacktrace;
+import org.gradle.caching.internal.metrics.BuildCacheMetricsCollector;
 import org.gradle.configuration.BuildConfigurer;
 import org.gradle.deployment.internal.DefaultDeploymentRegistry;
 import org.gradle.execution.BuildConfigurationActionExecuter;
 import org.gradle.execution.BuildExecuter;
+import org.gradle.internal.FileUtils;
 import org.gradle.internal.buildevents.BuildLogger;
 import org.gradle.internal.buildevents.BuildStartedTime;
 import org.gradle.internal.buildevents.ProjectEvaluationLogger;
@@ -48,6 +53,8 @@ import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.operations.CallableBuildOperation;
 import org.gradle.internal.operations.notify.BuildOperationNotificationBridge;
 import org.gradle.internal.progress.BuildOperationDescriptor;
+import org.gradle.internal.progress.BuildOperationListener;
+import org.gradle.internal.progress.BuildOperationListenerManager;
 import org.gradle.internal.progress.BuildProgressFilter;
 import org.gradle.internal.progress.BuildProgressLogger;
 import org.gradle.internal.progress.LoggerProvider;
@@ -61,11 +68,13 @@ import org.gradle.internal.service.scopes.ServiceRegistryFactory;
 import org.gradle.internal.time.Clock;
 import org.gradle.internal.time.Time;
 import org.gradle.invocation.DefaultGradle;
+import org.gradle.profile.ConfigurationProfileCollector;
 import org.gradle.profile.ProfileEventAdapter;
 import org.gradle.profile.ReportGeneratingProfileListener;
 import org.gradle.util.DeprecationLogger;
 
 import javax.annotation.Nullable;
+import java.io.File;
 import java.util.List;
 
 public class DefaultGradleLauncherFactory implements GradleLauncherFactory {
@@ -122,12 +131,76 @@ public class DefaultGradleLauncherFactory implements GradleLauncherFactory {
             }
         });
 
+        String buildCacheMetricsPath = BuildCacheMetricsCollector.getReportPath(startParameter);
+        if (buildCacheMetricsPath != null) {
+            collectBuildCacheMetrics(launcher.getGradle(), parentRegistry.get(BuildOperationListenerManager.class), buildCacheMetricsPath);
+        }
+
+        String configurationProfilePath = ConfigurationProfileCollector.getReportPath(startParameter);
+        if (configurationProfilePath != null) {
+            collectConfigurationProfile(launcher.getGradle(), parentRegistry.get(BuildOperationListenerManager.class), configurationProfilePath);
+        }
+
         // Start collecting operations for this build invocation
         parentRegistry.get(BuildOperationNotificationBridge.class).start(launcher.getGradle());
 
         return launcher;
     }
 
+    private static void collectBuildCacheMetrics(GradleInternal gradle, BuildOperationListenerManager buildOperationListenerManager, String reportPath) {
+        final BuildCacheMetricsCollector collector = new BuildCacheMetricsCollector();
+        collectReport(gradle, buildOperationListenerManager, collector, reportPath, "reports/build-cache/metrics.json", new Action<File>() {
+            @Override
+            public void execute(File reportFile) {
+                collector.report(reportFile);
+            }
+        });
+    }
+
+    private static void collectConfigurationProfile(GradleInternal gradle, BuildOperationListenerManager buildOperationListenerManager, String reportPath) {
+        final ConfigurationProfileCollector collector = new ConfigurationProfileCollector();
+        collectReport(gradle, buildOperationListenerManager, collector, reportPath, "reports/profile/configuration-profile.json", new Action<File>() {
+            @Override
+            public void execute(File reportFile) {
+                collector.report(reportFile);
+            }
+        });
+    }
+
+    /**
+     * Listens to the build operations of the build with the given collector, and has it write its report at the end of the build, either to the
+     * given path or, when the path is empty or {@code true}, to the given location in the build directory of the root project.
+     * A relative path is resolved against the directory the build was started from, rather than the working directory of the daemon.
+     */
+    private static void collectReport(GradleInternal gradle, final BuildOperationListenerManager buildOperationListenerManager, final BuildOperationListener collector,
+                                      final String reportPath, final String defaultReportPath, final Action<File> report) {
+        final File currentDir = gradle.getStartParameter().getCurrentDir();
+        buildOperationListenerManager.addListener(collector);
+        gradle.addBuildListener(new BuildAdapter() {
+            private Project rootProject;
+
+            @Override
+            public void projectsLoaded(Gradle gradle) {
+                rootProject = gradle.getRootProject();
+            }
+
+            @Override
+            public void buildFinished(BuildResult result) {
+                buildOperationListenerManager.removeListener(collector);
+                if (reportPath.length() > 0 && !reportPath.equalsIgnoreCase("true")) {
+                    report.execute(resolveReportFile(currentDir, reportPath));
+                } else if (rootProject != null) {
+                    report.execute(new File(rootProject.getBuildDir(), defaultReportPath));
+                }
+            }
+        });
+    }
+
+    private static File resolveReportFile(File currentDir, String reportPath) {
+        File reportFile = new File(reportPath);
+        return FileUtils.canonicalize(reportFile.isAbsolute() ? reportFile : new File(currentDir, reportPath));
+    }
+
     private DefaultGradleLauncher doNewInstance(StartParameter startParameter, GradleLauncher parent,
                                                 BuildCancellationToken cancellationToken,
                                                 BuildRequestMetaData requestMetaData, BuildEventConsumer buildEventConsumer,
@@ -19,9 +19,13 @@ package org.gradle.initialization;
 import org.gradle.api.internal.project.ProjectInternal;
 
 /**
- * Internal interface, used by our configuration on demand mode.
+ * Internal interface, used by our configuration on demand mode and by parallel configuration.
  */
 public interface ProjectAccessListener {
     void beforeRequestingTaskByPath(ProjectInternal targetProject);
     void beforeResolvingProjectDependency(ProjectInternal dependencyProject);
+    /**
+     * Called before a project evaluates another project, or navigates to it, for example through {@code project(path)} or {@code rootProject}.
+     */
+    void beforeEvaluatingProject(ProjectInternal targetProject);
 }
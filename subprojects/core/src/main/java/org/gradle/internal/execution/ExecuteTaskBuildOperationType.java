@@ -89,6 +89,13 @@ public final class ExecuteTaskBuildOperationType implements BuildOperationType<E
         @Nullable
         String getOriginBuildInvocationId();
 
+        /**
+         * If task was FROM_CACHE, this will convey the execution time of the task in the build that produced the outputs being reused.
+         * Value will be null for any other outcome.
+         */
+        @Nullable
+        Long getOriginExecutionTime();
+
         /**
          * The human friendly description of why this task was not cacheable.
          * Null if the task was cacheable.
@@ -21,6 +21,7 @@ import org.gradle.api.Action;
 import org.gradle.api.Project;
 import org.gradle.api.internal.GradleInternal;
 import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.ThreadSafe;
 import org.gradle.internal.progress.BuildOperationDescriptor;
 import org.gradle.internal.progress.BuildOperationListener;
 import org.gradle.internal.progress.BuildOperationListenerManager;
@@ -80,7 +81,7 @@ public class BuildOperationNotificationBridge implements BuildOperationNotificat
         // and we want to throw away the recorded notifications.
 
         listenerManager.removeListener(adapter);
-        adapter = new Adapter(notificationListener);
+        adapter = new Adapter(new SynchronizedListener(notificationListener));
         listenerManager.addListener(adapter);
     }
 
@@ -114,8 +115,10 @@ public class BuildOperationNotificationBridge implements BuildOperationNotificat
         OperationStartEvent. This will happen later.
      */
 
-    // No synchronization as Gradle event dispatching guarantees serialization and memory fences.
-    private static class Adapter implements BuildOperationListener {
+    // Notified concurrently by the threads running build operations.
+    // A parent operation is always started before its children, so its entries are visible when they look them up.
+    // The notification listener is required to be synchronized.
+    private static class Adapter implements BuildOperationListener, ThreadSafe {
 
         private final BuildOperationNotificationListener notificationListener;
 
@@ -181,7 +184,7 @@ public class BuildOperationNotificationBridge implements BuildOperationNotificat
         }
     }
 
-    // No synchronization as Gradle event dispatching guarantees serialization and memory fences.
+    // Only called while holding the lock of the replay listener
     private static class RecordingListener implements BuildOperationNotificationListener {
         private final List<Object> storedEvents = Lists.newArrayList();
 
@@ -196,7 +199,26 @@ public class BuildOperationNotificationBridge implements BuildOperationNotificat
         }
     }
 
-    // Synchronization required as attach could happen concurrently with receive
+    // Serializes the notifications received from concurrently running build operations
+    private static class SynchronizedListener implements BuildOperationNotificationListener {
+        private final BuildOperationNotificationListener delegate;
+
+        private SynchronizedListener(BuildOperationNotificationListener delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public synchronized void started(BuildOperationStartedNotification notification) {
+            delegate.started(notification);
+        }
+
+        @Override
+        public synchronized void finished(BuildOperationFinishedNotification notification) {
+            delegate.finished(notification);
+        }
+    }
+
+    // Synchronization required as attach could happen concurrently with receive, and operations run concurrently
     private static class ReplayAndAttachListener implements BuildOperationNotificationListener {
         private RecordingListener recordingListener = new RecordingListener();
         private BuildOperationNotificationListener listener = recordingListener;
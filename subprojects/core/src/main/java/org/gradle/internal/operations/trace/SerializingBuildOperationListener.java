@@ -18,6 +18,7 @@ package org.gradle.internal.operations.trace;
 
 import groovy.json.JsonOutput;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ThreadSafe;
 import org.gradle.internal.progress.BuildOperationDescriptor;
 import org.gradle.internal.progress.BuildOperationListener;
 import org.gradle.internal.progress.OperationFinishEvent;
@@ -31,12 +32,12 @@ import java.util.Map;
  * Note: this is relying on Gradle's listener infrastructure serializing dispatch
  * and prevent concurrent invocations of started/finished.
  */
-class SerializingBuildOperationListener implements BuildOperationListener {
+class SerializingBuildOperationListener implements BuildOperationListener, ThreadSafe {
 
     private static final byte[] NEWLINE = "\n".getBytes();
     private static final byte[] INDENT = "    ".getBytes();
 
-    private OutputStream out;
+    private final OutputStream out;
 
     SerializingBuildOperationListener(OutputStream out) {
         this.out = out;
@@ -55,11 +56,15 @@ class SerializingBuildOperationListener implements BuildOperationListener {
     private void write(Map<String, ?> entry, boolean indent) {
         String json = JsonOutput.toJson(entry);
         try {
-            if (indent) {
-                out.write(INDENT);
+            byte[] bytes = json.getBytes("UTF-8");
+            // Entries are serialized concurrently, but written one line at a time
+            synchronized (out) {
+                if (indent) {
+                    out.write(INDENT);
+                }
+                out.write(bytes);
+                out.write(NEWLINE);
             }
-            out.write(json.getBytes("UTF-8"));
-            out.write(NEWLINE);
         } catch (IOException e) {
             throw UncheckedException.throwAsUncheckedException(e);
         }
@@ -39,6 +39,7 @@ import org.gradle.internal.jvm.inspection.JvmVersionDetector;
 import org.gradle.internal.nativeintegration.ProcessEnvironment;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 import org.gradle.internal.remote.internal.inet.InetAddressFactory;
+import org.gradle.internal.remote.internal.inet.SharedMemoryTransport;
 import org.gradle.internal.remote.services.MessagingServices;
 import org.gradle.process.internal.DefaultExecActionFactory;
 import org.gradle.process.internal.ExecHandleFactory;
@@ -72,7 +73,7 @@ public class BasicGlobalScopeServices {
     }
 
     MessagingServices createMessagingServices() {
-        return new MessagingServices();
+        return new MessagingServices(SharedMemoryTransport.isEnabled());
     }
 
     DocumentationRegistry createDocumentationRegistry() {
@@ -75,6 +75,8 @@ import org.gradle.api.internal.tasks.userinput.UserInputHandler;
 import org.gradle.api.provider.ProviderFactory;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.CacheValidator;
+import org.gradle.cache.internal.CacheScopeMapping;
+import org.gradle.cache.internal.VersionStrategy;
 import org.gradle.caching.internal.BuildCacheServices;
 import org.gradle.composite.internal.IncludedBuildRegistry;
 import org.gradle.configuration.BuildConfigurer;
@@ -90,7 +92,10 @@ import org.gradle.configuration.project.DelayedConfigurationActions;
 import org.gradle.configuration.project.LifecycleProjectEvaluator;
 import org.gradle.configuration.project.PluginsProjectConfigureActions;
 import org.gradle.configuration.project.ProjectEvaluator;
+import org.gradle.execution.BuildConfigurationFingerprinter;
 import org.gradle.execution.ProjectConfigurer;
+import org.gradle.execution.ProjectIsolationCache;
+import org.gradle.execution.TaskGraphProjectsCache;
 import org.gradle.execution.TaskPathProjectEvaluator;
 import org.gradle.groovy.scripts.DefaultScriptCompilerFactory;
 import org.gradle.groovy.scripts.ScriptCompilerFactory;
@@ -126,6 +131,7 @@ import org.gradle.initialization.buildsrc.BuildSourceBuilder;
 import org.gradle.initialization.buildsrc.BuildSrcBuildListenerFactory;
 import org.gradle.initialization.buildsrc.BuildSrcProjectConfigurationAction;
 import org.gradle.initialization.layout.BuildLayoutFactory;
+import org.gradle.initialization.layout.ProjectCacheDir;
 import org.gradle.internal.actor.ActorFactory;
 import org.gradle.internal.actor.internal.DefaultActorFactory;
 import org.gradle.internal.authentication.AuthenticationSchemeRegistry;
@@ -144,6 +150,7 @@ import org.gradle.internal.logging.sink.OutputEventRenderer;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.operations.logging.BuildOperationLoggerFactory;
 import org.gradle.internal.operations.logging.DefaultBuildOperationLoggerFactory;
+import org.gradle.internal.progress.BuildOperationListenerManager;
 import org.gradle.internal.reflect.DirectInstantiator;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.resource.TextResourceLoader;
@@ -163,6 +170,7 @@ import org.gradle.tooling.provider.model.ToolingModelBuilderRegistry;
 import org.gradle.tooling.provider.model.internal.BuildScopeToolingModelBuilderRegistryAction;
 import org.gradle.tooling.provider.model.internal.DefaultToolingModelBuilderRegistry;
 
+import java.io.File;
 import java.util.List;
 
 /**
@@ -374,16 +382,32 @@ public class BuildScopeServices extends DefaultServiceRegistry {
         );
     }
 
-    protected ProjectConfigurer createProjectConfigurer(BuildCancellationToken cancellationToken) {
-        return new TaskPathProjectEvaluator(cancellationToken);
+    protected BuildConfigurationFingerprinter createBuildConfigurationFingerprinter(ScriptSourceHasher scriptSourceHasher, FileHasher fileHasher, ClassLoaderHierarchyHasher classLoaderHierarchyHasher) {
+        return new BuildConfigurationFingerprinter(scriptSourceHasher, fileHasher, classLoaderHierarchyHasher);
+    }
+
+    protected TaskGraphProjectsCache createTaskGraphProjectsCache(ProjectCacheDir projectCacheDir, CacheScopeMapping cacheScopeMapping, BuildConfigurationFingerprinter fingerprinter, FileHasher fileHasher,
+                                                                  ClassLoaderHierarchyHasher classLoaderHierarchyHasher, BuildOperationListenerManager buildOperationListenerManager,
+                                                                  ProjectIsolationCache projectIsolationCache, StartParameter startParameter) {
+        File cacheDir = cacheScopeMapping.getBaseDirectory(projectCacheDir.getDir(), "taskGraph", VersionStrategy.CachePerVersion);
+        return new TaskGraphProjectsCache(new File(cacheDir, "projects.bin"), fingerprinter, fileHasher, classLoaderHierarchyHasher, buildOperationListenerManager, projectIsolationCache, startParameter);
+    }
+
+    protected ProjectIsolationCache createProjectIsolationCache(ProjectCacheDir projectCacheDir, CacheScopeMapping cacheScopeMapping, BuildConfigurationFingerprinter fingerprinter) {
+        File cacheDir = cacheScopeMapping.getBaseDirectory(projectCacheDir.getDir(), "taskGraph", VersionStrategy.CachePerVersion);
+        return new ProjectIsolationCache(new File(cacheDir, "isolated-projects.bin"), fingerprinter);
+    }
+
+    protected ProjectConfigurer createProjectConfigurer(BuildCancellationToken cancellationToken, BuildOperationExecutor buildOperationExecutor, TaskGraphProjectsCache taskGraphProjectsCache, ProjectIsolationCache projectIsolationCache) {
+        return new TaskPathProjectEvaluator(cancellationToken, buildOperationExecutor, taskGraphProjectsCache, projectIsolationCache);
     }
 
     protected BuildConfigurer createBuildConfigurer(ProjectConfigurer projectConfigurer) {
         return new DefaultBuildConfigurer(projectConfigurer);
     }
 
-    protected ProjectAccessListener createProjectAccessListener() {
-        return new DefaultProjectAccessListener();
+    protected ProjectAccessListener createProjectAccessListener(ProjectIsolationCache projectIsolationCache) {
+        return new DefaultProjectAccessListener(projectIsolationCache);
     }
 
     protected ProfileEventAdapter createProfileEventAdapter() {
@@ -236,8 +236,10 @@ public class GlobalScopeServices extends BasicGlobalScopeServices {
         return new CrossBuildInMemoryCacheFactory(listenerManager);
     }
 
-    InMemoryCacheDecoratorFactory createInMemoryTaskArtifactCache(CrossBuildInMemoryCacheFactory cacheFactory) {
-        return new InMemoryCacheDecoratorFactory(environment.isLongLivingProcess(), cacheFactory);
+    InMemoryCacheDecoratorFactory createInMemoryTaskArtifactCache(CrossBuildInMemoryCacheFactory cacheFactory, ListenerManager listenerManager) {
+        InMemoryCacheDecoratorFactory cacheDecoratorFactory = new InMemoryCacheDecoratorFactory(environment.isLongLivingProcess(), cacheFactory);
+        listenerManager.addListener(cacheDecoratorFactory);
+        return cacheDecoratorFactory;
     }
 
 
@@ -47,6 +47,7 @@ import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.internal.CacheRepositoryServices;
 import org.gradle.cache.internal.CacheScopeMapping;
 import org.gradle.cache.internal.CrossBuildInMemoryCacheFactory;
+import org.gradle.caching.internal.tasks.TaskCacheKeyCalculator;
 import org.gradle.groovy.scripts.internal.CrossBuildInMemoryCachingScriptClassCache;
 import org.gradle.groovy.scripts.internal.DefaultScriptSourceHasher;
 import org.gradle.groovy.scripts.internal.RegistryAwareClassLoaderHierarchyHasher;
@@ -134,6 +135,10 @@ public class GradleUserHomeScopeServices {
         return new ValueSnapshotter(classLoaderHierarchyHasher, NamedObjectInstantiator.INSTANCE);
     }
 
+    TaskCacheKeyCalculator createTaskCacheKeyCalculator() {
+        return new TaskCacheKeyCalculator();
+    }
+
     ClassLoaderHierarchyHasher createClassLoaderHierarchyHasher(ClassLoaderRegistry registry, ClassLoaderHasher classLoaderHasher) {
         return new RegistryAwareClassLoaderHierarchyHasher(registry, classLoaderHasher);
     }
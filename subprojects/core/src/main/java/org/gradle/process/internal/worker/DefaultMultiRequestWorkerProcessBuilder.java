@@ -17,9 +17,11 @@
 package org.gradle.process.internal.worker;
 
 import org.gradle.api.logging.LogLevel;
+import org.gradle.internal.Cast;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.classloader.ClasspathUtil;
 import org.gradle.internal.operations.BuildOperationIdentifierRegistry;
+import org.gradle.internal.serialize.Serializer;
 import org.gradle.process.internal.JavaExecHandleBuilder;
 import org.gradle.process.internal.worker.request.Receiver;
 import org.gradle.process.internal.worker.request.RequestProtocol;
@@ -30,6 +32,8 @@ import java.io.File;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 class DefaultMultiRequestWorkerProcessBuilder<WORKER> implements MultiRequestWorkerProcessBuilder<WORKER> {
@@ -38,6 +42,8 @@ class DefaultMultiRequestWorkerProcessBuilder<WORKER> implements MultiRequestWor
     private final Class<WORKER> workerType;
     private final Class<?> workerImplementation;
     private final DefaultWorkerProcessBuilder workerProcessBuilder;
+    private final WorkerAction workerAction;
+    private final Map<Class<?>, Class<? extends Serializer<?>>> argumentSerializers = new LinkedHashMap<Class<?>, Class<? extends Serializer<?>>>();
 
     static {
         try {
@@ -52,10 +58,17 @@ class DefaultMultiRequestWorkerProcessBuilder<WORKER> implements MultiRequestWor
         this.workerType = workerType;
         this.workerImplementation = workerImplementation;
         this.workerProcessBuilder = workerProcessBuilder;
-        workerProcessBuilder.worker(new WorkerAction(workerImplementation));
+        this.workerAction = new WorkerAction(workerImplementation);
+        workerProcessBuilder.worker(workerAction);
         workerProcessBuilder.setImplementationClasspath(ClasspathUtil.getClasspath(workerImplementation.getClassLoader()).getAsURLs());
     }
 
+    @Override
+    public <A> void registerArgumentSerializer(Class<A> argumentType, Class<? extends Serializer<A>> serializerType) {
+        argumentSerializers.put(argumentType, serializerType);
+        workerAction.registerArgumentSerializer(argumentType.getName(), serializerType.getName());
+    }
+
     @Override
     public WorkerProcessSettings applicationClasspath(Iterable<File> files) {
         workerProcessBuilder.applicationClasspath(files);
@@ -132,6 +145,11 @@ class DefaultMultiRequestWorkerProcessBuilder<WORKER> implements MultiRequestWor
                     }
                     workerProcess.getConnection().addIncoming(ResponseProtocol.class, receiver);
                     workerProcess.getConnection().useJavaSerializationForParameters(workerImplementation.getClassLoader());
+                    for (Map.Entry<Class<?>, Class<? extends Serializer<?>>> entry : argumentSerializers.entrySet()) {
+                        Class<Object> argumentType = Cast.uncheckedCast(entry.getKey());
+                        Serializer<Object> serializer = Cast.uncheckedCast(WorkerAction.createArgumentSerializer(entry.getValue(), workerImplementation.getClassLoader()));
+                        workerProcess.getConnection().useArgumentSerializer(argumentType, serializer);
+                    }
                     requestProtocol = workerProcess.getConnection().addOutgoing(RequestProtocol.class);
                     workerProcess.getConnection().connect();
                     return workerProcess;
@@ -16,6 +16,8 @@
 
 package org.gradle.process.internal.worker;
 
+import org.gradle.internal.serialize.Serializer;
+
 /**
  * Configures and builds multi-request workers. A multi-request worker runs zero or more requests in a forked worker process.
  *
@@ -26,6 +28,13 @@ package org.gradle.process.internal.worker;
  * <p>The worker process must be explicitly started and stopped using the methods on {@link WorkerControl}.</p>
  */
 public interface MultiRequestWorkerProcessBuilder<T> extends WorkerProcessSettings {
+    /**
+     * Uses a serializer of the given type to send request arguments of exactly the given type to the worker, instead of Java serialization.
+     * The serializer type must have a public constructor that takes the {@link ClassLoader} of the worker implementation, and is instantiated
+     * in both this process and the worker process.
+     */
+    <A> void registerArgumentSerializer(Class<A> argumentType, Class<? extends Serializer<A>> serializerType);
+
     /**
      * Creates a worker.
      *
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.process.internal.worker;
+
+import org.gradle.api.Transformer;
+import org.gradle.api.logging.LogLevel;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.specs.Spec;
+import org.gradle.internal.Factory;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.logging.LoggingManagerInternal;
+import org.gradle.internal.logging.events.LogLevelChangeEvent;
+import org.gradle.internal.logging.events.OutputEvent;
+import org.gradle.internal.logging.events.OutputEventListener;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Keeps track of the clients of long-lived worker processes, and of which of them are idle and can be reused.
+ *
+ * <p>A worker cannot change the log level it was started with, so an idle client started with a log level other than
+ * the current one is stopped instead of being reused.</p>
+ *
+ * @param <T> The type of client.
+ */
+public class WorkerClientPool<T extends WorkerClientPool.Client> implements Stoppable {
+
+    private static final Logger LOGGER = Logging.getLogger(WorkerClientPool.class);
+
+    private final Object lock = new Object();
+    private final List<T> allClients = new ArrayList<T>();
+    private final List<T> idleClients = new ArrayList<T>();
+
+    private final String displayName;
+    private final LoggingManagerInternal loggingManager;
+    private final OutputEventListener logLevelChangeEventListener;
+    private LogLevel currentLogLevel;
+
+    /**
+     * @param displayName The kind of worker, for logging, such as "worker daemon".
+     */
+    public WorkerClientPool(String displayName, LoggingManagerInternal loggingManager) {
+        this.displayName = displayName;
+        this.loggingManager = loggingManager;
+        this.logLevelChangeEventListener = new LogLevelChangeEventListener();
+        loggingManager.addOutputEventListener(logLevelChangeEventListener);
+        this.currentLogLevel = loggingManager.getLevel();
+    }
+
+    public LogLevel getCurrentLogLevel() {
+        synchronized (lock) {
+            return currentLogLevel;
+        }
+    }
+
+    public List<T> getAllClients() {
+        synchronized (lock) {
+            return new ArrayList<T>(allClients);
+        }
+    }
+
+    public List<T> getIdleClients() {
+        synchronized (lock) {
+            return new ArrayList<T>(idleClients);
+        }
+    }
+
+    /**
+     * Removes an idle client that satisfies the given spec from the pool and returns it, or returns null when there is none.
+     */
+    @Nullable
+    public T reserveIdleClient(Spec<? super T> spec) {
+        return reserveIdleClient(spec, idleClients);
+    }
+
+    /**
+     * Removes a client that satisfies the given spec from the given idle clients and returns it, or returns null when there is none.
+     */
+    @Nullable
+    public T reserveIdleClient(Spec<? super T> spec, List<T> clients) {
+        List<T> toStop = new ArrayList<T>();
+        try {
+            synchronized (lock) {
+                Iterator<T> it = clients.iterator();
+                while (it.hasNext()) {
+                    T candidate = it.next();
+                    if (spec.isSatisfiedBy(candidate)) {
+                        it.remove();
+                        if (candidate.getLogLevel() != currentLogLevel) {
+                            // TODO: Send a message to workers to change their log level rather than stopping
+                            LOGGER.info("Log level has changed, stopping idle {} with out-of-date log level.", displayName);
+                            toStop.add(candidate);
+                        } else {
+                            return candidate;
+                        }
+                    }
+                }
+                return null;
+            }
+        } finally {
+            stopClients(toStop);
+        }
+    }
+
+    public T reserveNewClient(Factory<? extends T> starter) {
+        //allow the worker to be started concurrently
+        T client = starter.create();
+        synchronized (lock) {
+            allClients.add(client);
+        }
+        return client;
+    }
+
+    /**
+     * Returns a client to the pool, so that it can be reserved again.
+     */
+    public void release(T client) {
+        synchronized (lock) {
+            idleClients.add(client);
+        }
+    }
+
+    /**
+     * Stops a client instead of returning it to the pool.
+     */
+    public void discard(T client) {
+        stopClients(Collections.singletonList(client));
+    }
+
+    /**
+     * Select idle clients to stop.
+     *
+     * @param selectionFunction Gets all idle clients, the returned clients are stopped
+     */
+    public void selectIdleClientsToStop(Transformer<List<T>, List<T>> selectionFunction) {
+        List<T> clientsToStop;
+        synchronized (lock) {
+            clientsToStop = selectionFunction.transform(new ArrayList<T>(idleClients));
+            idleClients.removeAll(clientsToStop);
+        }
+        stopClients(clientsToStop);
+    }
+
+    /**
+     * Stops all clients, idle or not, that satisfy the given spec.
+     */
+    public void stopClients(Spec<? super T> spec) {
+        List<T> clientsToStop = new ArrayList<T>();
+        synchronized (lock) {
+            for (T client : allClients) {
+                if (spec.isSatisfiedBy(client)) {
+                    clientsToStop.add(client);
+                }
+            }
+            idleClients.removeAll(clientsToStop);
+        }
+        stopClients(clientsToStop);
+    }
+
+    private void stopClients(List<T> clientsToStop) {
+        if (clientsToStop.isEmpty()) {
+            return;
+        }
+        synchronized (lock) {
+            allClients.removeAll(clientsToStop);
+            idleClients.removeAll(clientsToStop);
+        }
+        LOGGER.debug("Stopping {} {}(s).", clientsToStop.size(), displayName);
+        CompositeStoppable.stoppable(clientsToStop).stop();
+        LOGGER.info("Stopped {} {}(s).", clientsToStop.size(), displayName);
+    }
+
+    @Override
+    public void stop() {
+        List<T> clientsToStop;
+        synchronized (lock) {
+            clientsToStop = new ArrayList<T>(allClients);
+            loggingManager.removeOutputEventListener(logLevelChangeEventListener);
+        }
+        stopClients(clientsToStop);
+    }
+
+    /**
+     * A client of a worker process that can be kept in a {@link WorkerClientPool}.
+     */
+    public interface Client extends Stoppable {
+        /**
+         * The log level the worker was started with.
+         */
+        LogLevel getLogLevel();
+    }
+
+    private class LogLevelChangeEventListener implements OutputEventListener {
+        @Override
+        public void onOutput(OutputEvent event) {
+            if (event instanceof LogLevelChangeEvent) {
+                LogLevelChangeEvent logLevelChangeEvent = (LogLevelChangeEvent) event;
+                synchronized (lock) {
+                    currentLogLevel = logLevelChangeEvent.getNewLogLevel();
+                }
+            }
+        }
+    }
+}
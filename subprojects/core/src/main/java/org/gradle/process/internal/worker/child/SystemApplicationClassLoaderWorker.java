@@ -91,7 +91,8 @@ public class SystemApplicationClassLoaderWorker implements Callable<Void> {
 
         // Read server address and start connecting
         MultiChoiceAddress serverAddress = new MultiChoiceAddressSerializer().read(decoder);
-        MessagingServices messagingServices = new MessagingServices();
+        boolean sharedMemory = decoder.readBoolean();
+        MessagingServices messagingServices = new MessagingServices(sharedMemory);
         final WorkerServices workerServices = new WorkerServices(messagingServices, gradleUserHomeDir);
 
         ObjectConnection connection = null;
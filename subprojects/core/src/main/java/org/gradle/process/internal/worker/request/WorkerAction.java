@@ -21,20 +21,25 @@ import org.gradle.api.internal.AsmBackedClassGenerator;
 import org.gradle.api.internal.DefaultInstantiatorFactory;
 import org.gradle.api.internal.InstantiatorFactory;
 import org.gradle.cache.internal.CrossBuildInMemoryCacheFactory;
+import org.gradle.internal.Cast;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.event.DefaultListenerManager;
 import org.gradle.internal.operations.BuildOperationIdentifierRegistry;
 import org.gradle.internal.remote.ObjectConnection;
 import org.gradle.internal.remote.internal.hub.StreamFailureHandler;
+import org.gradle.internal.serialize.Serializer;
 import org.gradle.process.internal.worker.WorkerProcessContext;
 
 import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 
 public class WorkerAction implements Action<WorkerProcessContext>, Serializable, RequestProtocol, StreamFailureHandler {
     private final String workerImplementationName;
+    private final Map<String, String> argumentSerializerNames = new LinkedHashMap<String, String>();
     private transient CountDownLatch completed;
     private transient ResponseProtocol responder;
     private transient Throwable failure;
@@ -46,6 +51,21 @@ public class WorkerAction implements Action<WorkerProcessContext>, Serializable,
         this.workerImplementationName = workerImplementation.getName();
     }
 
+    /**
+     * Uses a serializer of the given type for request arguments of the given type. See {@link org.gradle.process.internal.worker.MultiRequestWorkerProcessBuilder#registerArgumentSerializer(Class, Class)}.
+     */
+    public void registerArgumentSerializer(String argumentTypeName, String serializerTypeName) {
+        argumentSerializerNames.put(argumentTypeName, serializerTypeName);
+    }
+
+    public static Serializer<?> createArgumentSerializer(Class<?> serializerType, ClassLoader classLoader) {
+        try {
+            return (Serializer<?>) serializerType.getConstructor(ClassLoader.class).newInstance(classLoader);
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
     @Override
     public void execute(WorkerProcessContext workerProcessContext) {
         completed = new CountDownLatch(1);
@@ -60,6 +80,13 @@ public class WorkerAction implements Action<WorkerProcessContext>, Serializable,
         }
 
         ObjectConnection connection = workerProcessContext.getServerConnection();
+        if (failure == null) {
+            try {
+                useArgumentSerializers(connection);
+            } catch (Throwable e) {
+                failure = e;
+            }
+        }
         connection.addIncoming(RequestProtocol.class, this);
         responder = connection.addOutgoing(ResponseProtocol.class);
         connection.connect();
@@ -71,6 +98,15 @@ public class WorkerAction implements Action<WorkerProcessContext>, Serializable,
         }
     }
 
+    private void useArgumentSerializers(ObjectConnection connection) throws ClassNotFoundException {
+        ClassLoader classLoader = workerImplementation.getClassLoader();
+        for (Map.Entry<String, String> entry : argumentSerializerNames.entrySet()) {
+            Class<Object> argumentType = Cast.uncheckedCast(Class.forName(entry.getKey(), false, classLoader));
+            Serializer<Object> serializer = Cast.uncheckedCast(createArgumentSerializer(Class.forName(entry.getValue(), true, classLoader), classLoader));
+            connection.useArgumentSerializer(argumentType, serializer);
+        }
+    }
+
     @Override
     public void stop() {
         completed.countDown();
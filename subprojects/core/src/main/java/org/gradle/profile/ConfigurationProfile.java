@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.profile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Configuration time and allocations of a build, by plugin, script, script block, project and afterEvaluate notification.
+ *
+ * <p>For each entry, the total values include everything that happened while the entry was running, and the self values leave out
+ * the nested entries that ran on the same thread, such as a plugin applied by another plugin.</p>
+ */
+public class ConfigurationProfile {
+
+    public enum EntryType {
+        PLUGIN("plugin"),
+        SCRIPT("script"),
+        SCRIPT_BLOCK("scriptBlock"),
+        PROJECT("project"),
+        AFTER_EVALUATE("afterEvaluate");
+
+        private final String displayName;
+
+        EntryType(String displayName) {
+            this.displayName = displayName;
+        }
+    }
+
+    private static final Comparator<Entry> BY_SELF_TIME = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry left, Entry right) {
+            if (left.selfTimeMillis != right.selfTimeMillis) {
+                return left.selfTimeMillis > right.selfTimeMillis ? -1 : 1;
+            }
+            return left.name.compareTo(right.name);
+        }
+    };
+
+    private final Map<String, Entry> entries = new HashMap<String, Entry>();
+    private boolean allocationsTracked = true;
+
+    /**
+     * Records a completed operation. Allocations are not known when {@code allocatedBytes} is negative.
+     */
+    public synchronized void completed(EntryType type, String name, long timeMillis, long selfTimeMillis, long allocatedBytes, long selfAllocatedBytes) {
+        String key = type.displayName + " " + name;
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(type, name);
+            entries.put(key, entry);
+        }
+        entry.count++;
+        entry.timeMillis += timeMillis;
+        entry.selfTimeMillis += selfTimeMillis;
+        if (allocatedBytes < 0) {
+            allocationsTracked = false;
+        } else {
+            entry.allocatedBytes += allocatedBytes;
+            entry.selfAllocatedBytes += selfAllocatedBytes;
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public synchronized Map<String, Object> toMap() {
+        List<Map<String, Object>> result = new ArrayList<Map<String, Object>>(entries.size());
+        for (Entry entry : sortedEntries()) {
+            result.add(entry.toMap(allocationsTracked));
+        }
+        return Collections.<String, Object>singletonMap("entries", result);
+    }
+
+    /**
+     * A one line summary of the entries with the highest self time.
+     */
+    public synchronized String getSummary(int maxEntries) {
+        StringBuilder summary = new StringBuilder("Configuration profile, by self time:");
+        List<Entry> sortedEntries = sortedEntries();
+        for (Entry entry : sortedEntries.subList(0, Math.min(maxEntries, sortedEntries.size()))) {
+            summary.append(String.format(" %s '%s' %d ms (total %d ms, %d times);", entry.type.displayName, entry.name, entry.selfTimeMillis, entry.timeMillis, entry.count));
+        }
+        return summary.toString();
+    }
+
+    private List<Entry> sortedEntries() {
+        List<Entry> sortedEntries = new ArrayList<Entry>(entries.values());
+        Collections.sort(sortedEntries, BY_SELF_TIME);
+        return sortedEntries;
+    }
+
+    private static class Entry {
+        private final EntryType type;
+        private final String name;
+        private long count;
+        private long timeMillis;
+        private long selfTimeMillis;
+        private long allocatedBytes;
+        private long selfAllocatedBytes;
+
+        Entry(EntryType type, String name) {
+            this.type = type;
+            this.name = name;
+        }
+
+        Map<String, Object> toMap(boolean allocationsTracked) {
+            Map<String, Object> result = new LinkedHashMap<String, Object>();
+            result.put("type", type.displayName);
+            result.put("name", name);
+            result.put("count", count);
+            result.put("timeMillis", timeMillis);
+            result.put("selfTimeMillis", selfTimeMillis);
+            if (allocationsTracked) {
+                result.put("allocatedBytes", allocatedBytes);
+                result.put("selfAllocatedBytes", selfAllocatedBytes);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.profile;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import groovy.json.JsonOutput;
+import org.gradle.StartParameter;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.internal.plugins.ApplyPluginBuildOperationType;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.configuration.ApplyScriptPluginBuildOperationType;
+import org.gradle.configuration.project.ConfigureProjectBuildOperationType;
+import org.gradle.configuration.project.NotifyProjectAfterEvaluatedBuildOperationType;
+import org.gradle.internal.concurrent.ThreadSafe;
+import org.gradle.internal.progress.BuildOperationDescriptor;
+import org.gradle.internal.progress.BuildOperationListener;
+import org.gradle.internal.progress.OperationFinishEvent;
+import org.gradle.internal.progress.OperationStartEvent;
+import org.gradle.profile.ConfigurationProfile.EntryType;
+import org.gradle.util.GFileUtils;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects a {@link ConfigurationProfile} from the build operations of the configuration phase.
+ *
+ * Can be enabled for any build with `-Dorg.gradle.configuration.profile`, in which case the profile is written
+ * as JSON to `build/reports/profile/configuration-profile.json` of the root project at the end of the build,
+ * and the slowest entries are logged at info level.
+ * Use `-Dorg.gradle.configuration.profile=«path»` to write the JSON file somewhere else. A relative path is resolved against the directory
+ * the build was started from.
+ *
+ * Time is attributed to the plugins applied, the scripts applied, the `allprojects {}`, `subprojects {}` and `rootProject {}` blocks
+ * of those plugins and scripts, the configuration of each project and the afterEvaluate listeners of each project, by the plugin or script
+ * that registered them. The afterEvaluate listeners are only notified in build operations of their own when the profile is enabled.
+ * Allocations are measured per thread, where the JVM supports it, relying on build operations being notified on the thread that runs them.
+ */
+public class ConfigurationProfileCollector implements BuildOperationListener, ThreadSafe {
+
+    public static final String SYSPROP = "org.gradle.configuration.profile";
+
+    private static final Logger LOGGER = Logging.getLogger(ConfigurationProfileCollector.class);
+    private static final Set<String> SCRIPT_BLOCKS = ImmutableSet.of("allprojects", "subprojects", "rootProject");
+    private static final int SUMMARY_ENTRIES = 10;
+
+    private final ConfigurationProfile profile = new ConfigurationProfile();
+    private final AllocationCounter allocationCounter;
+    // Running operations, mapped to the entry they are attributed to
+    private final ConcurrentMap<Object, RunningEntry> running = new ConcurrentHashMap<Object, RunningEntry>();
+
+    public ConfigurationProfileCollector() {
+        this(new AllocationCounter());
+    }
+
+    ConfigurationProfileCollector(AllocationCounter allocationCounter) {
+        this.allocationCounter = allocationCounter;
+    }
+
+    /**
+     * Returns the value of the system property enabling the profile, or {@code null} when it is not enabled, either because
+     * the property is not set or because it is set to {@code false}.
+     */
+    @Nullable
+    public static String getReportPath(StartParameter startParameter) {
+        String path = startParameter.getSystemPropertiesArgs().get(SYSPROP);
+        if (path == null) {
+            path = System.getProperty(SYSPROP);
+        }
+        return "false".equalsIgnoreCase(path) ? null : path;
+    }
+
+    public static boolean isEnabled(StartParameter startParameter) {
+        return getReportPath(startParameter) != null;
+    }
+
+    public ConfigurationProfile getProfile() {
+        return profile;
+    }
+
+    @Override
+    public void started(BuildOperationDescriptor buildOperation, OperationStartEvent startEvent) {
+        RunningEntry parent = buildOperation.getParentId() == null ? null : running.get(buildOperation.getParentId());
+        Object details = buildOperation.getDetails();
+        RunningEntry entry;
+        if (details instanceof ApplyPluginBuildOperationType.Details) {
+            ApplyPluginBuildOperationType.Details pluginDetails = (ApplyPluginBuildOperationType.Details) details;
+            String pluginId = pluginDetails.getPluginId();
+            entry = start(buildOperation, parent, EntryType.PLUGIN, pluginId != null ? pluginId : pluginDetails.getPluginClass().getName());
+        } else if (details instanceof ApplyScriptPluginBuildOperationType.Details) {
+            ApplyScriptPluginBuildOperationType.Details scriptDetails = (ApplyScriptPluginBuildOperationType.Details) details;
+            String location = scriptDetails.getFile() != null ? scriptDetails.getFile() : scriptDetails.getUri();
+            entry = start(buildOperation, parent, EntryType.SCRIPT, location != null ? location : buildOperation.getDisplayName());
+        } else if (details instanceof ConfigureProjectBuildOperationType.Details) {
+            ConfigureProjectBuildOperationType.Details projectDetails = (ConfigureProjectBuildOperationType.Details) details;
+            entry = start(buildOperation, parent, EntryType.PROJECT, identityPath(projectDetails.getBuildPath(), projectDetails.getProjectPath()));
+        } else if (details instanceof NotifyProjectAfterEvaluatedBuildOperationType.Details) {
+            NotifyProjectAfterEvaluatedBuildOperationType.Details notifyDetails = (NotifyProjectAfterEvaluatedBuildOperationType.Details) details;
+            String projectPath = identityPath(notifyDetails.getBuildPath(), notifyDetails.getProjectPath());
+            String registeredBy = notifyDetails.getRegisteredBy();
+            entry = start(buildOperation, parent, EntryType.AFTER_EVALUATE, registeredBy != null ? projectPath + " registered by " + registeredBy : projectPath);
+        } else if (details == null && SCRIPT_BLOCKS.contains(buildOperation.getName())) {
+            entry = start(buildOperation, parent, EntryType.SCRIPT_BLOCK, buildOperation.getName() + " {} in " + describeSource(parent));
+        } else {
+            // Attribute everything else to the closest entry
+            entry = parent;
+        }
+        if (entry != null) {
+            running.put(buildOperation.getId(), entry);
+        }
+    }
+
+    private RunningEntry start(BuildOperationDescriptor buildOperation, @Nullable RunningEntry parent, EntryType type, String name) {
+        return new RunningEntry(buildOperation.getId(), parent, type, name, allocationCounter.getAllocatedBytes());
+    }
+
+    private static String identityPath(String buildPath, String projectPath) {
+        return buildPath.equals(":") ? projectPath : buildPath + projectPath;
+    }
+
+    private static String describeSource(@Nullable RunningEntry entry) {
+        for (RunningEntry current = entry; current != null; current = current.parent) {
+            if (current.type == EntryType.PLUGIN || current.type == EntryType.SCRIPT) {
+                return current.type.displayName + " '" + current.name + "'";
+            }
+        }
+        return "unknown source";
+    }
+
+    @Override
+    public void finished(BuildOperationDescriptor buildOperation, OperationFinishEvent finishEvent) {
+        RunningEntry entry = running.remove(buildOperation.getId());
+        if (entry == null || !entry.operationId.equals(buildOperation.getId())) {
+            return;
+        }
+        long time = finishEvent.getEndTime() - finishEvent.getStartTime();
+        long allocatedAtEnd = allocationCounter.getAllocatedBytes();
+        long allocated = entry.allocatedAtStart < 0 || allocatedAtEnd < 0 ? -1 : allocatedAtEnd - entry.allocatedAtStart;
+        profile.completed(entry.type, entry.name, time, time - entry.nestedTime.get(), allocated, allocated < 0 ? -1 : allocated - entry.nestedAllocated.get());
+        RunningEntry parent = entry.parent;
+        if (parent != null && parent.threadId == entry.threadId) {
+            // Nested entries running on other threads overlap with the parent entry, rather than being part of it
+            parent.nestedTime.addAndGet(time);
+            parent.nestedAllocated.addAndGet(Math.max(allocated, 0));
+        }
+    }
+
+    /**
+     * Writes the profile collected so far to the given file, and logs the slowest entries.
+     */
+    public void report(File reportFile) {
+        if (profile.isEmpty()) {
+            return;
+        }
+        LOGGER.info(profile.getSummary(SUMMARY_ENTRIES));
+        try {
+            GFileUtils.mkdirs(reportFile.getParentFile());
+            Files.write(JsonOutput.prettyPrint(JsonOutput.toJson(profile.toMap())), reportFile, Charsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        LOGGER.info("Configuration profile written to {}", reportFile);
+    }
+
+    private static class RunningEntry {
+        private final Object operationId;
+        private final RunningEntry parent;
+        private final EntryType type;
+        private final String name;
+        private final long threadId = Thread.currentThread().getId();
+        private final long allocatedAtStart;
+        private final AtomicLong nestedTime = new AtomicLong();
+        private final AtomicLong nestedAllocated = new AtomicLong();
+
+        RunningEntry(Object operationId, @Nullable RunningEntry parent, EntryType type, String name, long allocatedAtStart) {
+            this.operationId = operationId;
+            this.parent = parent;
+            this.type = type;
+            this.name = name;
+            this.allocatedAtStart = allocatedAtStart;
+        }
+    }
+
+    /**
+     * Reads the bytes allocated by the current thread, using the HotSpot specific {@code com.sun.management.ThreadMXBean} when available.
+     */
+    static class AllocationCounter {
+        private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        private final Method getThreadAllocatedBytes = findGetThreadAllocatedBytes(threadMXBean);
+
+        @Nullable
+        private static Method findGetThreadAllocatedBytes(ThreadMXBean threadMXBean) {
+            try {
+                Method method = Class.forName("com.sun.management.ThreadMXBean").getMethod("getThreadAllocatedBytes", long.class);
+                return method.getDeclaringClass().isInstance(threadMXBean) ? method : null;
+            } catch (Exception e) {
+                return null;
+            }
+        }
+
+        /**
+         * Returns the bytes allocated by the current thread so far, or -1 when not supported.
+         */
+        long getAllocatedBytes() {
+            if (getThreadAllocatedBytes == null) {
+                return -1;
+            }
+            try {
+                return (Long) getThreadAllocatedBytes.invoke(threadMXBean, Thread.currentThread().getId());
+            } catch (Exception e) {
+                return -1;
+            }
+        }
+    }
+}
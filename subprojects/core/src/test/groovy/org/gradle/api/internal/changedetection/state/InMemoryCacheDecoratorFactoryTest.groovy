@@ -68,6 +68,76 @@ class InMemoryCacheDecoratorFactoryTest extends Specification {
         0 * target._
     }
 
+    def "keeps cached results when capacity of in-memory caches changes"() {
+        given:
+        def cache = cacheFactory.decorator(100, true).decorate("path/fileSnapshots.bin", "fileSnapshots", target, crossProcessCacheAccess, asyncCacheAccess)
+
+        when:
+        cache.get("key")
+
+        then:
+        1 * crossProcessCacheAccess.withFileLock(_) >> { Factory task -> task.create() }
+        1 * asyncCacheAccess.read(_) >> { Factory task -> task.create() }
+        1 * target.get("key") >> "result"
+
+        when:
+        cacheFactory.capacityChanged(0.5)
+        def result = cache.get("key")
+
+        then:
+        result == "result"
+
+        and:
+        1 * crossProcessCacheAccess.withFileLock(_) >> { Factory task -> task.create() }
+        0 * target._
+
+        when:
+        cacheFactory.capacityChanged(2)
+        result = cacheFactory.decorator(100, true).decorate("path/fileSnapshots.bin", "fileSnapshots", target, crossProcessCacheAccess, asyncCacheAccess).get("key")
+
+        then:
+        result == "result"
+
+        and:
+        1 * crossProcessCacheAccess.withFileLock(_) >> { Factory task -> task.create() }
+        0 * target._
+    }
+
+    def "keeps recently used entries when capacity of in-memory caches is reduced"() {
+        given:
+        def cache = cacheFactory.decorator(100, true).decorate("path/fileSnapshots.bin", "fileSnapshots", target, crossProcessCacheAccess, asyncCacheAccess)
+        _ * crossProcessCacheAccess.withFileLock(_) >> { Factory task -> task.create() }
+        _ * asyncCacheAccess.read(_) >> { Factory task -> task.create() }
+
+        when:
+        20.times { cache.get("key" + it) }
+
+        then:
+        20 * target.get(_) >> { String key -> "result-" + key }
+
+        when:
+        cacheFactory.capacityChanged(0.5)
+        def results = (0..<10).collect { cache.get("key" + it) }
+
+        then:
+        results == (0..<10).collect { "result-key" + it }
+
+        and:
+        0 * target._
+
+        when:
+        cacheFactory.capacityChanged(0.25)
+        results = (0..<20).collect { cache.get("key" + it) }
+
+        then:
+        results == (0..<20).collect { "result-key" + it }
+
+        and:
+        // Only the entries used since the capacity was first reduced survive
+        10 * target.get({ it in (10..<20).collect { "key" + it } }) >> { String key -> "result-" + key }
+        0 * target._
+    }
+
     def "does not cache result when not long running process"() {
         given:
         def cache = cacheFactory.decorator(100, false).decorate("path/fileSnapshots.bin", "fileSnapshots", target, crossProcessCacheAccess, asyncCacheAccess)
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.changedetection.state
 
+import com.google.common.cache.Cache
 import com.google.common.cache.CacheBuilder
 import org.gradle.api.Transformer
 import org.gradle.cache.FileLock
@@ -26,7 +27,7 @@ import java.util.concurrent.atomic.AtomicReference
 
 class InMemoryDecoratedCacheTest extends ConcurrentSpec {
     def target = Mock(MultiProcessSafeAsyncPersistentIndexedCache)
-    def cache = new InMemoryDecoratedCache(target, CacheBuilder.newBuilder().build(), "id", new AtomicReference<FileLock.State>())
+    def cache = new InMemoryDecoratedCache(target, new AtomicReference<Cache<Object, Object>>(CacheBuilder.newBuilder().build()), new AtomicReference<Cache<Object, Object>>(), "id", new AtomicReference<FileLock.State>())
 
     def "does not produce value when present in memory and marks completed"() {
         def producer = Mock(Transformer)
@@ -215,7 +215,10 @@ class DefaultProjectTest {
             allowing(pluginManager).getPluginContainer(); will(returnValue(pluginContainer))
 
             allowing(serviceRegistryMock).get((Type) DeferredProjectConfiguration); will(returnValue(context.mock(DeferredProjectConfiguration)))
-            allowing(serviceRegistryMock).get((Type) ProjectAccessListener); will(returnValue(context.mock(ProjectAccessListener)))
+            ProjectAccessListener projectAccessListener = context.mock(ProjectAccessListener)
+            ignoring(projectAccessListener)
+            allowing(serviceRegistryMock).get((Type) ProjectAccessListener); will(returnValue(projectAccessListener))
+            allowing(serviceRegistryMock).get(ProjectAccessListener); will(returnValue(projectAccessListener))
 
             ITaskFactory taskFactoryMock = context.mock(ITaskFactory)
             allowing(serviceRegistryMock).get(ITaskFactory); will(returnValue(taskFactoryMock))
@@ -147,6 +147,62 @@ class CrossBuildInMemoryCacheFactoryTest extends ConcurrentSpec {
         0 * transformer._
     }
 
+    def "drops strong references to values from the previous session while capacity is reduced"() {
+        def transformer = Mock(Transformer)
+        def capacity = listenerManager.getBroadcaster(InMemoryCacheCapacityListener)
+        def session = listenerManager.getBroadcaster(SessionLifecycleListener)
+        def a = new Object()
+        def b = new Object()
+        transformer.transform("a") >> a
+        transformer.transform("b") >> b
+
+        given:
+        def cache = factory.newCache()
+        cache.get("a", transformer)
+        session.beforeComplete()
+
+        when:
+        capacity.capacityChanged(0.5)
+
+        then:
+        cache.valuesForPreviousSession.empty
+
+        when:
+        cache.get("b", transformer)
+        session.beforeComplete()
+
+        then:
+        cache.valuesForPreviousSession.empty
+
+        when:
+        capacity.capacityChanged(1)
+        cache.get("b", transformer)
+        session.beforeComplete()
+
+        then:
+        cache.valuesForPreviousSession == [b] as Set
+    }
+
+    def "keeps values used by the current session when capacity is reduced"() {
+        def transformer = Mock(Transformer)
+        def a = new Object()
+
+        given:
+        def cache = factory.newCache()
+
+        when:
+        def first = cache.get("a", transformer)
+        listenerManager.getBroadcaster(InMemoryCacheCapacityListener).capacityChanged(0.25)
+        System.gc()
+        def second = cache.get("a", transformer)
+
+        then:
+        first == a
+        second == a
+        1 * transformer.transform("a") >> a
+        0 * transformer._
+    }
+
     def "creates a cache whose keys are classes"() {
         def a = new Object()
         def b = new Object()
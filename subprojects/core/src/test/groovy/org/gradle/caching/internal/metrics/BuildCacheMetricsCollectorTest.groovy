@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.metrics
+
+import groovy.json.JsonSlurper
+import org.gradle.StartParameter
+import org.gradle.api.DefaultTask
+import org.gradle.caching.internal.operations.BuildCacheArchiveUnpackBuildOperationType
+import org.gradle.caching.internal.operations.BuildCacheLocalLoadBuildOperationType
+import org.gradle.caching.internal.operations.BuildCacheRemoteLoadBuildOperationType
+import org.gradle.internal.execution.ExecuteTaskBuildOperationType
+import org.gradle.internal.progress.BuildOperationDescriptor
+import org.gradle.internal.progress.OperationFinishEvent
+import org.gradle.internal.progress.OperationStartEvent
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class BuildCacheMetricsCollectorTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+
+    def collector = new BuildCacheMetricsCollector()
+
+    @Unroll
+    def "report path is #reportPath when system property is #value"() {
+        given:
+        def startParameter = new StartParameter()
+        startParameter.systemPropertiesArgs = [(BuildCacheMetricsCollector.SYSPROP): value]
+
+        expect:
+        BuildCacheMetricsCollector.getReportPath(startParameter) == reportPath
+
+        where:
+        value          | reportPath
+        ""             | ""
+        "true"         | "true"
+        "report.json"  | "report.json"
+        "false"        | null
+        "FALSE"        | null
+    }
+
+    def "attributes nested cache operations to the task type"() {
+        def task = op(1, null, Stub(ExecuteTaskBuildOperationType.Details) { getTaskClass() >> DefaultTask })
+        def localLoad = op(2, 1, Stub(BuildCacheLocalLoadBuildOperationType.Details))
+        def unpack = op(3, 2, Stub(BuildCacheArchiveUnpackBuildOperationType.Details) { getArchiveSize() >> 100 })
+
+        when:
+        collector.started(task, new OperationStartEvent(0))
+        collector.started(localLoad, new OperationStartEvent(10))
+        collector.started(unpack, new OperationStartEvent(12))
+        collector.finished(unpack, new OperationFinishEvent(12, 20, null, null))
+        collector.finished(localLoad, new OperationFinishEvent(10, 25, null, Stub(BuildCacheLocalLoadBuildOperationType.Result) {
+            isHit() >> true
+            getArchiveSize() >> 100
+        }))
+        collector.finished(task, new OperationFinishEvent(0, 30, null, Stub(ExecuteTaskBuildOperationType.Result) { getOriginExecutionTime() >> 1000 }))
+
+        then:
+        def metrics = collector.metrics.toMap()
+        def taskType = metrics.taskTypes[DefaultTask.name]
+        taskType.localLoad.hits == 1
+        taskType.localLoad.bytes == 100
+        taskType.localLoad.latency.totalMillis == 7
+        taskType.unpack.latency.totalMillis == 8
+        taskType.unpack.latency.buckets == ["<16ms": 1L]
+        taskType.tasksLoadedFromCache == 1
+        taskType.timeSavedMillis == 970
+        metrics.total == taskType
+    }
+
+    def "counts misses and failures"() {
+        def missResult = Stub(BuildCacheRemoteLoadBuildOperationType.Result) { isHit() >> false }
+
+        when:
+        finish(op(1, null, Stub(BuildCacheRemoteLoadBuildOperationType.Details)), missResult, null)
+        finish(op(2, null, Stub(BuildCacheRemoteLoadBuildOperationType.Details)), null, new RuntimeException())
+
+        then:
+        def remoteLoad = collector.metrics.toMap().total.remoteLoad
+        remoteLoad.hits == 0
+        remoteLoad.misses == 1
+        remoteLoad.failures == 1
+        collector.metrics.summary.contains("remote 0 hits, 1 misses, 1 failures")
+    }
+
+    def "writes metrics as JSON"() {
+        def reportFile = temporaryFolder.file("reports/metrics.json")
+        finish(op(1, null, Stub(BuildCacheRemoteLoadBuildOperationType.Details)), Stub(BuildCacheRemoteLoadBuildOperationType.Result) {
+            isHit() >> true
+            getArchiveSize() >> 42
+        }, null)
+
+        when:
+        collector.report(reportFile)
+
+        then:
+        new JsonSlurper().parse(reportFile).total.remoteLoad.bytes == 42
+    }
+
+    def "does not write report when there were no cache operations"() {
+        def reportFile = temporaryFolder.file("reports/metrics.json")
+
+        when:
+        collector.report(reportFile)
+
+        then:
+        !reportFile.exists()
+    }
+
+    private void finish(BuildOperationDescriptor descriptor, Object result, Throwable failure) {
+        collector.started(descriptor, new OperationStartEvent(0))
+        collector.finished(descriptor, new OperationFinishEvent(0, 5, failure, result))
+    }
+
+    private static BuildOperationDescriptor op(Object id, Object parentId, Object details) {
+        BuildOperationDescriptor.displayName(id.toString()).details(details).build(id, parentId)
+    }
+}
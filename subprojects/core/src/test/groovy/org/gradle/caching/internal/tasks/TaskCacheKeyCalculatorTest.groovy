@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks
+
+import com.google.common.collect.ImmutableList
+import com.google.common.collect.ImmutableSortedMap
+import com.google.common.collect.ImmutableSortedSet
+import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.changedetection.state.ImplementationSnapshot
+import org.gradle.api.internal.changedetection.state.TaskExecution
+import org.gradle.api.internal.changedetection.state.ValueSnapshot
+import org.gradle.caching.internal.BuildCacheHasher
+import org.gradle.internal.hash.HashCode
+import org.gradle.util.Path
+import spock.lang.Specification
+
+class TaskCacheKeyCalculatorTest extends Specification {
+    def calculator = new TaskCacheKeyCalculator()
+    def task = Stub(TaskInternal) {
+        getIdentityPath() >> Path.path(":task")
+    }
+
+    def "hashes input property snapshots shared between tasks only once"() {
+        def value = Mock(ValueSnapshot)
+
+        when:
+        def key1 = calculator.calculate(task, execution(value))
+        def key2 = calculator.calculate(task, execution(value))
+
+        then:
+        1 * value.appendToHasher(_) >> { BuildCacheHasher hasher -> hasher.putString("value") }
+        key1.hashCode == key2.hashCode
+    }
+
+    def "hashes different input property snapshots separately"() {
+        def value1 = Mock(ValueSnapshot)
+        def value2 = Mock(ValueSnapshot)
+
+        when:
+        def key1 = calculator.calculate(task, execution(value1))
+        def key2 = calculator.calculate(task, execution(value2))
+
+        then:
+        1 * value1.appendToHasher(_) >> { BuildCacheHasher hasher -> hasher.putString("value1") }
+        1 * value2.appendToHasher(_) >> { BuildCacheHasher hasher -> hasher.putString("value2") }
+        key1.hashCode != key2.hashCode
+    }
+
+    private TaskExecution execution(ValueSnapshot value) {
+        Stub(TaskExecution) {
+            getTaskImplementation() >> new ImplementationSnapshot("org.example.Task", HashCode.fromInt(123))
+            getTaskActionImplementations() >> ImmutableList.of()
+            getInputProperties() >> ImmutableSortedMap.of("input", value)
+            getInputFilesSnapshot() >> ImmutableSortedMap.of()
+            getOutputPropertyNamesForCacheKey() >> ImmutableSortedSet.of()
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.configuration.project
+
+import org.gradle.api.ProjectEvaluationListener
+import org.gradle.api.internal.GradleInternal
+import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.api.internal.project.ProjectStateInternal
+import org.gradle.configuration.UserCodeSource
+import org.gradle.internal.dispatch.Dispatch
+import org.gradle.internal.dispatch.MethodInvocation
+import org.gradle.internal.operations.TestBuildOperationExecutor
+import org.gradle.util.Path
+import spock.lang.Specification
+
+class BuildOperationAfterEvaluateDispatchTest extends Specification {
+    def project = Stub(ProjectInternal)
+    def gradle = Stub(GradleInternal)
+    def state = Stub(ProjectStateInternal)
+    def delegate = Mock(Dispatch)
+    def buildOperationExecutor = new TestBuildOperationExecutor()
+
+    def setup() {
+        project.gradle >> gradle
+        project.projectPath >> Path.path(":a")
+        project.identityPath >> Path.path(":a")
+        gradle.identityPath >> Path.ROOT
+    }
+
+    def "notifies listener in a build operation naming the plugin that registered it"() {
+        def previous = UserCodeSource.enter(UserCodeSource.plugin("java"))
+        def dispatch = new BuildOperationAfterEvaluateDispatch(delegate, project, buildOperationExecutor)
+        UserCodeSource.exit(previous)
+        def afterEvaluate = invocation("afterEvaluate")
+        String sourceInListener = null
+
+        when:
+        dispatch.dispatch(afterEvaluate)
+
+        then:
+        1 * delegate.dispatch(afterEvaluate) >> { sourceInListener = UserCodeSource.current }
+
+        and:
+        sourceInListener == "plugin 'java'"
+        UserCodeSource.current == null
+        def descriptor = buildOperationExecutor.operations[0]
+        descriptor.displayName == "Notify afterEvaluate listener of :a registered by plugin 'java'"
+        NotifyProjectAfterEvaluatedBuildOperationType.Details details = descriptor.details
+        details.projectPath == ":a"
+        details.buildPath == ":"
+        details.registeredBy == "plugin 'java'"
+    }
+
+    def "notifies listener registered outside of plugins and scripts"() {
+        def dispatch = new BuildOperationAfterEvaluateDispatch(delegate, project, buildOperationExecutor)
+        def afterEvaluate = invocation("afterEvaluate")
+
+        when:
+        dispatch.dispatch(afterEvaluate)
+
+        then:
+        1 * delegate.dispatch(afterEvaluate)
+
+        and:
+        def descriptor = buildOperationExecutor.operations[0]
+        descriptor.displayName == "Notify afterEvaluate listener of :a"
+        descriptor.details.registeredBy == null
+    }
+
+    def "ignores beforeEvaluate"() {
+        def dispatch = new BuildOperationAfterEvaluateDispatch(delegate, project, buildOperationExecutor)
+
+        when:
+        dispatch.dispatch(invocation("beforeEvaluate"))
+
+        then:
+        0 * delegate._
+        buildOperationExecutor.operations.empty
+    }
+
+    private MethodInvocation invocation(String methodName) {
+        def method = ProjectEvaluationListener.methods.find { it.name == methodName }
+        def arguments = methodName == "afterEvaluate" ? [project, state] : [project]
+        new MethodInvocation(method, arguments as Object[])
+    }
+}
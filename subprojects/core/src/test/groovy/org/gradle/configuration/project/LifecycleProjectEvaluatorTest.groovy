@@ -17,6 +17,7 @@
 package org.gradle.configuration.project
 
 import org.gradle.StartParameter
+import org.gradle.api.CircularReferenceException
 import org.gradle.api.ProjectConfigurationException
 import org.gradle.api.ProjectEvaluationListener
 import org.gradle.api.internal.GradleInternal
@@ -24,10 +25,12 @@ import org.gradle.api.internal.project.ProjectInternal
 import org.gradle.api.internal.project.ProjectStateInternal
 import org.gradle.internal.progress.BuildOperationDescriptor
 import org.gradle.internal.operations.TestBuildOperationExecutor
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 import org.gradle.util.Path
-import spock.lang.Specification
 
-class LifecycleProjectEvaluatorTest extends Specification {
+import java.util.concurrent.CopyOnWriteArrayList
+
+class LifecycleProjectEvaluatorTest extends ConcurrentSpec {
     private project = Mock(ProjectInternal)
     private gradle = Mock(GradleInternal)
     private listener = Mock(ProjectEvaluationListener)
@@ -191,4 +194,79 @@ class LifecycleProjectEvaluatorTest extends Specification {
         details.projectPath == Path.path(':project1').path
     }
 
+    def "waits for project that is evaluated by another thread"() {
+        def realState = new ProjectStateInternal()
+
+        when:
+        async {
+            start {
+                evaluator.evaluate(project, realState)
+            }
+            thread.blockUntil.started
+            start {
+                instant.waiting
+                evaluator.evaluate(project, realState)
+                instant.waited
+            }
+            thread.blockUntil.waiting
+            instant.released
+        }
+
+        then:
+        1 * delegate.evaluate(project, realState) >> {
+            instant.started
+            thread.blockUntil.released
+        }
+        instant.waited > instant.released
+        realState.executed
+    }
+
+    def "fails when projects evaluated by different threads wait for each other"() {
+        def otherProject = Mock(ProjectInternal)
+        otherProject.getProjectEvaluationBroadcaster() >> listener
+        otherProject.displayName >> "<other project>"
+        otherProject.gradle >> gradle
+        otherProject.projectPath >> Path.path(":project2")
+        otherProject.path >> ":project2"
+        otherProject.identityPath >> Path.path(":project2")
+        def state = new ProjectStateInternal()
+        def otherState = new ProjectStateInternal()
+        def failures = new CopyOnWriteArrayList()
+        LifecycleProjectEvaluator parallelEvaluator
+        parallelEvaluator = new LifecycleProjectEvaluator(buildOperationExecutor, { ProjectInternal p, ProjectStateInternal s ->
+            if (p == project) {
+                instant.firstStarted
+                thread.blockUntil.secondStarted
+                parallelEvaluator.evaluate(otherProject, otherState)
+            } else {
+                instant.secondStarted
+                thread.blockUntil.firstStarted
+                parallelEvaluator.evaluate(project, state)
+            }
+        } as ProjectEvaluator)
+
+        when:
+        async {
+            start {
+                try {
+                    parallelEvaluator.evaluate(project, state)
+                } catch (ProjectConfigurationException e) {
+                    failures << e
+                }
+            }
+            start {
+                try {
+                    parallelEvaluator.evaluate(otherProject, otherState)
+                } catch (ProjectConfigurationException e) {
+                    failures << e
+                }
+            }
+        }
+
+        then:
+        failures.size() == 1
+        failures[0].cause instanceof CircularReferenceException
+        state.executed
+        otherState.executed
+    }
 }
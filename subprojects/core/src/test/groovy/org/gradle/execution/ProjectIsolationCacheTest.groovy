@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution
+
+import org.gradle.api.ProjectConfigurationException
+import org.gradle.api.internal.GradleInternal
+import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.api.internal.project.ProjectStateInternal
+import org.gradle.internal.hash.HashCode
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+@CleanupTestDirectory
+class ProjectIsolationCacheTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+    def cacheFile = temporaryFolder.file("cache/isolated-projects.bin")
+    def fingerprint = HashCode.fromInt(1)
+    def fingerprinter = Stub(BuildConfigurationFingerprinter) {
+        fingerprint(_) >> { fingerprint }
+    }
+    def rootProject = project(":")
+    def child1 = project(":child1")
+    def child2 = project(":child2")
+    def gradle = Stub(GradleInternal) {
+        getRootProject() >> rootProject
+    }
+
+    def setup() {
+        rootProject.allprojects >> ([rootProject, child1, child2] as Set)
+    }
+
+    def "knows no isolated projects on first build"() {
+        expect:
+        newCache().startRecording(gradle).empty
+    }
+
+    def "remembers projects that were configured without reaching outside themselves"() {
+        given:
+        def cache = newCache()
+        cache.startRecording(gradle)
+
+        when:
+        configure(cache, child1) {
+            cache.projectAccessed(child1)
+            cache.projectAccessed(child2)
+        }
+        configure(cache, child2) {
+            cache.projectAccessed(child2)
+        }
+        cache.store(gradle)
+
+        then:
+        cache.projectsReachingOutside == [":child1"] as Set
+        newCache().startRecording(gradle) == [":child2"] as Set
+    }
+
+    def "records access by the innermost project being configured"() {
+        given:
+        def cache = newCache()
+        cache.startRecording(gradle)
+
+        when:
+        configure(cache, child1) {
+            configure(cache, child2) {
+                cache.projectAccessed(rootProject)
+            }
+        }
+
+        then:
+        cache.projectsReachingOutside == [":child2"] as Set
+    }
+
+    def "ignores access while no project is being configured"() {
+        given:
+        def cache = newCache()
+        cache.startRecording(gradle)
+
+        when:
+        cache.projectAccessed(child1)
+
+        then:
+        cache.projectsReachingOutside.empty
+    }
+
+    def "does not remember projects that failed or were not configured"() {
+        given:
+        def cache = newCache()
+        cache.startRecording(gradle)
+
+        when:
+        child1.state.executed(new ProjectConfigurationException("broken", new RuntimeException()))
+        cache.store(gradle)
+
+        then:
+        newCache().startRecording(gradle).empty
+    }
+
+    def "does not remember projects for builds with a different fingerprint"() {
+        given:
+        def cache = newCache()
+        cache.startRecording(gradle)
+        configure(cache, child1) {}
+        cache.store(gradle)
+
+        when:
+        fingerprint = HashCode.fromInt(2)
+
+        then:
+        newCache().startRecording(gradle).empty
+    }
+
+    def "does not remember projects when the build cannot be fingerprinted"() {
+        given:
+        fingerprint = null
+        def cache = newCache()
+        cache.startRecording(gradle)
+        configure(cache, child1) {}
+        cache.store(gradle)
+
+        expect:
+        !cacheFile.exists()
+    }
+
+    private ProjectIsolationCache newCache() {
+        new ProjectIsolationCache(cacheFile, fingerprinter)
+    }
+
+    private static void configure(ProjectIsolationCache cache, ProjectInternal project, Closure action) {
+        cache.beforeEvaluate(project)
+        action()
+        project.state.executed()
+        cache.afterEvaluate(project, project.state)
+    }
+
+    private ProjectInternal project(String path) {
+        def state = new ProjectStateInternal()
+        Stub(ProjectInternal) {
+            getPath() >> path
+            getState() >> state
+        }
+    }
+}
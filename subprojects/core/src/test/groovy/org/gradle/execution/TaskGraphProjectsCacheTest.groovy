@@ -0,0 +1,383 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution
+
+import org.gradle.StartParameter
+import org.gradle.api.Task
+import org.gradle.api.execution.TaskExecutionGraph
+import org.gradle.api.execution.TaskExecutionGraphListener
+import org.gradle.api.internal.GradleInternal
+import org.gradle.api.internal.initialization.ClassLoaderScope
+import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.api.internal.project.ProjectStateInternal
+import org.gradle.configuration.ApplyScriptPluginBuildOperationType
+import org.gradle.groovy.scripts.ScriptSource
+import org.gradle.groovy.scripts.internal.ScriptSourceHasher
+import org.gradle.internal.classloader.ClassLoaderHierarchyHasher
+import org.gradle.internal.hash.FileHasher
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.hash.Hashing
+import org.gradle.internal.progress.BuildOperationDescriptor
+import org.gradle.internal.progress.BuildOperationListener
+import org.gradle.internal.progress.BuildOperationListenerManager
+import org.gradle.internal.progress.OperationStartEvent
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.Path
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+@CleanupTestDirectory
+class TaskGraphProjectsCacheTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+    def rootDir = temporaryFolder.createDir("root")
+    def cacheFile = temporaryFolder.file("cache/projects.bin")
+    def startParameter = new StartParameter()
+    def classLoaderHash = HashCode.fromInt(1)
+    def graphListeners = []
+    def scriptSourceHasher = Stub(ScriptSourceHasher) {
+        hash(_) >> { ScriptSource source -> Hashing.md5().hashString(new File(source.fileName).text) }
+    }
+    def fileHasher = Stub(FileHasher) {
+        hash(_ as File) >> { File file -> Hashing.md5().hashString(file.text) }
+    }
+    // The projects of the class loaders, and the hashes of the class loaders of the projects that differ from the one of the root project
+    def classLoaderProjects = [:]
+    def projectClassLoaderHashes = [:]
+    def classLoaderHierarchyHasher = Stub(ClassLoaderHierarchyHasher) {
+        getClassLoaderHash(_) >> { ClassLoader classLoader -> projectClassLoaderHashes[classLoaderProjects[classLoader]] ?: classLoaderHash }
+    }
+    def buildOperationListeners = []
+    def buildOperationListenerManager = Stub(BuildOperationListenerManager) {
+        addListener(_) >> { BuildOperationListener listener -> buildOperationListeners << listener }
+        removeListener(_) >> { BuildOperationListener listener -> buildOperationListeners.remove(listener) }
+    }
+    def projectsReachingOutside = [] as Set
+    def projectIsolationCache = Stub(ProjectIsolationCache) {
+        getProjectsReachingOutside() >> projectsReachingOutside
+    }
+    def rootProject = project(":", null, rootDir)
+    def child1 = project(":child1", rootProject, rootDir.createDir("child1"))
+    def child2 = project(":child2", rootProject, rootDir.createDir("child2"))
+    def gradle = Stub(GradleInternal) {
+        getStartParameter() >> startParameter
+        getRootProject() >> rootProject
+        getDefaultProject() >> rootProject
+        getIdentityPath() >> Path.ROOT
+        getTaskGraph() >> Stub(TaskGraphExecuter) {
+            addTaskExecutionGraphListener(_) >> { TaskExecutionGraphListener listener -> graphListeners << listener }
+        }
+    }
+
+    def setup() {
+        rootProject.allprojects >> ([rootProject, child1, child2] as Set)
+        rootProject.findProject(_) >> { String path -> [rootProject, child1, child2].find { it.path == path } }
+        startParameter.systemPropertiesArgs = [(TaskGraphProjectsCache.CACHE_PROPERTY): "true"]
+        startParameter.taskNames = [":child1:build"]
+        rootDir.file("build.gradle") << "root"
+        rootDir.file("child1/build.gradle") << "child1"
+        rootDir.file("child2/build.gradle") << "child2"
+    }
+
+    def "configures all projects on first build and only the projects of the task graph afterwards"() {
+        expect:
+        newCache().getProjectsOfTaskGraph(gradle) == null
+
+        when:
+        graphPopulated(child1)
+
+        then:
+        newCache().getProjectsOfTaskGraph(gradle) == [":", ":child1"] as Set
+    }
+
+    @Unroll
+    def "configures all projects when #change"() {
+        given:
+        newCache().getProjectsOfTaskGraph(gradle)
+        graphPopulated(child1)
+
+        when:
+        switch (change) {
+            case "a build script changes":
+                rootDir.file("child2/build.gradle") << "changed"
+                break
+            case "gradle.properties is added":
+                rootDir.file("gradle.properties") << "prop=value"
+                break
+            case "the requested tasks change":
+                startParameter.taskNames = [":child2:test"]
+                break
+            case "a project property changes":
+                startParameter.projectProperties = [prop: "value"]
+                break
+            case "the root class loader changes":
+                classLoaderHash = HashCode.fromInt(2)
+                break
+        }
+
+        then:
+        newCache().getProjectsOfTaskGraph(gradle) == null
+
+        where:
+        change << ["a build script changes", "gradle.properties is added", "the requested tasks change", "a project property changes", "the root class loader changes"]
+    }
+
+    def "remembers task graphs of different builds"() {
+        given:
+        newCache().getProjectsOfTaskGraph(gradle)
+        graphPopulated(child1)
+        startParameter.taskNames = [":child2:test"]
+        newCache().getProjectsOfTaskGraph(gradle)
+        graphPopulated(child2)
+
+        expect:
+        newCache().getProjectsOfTaskGraph(gradle) == [":", ":child2"] as Set
+
+        when:
+        startParameter.taskNames = [":child1:build"]
+
+        then:
+        newCache().getProjectsOfTaskGraph(gradle) == [":", ":child1"] as Set
+    }
+
+    def "configures all projects when a script applied by the build changes"() {
+        def script = rootDir.file("gradle/common.gradle") << "common"
+
+        given:
+        def cache = newCache()
+        scriptApplied(script.absolutePath, null, ":")
+        cache.getProjectsOfTaskGraph(gradle)
+        graphPopulated(child1)
+
+        expect:
+        newCache().getProjectsOfTaskGraph(gradle) == [":", ":child1"] as Set
+
+        when:
+        script << "changed"
+
+        then:
+        newCache().getProjectsOfTaskGraph(gradle) == null
+    }
+
+    def "ignores scripts applied by other builds"() {
+        def script = rootDir.file("other/build.gradle") << "other"
+
+        given:
+        def cache = newCache()
+        scriptApplied(script.absolutePath, null, ":other")
+        cache.getProjectsOfTaskGraph(gradle)
+        graphPopulated(child1)
+
+        when:
+        script << "changed"
+
+        then:
+        newCache().getProjectsOfTaskGraph(gradle) == [":", ":child1"] as Set
+    }
+
+    def "does not remember the task graph when the build applies a script from a URI"() {
+        given:
+        def cache = newCache()
+        scriptApplied(null, "http://localhost/common.gradle", ":")
+        cache.getProjectsOfTaskGraph(gradle)
+        graphPopulated(child1)
+
+        expect:
+        newCache().getProjectsOfTaskGraph(gradle) == null
+    }
+
+    def "configures all projects when the class loader of a configured project changes"() {
+        given:
+        newCache().getProjectsOfTaskGraph(gradle)
+        graphPopulated(child1)
+
+        when:
+        def cache = newCache()
+
+        then:
+        cache.getProjectsOfTaskGraph(gradle) == [":", ":child1"] as Set
+        cache.verifyClassLoaders(gradle)
+        graphListeners.empty
+
+        when:
+        projectClassLoaderHashes[":child1"] = HashCode.fromInt(3)
+        cache = newCache()
+
+        then:
+        cache.getProjectsOfTaskGraph(gradle) == [":", ":child1"] as Set
+        !cache.verifyClassLoaders(gradle)
+        graphListeners.size() == 1
+    }
+
+    def "stops recording scripts when stopped"() {
+        when:
+        def cache = newCache()
+
+        then:
+        buildOperationListeners.size() == 1
+
+        when:
+        cache.stop()
+
+        then:
+        buildOperationListeners.empty
+    }
+
+    def "configures all projects when the root class loader cannot be hashed"() {
+        given:
+        classLoaderHash = null
+
+        expect:
+        newCache().getProjectsOfTaskGraph(gradle) == null
+        graphListeners.empty
+    }
+
+    @Unroll
+    def "configures all projects when tasks #tasks excluding #excluded are selected by name"() {
+        given:
+        startParameter.taskNames = tasks
+        startParameter.excludedTaskNames = excluded as Set
+
+        when:
+        def cache = newCache()
+
+        then:
+        cache.getProjectsOfTaskGraph(gradle) == null
+        graphListeners.empty
+        buildOperationListeners.empty
+
+        where:
+        tasks                     | excluded
+        ["tasks"]                 | []
+        [":child1:build", "test"] | []
+        [":child1:build"]         | ["test"]
+        []                        | []
+    }
+
+    @Unroll
+    def "ignores task options #tasks when checking that tasks are given by path"() {
+        given:
+        startParameter.taskNames = tasks
+        newCache().getProjectsOfTaskGraph(gradle)
+        graphPopulated(child1)
+
+        expect:
+        newCache().getProjectsOfTaskGraph(gradle) == [":", ":child1"] as Set
+
+        where:
+        tasks << [
+            [":child1:build", "--rerun"],
+            [":child1:test", "--tests", "Foo"],
+            [":child1:test", "--tests=Foo", ":child1:build"],
+        ]
+    }
+
+    def "configures the projects reaching into other projects along with the projects of the task graph"() {
+        given:
+        projectsReachingOutside << ":child2"
+        newCache().getProjectsOfTaskGraph(gradle)
+        graphPopulated(child1)
+
+        expect:
+        newCache().getProjectsOfTaskGraph(gradle) == [":", ":child1", ":child2"] as Set
+    }
+
+    def "tracks the projects reaching into other projects when the task graph is cached"() {
+        given:
+        def projectIsolationCache = Mock(ProjectIsolationCache)
+        def cache = new TaskGraphProjectsCache(cacheFile, new BuildConfigurationFingerprinter(scriptSourceHasher, fileHasher, classLoaderHierarchyHasher), fileHasher, classLoaderHierarchyHasher, buildOperationListenerManager, projectIsolationCache, startParameter)
+
+        when:
+        cache.getProjectsOfTaskGraph(gradle)
+
+        then:
+        1 * projectIsolationCache.startTracking(gradle)
+    }
+
+    def "configures all projects when the cache file cannot be read"() {
+        given:
+        cacheFile.parentFile.mkdirs()
+        cacheFile.text = "broken"
+
+        expect:
+        newCache().getProjectsOfTaskGraph(gradle) == null
+    }
+
+    def "is enabled only when requested"() {
+        given:
+        startParameter.configureOnDemand = configureOnDemand
+        startParameter.systemPropertiesArgs = property == null ? [:] : [(TaskGraphProjectsCache.CACHE_PROPERTY): property]
+
+        expect:
+        TaskGraphProjectsCache.isEnabled(startParameter) == enabled
+
+        where:
+        property | configureOnDemand | enabled
+        "true"   | false             | true
+        null     | false             | false
+        "false"  | false             | false
+        "true"   | true              | false
+    }
+
+    private TaskGraphProjectsCache newCache() {
+        graphListeners.clear()
+        buildOperationListeners.clear()
+        new TaskGraphProjectsCache(cacheFile, new BuildConfigurationFingerprinter(scriptSourceHasher, fileHasher, classLoaderHierarchyHasher), fileHasher, classLoaderHierarchyHasher, buildOperationListenerManager, projectIsolationCache, startParameter)
+    }
+
+    private void scriptApplied(String file, String uri, String buildPath) {
+        def details = Stub(ApplyScriptPluginBuildOperationType.Details) {
+            getFile() >> file
+            getUri() >> uri
+            getBuildPath() >> buildPath
+        }
+        def operation = BuildOperationDescriptor.displayName("Apply script").details(details).build()
+        buildOperationListeners.each { it.started(operation, new OperationStartEvent(0)) }
+    }
+
+    private void graphPopulated(ProjectInternal project) {
+        def task = Stub(Task) {
+            getProject() >> project
+        }
+        def graph = Stub(TaskExecutionGraph) {
+            getAllTasks() >> [task]
+        }
+        graphListeners.each { it.graphPopulated(graph) }
+    }
+
+    private ProjectInternal project(String path, ProjectInternal parent, File projectDir) {
+        def buildFile = new File(projectDir, "build.gradle")
+        def classLoader = new URLClassLoader([] as URL[])
+        classLoaderProjects[classLoader] = path
+        def state = new ProjectStateInternal()
+        state.executed()
+        Stub(ProjectInternal) {
+            getPath() >> path
+            getParent() >> parent
+            getProjectDir() >> projectDir
+            getBuildFile() >> buildFile
+            getBuildScriptSource() >> Stub(ScriptSource) {
+                getFileName() >> buildFile.path
+            }
+            getState() >> state
+            getClassLoaderScope() >> Stub(ClassLoaderScope) {
+                getExportClassLoader() >> classLoader
+            }
+        }
+    }
+}
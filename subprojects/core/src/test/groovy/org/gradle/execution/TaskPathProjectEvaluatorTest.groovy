@@ -16,15 +16,26 @@
 
 package org.gradle.execution
 
+import org.gradle.StartParameter
 import org.gradle.api.BuildCancelledException
+import org.gradle.api.internal.GradleInternal
 import org.gradle.api.internal.project.ProjectInternal
 import org.gradle.initialization.BuildCancellationToken
+import org.gradle.internal.operations.TestBuildOperationExecutor
 import spock.lang.Specification
 
 class TaskPathProjectEvaluatorTest extends Specification {
     private cancellationToken = Mock(BuildCancellationToken)
-    private project = Mock(ProjectInternal)
-    private evaluator = new TaskPathProjectEvaluator(cancellationToken)
+    private startParameter = new StartParameter()
+    private gradle = Stub(GradleInternal) {
+        getStartParameter() >> startParameter
+    }
+    private project = Mock(ProjectInternal) {
+        getGradle() >> gradle
+    }
+    private taskGraphProjectsCache = Mock(TaskGraphProjectsCache)
+    private projectIsolationCache = Mock(ProjectIsolationCache)
+    private evaluator = new TaskPathProjectEvaluator(cancellationToken, new TestBuildOperationExecutor(), taskGraphProjectsCache, projectIsolationCache)
 
     def "project configuration fails when cancelled"() {
         given:
@@ -60,4 +71,114 @@ class TaskPathProjectEvaluatorTest extends Specification {
         1 * child1.evaluate()
         0 * child2._
     }
+
+    def "configures child projects after their parent when configuring in parallel"() {
+        def child = Mock(ProjectInternal)
+        def grandChild = Mock(ProjectInternal)
+
+        given:
+        startParameter.parallelProjectExecutionEnabled = true
+        startParameter.systemPropertiesArgs = [(TaskPathProjectEvaluator.PARALLEL_CONFIGURATION_PROPERTY): "true"]
+        project.childProjects >> [child: child]
+        child.childProjects >> [grandChild: grandChild]
+        grandChild.childProjects >> [:]
+        child.path >> ":child"
+        grandChild.path >> ":child:grandChild"
+        projectIsolationCache.projectsReachingOutside >> ([] as Set)
+
+        when:
+        evaluator.configureHierarchy(project)
+
+        then:
+        1 * project.evaluate()
+
+        then:
+        1 * projectIsolationCache.startRecording(gradle) >> ([":child"] as Set)
+
+        then:
+        1 * child.evaluate()
+
+        then:
+        1 * grandChild.evaluate()
+        0 * project.subprojects
+
+        then:
+        1 * projectIsolationCache.store(gradle)
+    }
+
+    def "configures only the projects of the cached task graph"() {
+        def child1 = Mock(ProjectInternal)
+        def child2 = Mock(ProjectInternal)
+        def grandChild = Mock(ProjectInternal)
+
+        given:
+        taskGraphProjectsCache.getProjectsOfTaskGraph(gradle) >> ([":", ":child1", ":child1:grandChild"] as Set)
+        taskGraphProjectsCache.verifyClassLoaders(gradle) >> true
+        project.childProjects >> [child1: child1, child2: child2]
+        child1.path >> ":child1"
+        child1.childProjects >> [grandChild: grandChild]
+        child2.path >> ":child2"
+        grandChild.path >> ":child1:grandChild"
+        grandChild.childProjects >> [:]
+
+        when:
+        evaluator.configureHierarchy(project)
+
+        then:
+        1 * project.evaluate()
+
+        then:
+        1 * child1.evaluate()
+
+        then:
+        1 * grandChild.evaluate()
+        0 * child2.evaluate()
+        0 * project.subprojects
+    }
+
+    def "configures all projects when the class loader of a project of the cached task graph has changed"() {
+        def child1 = Mock(ProjectInternal)
+        def child2 = Mock(ProjectInternal)
+
+        given:
+        taskGraphProjectsCache.getProjectsOfTaskGraph(gradle) >> ([":", ":child1"] as Set)
+        project.childProjects >> [child1: child1, child2: child2]
+        project.subprojects >> [child1, child2]
+        child1.path >> ":child1"
+        child1.childProjects >> [:]
+        child2.path >> ":child2"
+
+        when:
+        evaluator.configureHierarchy(project)
+
+        then:
+        1 * child1.evaluate()
+
+        then:
+        1 * taskGraphProjectsCache.verifyClassLoaders(gradle) >> false
+
+        then:
+        1 * child1.evaluate()
+        1 * child2.evaluate()
+    }
+
+    def "configures projects in parallel only when requested"() {
+        given:
+        startParameter.parallelProjectExecutionEnabled = parallel
+        startParameter.configureOnDemand = configureOnDemand
+        if (property != null) {
+            startParameter.systemPropertiesArgs = [(TaskPathProjectEvaluator.PARALLEL_CONFIGURATION_PROPERTY): property]
+        }
+
+        expect:
+        TaskPathProjectEvaluator.isParallelConfiguration(startParameter) == enabled
+
+        where:
+        parallel | configureOnDemand | property | enabled
+        true     | false             | "true"   | true
+        true     | false             | null     | false
+        true     | false             | "false"  | false
+        false    | false             | "true"   | false
+        true     | true              | "true"   | false
+    }
 }
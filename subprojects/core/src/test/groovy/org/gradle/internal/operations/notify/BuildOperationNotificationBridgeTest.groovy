@@ -26,6 +26,10 @@ import org.gradle.internal.progress.OperationFinishEvent
 import org.gradle.internal.progress.OperationStartEvent
 import org.gradle.testing.internal.util.Specification
 
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
 class BuildOperationNotificationBridgeTest extends Specification {
 
     def rawListenerManager = new DefaultListenerManager()
@@ -267,6 +271,57 @@ class BuildOperationNotificationBridgeTest extends Specification {
         }
     }
 
+    def "notifies listener of operations running on several threads one at a time"() {
+        given:
+        def active = new AtomicInteger()
+        def overlapping = new AtomicBoolean()
+        def parents = new ConcurrentHashMap()
+        def concurrentListener = new BuildOperationNotificationListener() {
+            void started(BuildOperationStartedNotification notification) {
+                enter()
+                parents.put(notification.notificationOperationId, notification.notificationOperationParentId ?: "none")
+                active.decrementAndGet()
+            }
+
+            void finished(BuildOperationFinishedNotification notification) {
+                enter()
+                active.decrementAndGet()
+            }
+
+            private void enter() {
+                if (active.incrementAndGet() > 1) {
+                    overlapping.set(true)
+                }
+                Thread.yield()
+            }
+        }
+        register(concurrentListener)
+        def root = d(1, null, 1)
+
+        when:
+        broadcast.started(root, new OperationStartEvent(0))
+        def threads = (0..<4).collect { thread ->
+            Thread.start {
+                100.times {
+                    def id = 100L + thread * 1000 + it * 2
+                    def wrapper = d(id, 1, null)
+                    def operation = d(id + 1, id, id + 1)
+                    broadcast.started(wrapper, new OperationStartEvent(0))
+                    broadcast.started(operation, new OperationStartEvent(0))
+                    broadcast.finished(operation, new OperationFinishEvent(0, 1, null, null))
+                    broadcast.finished(wrapper, new OperationFinishEvent(0, 1, null, null))
+                }
+            }
+        }
+        threads*.join()
+        broadcast.finished(root, new OperationFinishEvent(0, 1, null, null))
+
+        then:
+        !overlapping.get()
+        parents.size() == 401
+        parents.findAll { it.key != 1L }.values().every { it == 1L }
+    }
+
     void register(BuildOperationNotificationListener listener) {
         if (bridge == null) {
             bridge = new BuildOperationNotificationBridge(listenerManager)
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.profile
+
+import groovy.json.JsonSlurper
+import org.gradle.StartParameter
+import org.gradle.api.internal.plugins.ApplyPluginBuildOperationType
+import org.gradle.configuration.ApplyScriptPluginBuildOperationType
+import org.gradle.configuration.project.ConfigureProjectBuildOperationType
+import org.gradle.configuration.project.NotifyProjectAfterEvaluatedBuildOperationType
+import org.gradle.internal.progress.BuildOperationDescriptor
+import org.gradle.internal.progress.OperationFinishEvent
+import org.gradle.internal.progress.OperationStartEvent
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class ConfigurationProfileCollectorTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+
+    def allocationCounter = Stub(ConfigurationProfileCollector.AllocationCounter)
+    def collector = new ConfigurationProfileCollector(allocationCounter)
+
+    @Unroll
+    def "report path is #reportPath when system property is #value"() {
+        given:
+        def startParameter = new StartParameter()
+        startParameter.systemPropertiesArgs = [(ConfigurationProfileCollector.SYSPROP): value]
+
+        expect:
+        ConfigurationProfileCollector.getReportPath(startParameter) == reportPath
+
+        where:
+        value          | reportPath
+        ""             | ""
+        "true"         | "true"
+        "report.json"  | "report.json"
+        "false"        | null
+        "FALSE"        | null
+    }
+
+    def "is enabled when report path is set"() {
+        given:
+        def startParameter = new StartParameter()
+
+        expect:
+        !ConfigurationProfileCollector.isEnabled(startParameter)
+
+        when:
+        startParameter.systemPropertiesArgs = [(ConfigurationProfileCollector.SYSPROP): ""]
+
+        then:
+        ConfigurationProfileCollector.isEnabled(startParameter)
+    }
+
+    def "attributes time and allocations to plugins, scripts and script blocks"() {
+        def script = op(1, null, Stub(ApplyScriptPluginBuildOperationType.Details) { getFile() >> "/root/build.gradle" })
+        def plugin = op(2, 1, Stub(ApplyPluginBuildOperationType.Details) { getPluginId() >> "com.acme.slow" })
+        def resolve = op(3, 2, null)
+        def block = BuildOperationDescriptor.displayName("Execute 'allprojects {}' action").name("allprojects").build(4, 1)
+        allocationCounter.getAllocatedBytes() >>> [0, 100, 300, 400, 450, 1000]
+
+        when:
+        collector.started(script, new OperationStartEvent(0))
+        collector.started(plugin, new OperationStartEvent(10))
+        collector.started(resolve, new OperationStartEvent(12))
+        collector.finished(resolve, new OperationFinishEvent(12, 20, null, null))
+        collector.finished(plugin, new OperationFinishEvent(10, 30, null, null))
+        collector.started(block, new OperationStartEvent(35))
+        collector.finished(block, new OperationFinishEvent(35, 40, null, null))
+        collector.finished(script, new OperationFinishEvent(0, 50, null, null))
+
+        then:
+        def entries = collector.profile.toMap().entries
+        entries == [
+            [type: "script", name: "/root/build.gradle", count: 1L, timeMillis: 50L, selfTimeMillis: 25L, allocatedBytes: 1000L, selfAllocatedBytes: 750L],
+            [type: "plugin", name: "com.acme.slow", count: 1L, timeMillis: 20L, selfTimeMillis: 20L, allocatedBytes: 200L, selfAllocatedBytes: 200L],
+            [type: "scriptBlock", name: "allprojects {} in script '/root/build.gradle'", count: 1L, timeMillis: 5L, selfTimeMillis: 5L, allocatedBytes: 50L, selfAllocatedBytes: 50L]
+        ]
+    }
+
+    def "aggregates entries by project and plugin"() {
+        allocationCounter.getAllocatedBytes() >> -1
+
+        when:
+        finish(op(1, null, Stub(ConfigureProjectBuildOperationType.Details) { getBuildPath() >> ":"; getProjectPath() >> ":a" }), 0, 40)
+        finish(op(2, null, Stub(ApplyPluginBuildOperationType.Details) { getPluginId() >> null; getPluginClass() >> String }), 0, 3)
+        finish(op(3, null, Stub(ApplyPluginBuildOperationType.Details) { getPluginId() >> null; getPluginClass() >> String }), 0, 4)
+        finish(op(4, null, Stub(NotifyProjectAfterEvaluatedBuildOperationType.Details) { getBuildPath() >> ":included"; getProjectPath() >> ":b"; getRegisteredBy() >> "plugin 'java'" }), 0, 12)
+        finish(op(5, null, Stub(NotifyProjectAfterEvaluatedBuildOperationType.Details) { getBuildPath() >> ":"; getProjectPath() >> ":a"; getRegisteredBy() >> null }), 0, 2)
+
+        then:
+        collector.profile.toMap().entries == [
+            [type: "project", name: ":a", count: 1L, timeMillis: 40L, selfTimeMillis: 40L],
+            [type: "afterEvaluate", name: ":included:b registered by plugin 'java'", count: 1L, timeMillis: 12L, selfTimeMillis: 12L],
+            [type: "plugin", name: String.name, count: 2L, timeMillis: 7L, selfTimeMillis: 7L],
+            [type: "afterEvaluate", name: ":a", count: 1L, timeMillis: 2L, selfTimeMillis: 2L]
+        ]
+        collector.profile.getSummary(2) == "Configuration profile, by self time: project ':a' 40 ms (total 40 ms, 1 times); afterEvaluate ':included:b registered by plugin 'java'' 12 ms (total 12 ms, 1 times);"
+    }
+
+    def "writes profile as JSON"() {
+        def reportFile = temporaryFolder.file("reports/configuration-profile.json")
+        allocationCounter.getAllocatedBytes() >> -1
+        finish(op(1, null, Stub(ApplyPluginBuildOperationType.Details) { getPluginId() >> "java" }), 0, 5)
+
+        when:
+        collector.report(reportFile)
+
+        then:
+        new JsonSlurper().parse(reportFile).entries[0].name == "java"
+    }
+
+    def "does not write report when nothing was configured"() {
+        def reportFile = temporaryFolder.file("reports/configuration-profile.json")
+
+        when:
+        collector.report(reportFile)
+
+        then:
+        !reportFile.exists()
+    }
+
+    private void finish(BuildOperationDescriptor descriptor, long startTime, long endTime) {
+        collector.started(descriptor, new OperationStartEvent(startTime))
+        collector.finished(descriptor, new OperationFinishEvent(startTime, endTime, null, null))
+    }
+
+    private static BuildOperationDescriptor op(Object id, Object parentId, Object details) {
+        BuildOperationDescriptor.displayName(id.toString()).details(details).build(id, parentId)
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.java.compile.incremental
+
+import org.gradle.integtests.fixtures.AbstractIntegrationSpec
+import org.gradle.integtests.fixtures.CompilationOutputsFixture
+import org.gradle.language.fixtures.AnnotationProcessorFixture
+
+class IncrementalAnnotationProcessingIntegrationTest extends AbstractIntegrationSpec {
+
+    CompilationOutputsFixture outputs
+
+    def setup() {
+        executer.requireOwnGradleUserHomeDir()
+        outputs = new CompilationOutputsFixture(file("build/classes"))
+
+        def annotationProcessorProjectDir = testDirectory.file("annotation-processor").createDir()
+        settingsFile << """
+            include "annotation-processor"
+        """
+        buildFile << """
+            apply plugin: 'java'
+
+            configurations {
+                annotationProcessor
+            }
+
+            dependencies {
+                compile project(":annotation-processor")
+                annotationProcessor project(":annotation-processor")
+            }
+
+            compileJava {
+                options.incremental = true
+                options.annotationProcessorPath = configurations.annotationProcessor
+                options.annotationProcessorGeneratedSourcesDirectory = file("build/generated-sources")
+            }
+        """
+        annotationProcessorProjectDir.file("build.gradle") << """
+            apply plugin: "java"
+        """
+
+        def fixture = new AnnotationProcessorFixture()
+        fixture.writeSupportLibraryTo(annotationProcessorProjectDir)
+        fixture.writeApiTo(annotationProcessorProjectDir)
+        fixture.writeAnnotationProcessorTo(annotationProcessorProjectDir)
+        annotationProcessorProjectDir.file("src/main/resources/META-INF/gradle/incremental.annotation.processors").text = "Processor,isolating"
+    }
+
+    def "recompiles only the types generated from changed sources"() {
+        def a = file("src/main/java/A.java")
+        a.text = "@Helper class A {}"
+        file("src/main/java/B.java").text = "@Helper class B {}"
+
+        outputs.snapshot { run "compileJava" }
+
+        when:
+        a.text = "@Helper class A { void foo() {} }"
+        run "compileJava"
+
+        then:
+        outputs.recompiledClasses "A", "AHelper"
+        file("build/generated-sources/AHelper.java").exists()
+        file("build/generated-sources/BHelper.java").exists()
+    }
+
+    def "deletes generated types whose origin no longer generates them"() {
+        def a = file("src/main/java/A.java")
+        a.text = "@Helper class A {}"
+        file("src/main/java/B.java").text = "@Helper class B {}"
+
+        outputs.snapshot { run "compileJava" }
+
+        when:
+        a.text = "class A {}"
+        run "compileJava"
+
+        then:
+        outputs.recompiledClasses "A"
+        outputs.deletedClasses "AHelper"
+        !file("build/generated-sources/AHelper.java").exists()
+        file("build/generated-sources/BHelper.java").exists()
+    }
+
+    def "deletes generated types of deleted sources"() {
+        def a = file("src/main/java/A.java")
+        a.text = "@Helper class A {}"
+        file("src/main/java/B.java").text = "@Helper class B {}"
+
+        outputs.snapshot { run "compileJava" }
+
+        when:
+        assert a.delete()
+        run "compileJava"
+
+        then:
+        outputs.noneRecompiled()
+        outputs.deletedClasses "A", "AHelper"
+        !file("build/generated-sources/AHelper.java").exists()
+    }
+}
@@ -16,8 +16,11 @@
 
 package org.gradle.api.internal.tasks.compile;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
+import com.google.common.io.CharStreams;
+import org.apache.tools.zip.ZipEntry;
 import org.apache.tools.zip.ZipFile;
 import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.file.FileCollection;
@@ -25,28 +28,75 @@ import org.gradle.api.internal.file.FileCollectionFactory;
 import org.gradle.api.internal.file.collections.MinimalFileSet;
 import org.gradle.api.internal.tasks.AbstractTaskDependency;
 import org.gradle.api.internal.tasks.TaskDependencyResolveContext;
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessorDeclaration;
+import org.gradle.api.internal.tasks.compile.processing.IncrementalAnnotationProcessorType;
 import org.gradle.api.tasks.compile.CompileOptions;
 import org.gradle.cache.internal.FileContentCache;
 import org.gradle.cache.internal.FileContentCacheFactory;
 import org.gradle.internal.FileUtils;
 import org.gradle.internal.file.FileType;
 import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.internal.serialize.MapSerializer;
+import org.gradle.internal.serialize.Serializer;
 import org.gradle.util.DeprecationLogger;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 public class AnnotationProcessorDetector {
+    private static final String PROCESSOR_SERVICES = "META-INF/services/javax.annotation.processing.Processor";
+    private static final String INCREMENTAL_PROCESSOR_DECLARATIONS = "META-INF/gradle/incremental.annotation.processors";
+
     private final FileCollectionFactory fileCollectionFactory;
     private final FileContentCache<Boolean> cache;
+    private final FileContentCache<Map<String, IncrementalAnnotationProcessorType>> processorsCache;
 
     public AnnotationProcessorDetector(FileCollectionFactory fileCollectionFactory, FileContentCacheFactory cacheFactory) {
         this.fileCollectionFactory = fileCollectionFactory;
         cache = cacheFactory.newCache("annotation-processors", 20000, new AnnotationServiceLocator(), BaseSerializerFactory.BOOLEAN_SERIALIZER);
+        Serializer<IncrementalAnnotationProcessorType> typeSerializer = new BaseSerializerFactory().getSerializerFor(IncrementalAnnotationProcessorType.class);
+        processorsCache = cacheFactory.newCache("annotation-processor-declarations", 20000, new ProcessorDeclarationLocator(), new MapSerializer<String, IncrementalAnnotationProcessorType>(BaseSerializerFactory.STRING_SERIALIZER, typeSerializer));
+    }
+
+    /**
+     * Finds the annotation processors that will run from the given annotation processor path, in the order the compiler discovers them.
+     * Processors that do not declare themselves as incremental are of type {@link IncrementalAnnotationProcessorType#UNKNOWN}.
+     */
+    public List<AnnotationProcessorDeclaration> getEffectiveAnnotationProcessors(CompileOptions compileOptions, Iterable<File> annotationProcessorPath) {
+        Map<String, IncrementalAnnotationProcessorType> processors = new LinkedHashMap<String, IncrementalAnnotationProcessorType>();
+        for (File file : annotationProcessorPath) {
+            for (Map.Entry<String, IncrementalAnnotationProcessorType> entry : processorsCache.get(file).entrySet()) {
+                if (!processors.containsKey(entry.getKey())) {
+                    processors.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        List<String> compilerArgs = compileOptions.getCompilerArgs();
+        if (checkExplicitProcessorOption(compileOptions)) {
+            // Only the processors given on the command line run, whether or not they are registered as a service
+            List<AnnotationProcessorDeclaration> explicitProcessors = new ArrayList<AnnotationProcessorDeclaration>();
+            for (String className : Splitter.on(',').trimResults().omitEmptyStrings().split(compilerArgs.get(compilerArgs.indexOf("-processor") + 1))) {
+                IncrementalAnnotationProcessorType type = processors.get(className);
+                explicitProcessors.add(new AnnotationProcessorDeclaration(className, type == null ? IncrementalAnnotationProcessorType.UNKNOWN : type));
+            }
+            return explicitProcessors;
+        }
+        List<AnnotationProcessorDeclaration> declarations = new ArrayList<AnnotationProcessorDeclaration>(processors.size());
+        for (Map.Entry<String, IncrementalAnnotationProcessorType> entry : processors.entrySet()) {
+            declarations.add(new AnnotationProcessorDeclaration(entry.getKey(), entry.getValue()));
+        }
+        return declarations;
     }
 
     /**
@@ -118,14 +168,14 @@ public class AnnotationProcessorDetector {
         @Override
         public Boolean calculate(File file, FileType fileType) {
             if (fileType == FileType.Directory) {
-                return new File(file, "META-INF/services/javax.annotation.processing.Processor").isFile();
+                return new File(file, PROCESSOR_SERVICES).isFile();
             }
 
             if (fileType == FileType.RegularFile && FileUtils.hasExtensionIgnoresCase(file.getName(), ".jar")) {
                 try {
                     ZipFile zipFile = new ZipFile(file);
                     try {
-                        return zipFile.getEntry("META-INF/services/javax.annotation.processing.Processor") != null;
+                        return zipFile.getEntry(PROCESSOR_SERVICES) != null;
                     } finally {
                         zipFile.close();
                     }
@@ -137,4 +187,85 @@ public class AnnotationProcessorDetector {
             return false;
         }
     }
+
+    private static class ProcessorDeclarationLocator implements FileContentCacheFactory.Calculator<Map<String, IncrementalAnnotationProcessorType>> {
+        @Override
+        public Map<String, IncrementalAnnotationProcessorType> calculate(File file, FileType fileType) {
+            try {
+                if (fileType == FileType.Directory) {
+                    return getProcessors(readFile(new File(file, PROCESSOR_SERVICES)), readFile(new File(file, INCREMENTAL_PROCESSOR_DECLARATIONS)));
+                }
+                if (fileType == FileType.RegularFile && FileUtils.hasExtensionIgnoresCase(file.getName(), ".jar")) {
+                    ZipFile zipFile = new ZipFile(file);
+                    try {
+                        return getProcessors(readEntry(zipFile, PROCESSOR_SERVICES), readEntry(zipFile, INCREMENTAL_PROCESSOR_DECLARATIONS));
+                    } finally {
+                        zipFile.close();
+                    }
+                }
+            } catch (IOException e) {
+                // Malformed jars are reported when locating the processor path
+            }
+            return Collections.emptyMap();
+        }
+
+        private static Map<String, IncrementalAnnotationProcessorType> getProcessors(List<String> services, List<String> incrementalDeclarations) {
+            if (services.isEmpty()) {
+                return Collections.emptyMap();
+            }
+            Map<String, IncrementalAnnotationProcessorType> types = new HashMap<String, IncrementalAnnotationProcessorType>();
+            for (String line : incrementalDeclarations) {
+                List<String> parts = Splitter.on(',').trimResults().splitToList(line);
+                IncrementalAnnotationProcessorType type = IncrementalAnnotationProcessorType.UNKNOWN;
+                if (parts.size() == 2) {
+                    try {
+                        type = IncrementalAnnotationProcessorType.valueOf(parts.get(1).toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        // Unknown kind of processor, which is not incremental
+                    }
+                }
+                types.put(parts.get(0), type);
+            }
+            Map<String, IncrementalAnnotationProcessorType> processors = new LinkedHashMap<String, IncrementalAnnotationProcessorType>();
+            for (String className : services) {
+                IncrementalAnnotationProcessorType type = types.get(className);
+                processors.put(className, type == null ? IncrementalAnnotationProcessorType.UNKNOWN : type);
+            }
+            return processors;
+        }
+
+        private static List<String> readFile(File file) throws IOException {
+            if (!file.isFile()) {
+                return Collections.emptyList();
+            }
+            return readLines(new FileInputStream(file));
+        }
+
+        private static List<String> readEntry(ZipFile zipFile, String name) throws IOException {
+            ZipEntry entry = zipFile.getEntry(name);
+            if (entry == null) {
+                return Collections.emptyList();
+            }
+            return readLines(zipFile.getInputStream(entry));
+        }
+
+        private static List<String> readLines(InputStream inputStream) throws IOException {
+            try {
+                List<String> lines = new ArrayList<String>();
+                for (String line : CharStreams.readLines(new InputStreamReader(inputStream, Charsets.UTF_8))) {
+                    int comment = line.indexOf('#');
+                    if (comment >= 0) {
+                        line = line.substring(0, comment);
+                    }
+                    line = line.trim();
+                    if (!line.isEmpty()) {
+                        lines.add(line);
+                    }
+                }
+                return lines;
+            } finally {
+                inputStream.close();
+            }
+        }
+    }
 }
@@ -16,14 +16,18 @@
 
 package org.gradle.api.internal.tasks.compile;
 
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessorDeclaration;
 import org.gradle.api.tasks.compile.CompileOptions;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.List;
 
 public class DefaultJavaCompileSpec extends DefaultJvmLanguageCompileSpec implements JavaCompileSpec {
     private MinimalJavaCompileOptions compileOptions;
     private List<File> annotationProcessorPath;
+    private List<AnnotationProcessorDeclaration> effectiveAnnotationProcessors = Collections.emptyList();
+    private File incrementalAnnotationProcessorResultFile;
 
     @Override
     public MinimalJavaCompileOptions getCompileOptions() {
@@ -43,4 +47,24 @@ public class DefaultJavaCompileSpec extends DefaultJvmLanguageCompileSpec implem
     public void setAnnotationProcessorPath(List<File> annotationProcessorPath) {
         this.annotationProcessorPath = annotationProcessorPath;
     }
+
+    @Override
+    public List<AnnotationProcessorDeclaration> getEffectiveAnnotationProcessors() {
+        return effectiveAnnotationProcessors;
+    }
+
+    @Override
+    public void setEffectiveAnnotationProcessors(List<AnnotationProcessorDeclaration> effectiveAnnotationProcessors) {
+        this.effectiveAnnotationProcessors = effectiveAnnotationProcessors;
+    }
+
+    @Override
+    public File getIncrementalAnnotationProcessorResultFile() {
+        return incrementalAnnotationProcessorResultFile;
+    }
+
+    @Override
+    public void setIncrementalAnnotationProcessorResultFile(File incrementalAnnotationProcessorResultFile) {
+        this.incrementalAnnotationProcessorResultFile = incrementalAnnotationProcessorResultFile;
+    }
 }
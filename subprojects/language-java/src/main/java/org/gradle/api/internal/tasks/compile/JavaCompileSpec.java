@@ -16,6 +16,9 @@
 
 package org.gradle.api.internal.tasks.compile;
 
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessorDeclaration;
+
+import javax.annotation.Nullable;
 import java.io.File;
 import java.util.List;
 
@@ -31,4 +34,19 @@ public interface JavaCompileSpec extends JvmLanguageCompileSpec {
     List<File> getAnnotationProcessorPath();
 
     void setAnnotationProcessorPath(List<File> path);
+
+    /**
+     * The annotation processors to run from the annotation processor path, when the types they generate should be tracked for incremental compilation.
+     */
+    List<AnnotationProcessorDeclaration> getEffectiveAnnotationProcessors();
+
+    void setEffectiveAnnotationProcessors(List<AnnotationProcessorDeclaration> annotationProcessors);
+
+    /**
+     * The file to write the types generated by the {@link #getEffectiveAnnotationProcessors() effective annotation processors} to. When null, the types generated are not tracked.
+     */
+    @Nullable
+    File getIncrementalAnnotationProcessorResultFile();
+
+    void setIncrementalAnnotationProcessorResultFile(@Nullable File resultFile);
 }
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.internal.file.FileMetadataSnapshot;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+
+import javax.annotation.Nullable;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the file managers of in-process compilations around, so that the archives on the compile classpath
+ * are opened and indexed once per build session rather than once per compilation.
+ *
+ * <p>The build process uses a pool that is a build session service. Compiler daemons, which live for a build session as well,
+ * use a pool of their own process, see {@link #forCompilerDaemon()}.</p>
+ *
+ * <p>A file manager is used by a single compilation at a time. javac keeps the archives it has read open,
+ * so a pooled file manager is discarded when the content of an archive it has opened has changed since.</p>
+ *
+ * <p>Before reuse, every location of the file manager is reset to its default. Locations configured by options
+ * that cannot be reset this way, such as the Java 9 module locations, are only shared between compilations
+ * that use the same values for those options.</p>
+ */
+public class JavaFileManagerPool implements Closeable {
+    /**
+     * Enables reuse of file managers for in-process compilations, in the build process and in compiler daemons.
+     */
+    public static final String REUSE_FILE_MANAGERS_PROPERTY = "org.gradle.java.compile.reuseFileManagers";
+
+    // A file manager that has seen this many archives holds on to a lot of memory, start over with a fresh one
+    private static final int MAX_ARCHIVES = 2000;
+    private static final Set<String> LOCATION_OPTIONS = ImmutableSet.of(
+        "-bootclasspath", "--boot-class-path", "-extdirs", "-endorseddirs",
+        "--system", "--module-path", "-p", "--upgrade-module-path", "--patch-module", "--module-source-path",
+        "--processor-module-path", "--release"
+    );
+    private static final List<String> LOCATION_OPTION_PREFIXES = ImmutableList.of(
+        "-Xbootclasspath", "-Djava.ext.dirs=", "-Djava.endorsed.dirs="
+    );
+
+    private static JavaFileManagerPool compilerDaemonPool;
+
+    private final FileHasher fileHasher;
+    private final int maxIdlePerCompiler;
+    private final ListMultimap<Key, Lease> idle = ArrayListMultimap.create();
+
+    public JavaFileManagerPool(FileHasher fileHasher, int maxIdlePerCompiler) {
+        this.fileHasher = fileHasher;
+        this.maxIdlePerCompiler = maxIdlePerCompiler;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(REUSE_FILE_MANAGERS_PROPERTY);
+    }
+
+    /**
+     * Returns the pool of the compiler daemon this is running in. A compiler daemon runs one compilation at a time and has no build
+     * session services, so an archive counts as changed when its length or timestamp has changed.
+     */
+    public static synchronized JavaFileManagerPool forCompilerDaemon() {
+        if (compilerDaemonPool == null) {
+            compilerDaemonPool = new JavaFileManagerPool(new FileMetadataHasher(), 1);
+        }
+        return compilerDaemonPool;
+    }
+
+    /**
+     * Returns a file manager of the given compiler for a compilation with the given options against the given classpath. The lease must be released once the compilation has finished.
+     */
+    public Lease acquire(JavaCompiler compiler, @Nullable Charset charset, List<String> options, Iterable<File> classpath) {
+        Key key = new Key(compiler.getClass(), charset, locationOptions(options));
+        Map<File, HashCode> archives = snapshot(classpath);
+        Lease lease;
+        while ((lease = takeIdle(key)) != null) {
+            if (lease.isUpToDate(archives) && lease.reset()) {
+                break;
+            }
+            lease.close();
+        }
+        if (lease == null) {
+            lease = new Lease(key, compiler.getStandardFileManager(null, null, charset));
+        }
+        lease.archives.putAll(archives);
+        return lease;
+    }
+
+    @Nullable
+    private Lease takeIdle(Key key) {
+        synchronized (idle) {
+            List<Lease> leases = idle.get(key);
+            return leases.isEmpty() ? null : leases.remove(leases.size() - 1);
+        }
+    }
+
+    private void release(Lease lease) {
+        if (lease.archives.size() <= MAX_ARCHIVES && lease.flush()) {
+            synchronized (idle) {
+                List<Lease> leases = idle.get(lease.key);
+                if (leases.size() < maxIdlePerCompiler) {
+                    leases.add(lease);
+                    return;
+                }
+            }
+        }
+        lease.close();
+    }
+
+    private Map<File, HashCode> snapshot(Iterable<File> classpath) {
+        Map<File, HashCode> archives = Maps.newHashMap();
+        for (File file : classpath) {
+            if (file.isFile()) {
+                archives.put(file, fileHasher.hash(file));
+            }
+        }
+        return archives;
+    }
+
+    private static List<String> locationOptions(List<String> options) {
+        List<String> locationOptions = Lists.newArrayList();
+        Iterator<String> iterator = options.iterator();
+        while (iterator.hasNext()) {
+            String option = iterator.next();
+            if (LOCATION_OPTIONS.contains(option)) {
+                locationOptions.add(option);
+                if (iterator.hasNext()) {
+                    locationOptions.add(iterator.next());
+                }
+            } else if (option.startsWith("--") && LOCATION_OPTIONS.contains(option.split("=", 2)[0])) {
+                locationOptions.add(option);
+            } else {
+                for (String prefix : LOCATION_OPTION_PREFIXES) {
+                    if (option.startsWith(prefix)) {
+                        locationOptions.add(option);
+                        break;
+                    }
+                }
+            }
+        }
+        return locationOptions;
+    }
+
+    /**
+     * Closes the file managers that are not in use.
+     */
+    @Override
+    public void close() {
+        List<Lease> leases;
+        synchronized (idle) {
+            leases = Lists.newArrayList(idle.values());
+            idle.clear();
+        }
+        for (Lease lease : leases) {
+            lease.close();
+        }
+    }
+
+    public class Lease {
+        private final Key key;
+        private final StandardJavaFileManager fileManager;
+        private final Map<File, HashCode> archives = Maps.newHashMap();
+
+        private Lease(Key key, StandardJavaFileManager fileManager) {
+            this.key = key;
+            this.fileManager = fileManager;
+        }
+
+        public StandardJavaFileManager getFileManager() {
+            return fileManager;
+        }
+
+        /**
+         * Returns the file manager to the pool, to be used by a later compilation.
+         */
+        public void release() {
+            JavaFileManagerPool.this.release(this);
+        }
+
+        /**
+         * Closes the file manager, for when the compilation did not finish normally.
+         */
+        public void discard() {
+            close();
+        }
+
+        private boolean isUpToDate(Map<File, HashCode> current) {
+            for (Map.Entry<File, HashCode> entry : current.entrySet()) {
+                HashCode previous = archives.get(entry.getKey());
+                if (previous != null && !previous.equals(entry.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean reset() {
+            try {
+                // Locations not given on the command line of the next compilation need to fall back to their defaults
+                for (StandardLocation location : StandardLocation.values()) {
+                    try {
+                        fileManager.setLocation(location, null);
+                    } catch (RuntimeException e) {
+                        // Not settable, like the module patches of Java 9, which are only set from options that are part of the key
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        private boolean flush() {
+            try {
+                fileManager.flush();
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        private void close() {
+            try {
+                fileManager.close();
+            } catch (IOException e) {
+                // Ignore, the file manager is not used anymore
+            }
+        }
+    }
+
+    private static class Key {
+        private final Class<?> compilerType;
+        private final Charset charset;
+        private final List<String> locationOptions;
+
+        Key(Class<?> compilerType, @Nullable Charset charset, List<String> locationOptions) {
+            this.compilerType = compilerType;
+            this.charset = charset;
+            this.locationOptions = locationOptions;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key other = (Key) o;
+            return compilerType.equals(other.compilerType) && Objects.equal(charset, other.charset) && locationOptions.equals(other.locationOptions);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(compilerType, charset, locationOptions);
+        }
+    }
+
+    private static class FileMetadataHasher implements FileHasher {
+        @Override
+        public HashCode hash(File file) {
+            return hash(file, file.length(), file.lastModified());
+        }
+
+        @Override
+        public HashCode hash(FileTreeElement fileDetails) {
+            return hash(fileDetails.getFile(), fileDetails.getSize(), fileDetails.getLastModified());
+        }
+
+        @Override
+        public HashCode hash(File file, FileMetadataSnapshot fileDetails) {
+            return hash(file, fileDetails.getLength(), fileDetails.getLastModified());
+        }
+
+        private static HashCode hash(File file, long length, long lastModified) {
+            Hasher hasher = Hashing.md5().newHasher();
+            hasher.putString(file.getAbsolutePath());
+            hasher.putLong(length);
+            hasher.putLong(lastModified);
+            return hasher.hash();
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package org.gradle.api.internal.tasks.compile;
 
 import org.gradle.api.JavaVersion;
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessingCompileTask;
 import org.gradle.api.internal.tasks.compile.reflect.SourcepathIgnoringProxy;
 import org.gradle.api.tasks.WorkResult;
 import org.gradle.api.tasks.WorkResults;
@@ -24,6 +25,7 @@ import org.gradle.language.base.internal.compile.Compiler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.tools.JavaCompiler;
 import javax.tools.JavaFileObject;
 import javax.tools.StandardJavaFileManager;
@@ -35,17 +37,46 @@ import java.util.List;
 public class JdkJavaCompiler implements Compiler<JavaCompileSpec>, Serializable {
     private static final Logger LOGGER = LoggerFactory.getLogger(JdkJavaCompiler.class);
     private final Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory;
+    // Not sent to compiler daemons, which use a pool of their own process instead
+    private final transient JavaFileManagerPool fileManagerPool;
+    private final boolean reuseFileManagers;
 
     public JdkJavaCompiler(Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory) {
+        this(javaHomeBasedJavaCompilerFactory, null);
+    }
+
+    public JdkJavaCompiler(Factory<JavaCompiler> javaHomeBasedJavaCompilerFactory, @Nullable JavaFileManagerPool fileManagerPool) {
         this.javaHomeBasedJavaCompilerFactory = javaHomeBasedJavaCompilerFactory;
+        this.fileManagerPool = fileManagerPool;
+        this.reuseFileManagers = fileManagerPool != null;
     }
 
     @Override
     public WorkResult execute(JavaCompileSpec spec) {
         LOGGER.info("Compiling with JDK Java compiler API.");
 
-        JavaCompiler.CompilationTask task = createCompileTask(spec);
-        boolean success = task.call();
+        JavaCompiler compiler = javaHomeBasedJavaCompilerFactory.create();
+        MinimalJavaCompileOptions compileOptions = spec.getCompileOptions();
+        Charset charset = compileOptions.getEncoding() != null ? Charset.forName(compileOptions.getEncoding()) : null;
+        List<String> options = new JavaCompilerArgumentsBuilder(spec).build();
+        boolean success;
+        if (reuseFileManagers) {
+            JavaFileManagerPool pool = fileManagerPool != null ? fileManagerPool : JavaFileManagerPool.forCompilerDaemon();
+            JavaFileManagerPool.Lease lease = pool.acquire(compiler, charset, options, spec.getCompileClasspath());
+            boolean completed = false;
+            try {
+                success = createCompileTask(spec, options, compiler, lease.getFileManager()).call();
+                completed = true;
+            } finally {
+                if (completed) {
+                    lease.release();
+                } else {
+                    lease.discard();
+                }
+            }
+        } else {
+            success = createCompileTask(spec, options, compiler, compiler.getStandardFileManager(null, null, charset)).call();
+        }
         if (!success) {
             throw new CompilationFailedException();
         }
@@ -53,17 +84,17 @@ public class JdkJavaCompiler implements Compiler<JavaCompileSpec>, Serializable
         return WorkResults.didWork(true);
     }
 
-    private JavaCompiler.CompilationTask createCompileTask(JavaCompileSpec spec) {
-        List<String> options = new JavaCompilerArgumentsBuilder(spec).build();
-        JavaCompiler compiler = javaHomeBasedJavaCompilerFactory.create();
-        MinimalJavaCompileOptions compileOptions = spec.getCompileOptions();
-        StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(null, null, compileOptions.getEncoding() != null ? Charset.forName(compileOptions.getEncoding()) : null);
+    private JavaCompiler.CompilationTask createCompileTask(JavaCompileSpec spec, List<String> options, JavaCompiler compiler, StandardJavaFileManager standardFileManager) {
         Iterable<? extends JavaFileObject> compilationUnits = standardFileManager.getJavaFileObjectsFromFiles(spec.getSource());
         StandardJavaFileManager fileManager = standardFileManager;
         if (JavaVersion.current().isJava9Compatible() && emptySourcepathIn(options)) {
             fileManager = (StandardJavaFileManager) SourcepathIgnoringProxy.proxy(standardFileManager, StandardJavaFileManager.class);
         }
-        return compiler.getTask(null, fileManager, null, options, null, compilationUnits);
+        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, null, compilationUnits);
+        if (spec.getIncrementalAnnotationProcessorResultFile() != null) {
+            task = new AnnotationProcessingCompileTask(task, spec.getEffectiveAnnotationProcessors(), spec.getAnnotationProcessorPath(), spec.getIncrementalAnnotationProcessorResultFile());
+        }
+        return task;
     }
 
     private static boolean emptySourcepathIn(List<String> options) {
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental;
+
+import org.gradle.api.internal.tasks.compile.JavaCompileSpec;
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessorDeclaration;
+import org.gradle.api.tasks.WorkResult;
+import org.gradle.language.base.internal.compile.Compiler;
+import org.gradle.util.GFileUtils;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Asks the compiler to run the given incremental annotation processors and to track the types they generate, so that the next compilation can be incremental.
+ */
+class AnnotationProcessingTrackingCompiler implements Compiler<JavaCompileSpec> {
+    private final Compiler<JavaCompileSpec> delegate;
+    private final List<AnnotationProcessorDeclaration> processors;
+
+    AnnotationProcessingTrackingCompiler(Compiler<JavaCompileSpec> delegate, List<AnnotationProcessorDeclaration> processors) {
+        this.delegate = delegate;
+        this.processors = processors;
+    }
+
+    @Override
+    public WorkResult execute(JavaCompileSpec spec) {
+        File resultFile = new File(spec.getTempDir(), "annotation-processing-result.bin");
+        GFileUtils.deleteQuietly(resultFile);
+        spec.setEffectiveAnnotationProcessors(processors);
+        spec.setIncrementalAnnotationProcessorResultFile(resultFile);
+        return delegate.execute(spec);
+    }
+}
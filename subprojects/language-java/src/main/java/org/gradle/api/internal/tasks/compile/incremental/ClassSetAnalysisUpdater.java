@@ -24,14 +24,19 @@ import org.gradle.api.internal.tasks.compile.JavaCompileSpec;
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer;
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassFilesAnalyzer;
 import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysisData;
+import org.gradle.api.internal.tasks.compile.incremental.deps.LocalClassSetAnalysisStore;
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessingData;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
-import org.gradle.cache.internal.Stash;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
 import org.gradle.internal.time.Time;
 import org.gradle.internal.time.Timer;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.util.Collections;
 import java.util.Set;
 
 public class ClassSetAnalysisUpdater {
@@ -44,13 +49,13 @@ public class ClassSetAnalysisUpdater {
         }
     };
 
-    private final Stash<ClassSetAnalysisData> stash;
+    private final LocalClassSetAnalysisStore store;
     private final FileOperations fileOperations;
     private ClassDependenciesAnalyzer analyzer;
     private final FileHasher fileHasher;
 
-    public ClassSetAnalysisUpdater(Stash<ClassSetAnalysisData> stash, FileOperations fileOperations, ClassDependenciesAnalyzer analyzer, FileHasher fileHasher) {
-        this.stash = stash;
+    public ClassSetAnalysisUpdater(LocalClassSetAnalysisStore store, FileOperations fileOperations, ClassDependenciesAnalyzer analyzer, FileHasher fileHasher) {
+        this.store = store;
         this.fileOperations = fileOperations;
         this.analyzer = analyzer;
         this.fileHasher = fileHasher;
@@ -66,7 +71,39 @@ public class ClassSetAnalysisUpdater {
             fileOperations.fileTree(baseDir).visit(analyzer);
         }
         ClassSetAnalysisData data = analyzer.getAnalysis();
-        stash.put(data);
+        if (spec.getIncrementalAnnotationProcessorResultFile() != null) {
+            data = data.withAnnotationProcessingData(getAnnotationProcessingData(spec.getIncrementalAnnotationProcessorResultFile(), data));
+        }
+        store.put(data);
         LOG.info("Class dependency analysis for incremental compilation took {}.", clock.getElapsed());
     }
+
+    private AnnotationProcessingData getAnnotationProcessingData(File resultFile, final ClassSetAnalysisData data) {
+        if (!resultFile.isFile()) {
+            return new AnnotationProcessingData(Collections.<String, Set<String>>emptyMap(), Collections.<String>emptySet(), Collections.<String>emptySet(), "the compiler did not track the types generated by annotation processors");
+        }
+        AnnotationProcessingData current = readAnnotationProcessingData(resultFile);
+        ClassSetAnalysisData previousData = store.get();
+        AnnotationProcessingData previous = previousData == null ? AnnotationProcessingData.EMPTY : previousData.getAnnotationProcessingData();
+        // Generated types that were not generated again have been deleted by this compilation, so do not exist anymore
+        return AnnotationProcessingData.merge(previous, current, new Predicate<String>() {
+            @Override
+            public boolean apply(String className) {
+                return data.containsClass(className);
+            }
+        });
+    }
+
+    private static AnnotationProcessingData readAnnotationProcessingData(File resultFile) {
+        try {
+            KryoBackedDecoder decoder = new KryoBackedDecoder(new FileInputStream(resultFile));
+            try {
+                return new AnnotationProcessingData.Serializer().read(decoder);
+            } finally {
+                decoder.close();
+            }
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
 }
@@ -35,7 +35,7 @@ class IncrementalCompilationInitializer {
         this.fileOperations = fileOperations;
     }
 
-    public void initializeCompilation(JavaCompileSpec spec, Collection<String> staleClasses) {
+    public void initializeCompilation(JavaCompileSpec spec, Collection<String> staleClasses, Collection<String> staleGeneratedTypes) {
         if (staleClasses.isEmpty()) {
             spec.setSource(new SimpleFileCollection());
             return; //do nothing. No classes need recompilation.
@@ -56,6 +56,23 @@ class IncrementalCompilationInitializer {
         //get rid of stale files
         FileTree deleteMe = fileOperations.fileTree(spec.getDestinationDir()).matching(classesToDelete);
         fileOperations.delete(deleteMe);
+        deleteGeneratedSources(spec, staleGeneratedTypes);
+    }
+
+    private void deleteGeneratedSources(JavaCompileSpec spec, Collection<String> staleGeneratedTypes) {
+        if (staleGeneratedTypes.isEmpty()) {
+            return;
+        }
+        File generatedSourcesDir = spec.getCompileOptions().getAnnotationProcessorGeneratedSourcesDirectory();
+        if (generatedSourcesDir == null) {
+            // The compiler writes generated sources next to the classes
+            generatedSourcesDir = spec.getDestinationDir();
+        }
+        List<File> staleSources = Lists.newArrayList();
+        for (String generatedType : staleGeneratedTypes) {
+            staleSources.add(new File(generatedSourcesDir, generatedType.replace('.', '/').concat(".java")));
+        }
+        fileOperations.delete(staleSources.toArray());
     }
 
     void preparePatterns(Collection<String> staleClasses, PatternSet classesToDelete, PatternSet sourceToCompile) {
@@ -24,11 +24,15 @@ import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysis;
 import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysisData;
 import org.gradle.api.internal.tasks.compile.incremental.jar.JarClasspathSnapshotMaker;
 import org.gradle.api.internal.tasks.compile.incremental.jar.PreviousCompilation;
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessorDeclaration;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
 import org.gradle.language.base.internal.compile.Compiler;
 
+import javax.annotation.Nullable;
+import java.util.List;
+
 public class IncrementalCompilerDecorator {
 
     private static final Logger LOG = Logging.getLogger(IncrementalCompilerDecorator.class);
@@ -40,12 +44,13 @@ public class IncrementalCompilerDecorator {
     private final ClassSetAnalysisUpdater classSetAnalysisUpdater;
     private final CompilationSourceDirs sourceDirs;
     private final FileCollection annotationProcessorPath;
+    private final List<AnnotationProcessorDeclaration> annotationProcessors;
     private final IncrementalCompilationInitializer compilationInitializer;
 
     public IncrementalCompilerDecorator(JarClasspathSnapshotMaker jarClasspathSnapshotMaker, CompileCaches compileCaches,
                                         IncrementalCompilationInitializer compilationInitializer, CleaningJavaCompiler cleaningCompiler, String displayName,
                                         RecompilationSpecProvider staleClassDetecter, ClassSetAnalysisUpdater classSetAnalysisUpdater,
-                                        CompilationSourceDirs sourceDirs, FileCollection annotationProcessorPath) {
+                                        CompilationSourceDirs sourceDirs, FileCollection annotationProcessorPath, List<AnnotationProcessorDeclaration> annotationProcessors) {
         this.jarClasspathSnapshotMaker = jarClasspathSnapshotMaker;
         this.compileCaches = compileCaches;
         this.compilationInitializer = compilationInitializer;
@@ -55,10 +60,14 @@ public class IncrementalCompilerDecorator {
         this.classSetAnalysisUpdater = classSetAnalysisUpdater;
         this.sourceDirs = sourceDirs;
         this.annotationProcessorPath = annotationProcessorPath;
+        this.annotationProcessors = annotationProcessors;
     }
 
     public Compiler<JavaCompileSpec> prepareCompiler(IncrementalTaskInputs inputs) {
         Compiler<JavaCompileSpec> compiler = getCompiler(inputs, sourceDirs);
+        if (!annotationProcessors.isEmpty() && getNonIncrementalProcessor() == null) {
+            compiler = new AnnotationProcessingTrackingCompiler(compiler, annotationProcessors);
+        }
         return new IncrementalCompilationFinalizer(compiler, jarClasspathSnapshotMaker, classSetAnalysisUpdater);
     }
 
@@ -72,15 +81,33 @@ public class IncrementalCompilerDecorator {
             return cleaningCompiler;
         }
         if (!annotationProcessorPath.isEmpty()) {
-            LOG.info("{} - is not incremental. Annotation processors are present.", displayName);
-            return cleaningCompiler;
+            AnnotationProcessorDeclaration nonIncrementalProcessor = getNonIncrementalProcessor();
+            if (nonIncrementalProcessor != null) {
+                LOG.info("{} - is not incremental. Annotation processor {} does not support incremental compilation.", displayName, nonIncrementalProcessor.getClassName());
+                return cleaningCompiler;
+            }
         }
         ClassSetAnalysisData data = compileCaches.getLocalClassSetAnalysisStore().get();
         if (data == null) {
             LOG.info("{} - is not incremental. No class analysis data available from the previous build.", displayName);
             return cleaningCompiler;
         }
+        String processingRebuildCause = data.getAnnotationProcessingData().getFullRebuildCause();
+        if (processingRebuildCause != null) {
+            LOG.info("{} - is not incremental. In the previous build, {}.", displayName, processingRebuildCause);
+            return cleaningCompiler;
+        }
         PreviousCompilation previousCompilation = new PreviousCompilation(new ClassSetAnalysis(data), compileCaches.getLocalJarClasspathSnapshotStore(), compileCaches.getJarSnapshotCache());
         return new SelectiveCompiler(inputs, previousCompilation, cleaningCompiler, staleClassDetecter, compilationInitializer, jarClasspathSnapshotMaker);
     }
+
+    @Nullable
+    private AnnotationProcessorDeclaration getNonIncrementalProcessor() {
+        for (AnnotationProcessorDeclaration processor : annotationProcessors) {
+            if (!processor.getType().isIncremental()) {
+                return processor;
+            }
+        }
+        return null;
+    }
 }
@@ -17,19 +17,26 @@
 package org.gradle.api.internal.tasks.compile.incremental;
 
 import org.gradle.api.Action;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.changedetection.rules.FileChange;
 import org.gradle.api.internal.file.FileOperations;
+import org.gradle.api.internal.tasks.compile.incremental.deps.DependentsSet;
 import org.gradle.api.internal.tasks.compile.incremental.jar.JarChangeProcessor;
 import org.gradle.api.internal.tasks.compile.incremental.jar.JarClasspathSnapshot;
 import org.gradle.api.internal.tasks.compile.incremental.jar.JarSnapshot;
 import org.gradle.api.internal.tasks.compile.incremental.jar.PreviousCompilation;
 import org.gradle.api.internal.tasks.compile.incremental.recomp.RecompilationSpec;
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessingData;
 import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
 import org.gradle.api.tasks.incremental.InputFileDetails;
 import org.gradle.internal.file.FileType;
 import org.gradle.internal.util.Alignment;
 
 import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -40,10 +47,12 @@ public class RecompilationSpecProvider {
 
     private final SourceToNameConverter sourceToNameConverter;
     private final FileOperations fileOperations;
+    private final FileCollection annotationProcessorPath;
 
-    public RecompilationSpecProvider(SourceToNameConverter sourceToNameConverter, FileOperations fileOperations) {
+    public RecompilationSpecProvider(SourceToNameConverter sourceToNameConverter, FileOperations fileOperations, FileCollection annotationProcessorPath) {
         this.sourceToNameConverter = sourceToNameConverter;
         this.fileOperations = fileOperations;
+        this.annotationProcessorPath = annotationProcessorPath;
     }
 
     public RecompilationSpec provideRecompilationSpec(IncrementalTaskInputs inputs, PreviousCompilation previousCompilation, JarClasspathSnapshot jarClasspathSnapshot) {
@@ -53,7 +62,7 @@ public class RecompilationSpecProvider {
         processJarChanges(previousCompilation.getJarSnapshots(), jarClasspathSnapshot, jarChangeProcessor, spec);
         JavaChangeProcessor javaChangeProcessor = new JavaChangeProcessor(previousCompilation, sourceToNameConverter);
         ClassChangeProcessor classChangeProcessor = new ClassChangeProcessor(previousCompilation);
-        InputChangeAction action = new InputChangeAction(spec, javaChangeProcessor, classChangeProcessor);
+        InputChangeAction action = new InputChangeAction(spec, javaChangeProcessor, classChangeProcessor, annotationProcessorPath.getFiles());
 
         //go!
         inputs.outOfDate(action);
@@ -62,9 +71,55 @@ public class RecompilationSpecProvider {
             return action.spec;
         }
         inputs.removed(action);
+        if (action.spec.getFullRebuildCause() == null) {
+            processGeneratedTypes(previousCompilation, action.spec);
+        }
         return action.spec;
     }
 
+    /**
+     * Adds the types generated by annotation processors from the classes to recompile, so that they are deleted and generated again, together with their dependents.
+     */
+    private void processGeneratedTypes(PreviousCompilation previousCompilation, RecompilationSpec spec) {
+        if (spec.getClassNames().isEmpty()) {
+            return;
+        }
+        AnnotationProcessingData processingData = previousCompilation.getAnnotationProcessingData();
+        Deque<String> pending = new ArrayDeque<String>(spec.getClassNames());
+        if (!processingData.getAggregatedTypes().isEmpty()) {
+            // Aggregating processors need to see all of their origins again
+            spec.getClassNames().addAll(processingData.getAggregatingOrigins());
+            pending.addAll(processingData.getAggregatingOrigins());
+            for (String aggregatedType : processingData.getAggregatedTypes()) {
+                addGeneratedType(aggregatedType, previousCompilation, spec, pending);
+            }
+        }
+        Set<String> visited = new HashSet<String>();
+        while (!pending.isEmpty() && spec.getFullRebuildCause() == null) {
+            String className = pending.poll();
+            if (visited.add(className)) {
+                for (String generatedType : processingData.getGeneratedTypesOriginatingFrom(className)) {
+                    addGeneratedType(generatedType, previousCompilation, spec, pending);
+                }
+            }
+        }
+    }
+
+    private void addGeneratedType(String generatedType, PreviousCompilation previousCompilation, RecompilationSpec spec, Deque<String> pending) {
+        if (!spec.getGeneratedTypes().add(generatedType)) {
+            return;
+        }
+        spec.getClassNames().add(generatedType);
+        DependentsSet dependents = previousCompilation.getDependents(generatedType, Collections.<Integer>emptySet());
+        if (dependents.isDependencyToAll()) {
+            String description = dependents.getDescription();
+            spec.setFullRebuildCause(description != null ? description : "generated type '" + generatedType + "' is a dependency to all classes", null);
+            return;
+        }
+        spec.getClassNames().addAll(dependents.getDependentClasses());
+        pending.addAll(dependents.getDependentClasses());
+    }
+
     private void processJarChanges(Map<File, JarSnapshot> previousCompilationJarSnapshots, JarClasspathSnapshot currentJarSnapshots, JarChangeProcessor jarChangeProcessor, RecompilationSpec spec) {
         Set<File> previousCompilationJars = previousCompilationJarSnapshots.keySet();
         Set<File> currentCompilationJars = currentJarSnapshots.getJars();
@@ -98,11 +153,13 @@ public class RecompilationSpecProvider {
         private final RecompilationSpec spec;
         private final JavaChangeProcessor javaChangeProcessor;
         private final ClassChangeProcessor classChangeProcessor;
+        private final Set<File> annotationProcessorPath;
 
-        public InputChangeAction(RecompilationSpec spec, JavaChangeProcessor javaChangeProcessor, ClassChangeProcessor classChangeProcessor) {
+        public InputChangeAction(RecompilationSpec spec, JavaChangeProcessor javaChangeProcessor, ClassChangeProcessor classChangeProcessor, Set<File> annotationProcessorPath) {
             this.spec = spec;
             this.javaChangeProcessor = javaChangeProcessor;
             this.classChangeProcessor = classChangeProcessor;
+            this.annotationProcessorPath = annotationProcessorPath;
         }
 
         @Override
@@ -110,11 +167,25 @@ public class RecompilationSpecProvider {
             if (spec.getFullRebuildCause() != null) {
                 return;
             }
+            if (isOnAnnotationProcessorPath(input.getFile())) {
+                // The annotation processors may have changed, so all of their output may be stale
+                spec.setFullRebuildCause("annotation processor path has been changed", null);
+                return;
+            }
             if (hasExtension(input.getFile(), ".java")) {
                 javaChangeProcessor.processChange(input, spec);
             } else if (hasExtension(input.getFile(), ".class")) {
                 classChangeProcessor.processChange(input, spec);
             }
         }
+
+        private boolean isOnAnnotationProcessorPath(File file) {
+            for (File entry : annotationProcessorPath) {
+                if (entry.equals(file) || file.getPath().startsWith(entry.getPath() + File.separator)) {
+                    return true;
+                }
+            }
+            return false;
+        }
     }
 }
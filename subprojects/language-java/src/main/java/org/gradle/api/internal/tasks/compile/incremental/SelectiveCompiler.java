@@ -62,7 +62,7 @@ class SelectiveCompiler implements org.gradle.language.base.internal.compile.Com
         }
 
         Collection<String> classNames = recompilationSpec.getClassNames();
-        incrementalCompilationInitilizer.initializeCompilation(spec, classNames);
+        incrementalCompilationInitilizer.initializeCompilation(spec, classNames, recompilationSpec.getGeneratedTypes());
         if (spec.getSource().isEmpty()) {
             LOG.info("None of the classes needs to be compiled! Analysis took {}. ", clock.getElapsed());
             return new RecompilationNotNecessary();
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental.asm;
+
+import org.gradle.api.internal.tasks.compile.ApiClassExtractor;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hashing;
+import org.objectweb.asm.ClassReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+
+/**
+ * Hashes the ABI of a class, that is what other classes compiled against it can see: the signatures of its
+ * non-private members, annotations and constant values, but not method bodies or private members.
+ */
+public class ClassAbiHasher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClassAbiHasher.class);
+    private static final ApiClassExtractor EXTRACTOR = new ApiClassExtractor(Collections.<String>emptySet());
+
+    private ClassAbiHasher() {
+    }
+
+    /**
+     * Returns the hash of the ABI of the given class, or {@code null} when its ABI is not known. This is the case for local and private
+     * inner classes, which have no ABI of their own, and for classes that cannot be read. These should be compared by content instead.
+     */
+    @Nullable
+    public static HashCode hash(byte[] classFile) {
+        try {
+            ClassReader reader = new ClassReader(classFile);
+            if (EXTRACTOR.shouldExtractApiClassFrom(reader)) {
+                byte[] apiClass = EXTRACTOR.extractApiClassFrom(reader);
+                if (apiClass != null) {
+                    return Hashing.md5().hashBytes(apiClass);
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.debug("Could not extract the ABI of class, comparing it by content instead.", e);
+        }
+        return null;
+    }
+}
@@ -18,6 +18,8 @@ package org.gradle.api.internal.tasks.compile.incremental.deps;
 
 import com.google.common.collect.Sets;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -49,45 +51,64 @@ public class ClassSetAnalysis {
     }
 
     public DependentsSet getRelevantDependents(String className, Set<Integer> constants) {
-        DependentsSet deps = data.getDependents(className);
-        if (deps != null && deps.isDependencyToAll()) {
-            return deps;
+        int classId = data.getClassId(className);
+        boolean hasDependents = classId >= 0 && data.hasDependents(classId);
+        if (hasDependents && data.isDependencyToAll(classId)) {
+            return data.getDependents(classId);
         }
-        if (deps == null && constants.isEmpty()) {
+        if (!hasDependents && constants.isEmpty()) {
             return DefaultDependentsSet.EMPTY;
         }
         if (!constants.isEmpty()) {
             return DependencyToAll.INSTANCE;
         }
         Set<String> result = new HashSet<String>();
-        if (deps != null && !deps.isDependencyToAll()) {
-            recurseDependents(new HashSet<String>(), result, deps.getDependentClasses());
-        }
+        collectDependents(classId, result);
         result.remove(className);
         return new DefaultDependentsSet(result);
 
     }
 
     public boolean isDependencyToAll(String className) {
-        DependentsSet deps = data.getDependents(className);
-        return deps != null && deps.isDependencyToAll();
+        int classId = data.getClassId(className);
+        return classId >= 0 && data.hasDependents(classId) && data.isDependencyToAll(classId);
     }
 
-    private void recurseDependents(Set<String> visited, Set<String> result, Set<String> dependentClasses) {
-        for (String d : dependentClasses) {
-            if (!visited.add(d)) {
+    private void collectDependents(int classId, Set<String> result) {
+        ClassSetAnalysisData.IntAdjacency dependents = data.getDependentIds();
+        int[] dependentIds = dependents.getValues();
+        BitSet visited = new BitSet();
+        int[] stack = new int[16];
+        int stackSize = 0;
+        for (int i = dependents.getStart(classId); i < dependents.getEnd(classId); i++) {
+            stack = push(stack, stackSize++, dependentIds[i]);
+        }
+        while (stackSize > 0) {
+            int current = stack[--stackSize];
+            if (visited.get(current)) {
                 continue;
             }
-            if (!d.contains("$")) { //filter out the inner classes
-                result.add(d);
+            visited.set(current);
+            String name = data.getClassName(current);
+            if (name.indexOf('$') < 0) { //filter out the inner classes
+                result.add(name);
             }
-            DependentsSet currentDependents = data.getDependents(d);
-            if (currentDependents != null && !currentDependents.isDependencyToAll()) {
-                recurseDependents(visited, result, currentDependents.getDependentClasses());
+            if (data.hasDependents(current) && !data.isDependencyToAll(current)) {
+                for (int i = dependents.getStart(current); i < dependents.getEnd(current); i++) {
+                    if (!visited.get(dependentIds[i])) {
+                        stack = push(stack, stackSize++, dependentIds[i]);
+                    }
+                }
             }
         }
     }
 
+    private static int[] push(int[] stack, int index, int value) {
+        int[] target = index < stack.length ? stack : Arrays.copyOf(stack, stack.length * 2);
+        target[index] = value;
+        return target;
+    }
+
     public ClassSetAnalysisData getData() {
         return data;
     }
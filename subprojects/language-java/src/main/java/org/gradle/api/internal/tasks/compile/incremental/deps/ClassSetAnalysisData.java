@@ -19,36 +19,142 @@ package org.gradle.api.internal.tasks.compile.incremental.deps;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessingData;
 import org.gradle.internal.serialize.AbstractSerializer;
 import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.Encoder;
-import org.gradle.internal.serialize.SetSerializer;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
-import static org.gradle.internal.serialize.BaseSerializerFactory.INTEGER_SERIALIZER;
-
+/**
+ * The analysis of a set of classes, kept in a compact form as it is loaded for every incremental compilation.
+ *
+ * <p>Every class name is stored once, in a sorted table, and classes are referenced by their index in that table.
+ * The relations between classes are kept as adjacency arrays over these indices.</p>
+ */
 public class ClassSetAnalysisData {
-    final Map<String, String> filePathToClassName;
-    final Map<String, DependentsSet> dependents;
-    final Map<String, Set<Integer>> classesToConstants;
-    final Map<Integer, Set<String>> literalsToClasses;
-    final Map<String, Set<String>> classesToChildren;
+    private final Map<String, String> filePathToClassName;
+    private final String[] classNames;
+    private final IntAdjacency dependents;
+    private final BitSet dependenciesToAll;
+    private final Map<Integer, String> dependencyToAllDescriptions;
+    private final IntAdjacency classesToConstants;
+    private final int[] literals;
+    private final IntAdjacency literalsToClasses;
+    private final IntAdjacency classesToChildren;
+    private final AnnotationProcessingData annotationProcessingData;
 
     public ClassSetAnalysisData(Map<String, String> filePathToClassName, Map<String, DependentsSet> dependents, Multimap<String, Integer> classesToConstants, Multimap<Integer, String> literalsToClasses, Multimap<String, String> classesToChildren) {
         this(filePathToClassName, dependents, asMap(classesToConstants), asMap(literalsToClasses), asMap(classesToChildren));
     }
 
     public ClassSetAnalysisData(Map<String, String> filePathToClassName, Map<String, DependentsSet> dependents, Map<String, Set<Integer>> classesToConstants, Map<Integer, Set<String>> literalsToClasses, Map<String, Set<String>> classesToChildren) {
+        Set<String> names = new TreeSet<String>();
+        names.addAll(filePathToClassName.values());
+        for (Map.Entry<String, DependentsSet> entry : dependents.entrySet()) {
+            names.add(entry.getKey());
+            if (!entry.getValue().isDependencyToAll()) {
+                names.addAll(entry.getValue().getDependentClasses());
+            }
+        }
+        names.addAll(classesToConstants.keySet());
+        for (Set<String> classes : literalsToClasses.values()) {
+            names.addAll(classes);
+        }
+        for (Map.Entry<String, Set<String>> entry : classesToChildren.entrySet()) {
+            names.add(entry.getKey());
+            names.addAll(entry.getValue());
+        }
+        this.classNames = names.toArray(new String[0]);
+
+        ImmutableMap.Builder<String, String> filePathBuilder = ImmutableMap.builder();
+        for (Map.Entry<String, String> entry : filePathToClassName.entrySet()) {
+            // Share the class name instances with the table
+            filePathBuilder.put(entry.getKey(), classNames[getClassId(entry.getValue())]);
+        }
+        this.filePathToClassName = filePathBuilder.build();
+
+        int[][] dependentIds = new int[classNames.length][];
+        this.dependenciesToAll = new BitSet(classNames.length);
+        this.dependencyToAllDescriptions = new HashMap<Integer, String>();
+        for (Map.Entry<String, DependentsSet> entry : dependents.entrySet()) {
+            int id = getClassId(entry.getKey());
+            DependentsSet dependentsSet = entry.getValue();
+            if (dependentsSet.isDependencyToAll()) {
+                dependenciesToAll.set(id);
+                if (dependentsSet.getDescription() != null) {
+                    dependencyToAllDescriptions.put(id, dependentsSet.getDescription());
+                }
+                dependentIds[id] = new int[0];
+            } else {
+                dependentIds[id] = getClassIds(dependentsSet.getDependentClasses());
+            }
+        }
+        this.dependents = new IntAdjacency(dependentIds);
+
+        int[][] constants = new int[classNames.length][];
+        for (Map.Entry<String, Set<Integer>> entry : classesToConstants.entrySet()) {
+            int[] values = new int[entry.getValue().size()];
+            int i = 0;
+            for (Integer constant : entry.getValue()) {
+                values[i++] = constant;
+            }
+            Arrays.sort(values);
+            constants[getClassId(entry.getKey())] = values;
+        }
+        this.classesToConstants = new IntAdjacency(constants);
+
+        this.literals = new int[literalsToClasses.size()];
+        int i = 0;
+        for (Integer literal : literalsToClasses.keySet()) {
+            literals[i++] = literal;
+        }
+        Arrays.sort(literals);
+        int[][] literalClasses = new int[literals.length][];
+        for (int j = 0; j < literals.length; j++) {
+            literalClasses[j] = getClassIds(literalsToClasses.get(literals[j]));
+        }
+        this.literalsToClasses = new IntAdjacency(literalClasses);
+
+        int[][] children = new int[classNames.length][];
+        for (Map.Entry<String, Set<String>> entry : classesToChildren.entrySet()) {
+            children[getClassId(entry.getKey())] = getClassIds(entry.getValue());
+        }
+        this.classesToChildren = new IntAdjacency(children);
+        this.annotationProcessingData = AnnotationProcessingData.EMPTY;
+    }
+
+    private ClassSetAnalysisData(Map<String, String> filePathToClassName, String[] classNames, IntAdjacency dependents, BitSet dependenciesToAll, Map<Integer, String> dependencyToAllDescriptions, IntAdjacency classesToConstants, int[] literals, IntAdjacency literalsToClasses, IntAdjacency classesToChildren, AnnotationProcessingData annotationProcessingData) {
         this.filePathToClassName = filePathToClassName;
+        this.classNames = classNames;
         this.dependents = dependents;
+        this.dependenciesToAll = dependenciesToAll;
+        this.dependencyToAllDescriptions = dependencyToAllDescriptions;
         this.classesToConstants = classesToConstants;
+        this.literals = literals;
         this.literalsToClasses = literalsToClasses;
         this.classesToChildren = classesToChildren;
+        this.annotationProcessingData = annotationProcessingData;
+    }
+
+    /**
+     * Returns a copy of this analysis with the given types generated by annotation processors.
+     */
+    public ClassSetAnalysisData withAnnotationProcessingData(AnnotationProcessingData annotationProcessingData) {
+        return new ClassSetAnalysisData(filePathToClassName, classNames, dependents, dependenciesToAll, dependencyToAllDescriptions, classesToConstants, literals, literalsToClasses, classesToChildren, annotationProcessingData);
+    }
+
+    public AnnotationProcessingData getAnnotationProcessingData() {
+        return annotationProcessingData;
     }
 
     private static <K, V> Map<K, Set<V>> asMap(Multimap<K, V> multimap) {
@@ -59,177 +165,278 @@ public class ClassSetAnalysisData {
         return builder.build();
     }
 
+    private int[] getClassIds(Collection<String> names) {
+        int[] ids = new int[names.size()];
+        int i = 0;
+        for (String name : names) {
+            ids[i++] = getClassId(name);
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Returns the index of the given class in the class name table, or a negative value when the class is unknown.
+     */
+    int getClassId(String className) {
+        return Arrays.binarySearch(classNames, className);
+    }
+
+    String getClassName(int classId) {
+        return classNames[classId];
+    }
+
+    boolean hasDependents(int classId) {
+        return dependents.contains(classId);
+    }
+
+    boolean isDependencyToAll(int classId) {
+        return dependenciesToAll.get(classId);
+    }
+
+    IntAdjacency getDependentIds() {
+        return dependents;
+    }
+
+    public boolean containsClass(String className) {
+        return getClassId(className) >= 0;
+    }
+
     public String getClassNameForFile(String filePath) {
         return filePathToClassName.get(filePath);
     }
 
+    @Nullable
     public DependentsSet getDependents(String className) {
-        return dependents.get(className);
+        int classId = getClassId(className);
+        if (classId < 0 || !hasDependents(classId)) {
+            return null;
+        }
+        return getDependents(classId);
+    }
+
+    DependentsSet getDependents(int classId) {
+        if (isDependencyToAll(classId)) {
+            String description = dependencyToAllDescriptions.get(classId);
+            return description == null ? DependencyToAll.INSTANCE : new DependencyToAll(description);
+        }
+        return new DefaultDependentsSet(getClassNames(dependents, classId));
     }
 
     public Set<Integer> getConstants(String className) {
-        Set<Integer> integers = classesToConstants.get(className);
-        if (integers == null) {
+        int classId = getClassId(className);
+        if (classId < 0 || !classesToConstants.contains(classId)) {
             return Collections.emptySet();
         }
-        return integers;
+        ImmutableSet.Builder<Integer> builder = ImmutableSet.builder();
+        int[] values = classesToConstants.getValues();
+        for (int i = classesToConstants.getStart(classId); i < classesToConstants.getEnd(classId); i++) {
+            builder.add(values[i]);
+        }
+        return builder.build();
     }
 
     public Set<String> getChildren(String className) {
-        Set<String> children = classesToChildren.get(className);
-        return children == null ? Collections.<String>emptySet() : children;
+        int classId = getClassId(className);
+        if (classId < 0 || !classesToChildren.contains(classId)) {
+            return Collections.emptySet();
+        }
+        return getClassNames(classesToChildren, classId);
+    }
+
+    public Set<String> getClassesForLiteral(int literal) {
+        int index = Arrays.binarySearch(literals, literal);
+        if (index < 0) {
+            return Collections.emptySet();
+        }
+        return getClassNames(literalsToClasses, index);
+    }
+
+    private Set<String> getClassNames(IntAdjacency adjacency, int key) {
+        ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+        int[] values = adjacency.getValues();
+        for (int i = adjacency.getStart(key); i < adjacency.getEnd(key); i++) {
+            builder.add(classNames[values[i]]);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Maps each key in {@code [0, size)} to a slice of a single values array, with the slice of key {@code k}
+     * running from {@code offsets[k]} up to {@code offsets[k + 1]}. Keys without an entry are told apart from
+     * keys with an empty entry.
+     */
+    static class IntAdjacency {
+        private final BitSet present;
+        private final int[] offsets;
+        private final int[] values;
+
+        IntAdjacency(int[][] rows) {
+            this.present = new BitSet(rows.length);
+            this.offsets = new int[rows.length + 1];
+            int count = 0;
+            for (int i = 0; i < rows.length; i++) {
+                offsets[i] = count;
+                if (rows[i] != null) {
+                    present.set(i);
+                    count += rows[i].length;
+                }
+            }
+            offsets[rows.length] = count;
+            this.values = new int[count];
+            for (int i = 0; i < rows.length; i++) {
+                if (rows[i] != null) {
+                    System.arraycopy(rows[i], 0, values, offsets[i], rows[i].length);
+                }
+            }
+        }
+
+        boolean contains(int key) {
+            return present.get(key);
+        }
+
+        int getStart(int key) {
+            return offsets[key];
+        }
+
+        int getEnd(int key) {
+            return offsets[key + 1];
+        }
+
+        int[] getValues() {
+            return values;
+        }
+
+        private void write(Encoder encoder, boolean smallValues) throws IOException {
+            encoder.writeSmallInt(present.cardinality());
+            int previous = -1;
+            for (int key = present.nextSetBit(0); key >= 0; key = present.nextSetBit(key + 1)) {
+                encoder.writeSmallInt(key - previous);
+                previous = key;
+                encoder.writeSmallInt(offsets[key + 1] - offsets[key]);
+                for (int i = offsets[key]; i < offsets[key + 1]; i++) {
+                    if (smallValues) {
+                        encoder.writeSmallInt(values[i]);
+                    } else {
+                        encoder.writeInt(values[i]);
+                    }
+                }
+            }
+        }
+
+        private static IntAdjacency read(Decoder decoder, int size, boolean smallValues) throws IOException {
+            int[][] rows = new int[size][];
+            int count = decoder.readSmallInt();
+            int key = -1;
+            for (int i = 0; i < count; i++) {
+                key += decoder.readSmallInt();
+                int[] row = new int[decoder.readSmallInt()];
+                for (int j = 0; j < row.length; j++) {
+                    row[j] = smallValues ? decoder.readSmallInt() : decoder.readInt();
+                }
+                rows[key] = row;
+            }
+            return new IntAdjacency(rows);
+        }
     }
 
     public static class Serializer extends AbstractSerializer<ClassSetAnalysisData> {
-        private static final SetSerializer<Integer> INTEGER_SET_SERIALIZER = new SetSerializer<Integer>(INTEGER_SERIALIZER, false);
+        private final AnnotationProcessingData.Serializer annotationProcessingDataSerializer = new AnnotationProcessingData.Serializer();
 
         @Override
         public ClassSetAnalysisData read(Decoder decoder) throws Exception {
-            // Class names are de-duplicated when encoded
-            Map<Integer, String> classNameMap = new HashMap<Integer, String>();
+            // Class names are sorted, so each one is encoded as the length of the prefix it shares with the previous one plus the rest
+            String[] classNames = new String[decoder.readSmallInt()];
+            String previous = "";
+            for (int i = 0; i < classNames.length; i++) {
+                int prefixLength = decoder.readSmallInt();
+                previous = previous.substring(0, prefixLength) + decoder.readString();
+                classNames[i] = previous;
+            }
 
             int count = decoder.readSmallInt();
             ImmutableMap.Builder<String, String> filePathToClassNameBuilder = ImmutableMap.builder();
             for (int i = 0; i < count; i++) {
                 String filePath = decoder.readString();
-                String className = readClassName(decoder, classNameMap);
-                filePathToClassNameBuilder.put(filePath, className);
+                filePathToClassNameBuilder.put(filePath, classNames[decoder.readSmallInt()]);
             }
 
+            IntAdjacency dependents = IntAdjacency.read(decoder, classNames.length, true);
+            BitSet dependenciesToAll = new BitSet(classNames.length);
+            Map<Integer, String> dependencyToAllDescriptions = new HashMap<Integer, String>();
             count = decoder.readSmallInt();
-            ImmutableMap.Builder<String, DependentsSet> dependentsBuilder = ImmutableMap.builder();
             for (int i = 0; i < count; i++) {
-                String className = readClassName(decoder, classNameMap);
-                DependentsSet dependents = readDependentsSet(decoder, classNameMap);
-                dependentsBuilder.put(className, dependents);
+                int classId = decoder.readSmallInt();
+                dependenciesToAll.set(classId);
+                String description = decoder.readNullableString();
+                if (description != null) {
+                    dependencyToAllDescriptions.put(classId, description);
+                }
             }
 
-            count = decoder.readSmallInt();
-            ImmutableMap.Builder<String, Set<Integer>> classesToConstantsBuilder = ImmutableMap.builder();
-            for (int i = 0; i < count; i++) {
-                String className = readClassName(decoder, classNameMap);
-                Set<Integer> constants = INTEGER_SET_SERIALIZER.read(decoder);
-                classesToConstantsBuilder.put(className, constants);
-            }
+            IntAdjacency classesToConstants = IntAdjacency.read(decoder, classNames.length, false);
 
-            count = decoder.readSmallInt();
-            ImmutableMap.Builder<Integer, Set<String>> literalsToClassesBuilder = ImmutableMap.builder();
-            for (int i = 0; i < count; i++) {
-                int literal = decoder.readInt();
-                int nameCount = decoder.readSmallInt();
-                ImmutableSet.Builder<String> namesBuilder = ImmutableSet.builder();
-                for (int j = 0; j < nameCount; j++) {
-                    namesBuilder.add(readClassName(decoder, classNameMap));
-                }
-                literalsToClassesBuilder.put(literal, namesBuilder.build());
+            int[] literals = new int[decoder.readSmallInt()];
+            for (int i = 0; i < literals.length; i++) {
+                literals[i] = decoder.readInt();
             }
+            IntAdjacency literalsToClasses = IntAdjacency.read(decoder, literals.length, true);
 
-            count = decoder.readSmallInt();
-            ImmutableMap.Builder<String, Set<String>> classNameToChildren = ImmutableMap.builder();
-            for (int i = 0; i < count; i++) {
-                String parent = readClassName(decoder, classNameMap);
-                int nameCount = decoder.readSmallInt();
-                ImmutableSet.Builder<String> namesBuilder = ImmutableSet.builder();
-                for (int j = 0; j < nameCount; j++) {
-                    namesBuilder.add(readClassName(decoder, classNameMap));
-                }
-                classNameToChildren.put(parent, namesBuilder.build());
-            }
+            IntAdjacency classesToChildren = IntAdjacency.read(decoder, classNames.length, true);
+
+            AnnotationProcessingData annotationProcessingData = annotationProcessingDataSerializer.read(decoder);
 
-            return new ClassSetAnalysisData(filePathToClassNameBuilder.build(), dependentsBuilder.build(), classesToConstantsBuilder.build(), literalsToClassesBuilder.build(), classNameToChildren.build());
+            return new ClassSetAnalysisData(filePathToClassNameBuilder.build(), classNames, dependents, dependenciesToAll, dependencyToAllDescriptions, classesToConstants, literals, literalsToClasses, classesToChildren, annotationProcessingData);
         }
 
         @Override
         public void write(Encoder encoder, ClassSetAnalysisData value) throws Exception {
-            // Deduplicate class names when encoding.
-            // This would be more efficient with a better data structure in ClassSetAnalysisData
-            Map<String, Integer> classNameMap = new HashMap<String, Integer>();
+            encoder.writeSmallInt(value.classNames.length);
+            String previous = "";
+            for (String className : value.classNames) {
+                int prefixLength = commonPrefixLength(previous, className);
+                encoder.writeSmallInt(prefixLength);
+                encoder.writeString(className.substring(prefixLength));
+                previous = className;
+            }
 
             encoder.writeSmallInt(value.filePathToClassName.size());
             for (Map.Entry<String, String> entry : value.filePathToClassName.entrySet()) {
                 encoder.writeString(entry.getKey());
-                writeClassName(entry.getValue(), classNameMap, encoder);
+                encoder.writeSmallInt(value.getClassId(entry.getValue()));
             }
 
-            encoder.writeSmallInt(value.dependents.size());
-            for (Map.Entry<String, DependentsSet> entry : value.dependents.entrySet()) {
-                writeClassName(entry.getKey(), classNameMap, encoder);
-                writeDependentSet(entry.getValue(), classNameMap, encoder);
+            value.dependents.write(encoder, true);
+            encoder.writeSmallInt(value.dependenciesToAll.cardinality());
+            for (int classId = value.dependenciesToAll.nextSetBit(0); classId >= 0; classId = value.dependenciesToAll.nextSetBit(classId + 1)) {
+                encoder.writeSmallInt(classId);
+                encoder.writeNullableString(value.dependencyToAllDescriptions.get(classId));
             }
 
-            encoder.writeSmallInt(value.classesToConstants.size());
-            for (Map.Entry<String, Set<Integer>> entry : value.classesToConstants.entrySet()) {
-                writeClassName(entry.getKey(), classNameMap, encoder);
-                INTEGER_SET_SERIALIZER.write(encoder, entry.getValue());
-            }
+            value.classesToConstants.write(encoder, false);
 
-            encoder.writeSmallInt(value.literalsToClasses.size());
-            for (Map.Entry<Integer, Set<String>> entry : value.literalsToClasses.entrySet()) {
-                encoder.writeInt(entry.getKey());
-                encoder.writeSmallInt(entry.getValue().size());
-                for (String className : entry.getValue()) {
-                    writeClassName(className, classNameMap, encoder);
-                }
+            encoder.writeSmallInt(value.literals.length);
+            for (int literal : value.literals) {
+                encoder.writeInt(literal);
             }
+            value.literalsToClasses.write(encoder, true);
 
-            encoder.writeSmallInt(value.classesToChildren.size());
-            for (Map.Entry<String, Set<String>> entry : value.classesToChildren.entrySet()) {
-                writeClassName(entry.getKey(), classNameMap, encoder);
-                encoder.writeSmallInt(entry.getValue().size());
-                for (String className : entry.getValue()) {
-                    writeClassName(className, classNameMap, encoder);
-                }
-            }
-        }
-
-        private DependentsSet readDependentsSet(Decoder decoder, Map<Integer, String> classNameMap) throws IOException {
-            byte b = decoder.readByte();
-            if (b == 1) {
-                return new DependencyToAll(decoder.readNullableString());
-            }
-            int count = decoder.readSmallInt();
-            ImmutableSet.Builder<String> builder = ImmutableSet.builder();
-            for (int i = 0; i < count; i++) {
-                builder.add(readClassName(decoder, classNameMap));
-            }
-            return new DefaultDependentsSet(builder.build());
-        }
+            value.classesToChildren.write(encoder, true);
 
-        private void writeDependentSet(DependentsSet dependentsSet, Map<String, Integer> classNameMap, Encoder encoder) throws IOException {
-            if (dependentsSet.isDependencyToAll()) {
-                encoder.writeByte((byte) 1);
-                encoder.writeNullableString(dependentsSet.getDescription());
-            } else {
-                encoder.writeByte((byte) 2);
-                encoder.writeSmallInt(dependentsSet.getDependentClasses().size());
-                for (String className : dependentsSet.getDependentClasses()) {
-                    writeClassName(className, classNameMap, encoder);
-                }
-            }
+            annotationProcessingDataSerializer.write(encoder, value.annotationProcessingData);
         }
 
-        private String readClassName(Decoder decoder, Map<Integer, String> classNameMap) throws IOException {
-            int id = decoder.readSmallInt();
-            if (id == 0) {
-                id = decoder.readSmallInt();
-                String className = decoder.readString();
-                classNameMap.put(id, className);
-                return className;
+        private static int commonPrefixLength(String a, String b) {
+            int max = Math.min(a.length(), b.length());
+            int i = 0;
+            while (i < max && a.charAt(i) == b.charAt(i)) {
+                i++;
             }
-            return classNameMap.get(id);
-        }
-
-        private void writeClassName(String className, Map<String, Integer> classIdMap, Encoder encoder) throws IOException {
-            Integer id = classIdMap.get(className);
-            if (id == null) {
-                id = classIdMap.size() + 1;
-                classIdMap.put(className, id);
-                encoder.writeSmallInt(0);
-                encoder.writeSmallInt(id);
-                encoder.writeString(className);
-            } else {
-                encoder.writeSmallInt(id);
+            if (i > 0 && Character.isHighSurrogate(a.charAt(i - 1))) {
+                // Do not split a surrogate pair
+                i--;
             }
+            return i;
         }
     }
 }
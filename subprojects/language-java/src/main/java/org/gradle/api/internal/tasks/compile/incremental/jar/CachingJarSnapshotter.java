@@ -21,6 +21,7 @@ import org.gradle.internal.Factory;
 import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.hash.StreamHasher;
+import org.gradle.internal.operations.BuildOperationExecutor;
 
 public class CachingJarSnapshotter implements JarSnapshotter {
 
@@ -28,8 +29,8 @@ public class CachingJarSnapshotter implements JarSnapshotter {
     private final FileHasher fileHasher;
     private final JarSnapshotCache cache;
 
-    public CachingJarSnapshotter(StreamHasher streamHasher, FileHasher fileHasher, ClassDependenciesAnalyzer analyzer, JarSnapshotCache cache) {
-        this.snapshotter = new DefaultJarSnapshotter(streamHasher, analyzer);
+    public CachingJarSnapshotter(StreamHasher streamHasher, FileHasher fileHasher, ClassDependenciesAnalyzer analyzer, JarSnapshotCache cache, BuildOperationExecutor buildOperationExecutor) {
+        this.snapshotter = new DefaultJarSnapshotter(streamHasher, analyzer, buildOperationExecutor);
         this.fileHasher = fileHasher;
         this.cache = cache;
     }
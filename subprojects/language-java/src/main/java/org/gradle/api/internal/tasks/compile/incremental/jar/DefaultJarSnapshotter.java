@@ -15,34 +15,61 @@
  */
 package org.gradle.api.internal.tasks.compile.incremental.jar;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.gradle.api.Action;
 import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.FileVisitor;
+import org.gradle.api.file.RelativePath;
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.asm.ClassAbiHasher;
 import org.gradle.api.internal.tasks.compile.incremental.deps.ClassAnalysis;
 import org.gradle.api.internal.tasks.compile.incremental.deps.ClassDependentsAccumulator;
 import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.hash.StreamHasher;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.progress.BuildOperationDescriptor;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
 import java.util.Map;
 
 class DefaultJarSnapshotter {
+    // Classes are read in batches, which keeps memory bounded for large jars
+    private static final int MAX_BATCH_CLASSES = 4096;
+    private static final long MAX_BATCH_BYTES = 32 * 1024 * 1024;
+    // Batches larger than this are split up and analysed in parallel
+    private static final int SHARD_SIZE = 512;
+
     private final StreamHasher hasher;
     private final ClassDependenciesAnalyzer analyzer;
+    private final BuildOperationExecutor buildOperationExecutor;
 
-    public DefaultJarSnapshotter(StreamHasher hasher, ClassDependenciesAnalyzer analyzer) {
+    public DefaultJarSnapshotter(StreamHasher hasher, ClassDependenciesAnalyzer analyzer, BuildOperationExecutor buildOperationExecutor) {
         this.hasher = hasher;
         this.analyzer = analyzer;
+        this.buildOperationExecutor = buildOperationExecutor;
     }
 
-    public JarSnapshot createSnapshot(HashCode hash, JarArchive jarArchive) {
+    public JarSnapshot createSnapshot(HashCode hash, final JarArchive jarArchive) {
         final Map<String, HashCode> hashes = Maps.newHashMap();
         final ClassDependentsAccumulator accumulator = new ClassDependentsAccumulator();
+        final List<ClassFile> batch = Lists.newArrayList();
 
         jarArchive.contents.visit(new FileVisitor() {
+            private long batchBytes;
+
             public void visitDir(FileVisitDetails dirDetails) {
             }
 
@@ -51,25 +78,166 @@ class DefaultJarSnapshotter {
                     return;
                 }
 
-                HashCode classFileHash;
-                InputStream inputStream = fileDetails.open();
-                try {
-                    classFileHash = hasher.hash(inputStream);
-                } finally {
-                    try {
-                        inputStream.close();
-                    } catch (IOException e) {
-                        throw new UncheckedIOException(e);
+                ClassFile classFile = new ClassFile(fileDetails, read(fileDetails));
+                batch.add(classFile);
+                batchBytes += classFile.content.length;
+                if (batch.size() >= MAX_BATCH_CLASSES || batchBytes >= MAX_BATCH_BYTES) {
+                    analyze(jarArchive, batch, accumulator, hashes);
+                    batch.clear();
+                    batchBytes = 0;
+                }
+            }
+        });
+        analyze(jarArchive, batch, accumulator, hashes);
+
+        return new JarSnapshot(new JarSnapshotData(hash, hashes, accumulator.getAnalysis()));
+    }
+
+    private static byte[] read(FileVisitDetails fileDetails) {
+        InputStream inputStream = fileDetails.open();
+        try {
+            return ByteStreams.toByteArray(inputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            try {
+                inputStream.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void analyze(final JarArchive jarArchive, final List<ClassFile> classFiles, ClassDependentsAccumulator accumulator, Map<String, HashCode> hashes) {
+        if (classFiles.size() <= SHARD_SIZE) {
+            analyze(classFiles);
+        } else {
+            buildOperationExecutor.runAll(new Action<BuildOperationQueue<RunnableBuildOperation>>() {
+                @Override
+                public void execute(BuildOperationQueue<RunnableBuildOperation> queue) {
+                    for (int start = 0; start < classFiles.size(); start += SHARD_SIZE) {
+                        queue.add(new AnalyzeClassesOperation(jarArchive.file, classFiles.subList(start, Math.min(start + SHARD_SIZE, classFiles.size()))));
                     }
                 }
+            });
+        }
+        // Add the classes in the order of the jar, as the first one wins for duplicate class names
+        for (ClassFile classFile : classFiles) {
+            accumulator.addClass(classFile.analysis);
+            hashes.put(classFile.analysis.getClassName(), classFile.abiHash != null ? classFile.abiHash : classFile.hash);
+        }
+    }
+
+    private void analyze(List<ClassFile> classFiles) {
+        for (ClassFile classFile : classFiles) {
+            classFile.hash = hasher.hash(new ByteArrayInputStream(classFile.content));
+            classFile.analysis = analyzer.getClassAnalysis(classFile.hash, classFile);
+            classFile.abiHash = ClassAbiHasher.hash(classFile.content);
+        }
+    }
+
+    private class AnalyzeClassesOperation implements RunnableBuildOperation {
+        private final File jar;
+        private final List<ClassFile> classFiles;
+
+        AnalyzeClassesOperation(File jar, List<ClassFile> classFiles) {
+            this.jar = jar;
+            this.classFiles = classFiles;
+        }
 
-                ClassAnalysis analysis = analyzer.getClassAnalysis(classFileHash, fileDetails);
-                accumulator.addClass(analysis);
+        @Override
+        public void run(BuildOperationContext context) {
+            analyze(classFiles);
+        }
 
-                hashes.put(analysis.getClassName(), classFileHash);
+        @Override
+        public BuildOperationDescriptor.Builder description() {
+            return BuildOperationDescriptor.displayName("Analyze " + classFiles.size() + " classes of " + jar.getName());
+        }
+    }
+
+    /**
+     * A class file of the jar, which can be opened again after the jar has been visited.
+     */
+    private static class ClassFile implements FileTreeElement {
+        private final FileVisitDetails details;
+        private final byte[] content;
+        private HashCode hash;
+        private HashCode abiHash;
+        private ClassAnalysis analysis;
+
+        ClassFile(FileVisitDetails details, byte[] content) {
+            this.details = details;
+            this.content = content;
+        }
+
+        @Override
+        public InputStream open() {
+            return new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public void copyTo(OutputStream output) {
+            try {
+                output.write(content);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
-        });
+        }
 
-        return new JarSnapshot(new JarSnapshotData(hash, hashes, accumulator.getAnalysis()));
+        @Override
+        public boolean copyTo(File target) {
+            try {
+                Files.write(content, target);
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public File getFile() {
+            return details.getFile();
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return false;
+        }
+
+        @Override
+        public long getLastModified() {
+            return details.getLastModified();
+        }
+
+        @Override
+        public long getSize() {
+            return content.length;
+        }
+
+        @Override
+        public String getName() {
+            return details.getName();
+        }
+
+        @Override
+        public String getPath() {
+            return details.getPath();
+        }
+
+        @Override
+        public RelativePath getRelativePath() {
+            return details.getRelativePath();
+        }
+
+        @Override
+        public int getMode() {
+            return details.getMode();
+        }
+
+        @Override
+        public String toString() {
+            return details.toString();
+        }
     }
 }
@@ -29,7 +29,7 @@ public class JarSnapshotData {
 
     /**
      * @param hash of this jar
-     * @param hashes hashes of all classes from the jar
+     * @param hashes ABI hashes of all classes from the jar, or content hashes of classes with an unknown ABI, see {@link org.gradle.api.internal.tasks.compile.incremental.asm.ClassAbiHasher}
      * @param data of classes analysis in this jar
      */
     public JarSnapshotData(HashCode hash, Map<String, HashCode> hashes, ClassSetAnalysisData data) {
@@ -19,6 +19,7 @@ package org.gradle.api.internal.tasks.compile.incremental.jar;
 import com.google.common.collect.Sets;
 import org.gradle.api.internal.tasks.compile.incremental.deps.ClassSetAnalysis;
 import org.gradle.api.internal.tasks.compile.incremental.deps.DependentsSet;
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessingData;
 
 import java.io.File;
 import java.util.Collections;
@@ -42,6 +43,10 @@ public class PreviousCompilation {
         return analysis.getRelevantDependents(allClasses, constants);
     }
 
+    public AnnotationProcessingData getAnnotationProcessingData() {
+        return analysis.getData().getAnnotationProcessingData();
+    }
+
     public String getClassName(String path) {
         return analysis.getData().getClassNameForFile(path);
     }
@@ -23,12 +23,20 @@ import java.util.LinkedHashSet;
 public class RecompilationSpec {
 
     private final Collection<String> classesToCompile = new NormalizingClassNamesSet();
+    private final Collection<String> generatedTypes = new LinkedHashSet<String>();
     private String fullRebuildCause;
 
     public Collection<String> getClassNames() {
         return classesToCompile;
     }
 
+    /**
+     * The types generated by annotation processors that are stale. These are also part of the {@link #getClassNames() class names}.
+     */
+    public Collection<String> getGeneratedTypes() {
+        return generatedTypes;
+    }
+
     public boolean isFullRebuildNeeded() {
         return fullRebuildCause != null;
     }
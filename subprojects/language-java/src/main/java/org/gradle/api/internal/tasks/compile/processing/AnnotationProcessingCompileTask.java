@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.processing;
+
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.ClassLoaderUtils;
+import org.gradle.internal.classpath.DefaultClassPath;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+
+import javax.annotation.processing.Processor;
+import javax.tools.JavaCompiler;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs the incremental annotation processors of a compilation itself, instead of leaving their discovery to the compiler,
+ * so that the types they generate can be tracked. The result is written to a file once compilation has finished.
+ */
+public class AnnotationProcessingCompileTask implements JavaCompiler.CompilationTask {
+    private final JavaCompiler.CompilationTask delegate;
+    private final List<AnnotationProcessorDeclaration> processors;
+    private final List<File> processorPath;
+    private final File resultFile;
+    private final List<Processor> additionalProcessors = new ArrayList<Processor>();
+
+    public AnnotationProcessingCompileTask(JavaCompiler.CompilationTask delegate, List<AnnotationProcessorDeclaration> processors, List<File> processorPath, File resultFile) {
+        this.delegate = delegate;
+        this.processors = processors;
+        this.processorPath = processorPath;
+        this.resultFile = resultFile;
+    }
+
+    /**
+     * Adds the given processors to the incremental processors this task runs. Their generated types cannot be tracked,
+     * so the next compilation will be a full recompilation.
+     */
+    @Override
+    public void setProcessors(Iterable<? extends Processor> processors) {
+        additionalProcessors.clear();
+        for (Processor processor : processors) {
+            additionalProcessors.add(processor);
+        }
+    }
+
+    @Override
+    public void setLocale(Locale locale) {
+        delegate.setLocale(locale);
+    }
+
+    @Override
+    public Boolean call() {
+        AnnotationProcessingResult result = new AnnotationProcessingResult();
+        URLClassLoader processorClassLoader = new URLClassLoader(DefaultClassPath.of(processorPath).getAsURLArray(), ClassLoaderUtils.getPlatformClassLoader());
+        try {
+            delegate.setProcessors(createProcessors(processorClassLoader, result));
+            return delegate.call();
+        } finally {
+            ClassLoaderUtils.tryClose(processorClassLoader);
+            writeResult(result.toData());
+        }
+    }
+
+    private List<Processor> createProcessors(ClassLoader processorClassLoader, AnnotationProcessingResult result) {
+        List<Processor> wrapped = new ArrayList<Processor>(processors.size() + additionalProcessors.size());
+        for (AnnotationProcessorDeclaration declaration : processors) {
+            Processor processor;
+            try {
+                processor = (Processor) processorClassLoader.loadClass(declaration.getClassName()).newInstance();
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Could not create annotation processor '" + declaration.getClassName() + "'.", e);
+            }
+            wrapped.add(new IncrementalProcessor(processor, declaration, result));
+        }
+        for (Processor processor : additionalProcessors) {
+            result.setFullRebuildCause("annotation processor '" + processor.getClass().getName() + "' is not incremental");
+            wrapped.add(processor);
+        }
+        return wrapped;
+    }
+
+    private void writeResult(AnnotationProcessingData data) {
+        try {
+            KryoBackedEncoder encoder = new KryoBackedEncoder(new FileOutputStream(resultFile));
+            try {
+                new AnnotationProcessingData.Serializer().write(encoder, data);
+            } finally {
+                encoder.close();
+            }
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+}
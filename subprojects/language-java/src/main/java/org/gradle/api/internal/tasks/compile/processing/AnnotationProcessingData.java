@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.processing;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.gradle.internal.serialize.AbstractSerializer;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.MapSerializer;
+import org.gradle.internal.serialize.SetSerializer;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.gradle.internal.serialize.BaseSerializerFactory.STRING_SERIALIZER;
+
+/**
+ * The types generated by incremental annotation processors, tracked back to the types they were generated from.
+ */
+public class AnnotationProcessingData {
+    public static final AnnotationProcessingData EMPTY = new AnnotationProcessingData(Collections.<String, Set<String>>emptyMap(), Collections.<String>emptySet(), Collections.<String>emptySet(), null);
+
+    private final Map<String, Set<String>> generatedTypesByOrigin;
+    private final Set<String> aggregatedTypes;
+    private final Set<String> aggregatingOrigins;
+    private final String fullRebuildCause;
+
+    public AnnotationProcessingData(Map<String, Set<String>> generatedTypesByOrigin, Set<String> aggregatedTypes, Set<String> aggregatingOrigins, @Nullable String fullRebuildCause) {
+        this.generatedTypesByOrigin = ImmutableMap.copyOf(generatedTypesByOrigin);
+        this.aggregatedTypes = ImmutableSet.copyOf(aggregatedTypes);
+        this.aggregatingOrigins = ImmutableSet.copyOf(aggregatingOrigins);
+        this.fullRebuildCause = fullRebuildCause;
+    }
+
+    /**
+     * The types generated by isolating processors from the given type.
+     */
+    public Set<String> getGeneratedTypesOriginatingFrom(String className) {
+        Set<String> generatedTypes = generatedTypesByOrigin.get(className);
+        return generatedTypes == null ? Collections.<String>emptySet() : generatedTypes;
+    }
+
+    /**
+     * The types generated by aggregating processors. These need to be generated again whenever any of the {@link #getAggregatingOrigins() origins} is recompiled.
+     */
+    public Set<String> getAggregatedTypes() {
+        return aggregatedTypes;
+    }
+
+    /**
+     * The types aggregating processors generated types from.
+     */
+    public Set<String> getAggregatingOrigins() {
+        return aggregatingOrigins;
+    }
+
+    /**
+     * The reason why the output of annotation processing cannot be updated incrementally, if any.
+     */
+    @Nullable
+    public String getFullRebuildCause() {
+        return fullRebuildCause;
+    }
+
+    /**
+     * Combines the data of a previous compilation with the data of an incremental compilation following it.
+     * Types that do not exist after the incremental compilation are dropped from the previous data, types generated
+     * again replace their previous origins.
+     */
+    public static AnnotationProcessingData merge(AnnotationProcessingData previous, AnnotationProcessingData current, Predicate<String> exists) {
+        if (current.fullRebuildCause != null) {
+            return current;
+        }
+        Set<String> regeneratedTypes = new LinkedHashSet<String>();
+        for (Set<String> generatedTypes : current.generatedTypesByOrigin.values()) {
+            regeneratedTypes.addAll(generatedTypes);
+        }
+        Map<String, Set<String>> generatedTypesByOrigin = new LinkedHashMap<String, Set<String>>();
+        for (Map.Entry<String, Set<String>> entry : previous.generatedTypesByOrigin.entrySet()) {
+            if (!exists.apply(entry.getKey())) {
+                continue;
+            }
+            Set<String> generatedTypes = new LinkedHashSet<String>();
+            for (String generatedType : entry.getValue()) {
+                if (exists.apply(generatedType) && !regeneratedTypes.contains(generatedType)) {
+                    generatedTypes.add(generatedType);
+                }
+            }
+            if (!generatedTypes.isEmpty()) {
+                generatedTypesByOrigin.put(entry.getKey(), generatedTypes);
+            }
+        }
+        for (Map.Entry<String, Set<String>> entry : current.generatedTypesByOrigin.entrySet()) {
+            Set<String> generatedTypes = generatedTypesByOrigin.get(entry.getKey());
+            if (generatedTypes == null) {
+                generatedTypesByOrigin.put(entry.getKey(), entry.getValue());
+            } else {
+                generatedTypes.addAll(entry.getValue());
+            }
+        }
+        return new AnnotationProcessingData(generatedTypesByOrigin, union(previous.aggregatedTypes, current.aggregatedTypes, exists), union(previous.aggregatingOrigins, current.aggregatingOrigins, exists), null);
+    }
+
+    private static Set<String> union(Set<String> previous, Set<String> current, Predicate<String> exists) {
+        Set<String> result = new LinkedHashSet<String>();
+        for (String className : previous) {
+            if (exists.apply(className)) {
+                result.add(className);
+            }
+        }
+        result.addAll(current);
+        return result;
+    }
+
+    public static class Serializer extends AbstractSerializer<AnnotationProcessingData> {
+        private final SetSerializer<String> typesSerializer = new SetSerializer<String>(STRING_SERIALIZER);
+        private final MapSerializer<String, Set<String>> generatedTypesSerializer = new MapSerializer<String, Set<String>>(STRING_SERIALIZER, typesSerializer);
+
+        @Override
+        public AnnotationProcessingData read(Decoder decoder) throws Exception {
+            Map<String, Set<String>> generatedTypesByOrigin = generatedTypesSerializer.read(decoder);
+            Set<String> aggregatedTypes = typesSerializer.read(decoder);
+            Set<String> aggregatingOrigins = typesSerializer.read(decoder);
+            String fullRebuildCause = decoder.readNullableString();
+            return new AnnotationProcessingData(generatedTypesByOrigin, aggregatedTypes, aggregatingOrigins, fullRebuildCause);
+        }
+
+        @Override
+        public void write(Encoder encoder, AnnotationProcessingData value) throws Exception {
+            generatedTypesSerializer.write(encoder, value.generatedTypesByOrigin);
+            typesSerializer.write(encoder, value.aggregatedTypes);
+            typesSerializer.write(encoder, value.aggregatingOrigins);
+            encoder.writeNullableString(value.fullRebuildCause);
+        }
+    }
+}
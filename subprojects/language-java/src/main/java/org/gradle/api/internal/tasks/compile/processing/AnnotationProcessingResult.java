@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.processing;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects the types generated by incremental annotation processors during a compilation.
+ */
+public class AnnotationProcessingResult {
+    private final Map<String, Set<String>> generatedTypesByOrigin = new LinkedHashMap<String, Set<String>>();
+    private final Set<String> aggregatedTypes = new LinkedHashSet<String>();
+    private final Set<String> aggregatingOrigins = new LinkedHashSet<String>();
+    private String fullRebuildCause;
+
+    public void addGeneratedType(String generatedType, String origin) {
+        Set<String> generatedTypes = generatedTypesByOrigin.get(origin);
+        if (generatedTypes == null) {
+            generatedTypes = new LinkedHashSet<String>();
+            generatedTypesByOrigin.put(origin, generatedTypes);
+        }
+        generatedTypes.add(generatedType);
+    }
+
+    public void addAggregatedType(String generatedType, Collection<String> origins) {
+        aggregatedTypes.add(generatedType);
+        aggregatingOrigins.addAll(origins);
+    }
+
+    public void setFullRebuildCause(String fullRebuildCause) {
+        if (this.fullRebuildCause == null) {
+            this.fullRebuildCause = fullRebuildCause;
+        }
+    }
+
+    public AnnotationProcessingData toData() {
+        return new AnnotationProcessingData(generatedTypesByOrigin, aggregatedTypes, aggregatingOrigins, fullRebuildCause);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.processing;
+
+/**
+ * The kinds of annotation processors, as far as incremental compilation is concerned.
+ *
+ * <p>Processors declare their kind in a {@code META-INF/gradle/incremental.annotation.processors} resource,
+ * with one {@code <processor class name>,<kind>} line per processor.</p>
+ */
+public enum IncrementalAnnotationProcessorType {
+    /**
+     * Generates each type from exactly one annotated type, so only needs to run again for changed types.
+     */
+    ISOLATING,
+    /**
+     * Aggregates several annotated types into its generated types, so needs to see all of them again when any of them changes.
+     */
+    AGGREGATING,
+    /**
+     * Does not support incremental processing.
+     */
+    UNKNOWN;
+
+    public boolean isIncremental() {
+        return this != UNKNOWN;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.processing;
+
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.FileObject;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A {@link Filer} that records the types an incremental annotation processor generates, together with the types they originate from.
+ */
+class IncrementalFiler implements Filer {
+    private final Filer delegate;
+    private final AnnotationProcessorDeclaration processor;
+    private final AnnotationProcessingResult result;
+
+    IncrementalFiler(Filer delegate, AnnotationProcessorDeclaration processor, AnnotationProcessingResult result) {
+        this.delegate = delegate;
+        this.processor = processor;
+        this.result = result;
+    }
+
+    @Override
+    public JavaFileObject createSourceFile(CharSequence name, Element... originatingElements) throws IOException {
+        recordGeneratedType(name, originatingElements);
+        return delegate.createSourceFile(name, originatingElements);
+    }
+
+    @Override
+    public JavaFileObject createClassFile(CharSequence name, Element... originatingElements) throws IOException {
+        recordGeneratedType(name, originatingElements);
+        return delegate.createClassFile(name, originatingElements);
+    }
+
+    @Override
+    public FileObject createResource(JavaFileManager.Location location, CharSequence pkg, CharSequence relativeName, Element... originatingElements) throws IOException {
+        // Resources are not cleaned up when their origins change
+        result.setFullRebuildCause("annotation processor '" + processor.getClassName() + "' generated resource '" + relativeName + "'");
+        return delegate.createResource(location, pkg, relativeName, originatingElements);
+    }
+
+    @Override
+    public FileObject getResource(JavaFileManager.Location location, CharSequence pkg, CharSequence relativeName) throws IOException {
+        return delegate.getResource(location, pkg, relativeName);
+    }
+
+    private void recordGeneratedType(CharSequence name, Element[] originatingElements) {
+        String generatedType = name.toString();
+        int moduleSeparator = generatedType.indexOf('/');
+        if (moduleSeparator >= 0) {
+            generatedType = generatedType.substring(moduleSeparator + 1);
+        }
+        Set<String> origins = new LinkedHashSet<String>();
+        for (Element element : originatingElements) {
+            TypeElement type = getTopLevelType(element);
+            if (type != null) {
+                origins.add(type.getQualifiedName().toString());
+            }
+        }
+        if (processor.getType() == IncrementalAnnotationProcessorType.AGGREGATING) {
+            result.addAggregatedType(generatedType, origins);
+        } else if (origins.size() == 1) {
+            result.addGeneratedType(generatedType, origins.iterator().next());
+        } else {
+            result.setFullRebuildCause("isolating annotation processor '" + processor.getClassName() + "' generated type '" + generatedType + "' from " + origins.size() + " originating types instead of exactly one");
+        }
+    }
+
+    private static TypeElement getTopLevelType(Element element) {
+        Element current = element;
+        while (current != null && current.getEnclosingElement() != null && current.getEnclosingElement().getKind() != ElementKind.PACKAGE) {
+            current = current.getEnclosingElement();
+        }
+        return current instanceof TypeElement ? (TypeElement) current : null;
+    }
+}
@@ -20,6 +20,8 @@ import org.gradle.api.InvalidUserDataException
 import org.gradle.api.file.FileCollection
 import org.gradle.api.internal.file.TestFiles
 import org.gradle.api.internal.file.collections.SimpleFileCollection
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessorDeclaration
+import org.gradle.api.internal.tasks.compile.processing.IncrementalAnnotationProcessorType
 import org.gradle.api.provider.ProviderFactory
 import org.gradle.api.tasks.compile.CompileOptions
 import org.gradle.cache.internal.TestFileContentCacheFactory
@@ -161,6 +163,38 @@ class AnnotationProcessorDetectorTest extends Specification {
         detector.getEffectiveAnnotationProcessorClasspath(options, cp).empty
     }
 
+    def "finds incremental processors in directories and jars in the order of the processor path"() {
+        given:
+        def dir = tmpDir.file("processor-dir")
+        dir.file("META-INF/services/javax.annotation.processing.Processor") << "# processors\ncom.foo.Isolating\ncom.foo.Unknown\n"
+        dir.file("META-INF/gradle/incremental.annotation.processors") << "com.foo.Isolating,isolating\n"
+        def jar = tmpDir.file("processor.jar")
+        jar << JarUtils.jarWithContents(
+            "META-INF/services/javax.annotation.processing.Processor": "com.bar.Aggregating",
+            "META-INF/gradle/incremental.annotation.processors": "com.bar.Aggregating,AGGREGATING")
+
+        expect:
+        detector.getEffectiveAnnotationProcessors(options, files(dir, jar)) == [
+            new AnnotationProcessorDeclaration("com.foo.Isolating", IncrementalAnnotationProcessorType.ISOLATING),
+            new AnnotationProcessorDeclaration("com.foo.Unknown", IncrementalAnnotationProcessorType.UNKNOWN),
+            new AnnotationProcessorDeclaration("com.bar.Aggregating", IncrementalAnnotationProcessorType.AGGREGATING)
+        ]
+    }
+
+    def "only uses processors given with -processor compiler arg"() {
+        given:
+        def dir = tmpDir.file("processor-dir")
+        dir.file("META-INF/services/javax.annotation.processing.Processor") << "com.foo.Isolating\ncom.foo.Other\n"
+        dir.file("META-INF/gradle/incremental.annotation.processors") << "com.foo.Isolating,isolating\n"
+        options.compilerArgs = ["-processor", "com.foo.Isolating,com.foo.Unregistered"]
+
+        expect:
+        detector.getEffectiveAnnotationProcessors(options, files(dir)) == [
+            new AnnotationProcessorDeclaration("com.foo.Isolating", IncrementalAnnotationProcessorType.ISOLATING),
+            new AnnotationProcessorDeclaration("com.foo.Unregistered", IncrementalAnnotationProcessorType.UNKNOWN)
+        ]
+    }
+
     FileCollection files(String... paths) {
         new SimpleFileCollection(paths.collect { tmpDir.file(it).createFile() })
     }
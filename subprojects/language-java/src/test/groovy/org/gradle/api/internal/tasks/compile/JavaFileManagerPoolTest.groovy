@@ -0,0 +1,213 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile
+
+import org.gradle.internal.hash.FileHasher
+import org.gradle.internal.hash.HashCode
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import javax.tools.JavaCompiler
+import javax.tools.StandardJavaFileManager
+import javax.tools.StandardLocation
+import java.nio.charset.Charset
+
+class JavaFileManagerPoolTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def compiler = Mock(JavaCompiler)
+    def fileHasher = Stub(FileHasher) {
+        hash(_) >> { File file -> HashCode.fromInt(file.text.hashCode()) }
+    }
+    def pool = new JavaFileManagerPool(fileHasher, 2)
+    def jar = tmpDir.file("lib.jar") << "jar"
+
+    def "reuses released file manager"() {
+        def fileManager = Mock(StandardJavaFileManager)
+
+        when:
+        def first = pool.acquire(compiler, null, [], [jar])
+        first.release()
+        def second = pool.acquire(compiler, null, [], [jar])
+
+        then:
+        1 * compiler.getStandardFileManager(null, null, null) >> fileManager
+        1 * fileManager.flush()
+        second.fileManager.is(fileManager)
+        0 * fileManager.close()
+    }
+
+    def "does not share file manager between concurrent compilations"() {
+        when:
+        def first = pool.acquire(compiler, null, [], [jar])
+        def second = pool.acquire(compiler, null, [], [jar])
+
+        then:
+        2 * compiler.getStandardFileManager(null, null, null) >> { Mock(StandardJavaFileManager) }
+        !first.fileManager.is(second.fileManager)
+    }
+
+    def "does not reuse file manager for a different charset"() {
+        def charset = Charset.forName("UTF-8")
+
+        when:
+        pool.acquire(compiler, null, [], [jar]).release()
+        pool.acquire(compiler, charset, [], [jar])
+
+        then:
+        1 * compiler.getStandardFileManager(null, null, null) >> Mock(StandardJavaFileManager)
+        1 * compiler.getStandardFileManager(null, null, charset) >> Mock(StandardJavaFileManager)
+    }
+
+    def "closes file manager that has seen an archive that changed since"() {
+        def fileManager = Mock(StandardJavaFileManager)
+        def freshFileManager = Mock(StandardJavaFileManager)
+
+        when:
+        pool.acquire(compiler, null, [], [jar]).release()
+        jar << "changed"
+        def lease = pool.acquire(compiler, null, [], [jar])
+
+        then:
+        2 * compiler.getStandardFileManager(null, null, null) >>> [fileManager, freshFileManager]
+        1 * fileManager.close()
+        lease.fileManager.is(freshFileManager)
+    }
+
+    def "closes discarded file manager"() {
+        def fileManager = Mock(StandardJavaFileManager)
+
+        when:
+        pool.acquire(compiler, null, [], [jar]).discard()
+        pool.acquire(compiler, null, [], [jar])
+
+        then:
+        2 * compiler.getStandardFileManager(null, null, null) >>> [fileManager, Mock(StandardJavaFileManager)]
+        1 * fileManager.close()
+    }
+
+    def "closes released file manager when pool is full"() {
+        def fileManagers = (1..3).collect { Mock(StandardJavaFileManager) }
+        compiler.getStandardFileManager(null, null, null) >>> fileManagers
+
+        when:
+        def leases = (1..3).collect { pool.acquire(compiler, null, [], [jar]) }
+        leases*.release()
+
+        then:
+        0 * fileManagers[0].close()
+        0 * fileManagers[1].close()
+        1 * fileManagers[2].close()
+    }
+
+    def "resets every location before reuse"() {
+        def fileManager = Mock(StandardJavaFileManager)
+        compiler.getStandardFileManager(null, null, null) >> fileManager
+
+        when:
+        pool.acquire(compiler, null, [], [jar]).release()
+        pool.acquire(compiler, null, [], [jar])
+
+        then:
+        interaction {
+            StandardLocation.values().each { location ->
+                1 * fileManager.setLocation(location, null)
+            }
+        }
+    }
+
+    def "reuses file manager when a location cannot be reset"() {
+        def fileManager = Mock(StandardJavaFileManager)
+
+        when:
+        pool.acquire(compiler, null, [], [jar]).release()
+        def lease = pool.acquire(compiler, null, [], [jar])
+
+        then:
+        1 * compiler.getStandardFileManager(null, null, null) >> fileManager
+        1 * fileManager.setLocation(StandardLocation.PLATFORM_CLASS_PATH, null) >> { throw new IllegalArgumentException() }
+        lease.fileManager.is(fileManager)
+    }
+
+    def "does not reuse file manager for different location options"() {
+        when:
+        pool.acquire(compiler, null, ["-classpath", "a.jar", "--system", "jdk1"], [jar]).release()
+        pool.acquire(compiler, null, ["-classpath", "b.jar", "--system", "jdk1"], [jar]).release()
+        pool.acquire(compiler, null, ["--system", "jdk2"], [jar])
+        pool.acquire(compiler, null, ["-Xbootclasspath/p:patch.jar"], [jar])
+
+        then:
+        3 * compiler.getStandardFileManager(null, null, null) >> { Mock(StandardJavaFileManager) }
+    }
+
+    def "reuses file manager when archive was touched without changing its content"() {
+        def fileManager = Mock(StandardJavaFileManager)
+
+        when:
+        pool.acquire(compiler, null, [], [jar]).release()
+        jar.lastModified = jar.lastModified() - 10000
+        def lease = pool.acquire(compiler, null, [], [jar])
+
+        then:
+        1 * compiler.getStandardFileManager(null, null, null) >> fileManager
+        0 * fileManager.close()
+        lease.fileManager.is(fileManager)
+    }
+
+    def "closes idle file managers when closed"() {
+        def idle = Mock(StandardJavaFileManager)
+        def inUse = Mock(StandardJavaFileManager)
+        compiler.getStandardFileManager(null, null, null) >>> [idle, inUse]
+
+        when:
+        def first = pool.acquire(compiler, null, [], [jar])
+        pool.acquire(compiler, null, [], [jar])
+        first.release()
+        pool.close()
+
+        then:
+        1 * idle.close()
+        0 * inUse.close()
+    }
+
+    def "compiler daemons share a pool that discards file managers when the timestamp of an archive changes"() {
+        def fileManager = Mock(StandardJavaFileManager)
+        def freshFileManager = Mock(StandardJavaFileManager)
+        def daemonPool = JavaFileManagerPool.forCompilerDaemon()
+
+        when:
+        daemonPool.acquire(compiler, null, [], [jar]).release()
+        def lease = JavaFileManagerPool.forCompilerDaemon().acquire(compiler, null, [], [jar])
+
+        then:
+        1 * compiler.getStandardFileManager(null, null, null) >> fileManager
+        lease.fileManager.is(fileManager)
+
+        when:
+        lease.release()
+        jar.lastModified = jar.lastModified() - 10000
+        lease = daemonPool.acquire(compiler, null, [], [jar])
+
+        then:
+        1 * compiler.getStandardFileManager(null, null, null) >> freshFileManager
+        1 * fileManager.close()
+        lease.fileManager.is(freshFileManager)
+
+        cleanup:
+        daemonPool.close()
+    }
+}
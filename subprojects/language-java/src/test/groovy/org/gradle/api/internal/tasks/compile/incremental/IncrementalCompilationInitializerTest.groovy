@@ -18,9 +18,17 @@
 
 package org.gradle.api.internal.tasks.compile.incremental
 
+import org.gradle.api.file.ConfigurableFileTree
+import org.gradle.api.file.FileCollection
+import org.gradle.api.file.FileTree
 import org.gradle.api.internal.file.FileOperations
+import org.gradle.api.internal.file.FileResolver
+import org.gradle.api.internal.provider.DefaultProviderFactory
+import org.gradle.api.internal.tasks.compile.DefaultJavaCompileSpec
 import org.gradle.api.internal.tasks.compile.JavaCompileSpec
+import org.gradle.api.tasks.compile.CompileOptions
 import org.gradle.api.tasks.util.PatternSet
+import org.gradle.internal.Factory
 import spock.lang.Specification
 import spock.lang.Subject
 
@@ -55,9 +63,69 @@ class IncrementalCompilationInitializerTest extends Specification {
 
     def "configures empty source when stale classes empty"() {
         def compileSpec = Mock(JavaCompileSpec)
-        when: initializer.initializeCompilation(compileSpec, [])
+        when: initializer.initializeCompilation(compileSpec, [], [])
         then:
         1 * compileSpec.setSource { it.files.empty }
         0 * _
     }
+
+    def "deletes stale generated sources from generated sources directory"() {
+        def destinationDir = new File("classes")
+        def generatedSourcesDir = new File("generated")
+        def compileSpec = compileSpec(destinationDir)
+        compileSpec.compileOptions.annotationProcessorGeneratedSourcesDirectory = generatedSourcesDir
+        def deleted = []
+        fileOperations.delete(*_) >> { deleted.addAll(it[0] as List) }
+
+        when:
+        initializer.initializeCompilation(compileSpec, ["org.Foo", "org.FooGen"], ["org.FooGen"])
+
+        then:
+        deleted.contains(new File(generatedSourcesDir, "org/FooGen.java"))
+        !deleted.contains(new File(destinationDir, "org/FooGen.java"))
+    }
+
+    def "deletes stale generated sources next to the classes when there is no generated sources directory"() {
+        def destinationDir = new File("classes")
+        def compileSpec = compileSpec(destinationDir)
+        def deleted = []
+        fileOperations.delete(*_) >> { deleted.addAll(it[0] as List) }
+
+        when:
+        initializer.initializeCompilation(compileSpec, ["org.Foo", "org.FooGen"], ["org.FooGen"])
+
+        then:
+        deleted.contains(new File(destinationDir, "org/FooGen.java"))
+    }
+
+    def "does not delete sources when no generated types are stale"() {
+        def compileSpec = compileSpec(new File("classes"))
+        def deleted = []
+        fileOperations.delete(*_) >> { deleted.addAll(it[0] as List) }
+
+        when:
+        initializer.initializeCompilation(compileSpec, ["org.Foo"], [])
+
+        then:
+        deleted.size() == 1
+        deleted[0] instanceof FileTree
+    }
+
+    private JavaCompileSpec compileSpec(File destinationDir) {
+        def patternSetFactory = Stub(Factory) {
+            create() >> { new PatternSet() }
+        }
+        fileOperations.getFileResolver() >> Stub(FileResolver) {
+            getPatternSetFactory() >> patternSetFactory
+        }
+        fileOperations.fileTree(destinationDir) >> Stub(ConfigurableFileTree)
+        def compileSpec = new DefaultJavaCompileSpec()
+        compileSpec.compileOptions = new CompileOptions(new DefaultProviderFactory())
+        compileSpec.destinationDir = destinationDir
+        compileSpec.compileClasspath = []
+        compileSpec.source = Stub(FileCollection) {
+            getAsFileTree() >> Stub(FileTree)
+        }
+        compileSpec
+    }
 }
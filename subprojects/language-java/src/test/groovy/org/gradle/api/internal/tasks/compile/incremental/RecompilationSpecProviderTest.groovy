@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental
+
+import org.gradle.api.file.FileCollection
+import org.gradle.api.internal.file.FileOperations
+import org.gradle.api.internal.tasks.compile.incremental.deps.DependencyToAll
+import org.gradle.api.internal.tasks.compile.incremental.jar.JarClasspathSnapshot
+import org.gradle.api.internal.tasks.compile.incremental.jar.PreviousCompilation
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessingData
+import org.gradle.api.tasks.incremental.IncrementalTaskInputs
+import org.gradle.api.tasks.incremental.InputFileDetails
+import spock.lang.Specification
+import spock.lang.Subject
+
+import static org.gradle.api.internal.tasks.compile.incremental.deps.DefaultDependentsSet.dependents
+
+class RecompilationSpecProviderTest extends Specification {
+    def sourceToNameConverter = Stub(SourceToNameConverter)
+    def annotationProcessorPath = Stub(FileCollection) {
+        getFiles() >> ([new File("processor.jar")] as Set)
+    }
+    def previousCompilation = Stub(PreviousCompilation) {
+        getJarSnapshots() >> [:]
+    }
+    def jarClasspathSnapshot = Stub(JarClasspathSnapshot) {
+        getJars() >> ([] as Set)
+    }
+    @Subject provider = new RecompilationSpecProvider(sourceToNameConverter, Stub(FileOperations), annotationProcessorPath)
+
+    def "recompiles types generated from changed source and their dependents"() {
+        processingData(["org.Foo": ["org.FooGen"] as Set, "org.Bar": ["org.BarGen"] as Set])
+        previousCompilation.getDependents("org.FooGen", _) >> dependents("org.UsesFooGen")
+
+        when:
+        def spec = provider.provideRecompilationSpec(changed("org.Foo"), previousCompilation, jarClasspathSnapshot)
+
+        then:
+        spec.fullRebuildCause == null
+        spec.classNames as Set == ["org.Foo", "org.FooGen", "org.UsesFooGen"] as Set
+        spec.generatedTypes as Set == ["org.FooGen"] as Set
+    }
+
+    def "recompiles types generated from dependents of changed source"() {
+        processingData(["org.Bar": ["org.BarGen"] as Set])
+        previousCompilation.getDependents("org.Foo", _) >> dependents("org.Bar")
+
+        when:
+        def spec = provider.provideRecompilationSpec(changed("org.Foo"), previousCompilation, jarClasspathSnapshot)
+
+        then:
+        spec.classNames as Set == ["org.Foo", "org.Bar", "org.BarGen"] as Set
+        spec.generatedTypes as Set == ["org.BarGen"] as Set
+    }
+
+    def "recompiles all origins of aggregated types"() {
+        previousCompilation.getAnnotationProcessingData() >> new AnnotationProcessingData([:], ["org.Index"] as Set, ["org.Foo", "org.Bar"] as Set, null)
+
+        when:
+        def spec = provider.provideRecompilationSpec(changed("org.Baz"), previousCompilation, jarClasspathSnapshot)
+
+        then:
+        spec.classNames as Set == ["org.Baz", "org.Foo", "org.Bar", "org.Index"] as Set
+        spec.generatedTypes as Set == ["org.Index"] as Set
+    }
+
+    def "fully rebuilds when a stale generated type is a dependency to all classes"() {
+        processingData(["org.Foo": ["org.FooGen"] as Set])
+        previousCompilation.getDependents("org.FooGen", _) >> new DependencyToAll("org.FooGen declares a constant")
+
+        when:
+        def spec = provider.provideRecompilationSpec(changed("org.Foo"), previousCompilation, jarClasspathSnapshot)
+
+        then:
+        spec.fullRebuildCause == "org.FooGen declares a constant"
+    }
+
+    def "fully rebuilds when annotation processor path changes"() {
+        processingData([:])
+
+        when:
+        def spec = provider.provideRecompilationSpec(changed(new File("processor.jar")), previousCompilation, jarClasspathSnapshot)
+
+        then:
+        spec.fullRebuildCause == "annotation processor path has been changed"
+    }
+
+    private void processingData(Map<String, Set<String>> generatedTypes) {
+        previousCompilation.getAnnotationProcessingData() >> new AnnotationProcessingData(generatedTypes, [] as Set, [] as Set, null)
+    }
+
+    private IncrementalTaskInputs changed(String className) {
+        def source = new File(className.replace('.', '/') + ".java")
+        sourceToNameConverter.getClassName(source) >> className
+        changed(source)
+    }
+
+    private IncrementalTaskInputs changed(File file) {
+        def details = Stub(InputFileDetails) {
+            getFile() >> file
+        }
+        Stub(IncrementalTaskInputs) {
+            outOfDate(_) >> { it[0].execute(details) }
+        }
+    }
+}
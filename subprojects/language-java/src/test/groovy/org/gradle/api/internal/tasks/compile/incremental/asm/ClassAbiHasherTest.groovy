@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.incremental.asm
+
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import spock.lang.Specification
+
+class ClassAbiHasherTest extends Specification {
+
+    def "ignores changes to method bodies and private members"() {
+        def original = hash(classWith(Opcodes.ACC_PUBLIC, "foo", 1))
+
+        expect:
+        hash(classWith(Opcodes.ACC_PUBLIC, "foo", 2)) == original
+        hash(classWith(Opcodes.ACC_PUBLIC, "foo", 1, Opcodes.ACC_PRIVATE, "helper")) == original
+    }
+
+    def "detects changes to the signatures of non-private members"() {
+        def original = hash(classWith(Opcodes.ACC_PUBLIC, "foo", 1))
+
+        expect:
+        hash(classWith(Opcodes.ACC_PUBLIC, "bar", 1)) != original
+        hash(classWith(Opcodes.ACC_PROTECTED, "foo", 1)) != original
+        hash(classWith(Opcodes.ACC_PUBLIC, "foo", 1, 0, "helper")) != original
+    }
+
+    def "ABI is unknown for classes that cannot be read"() {
+        expect:
+        ClassAbiHasher.hash(new byte[0]) == null
+        ClassAbiHasher.hash("not a class".bytes) == null
+    }
+
+    private static hash(byte[] bytes) {
+        ClassAbiHasher.hash(bytes)
+    }
+
+    private static byte[] classWith(int access, String methodName, int returnValue, int extraAccess = -1, String extraMethodName = null) {
+        def cw = new ClassWriter(ClassWriter.COMPUTE_MAXS)
+        cw.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC, "org/gradle/Foo", null, "java/lang/Object", null)
+        method(cw, access, methodName, returnValue)
+        if (extraMethodName != null) {
+            method(cw, extraAccess, extraMethodName, 0)
+        }
+        cw.visitEnd()
+        cw.toByteArray()
+    }
+
+    private static void method(ClassWriter cw, int access, String name, int returnValue) {
+        def mv = cw.visitMethod(access, name, "()I", null, null)
+        mv.visitCode()
+        mv.visitLdcInsn(returnValue)
+        mv.visitInsn(Opcodes.IRETURN)
+        mv.visitMaxs(0, 0)
+        mv.visitEnd()
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.tasks.compile.incremental.deps
 
+import org.gradle.api.internal.tasks.compile.processing.AnnotationProcessingData
 import org.gradle.internal.serialize.InputStreamBackedDecoder
 import org.gradle.internal.serialize.OutputStreamBackedEncoder
 import spock.lang.Specification
@@ -43,17 +44,52 @@ class ClassSetAnalysisDataSerializerTest extends Specification {
         ClassSetAnalysisData read = serializer.read(new InputStreamBackedDecoder(new ByteArrayInputStream(os.toByteArray())))
 
         then:
-        read.dependents.keySet() == data.dependents.keySet()
-
         ["A", "B", "C"].each {
-            assert read.dependents[it].dependentClasses == data.dependents[it].dependentClasses
-            assert read.dependents[it].dependencyToAll == data.dependents[it].dependencyToAll
+            assert read.getDependents(it).dependentClasses == data.getDependents(it).dependentClasses
+            assert read.getDependents(it).dependencyToAll == data.getDependents(it).dependencyToAll
         }
 
-        read.dependents["D"] instanceof DependencyToAll
-        read.filePathToClassName == ["A.class": "A", "B.class": "B"]
-        read.classesToConstants == [C: [1,2] as Set, D: [] as Set]
-        read.literalsToClasses == [3: ['A', 'B'] as Set, 4: ['D'] as Set]
-        read.classesToChildren == ['A': ['SA'] as Set, B: ['SB1', 'SB2'] as Set]
+        read.getDependents("D") instanceof DependencyToAll
+        read.getDependents("SA") == null
+        read.getClassNameForFile("A.class") == "A"
+        read.getClassNameForFile("B.class") == "B"
+        read.getConstants("C") == [1, 2] as Set
+        read.getConstants("D") == [] as Set
+        read.getClassesForLiteral(3) == ['A', 'B'] as Set
+        read.getClassesForLiteral(4) == ['D'] as Set
+        read.getChildren("A") == ['SA'] as Set
+        read.getChildren("B") == ['SB1', 'SB2'] as Set
+    }
+
+    def "keeps description of dependency to all"() {
+        def data = new ClassSetAnalysisData([:], ["A": new DependencyToAll("reason")], [:], [:], [:])
+        def os = new ByteArrayOutputStream()
+        def e = new OutputStreamBackedEncoder(os)
+
+        when:
+        serializer.write(e, data)
+        ClassSetAnalysisData read = serializer.read(new InputStreamBackedDecoder(new ByteArrayInputStream(os.toByteArray())))
+
+        then:
+        read.getDependents("A").dependencyToAll
+        read.getDependents("A").description == "reason"
+    }
+
+    def "keeps types generated by annotation processors"() {
+        def processingData = new AnnotationProcessingData(["A": ["AGen"] as Set], ["Index"] as Set, ["B"] as Set, null)
+        def data = new ClassSetAnalysisData(["A.class": "A"], [:], [:], [:], [:]).withAnnotationProcessingData(processingData)
+        def os = new ByteArrayOutputStream()
+        def e = new OutputStreamBackedEncoder(os)
+
+        when:
+        serializer.write(e, data)
+        ClassSetAnalysisData read = serializer.read(new InputStreamBackedDecoder(new ByteArrayInputStream(os.toByteArray())))
+
+        then:
+        read.annotationProcessingData.getGeneratedTypesOriginatingFrom("A") == ["AGen"] as Set
+        read.annotationProcessingData.aggregatedTypes == ["Index"] as Set
+        read.annotationProcessingData.aggregatingOrigins == ["B"] as Set
+        read.annotationProcessingData.fullRebuildCause == null
+        read.getClassNameForFile("A.class") == "A"
     }
 }
@@ -19,17 +19,22 @@
 package org.gradle.api.internal.tasks.compile.incremental.jar
 
 import org.gradle.api.file.FileTree
+import org.gradle.api.file.FileTreeElement
 import org.gradle.api.file.FileVisitor
 import org.gradle.api.internal.file.DefaultFileVisitDetails
 import org.gradle.api.internal.file.collections.DefaultDirectoryFileTreeFactory
 import org.gradle.api.internal.file.collections.FileTreeAdapter
 import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer
+import org.gradle.api.internal.tasks.compile.incremental.asm.ClassAbiHasher
 import org.gradle.api.internal.tasks.compile.incremental.deps.ClassAnalysis
 import org.gradle.internal.hash.HashCode
 import org.gradle.internal.hash.StreamHasher
+import org.gradle.internal.operations.TestBuildOperationExecutor
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.util.UsesNativeServices
 import org.junit.Rule
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
 import spock.lang.Specification
 import spock.lang.Subject
 
@@ -40,7 +45,8 @@ class DefaultJarSnapshotterTest extends Specification {
 
     def hasher = Mock(StreamHasher)
     def classDependenciesAnalyzer = Mock(ClassDependenciesAnalyzer)
-    @Subject snapshotter = new DefaultJarSnapshotter(hasher, classDependenciesAnalyzer)
+    def buildOperationExecutor = new TestBuildOperationExecutor()
+    @Subject snapshotter = new DefaultJarSnapshotter(hasher, classDependenciesAnalyzer, buildOperationExecutor)
 
     def "creates snapshot for an empty jar"() {
         expect:
@@ -71,17 +77,66 @@ class DefaultJarSnapshotterTest extends Specification {
             visitor.visitFile(new DefaultFileVisitDetails(f3, null, null))
         }
         1 * hasher.hash(_) >> f1Hash
-        1 * classDependenciesAnalyzer.getClassAnalysis(f1Hash, f1Details) >> Stub(ClassAnalysis) {
+        1 * classDependenciesAnalyzer.getClassAnalysis(f1Hash, { it.relativePath == f1Details.relativePath }) >> Stub(ClassAnalysis) {
             getClassName() >> "Foo"
         }
         1 * hasher.hash(_) >> f2Hash
-        1 * classDependenciesAnalyzer.getClassAnalysis(f2Hash, f2Details) >> Stub(ClassAnalysis) {
+        1 * classDependenciesAnalyzer.getClassAnalysis(f2Hash, { it.relativePath == f2Details.relativePath }) >> Stub(ClassAnalysis) {
             getClassName() >> "com.Foo2"
         }
         0 * _._
 
         and:
+        // Not valid class files, so their ABI is not known
         snapshot.hashes == ["Foo": f1Hash, "com.Foo2": f2Hash]
         snapshot.analysis
     }
+
+    def "uses ABI hash of classes that can be read"() {
+        def classFile = temp.file("foo/Foo.class")
+        def classWriter = new ClassWriter(0)
+        classWriter.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC, "Foo", null, "java/lang/Object", null)
+        classWriter.visitEnd()
+        classFile.bytes = classWriter.toByteArray()
+        def jarFileTree = Mock(FileTree)
+        hasher.hash(_) >> HashCode.fromInt(1)
+        classDependenciesAnalyzer.getClassAnalysis(_, _) >> Stub(ClassAnalysis) {
+            getClassName() >> "Foo"
+        }
+
+        when:
+        def snapshot = snapshotter.createSnapshot(HashCode.fromInt(123), new JarArchive(temp.file("foo"), jarFileTree))
+
+        then:
+        1 * jarFileTree.visit(_) >> { FileVisitor visitor ->
+            visitor.visitFile(new DefaultFileVisitDetails(classFile, null, null))
+        }
+
+        and:
+        snapshot.hashes == ["Foo": ClassAbiHasher.hash(classFile.bytes)]
+        snapshot.hashes["Foo"] != HashCode.fromInt(1)
+    }
+
+    def "analyses classes of large jars in parallel shards"() {
+        def details = (0..<1000).collect { new DefaultFileVisitDetails(temp.createFile("foo/Foo${it}.class"), null, null) }
+        def jarFileTree = Mock(FileTree)
+        hasher.hash(_) >> { InputStream input -> HashCode.fromInt(input.available()) }
+        classDependenciesAnalyzer.getClassAnalysis(_, _) >> { HashCode hash, FileTreeElement classFile ->
+            Stub(ClassAnalysis) {
+                getClassName() >> classFile.name - ".class"
+            }
+        }
+
+        when:
+        def snapshot = snapshotter.createSnapshot(HashCode.fromInt(123), new JarArchive(temp.file("foo"), jarFileTree))
+
+        then:
+        1 * jarFileTree.visit(_) >> { FileVisitor visitor ->
+            details.each { visitor.visitFile(it) }
+        }
+
+        and:
+        snapshot.hashes.size() == 1000
+        buildOperationExecutor.operations*.displayName == ["Analyze 512 classes of foo", "Analyze 488 classes of foo"]
+    }
 }
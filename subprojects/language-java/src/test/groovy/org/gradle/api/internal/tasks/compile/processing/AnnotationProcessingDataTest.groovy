@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.processing
+
+import com.google.common.base.Predicate
+import spock.lang.Specification
+
+class AnnotationProcessingDataTest extends Specification {
+
+    def "merges types generated by an incremental compilation into the previous data"() {
+        def previous = new AnnotationProcessingData(["A": ["AGen"] as Set, "B": ["BGen"] as Set, "C": ["CGen"] as Set], ["Index"] as Set, ["A", "Removed"] as Set, null)
+        def current = new AnnotationProcessingData(["B": ["BGen2"] as Set], [] as Set, ["B"] as Set, null)
+
+        when:
+        def merged = AnnotationProcessingData.merge(previous, current, exists("A", "AGen", "B", "BGen2", "C", "Index"))
+
+        then:
+        merged.getGeneratedTypesOriginatingFrom("A") == ["AGen"] as Set
+        merged.getGeneratedTypesOriginatingFrom("B") == ["BGen2"] as Set
+        merged.getGeneratedTypesOriginatingFrom("C").empty
+        merged.aggregatedTypes == ["Index"] as Set
+        merged.aggregatingOrigins == ["A", "B"] as Set
+        merged.fullRebuildCause == null
+    }
+
+    def "uses current data when it requires a full rebuild"() {
+        def previous = new AnnotationProcessingData(["A": ["AGen"] as Set], [] as Set, [] as Set, null)
+        def current = new AnnotationProcessingData([:], [] as Set, [] as Set, "reason")
+
+        expect:
+        AnnotationProcessingData.merge(previous, current, exists("A", "AGen")).is(current)
+    }
+
+    private static Predicate<String> exists(String... classNames) {
+        def names = classNames as Set
+        return { String name -> names.contains(name) } as Predicate<String>
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.processing
+
+import spock.lang.Specification
+
+import javax.annotation.processing.Filer
+import javax.lang.model.element.Element
+import javax.lang.model.element.ElementKind
+import javax.lang.model.element.Name
+import javax.lang.model.element.PackageElement
+import javax.lang.model.element.TypeElement
+import javax.tools.StandardLocation
+
+import static org.gradle.api.internal.tasks.compile.processing.IncrementalAnnotationProcessorType.AGGREGATING
+import static org.gradle.api.internal.tasks.compile.processing.IncrementalAnnotationProcessorType.ISOLATING
+
+class IncrementalFilerTest extends Specification {
+    def delegate = Mock(Filer)
+    def result = new AnnotationProcessingResult()
+
+    def "records type generated by isolating processor from its originating type"() {
+        def filer = filer(ISOLATING)
+
+        when:
+        filer.createSourceFile("org.FooGen", type("org.Foo"))
+        filer.createClassFile("org.BarGen", type("org.Bar"))
+
+        then:
+        1 * delegate.createSourceFile("org.FooGen", _)
+        1 * delegate.createClassFile("org.BarGen", _)
+        data.getGeneratedTypesOriginatingFrom("org.Foo") == ["org.FooGen"] as Set
+        data.getGeneratedTypesOriginatingFrom("org.Bar") == ["org.BarGen"] as Set
+        data.fullRebuildCause == null
+    }
+
+    def "records top level type of a nested originating element"() {
+        def foo = type("org.Foo")
+        def method = Stub(Element) {
+            getEnclosingElement() >> foo
+            getKind() >> ElementKind.METHOD
+        }
+
+        when:
+        filer(ISOLATING).createSourceFile("org.FooGen", method)
+
+        then:
+        data.getGeneratedTypesOriginatingFrom("org.Foo") == ["org.FooGen"] as Set
+    }
+
+    def "strips module name from generated type"() {
+        when:
+        filer(ISOLATING).createSourceFile("my.module/org.FooGen", type("org.Foo"))
+
+        then:
+        data.getGeneratedTypesOriginatingFrom("org.Foo") == ["org.FooGen"] as Set
+    }
+
+    def "isolating processor generating a type from #description requires a full rebuild"() {
+        when:
+        filer(ISOLATING).createSourceFile("org.Gen", *origins.collect { type(it) })
+
+        then:
+        data.fullRebuildCause == "isolating annotation processor 'org.Processor' generated type 'org.Gen' from ${origins.size()} originating types instead of exactly one"
+
+        where:
+        description            | origins
+        "no originating type"  | []
+        "two originating types" | ["org.Foo", "org.Bar"]
+    }
+
+    def "records types generated by aggregating processor with all originating types"() {
+        def filer = filer(AGGREGATING)
+
+        when:
+        filer.createSourceFile("org.Index", type("org.Foo"), type("org.Bar"))
+        filer.createSourceFile("org.OtherIndex")
+
+        then:
+        data.aggregatedTypes == ["org.Index", "org.OtherIndex"] as Set
+        data.aggregatingOrigins == ["org.Foo", "org.Bar"] as Set
+        data.getGeneratedTypesOriginatingFrom("org.Foo").empty
+        data.fullRebuildCause == null
+    }
+
+    def "generating a resource requires a full rebuild"() {
+        when:
+        filer(ISOLATING).createResource(StandardLocation.CLASS_OUTPUT, "org", "foo.txt", type("org.Foo"))
+
+        then:
+        1 * delegate.createResource(StandardLocation.CLASS_OUTPUT, "org", "foo.txt", _)
+        data.fullRebuildCause == "annotation processor 'org.Processor' generated resource 'foo.txt'"
+    }
+
+    def "reading a resource does not require a full rebuild"() {
+        when:
+        filer(AGGREGATING).getResource(StandardLocation.CLASS_OUTPUT, "org", "foo.txt")
+
+        then:
+        1 * delegate.getResource(StandardLocation.CLASS_OUTPUT, "org", "foo.txt")
+        data.fullRebuildCause == null
+    }
+
+    private IncrementalFiler filer(IncrementalAnnotationProcessorType type) {
+        new IncrementalFiler(delegate, new AnnotationProcessorDeclaration("org.Processor", type), result)
+    }
+
+    private AnnotationProcessingData getData() {
+        result.toData()
+    }
+
+    private TypeElement type(String qualifiedName) {
+        def pkg = Stub(PackageElement) {
+            getKind() >> ElementKind.PACKAGE
+        }
+        def name = Stub(Name) {
+            toString() >> qualifiedName
+        }
+        Stub(TypeElement) {
+            getEnclosingElement() >> pkg
+            getKind() >> ElementKind.CLASS
+            getQualifiedName() >> name
+        }
+    }
+}
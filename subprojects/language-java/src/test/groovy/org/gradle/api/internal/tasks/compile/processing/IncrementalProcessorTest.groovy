@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.compile.processing
+
+import spock.lang.Specification
+
+import javax.annotation.processing.AbstractProcessor
+import javax.annotation.processing.Filer
+import javax.annotation.processing.ProcessingEnvironment
+import javax.annotation.processing.RoundEnvironment
+import javax.lang.model.element.TypeElement
+
+class IncrementalProcessorTest extends Specification {
+    def filer = Stub(Filer)
+    def environment = Stub(ProcessingEnvironment) {
+        getFiler() >> filer
+    }
+    def result = new AnnotationProcessingResult()
+    def declaration = new AnnotationProcessorDeclaration(RecordingProcessor.name, IncrementalAnnotationProcessorType.ISOLATING)
+
+    def "initializes processor with a tracking filer"() {
+        def processor = new RecordingProcessor()
+
+        when:
+        new IncrementalProcessor(processor, declaration, result).init(environment)
+
+        then:
+        processor.environment != environment
+        processor.environment.filer instanceof IncrementalFiler
+        result.toData().fullRebuildCause == null
+    }
+
+    def "gives compiler's environment to a new instance of a processor that cannot use the tracking environment"() {
+        def processor = new CastingProcessor()
+        def incrementalProcessor = new IncrementalProcessor(processor, declaration, result)
+
+        when:
+        incrementalProcessor.init(environment)
+        incrementalProcessor.process([] as Set, Stub(RoundEnvironment))
+
+        then:
+        CastingProcessor.initialized == [environment]
+        result.toData().fullRebuildCause == "annotation processor '${RecordingProcessor.name}' requires the compiler's own processing environment"
+    }
+
+    static class RecordingProcessor extends AbstractProcessor {
+        ProcessingEnvironment environment
+
+        @Override
+        synchronized void init(ProcessingEnvironment processingEnv) {
+            super.init(processingEnv)
+            environment = processingEnv
+        }
+
+        @Override
+        boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            return false
+        }
+    }
+
+    static class CastingProcessor extends AbstractProcessor {
+        static List<ProcessingEnvironment> initialized = []
+
+        @Override
+        synchronized void init(ProcessingEnvironment processingEnv) {
+            super.init(processingEnv)
+            if (processingEnv.getClass().name.contains("IncrementalProcessingEnvironment")) {
+                throw new ClassCastException("Not the compiler's processing environment")
+            }
+            initialized << processingEnv
+        }
+
+        @Override
+        boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            assert processingEnv != null
+            return false
+        }
+    }
+}
@@ -36,6 +36,7 @@ import org.gradle.launcher.daemon.configuration.DefaultDaemonServerConfiguration
 import org.gradle.launcher.daemon.context.DaemonContext;
 import org.gradle.launcher.daemon.logging.DaemonMessages;
 import org.gradle.launcher.daemon.server.Daemon;
+import org.gradle.launcher.daemon.server.DaemonClassPreloader;
 import org.gradle.launcher.daemon.server.DaemonServices;
 import org.gradle.launcher.daemon.server.MasterExpirationStrategy;
 import org.gradle.launcher.daemon.server.expiry.DaemonExpirationStrategy;
@@ -78,6 +79,7 @@ public class DaemonMain extends EntryPoint {
         int idleTimeoutMs;
         int periodicCheckIntervalMs;
         boolean singleUse;
+        boolean spare;
         String daemonUid;
         List<File> additionalClassPath;
 
@@ -88,6 +90,7 @@ public class DaemonMain extends EntryPoint {
             idleTimeoutMs = decoder.readSmallInt();
             periodicCheckIntervalMs = decoder.readSmallInt();
             singleUse = decoder.readBoolean();
+            spare = decoder.readBoolean();
             daemonUid = decoder.readString();
             int argCount = decoder.readSmallInt();
             startupOpts = new ArrayList<String>(argCount);
@@ -104,7 +107,7 @@ public class DaemonMain extends EntryPoint {
         }
 
         NativeServices.initialize(gradleHomeDir);
-        DaemonServerConfiguration parameters = new DefaultDaemonServerConfiguration(daemonUid, daemonBaseDir, idleTimeoutMs, periodicCheckIntervalMs, singleUse, startupOpts);
+        DaemonServerConfiguration parameters = new DefaultDaemonServerConfiguration(daemonUid, gradleHomeDir, daemonBaseDir, idleTimeoutMs, periodicCheckIntervalMs, singleUse, spare, startupOpts);
         LoggingServiceRegistry loggingRegistry = LoggingServiceRegistry.newCommandLineProcessLogging();
         LoggingManagerInternal loggingManager = loggingRegistry.newInstance(LoggingManagerInternal.class);
 
@@ -123,6 +126,12 @@ public class DaemonMain extends EntryPoint {
         Daemon daemon = daemonServices.get(Daemon.class);
         daemon.start();
 
+        DaemonClassPreloader classPreloader = null;
+        if (DaemonClassPreloader.isEnabled()) {
+            classPreloader = daemonServices.get(DaemonClassPreloader.class);
+            classPreloader.start();
+        }
+
         try {
             DaemonContext daemonContext = daemonServices.get(DaemonContext.class);
             Long pid = daemonContext.getPid();
@@ -132,7 +141,7 @@ public class DaemonMain extends EntryPoint {
         } finally {
             daemon.stop();
             // TODO: Stop all daemon services
-            CompositeStoppable.stoppable(daemonServices.get(GradleUserHomeScopeServiceRegistry.class)).stop();
+            CompositeStoppable.stoppable(classPreloader, daemonServices.get(GradleUserHomeScopeServiceRegistry.class)).stop();
         }
     }
     
@@ -21,6 +21,8 @@ import java.util.List;
 
 public interface DaemonServerConfiguration {
 
+    File getGradleUserHomeDir();
+
     File getBaseDir();
 
     int getIdleTimeout();
@@ -32,4 +34,9 @@ public interface DaemonServerConfiguration {
     List<String> getJvmOptions();
 
     boolean isSingleUse();
+
+    /**
+     * Returns true when this daemon was started by another daemon as a spare, rather than by a client.
+     */
+    boolean isSpare();
 }
@@ -22,21 +22,30 @@ import java.util.List;
 public class DefaultDaemonServerConfiguration implements DaemonServerConfiguration {
 
     private final String daemonUid;
+    private final File gradleUserHomeDir;
     private final File daemonBaseDir;
     private final int idleTimeoutMs;
     private final int periodicCheckIntervalMs;
     private final boolean singleUse;
+    private final boolean spare;
     private final List<String> jvmOptions;
 
-    public DefaultDaemonServerConfiguration(String daemonUid, File daemonBaseDir, int idleTimeoutMs, int periodicCheckIntervalMs, boolean singleUse, List<String> jvmOptions) {
+    public DefaultDaemonServerConfiguration(String daemonUid, File gradleUserHomeDir, File daemonBaseDir, int idleTimeoutMs, int periodicCheckIntervalMs, boolean singleUse, boolean spare, List<String> jvmOptions) {
         this.daemonUid = daemonUid;
+        this.gradleUserHomeDir = gradleUserHomeDir;
         this.daemonBaseDir = daemonBaseDir;
         this.idleTimeoutMs = idleTimeoutMs;
         this.periodicCheckIntervalMs = periodicCheckIntervalMs;
         this.singleUse = singleUse;
+        this.spare = spare;
         this.jvmOptions = jvmOptions;
     }
 
+    @Override
+    public File getGradleUserHomeDir() {
+        return gradleUserHomeDir;
+    }
+
     @Override
     public File getBaseDir() {
         return daemonBaseDir;
@@ -66,4 +75,9 @@ public class DefaultDaemonServerConfiguration implements DaemonServerConfigurati
     public boolean isSingleUse() {
         return singleUse;
     }
+
+    @Override
+    public boolean isSpare() {
+        return spare;
+    }
 }
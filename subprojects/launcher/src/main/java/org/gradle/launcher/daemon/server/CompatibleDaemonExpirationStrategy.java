@@ -26,21 +26,28 @@ import org.gradle.launcher.daemon.server.expiry.DaemonExpirationStatus;
 import org.gradle.launcher.daemon.server.expiry.DaemonExpirationStrategy;
 import org.gradle.util.CollectionUtils;
 
+import javax.annotation.Nullable;
 import java.util.Collection;
 
 public class CompatibleDaemonExpirationStrategy implements DaemonExpirationStrategy {
     private final Daemon daemon;
     private final ExplainingSpec<DaemonContext> compatibilitySpec;
+    private final SpareDaemonSpawner spareDaemonSpawner;
 
     public static final String EXPIRATION_REASON = "other compatible daemons were started";
 
-    CompatibleDaemonExpirationStrategy(Daemon daemon, ExplainingSpec<DaemonContext> compatibilitySpec) {
+    CompatibleDaemonExpirationStrategy(Daemon daemon, ExplainingSpec<DaemonContext> compatibilitySpec, @Nullable SpareDaemonSpawner spareDaemonSpawner) {
         this.daemon = daemon;
         this.compatibilitySpec = compatibilitySpec;
+        this.spareDaemonSpawner = spareDaemonSpawner;
+    }
+
+    CompatibleDaemonExpirationStrategy(Daemon daemon, ExplainingSpec<DaemonContext> compatibilitySpec) {
+        this(daemon, compatibilitySpec, null);
     }
 
-    CompatibleDaemonExpirationStrategy(Daemon daemon) {
-        this(daemon, new DaemonCompatibilitySpec(daemon.getDaemonContext()));
+    CompatibleDaemonExpirationStrategy(Daemon daemon, SpareDaemonSpawner spareDaemonSpawner) {
+        this(daemon, new DaemonCompatibilitySpec(daemon.getDaemonContext()), spareDaemonSpawner);
     }
 
     @Override
@@ -53,7 +60,9 @@ public class CompatibleDaemonExpirationStrategy implements DaemonExpirationStrat
         };
         Collection<DaemonInfo> compatibleIdleDaemons = CollectionUtils.filter(daemon.getDaemonRegistry().getIdle(), spec);
 
-        if (compatibleIdleDaemons.size() > 1) {
+        // When spare daemons are enabled, keep one compatible daemon idle next to the one that is used
+        int maxIdleDaemons = spareDaemonSpawner != null && spareDaemonSpawner.isEnabled() ? 2 : 1;
+        if (compatibleIdleDaemons.size() > maxIdleDaemons) {
             return new DaemonExpirationResult(DaemonExpirationStatus.GRACEFUL_EXPIRE, EXPIRATION_REASON);
         } else {
             return DaemonExpirationResult.NOT_TRIGGERED;
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.launcher.daemon.server;
+
+import com.google.common.collect.Lists;
+import org.gradle.api.Action;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.VisitableURLClassLoader;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.HashUtil;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.FlushableEncoder;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.gradle.internal.time.Time;
+import org.gradle.internal.time.Timer;
+import org.gradle.util.GFileUtils;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which classes of the Gradle runtime were loaded by a daemon, and loads them again in the background when the next daemon starts.
+ *
+ * <p>A new daemon spends much of its first build loading and verifying classes. From the time it is started, the preloader records the names
+ * of the classes defined by the given class loaders. When the daemon stops, these names are written to the daemon directory, together with a
+ * fingerprint of the contents of the class path of each class loader. When the next daemon starts with the same class paths, it loads these
+ * classes on a background thread while it waits for its first build. Classes are loaded without being initialized, so that no static
+ * initializers run earlier than they otherwise would.</p>
+ *
+ * <p>Classes loaded before the preloader starts are not recorded, as the next daemon loads them before it could preload them anyway. Preloaded
+ * classes are recorded again, so that they are kept for the daemon after the next one.</p>
+ *
+ * <p>Can be disabled by starting the daemon with {@code -Dorg.gradle.daemon.preloadclasses=false}.</p>
+ */
+public class DaemonClassPreloader implements Stoppable {
+    public static final String PRELOAD_CLASSES_PROPERTY = "org.gradle.daemon.preloadclasses";
+
+    private static final Logger LOGGER = Logging.getLogger(DaemonClassPreloader.class);
+    private static final int SNAPSHOT_VERSION = 2;
+
+    private final File snapshotFile;
+    private final List<VisitableURLClassLoader> classLoaders;
+    private final ExecutorFactory executorFactory;
+    private final List<Set<String>> definedClassNames;
+    private ManagedExecutor executor;
+    private List<HashCode> fingerprints;
+    private volatile boolean stopped;
+
+    public DaemonClassPreloader(File snapshotFile, List<VisitableURLClassLoader> classLoaders, ExecutorFactory executorFactory) {
+        this.snapshotFile = snapshotFile;
+        this.classLoaders = classLoaders;
+        this.executorFactory = executorFactory;
+        this.definedClassNames = Lists.newArrayListWithCapacity(classLoaders.size());
+        for (int i = 0; i < classLoaders.size(); i++) {
+            definedClassNames.add(Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>()));
+        }
+    }
+
+    public static boolean isEnabled() {
+        return !"false".equals(System.getProperty(PRELOAD_CLASSES_PROPERTY));
+    }
+
+    /**
+     * Starts recording the classes loaded by this daemon, and starts loading the classes recorded by the previous daemon if its class paths
+     * match the class paths of this daemon.
+     */
+    public void start() {
+        for (int i = 0; i < classLoaders.size(); i++) {
+            classLoaders.get(i).recordDefinedClasses(definedClassNames.get(i));
+        }
+        executor = executorFactory.create("Daemon class preloader");
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Timer timer = Time.startTimer();
+                // Fingerprinting reads the whole class path, so do this in the background as well
+                List<List<String>> classNames = read(getFingerprints());
+                if (classNames == null) {
+                    return;
+                }
+                int count = 0;
+                for (int i = 0; i < classNames.size() && !stopped; i++) {
+                    count += preload(classLoaders.get(i), classNames.get(i));
+                }
+                LOGGER.debug("Preloaded {} classes used by the previous daemon in {}.", count, timer.getElapsed());
+            }
+        });
+    }
+
+    private int preload(ClassLoader classLoader, List<String> classNames) {
+        int count = 0;
+        for (String className : classNames) {
+            if (stopped) {
+                break;
+            }
+            try {
+                Class.forName(className, false, classLoader);
+                count++;
+            } catch (Throwable e) {
+                // The class will fail again when it is actually used, so leave the reporting to that
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Stops preloading, and records the classes loaded by this daemon for the next one.
+     */
+    @Override
+    public void stop() {
+        stopped = true;
+        CompositeStoppable.stoppable(executor).stop();
+        for (VisitableURLClassLoader classLoader : classLoaders) {
+            classLoader.recordDefinedClasses(null);
+        }
+        write();
+    }
+
+    private void write() {
+        try {
+            final List<HashCode> fingerprints = getFingerprints();
+            // Replace the snapshot as a whole, so that a daemon starting concurrently never reads a partial snapshot
+            GFileUtils.writeFileAtomically(snapshotFile, new Action<OutputStream>() {
+                @Override
+                public void execute(OutputStream outputStream) {
+                    try {
+                        FlushableEncoder encoder = new KryoBackedEncoder(outputStream);
+                        encoder.writeSmallInt(SNAPSHOT_VERSION);
+                        encoder.writeSmallInt(classLoaders.size());
+                        for (int i = 0; i < classLoaders.size(); i++) {
+                            encoder.writeBinary(fingerprints.get(i).toByteArray());
+                            Set<String> classNames = definedClassNames.get(i);
+                            encoder.writeSmallInt(classNames.size());
+                            for (String className : classNames) {
+                                encoder.writeString(className);
+                            }
+                        }
+                        encoder.flush();
+                    } catch (IOException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            // Only means that the next daemon starts cold
+            LOGGER.debug("Could not write loaded classes of the daemon to " + snapshotFile + ".", e);
+        }
+    }
+
+    @Nullable
+    private List<List<String>> read(List<HashCode> fingerprints) {
+        if (!snapshotFile.isFile()) {
+            return null;
+        }
+        try {
+            InputStream inputStream = new FileInputStream(snapshotFile);
+            try {
+                Decoder decoder = new KryoBackedDecoder(inputStream);
+                if (decoder.readSmallInt() != SNAPSHOT_VERSION || decoder.readSmallInt() != classLoaders.size()) {
+                    return null;
+                }
+                List<List<String>> classNames = Lists.newArrayListWithCapacity(classLoaders.size());
+                for (HashCode expectedFingerprint : fingerprints) {
+                    HashCode fingerprint = HashCode.fromBytes(decoder.readBinary());
+                    if (!fingerprint.equals(expectedFingerprint)) {
+                        return null;
+                    }
+                    int count = decoder.readSmallInt();
+                    List<String> names = Lists.newArrayListWithCapacity(count);
+                    for (int i = 0; i < count; i++) {
+                        names.add(decoder.readString());
+                    }
+                    classNames.add(names);
+                }
+                return classNames;
+            } finally {
+                inputStream.close();
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Could not read loaded classes of the previous daemon from " + snapshotFile + ".", e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the fingerprints of the class paths, which do not change while the daemon runs.
+     */
+    private synchronized List<HashCode> getFingerprints() {
+        if (fingerprints == null) {
+            List<HashCode> result = Lists.newArrayListWithCapacity(classLoaders.size());
+            for (VisitableURLClassLoader classLoader : classLoaders) {
+                result.add(fingerprint(classLoader));
+            }
+            fingerprints = result;
+        }
+        return fingerprints;
+    }
+
+    private static HashCode fingerprint(VisitableURLClassLoader classLoader) {
+        Hasher hasher = Hashing.md5().newHasher();
+        for (URL url : classLoader.getURLs()) {
+            hasher.putString(url.toString());
+            File file = toFile(url);
+            if (file != null) {
+                hashContent(file, "", hasher);
+            }
+        }
+        return hasher.hash();
+    }
+
+    private static void hashContent(File file, String relativePath, Hasher hasher) {
+        if (file.isFile()) {
+            hasher.putString(relativePath);
+            hasher.putBytes(HashUtil.createHash(file, "MD5").asByteArray());
+        } else if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children == null) {
+                return;
+            }
+            // Hash in a stable order
+            Arrays.sort(children);
+            for (File child : children) {
+                hashContent(child, relativePath + "/" + child.getName(), hasher);
+            }
+        }
+    }
+
+    @Nullable
+    private static File toFile(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+}
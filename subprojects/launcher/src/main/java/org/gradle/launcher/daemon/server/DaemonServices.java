@@ -16,11 +16,17 @@
 package org.gradle.launcher.daemon.server;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.gradle.api.internal.DocumentationRegistry;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.internal.classloader.VisitableURLClassLoader;
 import org.gradle.internal.classpath.ClassPath;
 import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.initialization.BuildLayoutParameters;
+import org.gradle.initialization.ClassLoaderRegistry;
 import org.gradle.internal.event.ListenerManager;
+import org.gradle.internal.jvm.inspection.JvmVersionDetector;
 import org.gradle.internal.logging.LoggingManagerInternal;
 import org.gradle.internal.nativeintegration.ProcessEnvironment;
 import org.gradle.internal.nativeintegration.services.NativeServices;
@@ -28,6 +34,10 @@ import org.gradle.internal.remote.internal.inet.InetAddressFactory;
 import org.gradle.internal.service.DefaultServiceRegistry;
 import org.gradle.internal.service.ServiceRegistry;
 import org.gradle.internal.service.scopes.GlobalScopeServices;
+import org.gradle.launcher.daemon.bootstrap.DaemonGreeter;
+import org.gradle.launcher.daemon.client.DefaultDaemonStarter;
+import org.gradle.launcher.daemon.client.JvmVersionValidator;
+import org.gradle.launcher.daemon.configuration.DaemonParameters;
 import org.gradle.launcher.daemon.configuration.DaemonServerConfiguration;
 import org.gradle.launcher.daemon.context.DaemonContext;
 import org.gradle.launcher.daemon.context.DaemonContextBuilder;
@@ -45,6 +55,7 @@ import org.gradle.launcher.daemon.server.exec.ForwardClientInput;
 import org.gradle.launcher.daemon.server.exec.HandleCancel;
 import org.gradle.launcher.daemon.server.exec.LogAndCheckHealth;
 import org.gradle.launcher.daemon.server.exec.LogToClient;
+import org.gradle.launcher.daemon.server.exec.MaintainSpareDaemon;
 import org.gradle.launcher.daemon.server.exec.RequestStopIfSingleUsedDaemon;
 import org.gradle.launcher.daemon.server.exec.ResetDeprecationLogger;
 import org.gradle.launcher.daemon.server.exec.ReturnResult;
@@ -52,6 +63,7 @@ import org.gradle.launcher.daemon.server.exec.StartBuildOrRespondWithBusy;
 import org.gradle.launcher.daemon.server.exec.WatchForDisconnection;
 import org.gradle.launcher.daemon.server.health.DaemonHealthCheck;
 import org.gradle.launcher.daemon.server.health.DaemonHealthStats;
+import org.gradle.launcher.daemon.server.health.DaemonMemoryGovernor;
 import org.gradle.launcher.daemon.server.health.DaemonMemoryStatus;
 import org.gradle.launcher.daemon.server.health.HealthExpirationStrategy;
 import org.gradle.launcher.daemon.server.scaninfo.DaemonScanInfo;
@@ -60,6 +72,7 @@ import org.gradle.launcher.daemon.server.stats.DaemonRunningStats;
 import org.gradle.launcher.exec.BuildExecuter;
 
 import java.io.File;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -103,6 +116,10 @@ public class DaemonServices extends DefaultServiceRegistry {
         return new DaemonMemoryStatus(healthStats);
     }
 
+    protected DaemonMemoryGovernor createDaemonMemoryGovernor(DaemonMemoryStatus memoryStatus, ListenerManager listenerManager) {
+        return new DaemonMemoryGovernor(memoryStatus, listenerManager);
+    }
+
     protected DaemonHealthCheck createDaemonHealthCheck(ListenerManager listenerManager, HealthExpirationStrategy healthExpirationStrategy) {
         return new DaemonHealthCheck(healthExpirationStrategy, listenerManager);
     }
@@ -115,8 +132,31 @@ public class DaemonServices extends DefaultServiceRegistry {
         return new DefaultDaemonScanInfo(runningStats, configuration.getIdleTimeout(), configuration.isSingleUse(), get(DaemonRegistry.class), listenerManager);
     }
 
-    protected MasterExpirationStrategy createMasterExpirationStrategy(Daemon daemon, HealthExpirationStrategy healthExpirationStrategy, ListenerManager listenerManager) {
-        return new MasterExpirationStrategy(daemon, configuration, healthExpirationStrategy, listenerManager);
+    protected MasterExpirationStrategy createMasterExpirationStrategy(Daemon daemon, HealthExpirationStrategy healthExpirationStrategy, SpareDaemonSpawner spareDaemonSpawner, ListenerManager listenerManager) {
+        return new MasterExpirationStrategy(daemon, configuration, healthExpirationStrategy, spareDaemonSpawner, listenerManager);
+    }
+
+    protected SpareDaemonSpawner createSpareDaemonSpawner(DaemonContext daemonContext, DaemonRegistry daemonRegistry, DaemonDir daemonDir, DocumentationRegistry documentationRegistry, JvmVersionDetector jvmVersionDetector, ExecutorFactory executorFactory, ListenerManager listenerManager) {
+        // Start spare daemons with the same settings this daemon was started with
+        DaemonParameters daemonParameters = new DaemonParameters(new BuildLayoutParameters().setGradleUserHomeDir(configuration.getGradleUserHomeDir()));
+        daemonParameters.setBaseDir(configuration.getBaseDir());
+        daemonParameters.setJvmArgs(configuration.getJvmOptions());
+        daemonParameters.setIdleTimeout(configuration.getIdleTimeout());
+        daemonParameters.setPeriodicCheckInterval(configuration.getPeriodicCheckIntervalMs());
+        DefaultDaemonStarter daemonStarter = new DefaultDaemonStarter(daemonDir, daemonParameters, new DaemonGreeter(documentationRegistry), new JvmVersionValidator(jvmVersionDetector));
+        SpareDaemonSpawner spareDaemonSpawner = new SpareDaemonSpawner(configuration, daemonContext, daemonRegistry, daemonStarter, executorFactory);
+        listenerManager.addListener(spareDaemonSpawner);
+        return spareDaemonSpawner;
+    }
+
+    protected DaemonClassPreloader createDaemonClassPreloader(DaemonDir daemonDir, ClassLoaderRegistry classLoaderRegistry, ExecutorFactory executorFactory) {
+        List<VisitableURLClassLoader> classLoaders = Lists.newArrayList();
+        for (ClassLoader classLoader : new ClassLoader[]{classLoaderRegistry.getRuntimeClassLoader(), classLoaderRegistry.getPluginsClassLoader()}) {
+            if (classLoader instanceof VisitableURLClassLoader) {
+                classLoaders.add((VisitableURLClassLoader) classLoader);
+            }
+        }
+        return new DaemonClassPreloader(new File(daemonDir.getVersionedDir(), "loaded-classes.bin"), classLoaders, executorFactory);
     }
 
     protected HealthExpirationStrategy createHealthExpirationStrategy(DaemonMemoryStatus memoryStatus) {
@@ -127,7 +167,7 @@ public class DaemonServices extends DefaultServiceRegistry {
         return new DaemonHealthStats(runningStats, executorFactory);
     }
 
-    protected ImmutableList<DaemonCommandAction> createDaemonCommandActions(DaemonContext daemonContext, ProcessEnvironment processEnvironment, DaemonHealthStats healthStats, DaemonHealthCheck healthCheck, BuildExecuter buildActionExecuter, DaemonRunningStats runningStats) {
+    protected ImmutableList<DaemonCommandAction> createDaemonCommandActions(DaemonContext daemonContext, ProcessEnvironment processEnvironment, DaemonHealthStats healthStats, DaemonHealthCheck healthCheck, DaemonMemoryGovernor memoryGovernor, BuildExecuter buildActionExecuter, DaemonRunningStats runningStats) {
         File daemonLog = getDaemonLogFile();
         DaemonDiagnostics daemonDiagnostics = new DaemonDiagnostics(daemonLog, daemonContext.getPid());
         return ImmutableList.of(
@@ -138,9 +178,10 @@ public class DaemonServices extends DefaultServiceRegistry {
             new StartBuildOrRespondWithBusy(daemonDiagnostics), // from this point down, the daemon is 'busy'
             new EstablishBuildEnvironment(processEnvironment),
             new LogToClient(loggingManager, daemonDiagnostics), // from this point down, logging is sent back to the client
-            new LogAndCheckHealth(healthStats, healthCheck),
+            new LogAndCheckHealth(healthStats, healthCheck, memoryGovernor),
             new ForwardClientInput(),
             new RequestStopIfSingleUsedDaemon(),
+            new MaintainSpareDaemon(get(SpareDaemonSpawner.class)),
             new ResetDeprecationLogger(),
             new WatchForDisconnection(),
             new ExecuteBuild(buildActionExecuter, runningStats, this)
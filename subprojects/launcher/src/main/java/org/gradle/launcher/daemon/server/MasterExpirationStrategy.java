@@ -33,7 +33,7 @@ public class MasterExpirationStrategy implements DaemonExpirationStrategy {
 
     private final DaemonExpirationStrategy strategy;
 
-    public MasterExpirationStrategy(Daemon daemon, DaemonServerConfiguration params, HealthExpirationStrategy healthExpirationStrategy, ListenerManager listenerManager) {
+    public MasterExpirationStrategy(Daemon daemon, DaemonServerConfiguration params, HealthExpirationStrategy healthExpirationStrategy, SpareDaemonSpawner spareDaemonSpawner, ListenerManager listenerManager) {
         ImmutableList.Builder<DaemonExpirationStrategy> strategies = ImmutableList.<DaemonExpirationStrategy>builder();
 
         // Expire under high JVM memory or GC pressure
@@ -41,7 +41,7 @@ public class MasterExpirationStrategy implements DaemonExpirationStrategy {
 
         // Expire compatible, idle, not recently used Daemons after a short time
         strategies.add(new AllDaemonExpirationStrategy(ImmutableList.of(
-            new CompatibleDaemonExpirationStrategy(daemon),
+            new CompatibleDaemonExpirationStrategy(daemon, spareDaemonSpawner),
             new DaemonIdleTimeoutExpirationStrategy(daemon, DUPLICATE_DAEMON_GRACE_PERIOD_MS, TimeUnit.MILLISECONDS),
             new NotMostRecentlyUsedDaemonExpirationStrategy(daemon)
         )));
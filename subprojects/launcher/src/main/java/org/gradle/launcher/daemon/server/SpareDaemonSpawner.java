@@ -0,0 +1,138 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.launcher.daemon.server;
+
+import org.gradle.api.internal.specs.ExplainingSpec;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.launcher.daemon.client.DefaultDaemonStarter;
+import org.gradle.launcher.daemon.configuration.DaemonServerConfiguration;
+import org.gradle.launcher.daemon.context.DaemonCompatibilitySpec;
+import org.gradle.launcher.daemon.context.DaemonContext;
+import org.gradle.launcher.daemon.diagnostics.DaemonStartupInfo;
+import org.gradle.launcher.daemon.registry.DaemonInfo;
+import org.gradle.launcher.daemon.registry.DaemonRegistry;
+import org.gradle.launcher.daemon.server.expiry.DaemonExpirationListener;
+import org.gradle.launcher.daemon.server.expiry.DaemonExpirationResult;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.gradle.launcher.daemon.server.api.DaemonStateControl.State.Idle;
+import static org.gradle.launcher.daemon.server.expiry.DaemonExpirationStatus.DO_NOT_EXPIRE;
+import static org.gradle.launcher.daemon.server.expiry.DaemonExpirationStatus.QUIET_EXPIRE;
+
+/**
+ * Keeps a compatible daemon idle next to this one, so that a build started while this daemon is busy, or after it has expired,
+ * does not have to wait for a new daemon to start up.
+ *
+ * <p>Can be enabled for any build with {@code -Dorg.gradle.daemon.spare=true}. A spare daemon is then started in the background when the build
+ * starts, unless a compatible daemon is already idle. A spare daemon is also started when this daemon expires after such a build,
+ * for example because it runs low on memory.</p>
+ *
+ * <p>A spare daemon is started with the same JVM, JVM arguments and daemon settings as this daemon, and is registered as idle right away.</p>
+ */
+public class SpareDaemonSpawner implements DaemonExpirationListener, Stoppable {
+    public static final String SPARE_DAEMON_PROPERTY = "org.gradle.daemon.spare";
+
+    private static final Logger LOGGER = Logging.getLogger(SpareDaemonSpawner.class);
+
+    private final DaemonServerConfiguration configuration;
+    private final DaemonContext daemonContext;
+    private final DaemonRegistry daemonRegistry;
+    private final DefaultDaemonStarter daemonStarter;
+    private final ExplainingSpec<DaemonContext> compatibilitySpec;
+    private final ManagedExecutor executor;
+    private final AtomicBoolean starting = new AtomicBoolean();
+    private volatile boolean requested;
+
+    public SpareDaemonSpawner(DaemonServerConfiguration configuration, DaemonContext daemonContext, DaemonRegistry daemonRegistry, DefaultDaemonStarter daemonStarter, ExecutorFactory executorFactory) {
+        this.configuration = configuration;
+        this.daemonContext = daemonContext;
+        this.daemonRegistry = daemonRegistry;
+        this.daemonStarter = daemonStarter;
+        this.compatibilitySpec = new DaemonCompatibilitySpec(daemonContext);
+        this.executor = executorFactory.create("Spare daemon starter");
+    }
+
+    /**
+     * Returns true when this daemon is a spare, or has run a build that asked for a spare daemon.
+     * In both cases, one more compatible daemon is expected to be idle.
+     */
+    public boolean isEnabled() {
+        return configuration.isSpare() || requested;
+    }
+
+    /**
+     * Starts a spare daemon in the background if the current build asks for one. Must be called with the build environment in place.
+     */
+    public void onBuildStarted() {
+        requested = Boolean.getBoolean(SPARE_DAEMON_PROPERTY);
+        if (requested && starting.compareAndSet(false, true)) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        maybeStartSpareDaemon();
+                    } finally {
+                        starting.set(false);
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public void onExpirationEvent(DaemonExpirationResult result) {
+        // A daemon that expires quietly has not been used for a long time, so it does not need to be replaced
+        if (result.getStatus() == DO_NOT_EXPIRE || result.getStatus() == QUIET_EXPIRE || !requested) {
+            return;
+        }
+        // Start the spare before this daemon stops, as the process may exit right after
+        if (starting.compareAndSet(false, true)) {
+            try {
+                maybeStartSpareDaemon();
+            } finally {
+                starting.set(false);
+            }
+        }
+    }
+
+    private void maybeStartSpareDaemon() {
+        for (DaemonInfo daemonInfo : daemonRegistry.getIdle()) {
+            if (!daemonInfo.getUid().equals(daemonContext.getUid()) && compatibilitySpec.isSatisfiedBy(daemonInfo.getContext())) {
+                LOGGER.debug("Not starting a spare daemon, as compatible daemon {} is idle.", daemonInfo.getUid());
+                return;
+            }
+        }
+        try {
+            DaemonStartupInfo startupInfo = daemonStarter.startSpareDaemon();
+            // A new daemon registers itself as busy, so that the client that started it can claim it. Nobody is going to claim this one.
+            daemonRegistry.markState(startupInfo.getAddress(), Idle);
+            LOGGER.info("Started spare Gradle daemon {}.", startupInfo.getUid());
+        } catch (Exception e) {
+            LOGGER.info("Could not start a spare Gradle daemon.", e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        executor.stop();
+    }
+}
@@ -23,6 +23,7 @@ import org.gradle.launcher.daemon.server.api.DaemonCommandAction;
 import org.gradle.launcher.daemon.server.api.DaemonCommandExecution;
 import org.gradle.launcher.daemon.server.health.DaemonHealthCheck;
 import org.gradle.launcher.daemon.server.health.DaemonHealthStats;
+import org.gradle.launcher.daemon.server.health.DaemonMemoryGovernor;
 import org.gradle.launcher.daemon.server.health.HealthLogger;
 
 public class LogAndCheckHealth implements DaemonCommandAction {
@@ -31,16 +32,18 @@ public class LogAndCheckHealth implements DaemonCommandAction {
 
     private final DaemonHealthStats stats;
     private final DaemonHealthCheck healthCheck;
+    private final DaemonMemoryGovernor memoryGovernor;
     private final HealthLogger logger;
 
-    public LogAndCheckHealth(DaemonHealthStats stats, DaemonHealthCheck healthCheck) {
-        this(stats, healthCheck, new HealthLogger());
+    public LogAndCheckHealth(DaemonHealthStats stats, DaemonHealthCheck healthCheck, DaemonMemoryGovernor memoryGovernor) {
+        this(stats, healthCheck, memoryGovernor, new HealthLogger());
     }
 
     @VisibleForTesting
-    LogAndCheckHealth(DaemonHealthStats stats, DaemonHealthCheck healthCheck, HealthLogger logger) {
+    LogAndCheckHealth(DaemonHealthStats stats, DaemonHealthCheck healthCheck, DaemonMemoryGovernor memoryGovernor, HealthLogger logger) {
         this.stats = stats;
         this.healthCheck = healthCheck;
+        this.memoryGovernor = memoryGovernor;
         this.logger = logger;
     }
 
@@ -52,6 +55,7 @@ public class LogAndCheckHealth implements DaemonCommandAction {
         }
 
         logger.logHealth(stats, LOG);
+        memoryGovernor.adjustCacheCapacity();
         execution.proceed();
 
         // Execute the health check that should send out a DaemonExpiration event
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.launcher.daemon.server.exec;
+
+import org.gradle.launcher.daemon.server.SpareDaemonSpawner;
+import org.gradle.launcher.daemon.server.api.DaemonCommandAction;
+import org.gradle.launcher.daemon.server.api.DaemonCommandExecution;
+
+/**
+ * Makes sure a spare daemon is available while this daemon runs the build, when the build asks for one.
+ */
+public class MaintainSpareDaemon implements DaemonCommandAction {
+    private final SpareDaemonSpawner spareDaemonSpawner;
+
+    public MaintainSpareDaemon(SpareDaemonSpawner spareDaemonSpawner) {
+        this.spareDaemonSpawner = spareDaemonSpawner;
+    }
+
+    public void execute(DaemonCommandExecution execution) {
+        if (!execution.isSingleUseDaemon()) {
+            spareDaemonSpawner.onBuildStarted();
+        }
+        execution.proceed();
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.launcher.daemon.server.health;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.cache.internal.InMemoryCacheCapacityListener;
+import org.gradle.internal.event.ListenerManager;
+
+/**
+ * Adjusts the capacity of the in-memory caches of the daemon to the state of the tenured space before each build.
+ *
+ * The capacity is halved while the tenured space is under pressure and increased in small steps while it has plenty of room left,
+ * so that the daemon gives up cached state before it would have to be expired for running out of memory.
+ */
+public class DaemonMemoryGovernor {
+    private static final Logger LOGGER = Logging.getLogger(DaemonMemoryGovernor.class);
+
+    static final double MIN_CAPACITY_FACTOR = 0.25;
+    static final double MAX_CAPACITY_FACTOR = 2;
+    static final double CAPACITY_FACTOR_STEP = 0.25;
+
+    private final DaemonMemoryStatus memoryStatus;
+    private final InMemoryCacheCapacityListener capacityListener;
+    private double capacityFactor = 1;
+
+    public DaemonMemoryGovernor(DaemonMemoryStatus memoryStatus, ListenerManager listenerManager) {
+        this.memoryStatus = memoryStatus;
+        this.capacityListener = listenerManager.getBroadcaster(InMemoryCacheCapacityListener.class);
+    }
+
+    /**
+     * Must only be called between builds.
+     */
+    public void adjustCacheCapacity() {
+        double newCapacityFactor = capacityFactor;
+        if (memoryStatus.isTenuredSpaceUnderPressure()) {
+            newCapacityFactor = Math.max(capacityFactor / 2, MIN_CAPACITY_FACTOR);
+        } else if (memoryStatus.hasTenuredSpaceHeadroom()) {
+            newCapacityFactor = Math.min(capacityFactor + CAPACITY_FACTOR_STEP, MAX_CAPACITY_FACTOR);
+        }
+        if (newCapacityFactor != capacityFactor) {
+            LOGGER.debug("Changing capacity of in-memory caches from {}% to {}% of their default size.", (int) (capacityFactor * 100), (int) (newCapacityFactor * 100));
+            capacityFactor = newCapacityFactor;
+            capacityListener.capacityChanged(newCapacityFactor);
+        }
+    }
+
+    double getCapacityFactor() {
+        return capacityFactor;
+    }
+}
@@ -34,6 +34,12 @@ public class DaemonMemoryStatus {
     public static final String TENURED_RATE_EXPIRE_AT = "org.gradle.daemon.performance.tenured-rate-expire-at";
     public static final String PERMGEN_USAGE_EXPIRE_AT = "org.gradle.daemon.performance.permgen-usage-expire-at";
     public static final String THRASHING_EXPIRE_AT = "org.gradle.daemon.performance.thrashing-expire-at";
+    public static final String CACHE_SHRINK_AT = "org.gradle.daemon.performance.cache-shrink-at";
+    public static final String CACHE_GROW_BELOW = "org.gradle.daemon.performance.cache-grow-below";
+
+    // Leave some room between shrinking caches and expiring the daemon, so that shrinking caches has a chance to avoid the latter
+    private static final int CACHE_SHRINK_MARGIN = 10;
+    private static final int DEFAULT_CACHE_GROW_BELOW = 50;
 
     private static final String TENURED = "tenured";
     private static final String PERMGEN = "perm gen";
@@ -44,6 +50,8 @@ public class DaemonMemoryStatus {
     private final double tenuredRateThreshold;
     private final int permgenUsageThreshold;
     private final double thrashingThreshold;
+    private final int cacheShrinkThreshold;
+    private final int cacheGrowThreshold;
 
     public DaemonMemoryStatus(DaemonHealthStats stats) {
         this.stats = stats;
@@ -52,6 +60,8 @@ public class DaemonMemoryStatus {
         this.tenuredRateThreshold = parseValue(TENURED_RATE_EXPIRE_AT, strategy.getGcRateThreshold());
         this.permgenUsageThreshold = parseValue(PERMGEN_USAGE_EXPIRE_AT, strategy.getPermGenUsageThreshold());
         this.thrashingThreshold = parseValue(THRASHING_EXPIRE_AT, strategy.getThrashingThreshold());
+        this.cacheShrinkThreshold = parseValue(CACHE_SHRINK_AT, Math.max(tenuredUsageThreshold - CACHE_SHRINK_MARGIN, 0));
+        this.cacheGrowThreshold = parseValue(CACHE_GROW_BELOW, DEFAULT_CACHE_GROW_BELOW);
     }
 
     public boolean isTenuredSpaceExhausted() {
@@ -97,6 +107,39 @@ public class DaemonMemoryStatus {
         });
     }
 
+    /**
+     * Returns true when the tenured space is getting full, but not yet exhausted, so that in-memory caches should give up memory.
+     */
+    public boolean isTenuredSpaceUnderPressure() {
+        GarbageCollectionStats gcStats = stats.getGcMonitor().getTenuredStats();
+
+        return exceedsThreshold(TENURED, gcStats, new Spec<GarbageCollectionStats>() {
+            @Override
+            public boolean isSatisfiedBy(GarbageCollectionStats gcStats) {
+                return cacheShrinkThreshold != 0
+                    && gcStats.getEventCount() >= 5
+                    && gcStats.getUsage() >= cacheShrinkThreshold;
+            }
+        });
+    }
+
+    /**
+     * Returns true when the tenured space has plenty of room left and is rarely collected, so that in-memory caches may use more memory.
+     */
+    public boolean hasTenuredSpaceHeadroom() {
+        GarbageCollectionStats gcStats = stats.getGcMonitor().getTenuredStats();
+
+        return exceedsThreshold(TENURED, gcStats, new Spec<GarbageCollectionStats>() {
+            @Override
+            public boolean isSatisfiedBy(GarbageCollectionStats gcStats) {
+                return cacheGrowThreshold != 0
+                    && gcStats.getEventCount() >= 5
+                    && gcStats.getUsage() < cacheGrowThreshold
+                    && gcStats.getRate() < tenuredRateThreshold;
+            }
+        });
+    }
+
     private boolean exceedsThreshold(String pool, GarbageCollectionStats gcStats, Spec<GarbageCollectionStats> spec) {
         if (isEnabled()
             && strategy != GarbageCollectorMonitoringStrategy.UNKNOWN
@@ -27,6 +27,7 @@ class CompatibleDaemonExpirationStrategyTest extends DaemonExpirationStrategyTes
     DaemonCompatibilitySpec compatibilitySpec = Stub()
     def compatible = []
     def compatibleWithCurrent = []
+    SpareDaemonSpawner spareDaemonSpawner = null
 
     def setup() {
         // Start with a new registry on each test.
@@ -72,6 +73,30 @@ class CompatibleDaemonExpirationStrategyTest extends DaemonExpirationStrategyTes
         !wouldExpire(d1)
     }
 
+    def "keeps one more compatible daemon when spare daemons are enabled"() {
+        given:
+        DaemonInfo d1 = registerDaemon(Idle)
+        DaemonInfo d2 = registerDaemon(Idle)
+        spareDaemonSpawner = Stub(SpareDaemonSpawner) {
+            isEnabled() >> true
+        }
+
+        when:
+        compatible = [ d1, d2 ]
+
+        then:
+        !wouldExpire(d1)
+        !wouldExpire(d2)
+
+        when:
+        DaemonInfo d3 = registerDaemon(Idle)
+        compatible = [ d1, d2, d3 ]
+
+        then:
+        wouldExpire(d1)
+        wouldExpire(d3)
+    }
+
     boolean wouldExpire(DaemonInfo info, Boolean timeoutReached = true) {
         Daemon daemon = Mock(Daemon) {
             1 * getDaemonRegistry() >> { registry }
@@ -88,6 +113,6 @@ class CompatibleDaemonExpirationStrategyTest extends DaemonExpirationStrategyTes
             compatibleWithCurrent = []
         }
 
-        return new CompatibleDaemonExpirationStrategy(daemon, compatibilitySpec).checkExpiration().status == GRACEFUL_EXPIRE
+        return new CompatibleDaemonExpirationStrategy(daemon, compatibilitySpec, spareDaemonSpawner).checkExpiration().status == GRACEFUL_EXPIRE
     }
 }
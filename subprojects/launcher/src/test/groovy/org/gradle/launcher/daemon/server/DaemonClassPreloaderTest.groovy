@@ -0,0 +1,164 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.launcher.daemon.server
+
+import org.gradle.internal.classloader.VisitableURLClassLoader
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.ManagedExecutor
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import spock.lang.Specification
+
+@CleanupTestDirectory
+class DaemonClassPreloaderTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+    def snapshotFile = temporaryFolder.file("loaded-classes.bin")
+    def classesDir = temporaryFolder.createDir("classes")
+    def executor = Stub(ManagedExecutor) {
+        execute(_) >> { Runnable action -> action.run() }
+    }
+    def executorFactory = Stub(ExecutorFactory) {
+        create(_) >> executor
+    }
+    def used = "org.gradle.test.Used"
+    def unused = "org.gradle.test.Unused"
+
+    def setup() {
+        writeClass(used)
+        writeClass(unused)
+    }
+
+    def "preloads classes loaded by the previous daemon"() {
+        given:
+        runPreviousDaemon()
+
+        when:
+        def loader = classLoader()
+        new DaemonClassPreloader(snapshotFile, [loader], executorFactory).start()
+
+        then:
+        loader.findLoadedClass(used) != null
+        loader.findLoadedClass(unused) == null
+    }
+
+    def "does not preload classes when class path has changed"() {
+        given:
+        runPreviousDaemon()
+        classesDir.file("extra.jar").createFile()
+
+        when:
+        def loader = new VisitableURLClassLoader((ClassLoader) null, [classesDir.toURI().toURL(), classesDir.file("extra.jar").toURI().toURL()])
+        new DaemonClassPreloader(snapshotFile, [loader], executorFactory).start()
+
+        then:
+        loader.findLoadedClass(used) == null
+    }
+
+    def "does not preload classes when content of class path has changed"() {
+        given:
+        runPreviousDaemon()
+        def classFile = classesDir.file(unused.replace('.', '/') + ".class")
+        def lastModified = classFile.lastModified()
+        def bytes = classFile.bytes
+        bytes[bytes.length - 1]++
+        classFile.bytes = bytes
+        classFile.lastModified = lastModified
+
+        when:
+        def loader = classLoader()
+        new DaemonClassPreloader(snapshotFile, [loader], executorFactory).start()
+
+        then:
+        loader.findLoadedClass(used) == null
+    }
+
+    def "does not record classes loaded before the preloader was started"() {
+        given:
+        def previousLoader = classLoader()
+        previousLoader.loadClass(unused)
+        def previousPreloader = new DaemonClassPreloader(snapshotFile, [previousLoader], executorFactory)
+        previousPreloader.start()
+        previousLoader.loadClass(used)
+        previousPreloader.stop()
+
+        when:
+        def loader = classLoader()
+        new DaemonClassPreloader(snapshotFile, [loader], executorFactory).start()
+
+        then:
+        loader.findLoadedClass(used) != null
+        loader.findLoadedClass(unused) == null
+    }
+
+    def "replaces snapshot of previous daemon"() {
+        given:
+        runPreviousDaemon()
+
+        when:
+        def loader = classLoader()
+        def preloader = new DaemonClassPreloader(snapshotFile, [loader], executorFactory)
+        preloader.start()
+        loader.loadClass(unused)
+        preloader.stop()
+
+        and:
+        def nextLoader = classLoader()
+        new DaemonClassPreloader(snapshotFile, [nextLoader], executorFactory).start()
+
+        then:
+        nextLoader.findLoadedClass(used) != null
+        nextLoader.findLoadedClass(unused) != null
+        snapshotFile.parentFile.list().findAll { it.endsWith(".tmp") }.empty
+    }
+
+    def "ignores unreadable snapshot"() {
+        given:
+        snapshotFile << "not a snapshot"
+        def loader = classLoader()
+
+        when:
+        new DaemonClassPreloader(snapshotFile, [loader], executorFactory).start()
+
+        then:
+        loader.findLoadedClass(used) == null
+    }
+
+    private void runPreviousDaemon() {
+        def previousLoader = classLoader()
+        def preloader = new DaemonClassPreloader(snapshotFile, [previousLoader], executorFactory)
+        preloader.start()
+        previousLoader.loadClass(used)
+        preloader.stop()
+    }
+
+    private VisitableURLClassLoader classLoader() {
+        new VisitableURLClassLoader((ClassLoader) null, [classesDir.toURI().toURL()])
+    }
+
+    private void writeClass(String className) {
+        def writer = new ClassWriter(0)
+        writer.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC, className.replace('.', '/'), null, "java/lang/Object", null)
+        writer.visitEnd()
+        classesDir.file(className.replace('.', '/') + ".class").with {
+            parentFile.mkdirs()
+            bytes = writer.toByteArray()
+        }
+    }
+}
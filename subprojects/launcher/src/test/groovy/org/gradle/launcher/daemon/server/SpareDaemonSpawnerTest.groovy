@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.launcher.daemon.server
+
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.ManagedExecutor
+import org.gradle.internal.remote.Address
+import org.gradle.launcher.daemon.client.DefaultDaemonStarter
+import org.gradle.launcher.daemon.configuration.DaemonServerConfiguration
+import org.gradle.launcher.daemon.context.DaemonContext
+import org.gradle.launcher.daemon.context.DefaultDaemonContext
+import org.gradle.launcher.daemon.diagnostics.DaemonStartupInfo
+import org.gradle.launcher.daemon.registry.DaemonInfo
+import org.gradle.launcher.daemon.registry.EmbeddedDaemonRegistry
+import org.gradle.launcher.daemon.server.expiry.DaemonExpirationResult
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+
+import static org.gradle.launcher.daemon.server.api.DaemonStateControl.State.Busy
+import static org.gradle.launcher.daemon.server.api.DaemonStateControl.State.Idle
+import static org.gradle.launcher.daemon.server.expiry.DaemonExpirationStatus.GRACEFUL_EXPIRE
+import static org.gradle.launcher.daemon.server.expiry.DaemonExpirationStatus.QUIET_EXPIRE
+
+class SpareDaemonSpawnerTest extends Specification {
+    @Rule SetSystemProperties systemProperties = new SetSystemProperties()
+    def javaHome = new File(System.getProperty("java.home"))
+    def registry = new EmbeddedDaemonRegistry()
+    def configuration = Stub(DaemonServerConfiguration)
+    def daemonStarter = Mock(DefaultDaemonStarter)
+    def executor = Stub(ManagedExecutor) {
+        execute(_) >> { Runnable action -> action.run() }
+    }
+    def executorFactory = Stub(ExecutorFactory) {
+        create(_) >> executor
+    }
+    def thisDaemon = register("this", ["-Xmx1g"], Busy)
+    def spawner = new SpareDaemonSpawner(configuration, thisDaemon.context, registry, daemonStarter, executorFactory)
+
+    def "starts spare daemon and marks it idle when build asks for one"() {
+        given:
+        System.setProperty(SpareDaemonSpawner.SPARE_DAEMON_PROPERTY, "true")
+        def spare = register("spare", ["-Xmx1g"], Busy)
+
+        when:
+        spawner.onBuildStarted()
+
+        then:
+        1 * daemonStarter.startSpareDaemon() >> new DaemonStartupInfo("spare", spare.address, null)
+        registry.getIdle()*.uid == ["spare"]
+        spawner.enabled
+    }
+
+    def "does not start spare daemon when build does not ask for one"() {
+        when:
+        spawner.onBuildStarted()
+
+        then:
+        0 * daemonStarter._
+        !spawner.enabled
+    }
+
+    def "does not start spare daemon when a compatible daemon is idle"() {
+        given:
+        System.setProperty(SpareDaemonSpawner.SPARE_DAEMON_PROPERTY, "true")
+        register("other", ["-Xmx1g"], Idle)
+
+        when:
+        spawner.onBuildStarted()
+
+        then:
+        0 * daemonStarter._
+    }
+
+    def "starts spare daemon when only incompatible daemons are idle"() {
+        given:
+        System.setProperty(SpareDaemonSpawner.SPARE_DAEMON_PROPERTY, "true")
+        register("other", ["-Xmx2g"], Idle)
+
+        when:
+        spawner.onBuildStarted()
+
+        then:
+        1 * daemonStarter.startSpareDaemon() >> new DaemonStartupInfo("spare", Stub(Address), null)
+    }
+
+    def "starts spare daemon when expiring after a build that asked for one"() {
+        given:
+        System.setProperty(SpareDaemonSpawner.SPARE_DAEMON_PROPERTY, "true")
+        spawner.onBuildStarted()
+
+        when:
+        spawner.onExpirationEvent(new DaemonExpirationResult(QUIET_EXPIRE, "idle"))
+
+        then:
+        0 * daemonStarter._
+
+        when:
+        spawner.onExpirationEvent(new DaemonExpirationResult(GRACEFUL_EXPIRE, "low memory"))
+
+        then:
+        1 * daemonStarter.startSpareDaemon() >> new DaemonStartupInfo("spare", Stub(Address), null)
+    }
+
+    def "spare daemon is enabled"() {
+        given:
+        configuration.isSpare() >> true
+
+        expect:
+        spawner.enabled
+    }
+
+    private DaemonInfo register(String uid, List<String> daemonOpts, state) {
+        DaemonContext context = new DefaultDaemonContext(uid, javaHome, new File("registry"), 123L, 1000, daemonOpts)
+        def info = new DaemonInfo(Stub(Address), context, "token".bytes, state)
+        registry.store(info)
+        return info
+    }
+}
@@ -19,6 +19,7 @@ package org.gradle.launcher.daemon.server.exec
 import org.gradle.launcher.daemon.server.api.DaemonCommandExecution
 import org.gradle.launcher.daemon.server.health.DaemonHealthCheck
 import org.gradle.launcher.daemon.server.health.DaemonHealthStats
+import org.gradle.launcher.daemon.server.health.DaemonMemoryGovernor
 import org.gradle.launcher.daemon.server.health.DaemonMemoryStatus
 import org.gradle.launcher.daemon.server.health.HealthLogger
 import spock.lang.Specification
@@ -29,7 +30,8 @@ class LogAndCheckHealthTest extends Specification {
     def status = Mock(DaemonMemoryStatus)
     def logger = Mock(HealthLogger)
     def healthCheck = Mock(DaemonHealthCheck)
-    def tracker = new LogAndCheckHealth(stats, healthCheck, logger)
+    def memoryGovernor = Mock(DaemonMemoryGovernor)
+    def tracker = new LogAndCheckHealth(stats, healthCheck, memoryGovernor, logger)
 
     def "does not track single use daemon"() {
         when:
@@ -48,4 +50,15 @@ class LogAndCheckHealthTest extends Specification {
         then:
         1 * healthCheck.executeHealthCheck()
     }
+
+    def "adjusts cache capacity before build is executed"() {
+        when:
+        tracker.execute(exec)
+
+        then:
+        1 * memoryGovernor.adjustCacheCapacity()
+
+        then:
+        1 * exec.proceed()
+    }
 }
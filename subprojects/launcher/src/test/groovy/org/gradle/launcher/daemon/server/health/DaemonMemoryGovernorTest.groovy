@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.launcher.daemon.server.health
+
+import org.gradle.cache.internal.InMemoryCacheCapacityListener
+import org.gradle.internal.event.ListenerManager
+import spock.lang.Specification
+
+class DaemonMemoryGovernorTest extends Specification {
+    def memoryStatus = Mock(DaemonMemoryStatus)
+    def capacityListener = Mock(InMemoryCacheCapacityListener)
+    def listenerManager = Stub(ListenerManager) {
+        getBroadcaster(InMemoryCacheCapacityListener) >> capacityListener
+    }
+    def governor = new DaemonMemoryGovernor(memoryStatus, listenerManager)
+
+    def "halves cache capacity while tenured space is under pressure"() {
+        given:
+        memoryStatus.isTenuredSpaceUnderPressure() >> true
+
+        when:
+        governor.adjustCacheCapacity()
+        governor.adjustCacheCapacity()
+        governor.adjustCacheCapacity()
+
+        then:
+        1 * capacityListener.capacityChanged(0.5)
+        1 * capacityListener.capacityChanged(0.25)
+        0 * capacityListener._
+        governor.capacityFactor == DaemonMemoryGovernor.MIN_CAPACITY_FACTOR
+    }
+
+    def "grows cache capacity in steps while tenured space has headroom"() {
+        given:
+        memoryStatus.hasTenuredSpaceHeadroom() >> true
+
+        when:
+        6.times { governor.adjustCacheCapacity() }
+
+        then:
+        1 * capacityListener.capacityChanged(1.25)
+        1 * capacityListener.capacityChanged(1.5)
+        1 * capacityListener.capacityChanged(1.75)
+        1 * capacityListener.capacityChanged(2)
+        0 * capacityListener._
+        governor.capacityFactor == DaemonMemoryGovernor.MAX_CAPACITY_FACTOR
+    }
+
+    def "keeps cache capacity when tenured space is neither under pressure nor has headroom"() {
+        when:
+        governor.adjustCacheCapacity()
+
+        then:
+        0 * capacityListener._
+        governor.capacityFactor == 1
+    }
+}
@@ -25,6 +25,8 @@ import org.junit.Rule
 import spock.lang.Specification
 import spock.lang.Unroll
 
+import static DaemonMemoryStatus.CACHE_GROW_BELOW
+import static DaemonMemoryStatus.CACHE_SHRINK_AT
 import static DaemonMemoryStatus.PERMGEN_USAGE_EXPIRE_AT
 import static DaemonMemoryStatus.TENURED_RATE_EXPIRE_AT
 import static DaemonMemoryStatus.TENURED_USAGE_EXPIRE_AT
@@ -148,6 +150,79 @@ class DaemonMemoryStatusTest extends Specification {
         10             | 90             | 15   | 0    | false
     }
 
+    @Unroll
+    def "knows when tenured space is under pressure (#shrinkThreshold <= #used)"() {
+        when:
+        System.setProperty(CACHE_SHRINK_AT, shrinkThreshold.toString())
+        gcMonitor.getTenuredStats() >> {
+            Stub(GarbageCollectionStats) {
+                getUsage() >> used
+                getRate() >> 0.1
+                getEventCount() >> eventCount
+            }
+        }
+
+        then:
+        status.isTenuredSpaceUnderPressure() == underPressure
+
+        where:
+        shrinkThreshold | used | eventCount | underPressure
+        80              | 100  | 10         | true
+        80              | 80   | 10         | true
+        80              | 79   | 10         | false
+        80              | 100  | 4          | false
+        0               | 100  | 10         | false
+        0               | 0    | 10         | false
+    }
+
+    @Unroll
+    def "tenured space is under pressure some way below the expiry threshold (#usageThreshold, #used)"() {
+        when:
+        System.setProperty(TENURED_USAGE_EXPIRE_AT, usageThreshold.toString())
+        gcMonitor.getTenuredStats() >> {
+            Stub(GarbageCollectionStats) {
+                getUsage() >> used
+                getEventCount() >> 10
+            }
+        }
+
+        then:
+        status.isTenuredSpaceUnderPressure() == underPressure
+
+        where:
+        usageThreshold | used | underPressure
+        90             | 80   | true
+        90             | 79   | false
+        5              | 1    | false
+    }
+
+    @Unroll
+    def "knows when tenured space has headroom (#used < #growThreshold, #rate < #rateThreshold)"() {
+        when:
+        System.setProperty(CACHE_GROW_BELOW, growThreshold.toString())
+        System.setProperty(TENURED_RATE_EXPIRE_AT, rateThreshold.toString())
+        gcMonitor.getTenuredStats() >> {
+            Stub(GarbageCollectionStats) {
+                getUsage() >> used
+                getRate() >> rate
+                getEventCount() >> eventCount
+            }
+        }
+
+        then:
+        status.hasTenuredSpaceHeadroom() == headroom
+
+        where:
+        growThreshold | rateThreshold | used | rate | eventCount | headroom
+        50            | 1.0           | 20   | 0.5  | 10         | true
+        50            | 1.0           | 49   | 0.5  | 10         | true
+        50            | 1.0           | 50   | 0.5  | 10         | false
+        50            | 1.0           | 20   | 1.0  | 10         | false
+        50            | 1.0           | 20   | 0.5  | 4          | false
+        0             | 1.0           | 20   | 0.5  | 10         | false
+        0             | 1.0           | 0    | 0    | 10         | false
+    }
+
     def "can disable daemon performance monitoring"() {
         when:
         System.setProperty(DaemonMemoryStatus.ENABLE_PERFORMANCE_MONITORING, "false")
@@ -160,6 +235,12 @@ class DaemonMemoryStatusTest extends Specification {
 
         and:
         !status.isThrashing()
+
+        and:
+        !status.isTenuredSpaceUnderPressure()
+
+        and:
+        !status.hasTenuredSpaceHeadroom()
     }
 
     DaemonMemoryStatus getStatus() {
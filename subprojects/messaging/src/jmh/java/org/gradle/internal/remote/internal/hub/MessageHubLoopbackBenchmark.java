@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.remote.internal.hub;
+
+import org.gradle.api.Action;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.remote.ConnectionAcceptor;
+import org.gradle.internal.remote.MessagingClient;
+import org.gradle.internal.remote.MessagingServer;
+import org.gradle.internal.remote.ObjectConnection;
+import org.gradle.internal.remote.services.MessagingServices;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends small messages between two message hubs over a loopback socket. {@link #stream()} measures the throughput of a stream
+ * of messages, such as test output or log events. {@link #pingPong()} measures the round trip time of single messages, which
+ * batching should not delay.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class MessageHubLoopbackBenchmark {
+    private static final int STREAM_LENGTH = 10000;
+
+    private MessagingServices services;
+    private ConnectionAcceptor acceptor;
+    private ObjectConnection serverConnection;
+    private ObjectConnection clientConnection;
+    private Receiver sender;
+    private final Semaphore received = new Semaphore(0);
+    private final BlockingQueue<String> replies = new LinkedBlockingQueue<String>();
+
+    public interface Receiver {
+        void receive(String message);
+    }
+
+    @Setup(Level.Trial)
+    public void connect() throws InterruptedException {
+        services = new MessagingServices();
+        final CountDownLatch connected = new CountDownLatch(1);
+        acceptor = services.get(MessagingServer.class).accept(new Action<ObjectConnection>() {
+            @Override
+            public void execute(ObjectConnection connection) {
+                final Receiver replySender = connection.addOutgoing(Receiver.class);
+                connection.addIncoming(Receiver.class, new Receiver() {
+                    @Override
+                    public void receive(String message) {
+                        if (message.startsWith("ping")) {
+                            replySender.receive(message);
+                        } else {
+                            received.release();
+                        }
+                    }
+                });
+                connection.connect();
+                serverConnection = connection;
+                connected.countDown();
+            }
+        });
+        clientConnection = services.get(MessagingClient.class).getConnection(acceptor.getAddress());
+        sender = clientConnection.addOutgoing(Receiver.class);
+        clientConnection.addIncoming(Receiver.class, new Receiver() {
+            @Override
+            public void receive(String message) {
+                replies.add(message);
+            }
+        });
+        clientConnection.connect();
+        connected.await();
+    }
+
+    @TearDown(Level.Trial)
+    public void disconnect() {
+        CompositeStoppable.stoppable(clientConnection, serverConnection, acceptor, services).stop();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(STREAM_LENGTH)
+    public void stream() throws InterruptedException {
+        for (int i = 0; i < STREAM_LENGTH; i++) {
+            sender.receive("output line " + i);
+        }
+        received.acquire(STREAM_LENGTH);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String pingPong() throws InterruptedException {
+        sender.receive("ping");
+        return replies.take();
+    }
+}
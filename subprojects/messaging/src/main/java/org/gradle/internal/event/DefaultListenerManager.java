@@ -17,6 +17,7 @@
 package org.gradle.internal.event;
 
 import com.google.common.collect.Lists;
+import org.gradle.internal.concurrent.ThreadSafe;
 import org.gradle.internal.dispatch.Dispatch;
 import org.gradle.internal.dispatch.MethodInvocation;
 import org.gradle.internal.dispatch.ProxyDispatchAdapter;
@@ -26,13 +27,15 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 @SuppressWarnings({"unchecked"})
 public class DefaultListenerManager implements ListenerManager {
@@ -121,7 +124,11 @@ public class DefaultListenerManager implements ListenerManager {
     }
 
     /**
-     * Manages the listeners and state for a given listener type
+     * Manages the listeners and state for a given listener type.
+     *
+     * <p>Each notification works on an immutable snapshot of the listeners, which is replaced whenever the listeners change.
+     * Listeners that implement {@link ThreadSafe} are notified by each thread without any coordination with other threads.
+     * Notifications of the remaining listeners are serialized, so that they see the events in the same order.</p>
      */
     private class EventBroadcast<T> implements Dispatch<MethodInvocation> {
         private final Class<T> type;
@@ -130,20 +137,21 @@ public class DefaultListenerManager implements ListenerManager {
 
         private volatile ProxyDispatchAdapter<T> source;
         private final Set<ListenerDetails> listeners = new LinkedHashSet<ListenerDetails>();
-        private final List<Runnable> queuedOperations = new LinkedList<Runnable>();
         private final ReentrantLock broadcasterLock = new ReentrantLock();
         private ListenerDetails logger;
         private Dispatch<MethodInvocation> parentDispatch;
-        private List<Dispatch<MethodInvocation>> allWithLogger = Collections.emptyList();
-        private List<Dispatch<MethodInvocation>> allWithNoLogger = Collections.emptyList();
+        private volatile ListenerSnapshot allWithLogger = ListenerSnapshot.EMPTY;
+        private volatile ListenerSnapshot allWithNoLogger = ListenerSnapshot.EMPTY;
 
         EventBroadcast(Class<T> type) {
             this.type = type;
             dispatch = new ListenerDispatch(type, true);
             dispatchNoLogger = new ListenerDispatch(type, false);
             if (parent != null) {
-                parentDispatch = parent.getBroadcasterInternal(type).getDispatch(true);
-                invalidateDispatchCache();
+                synchronized (listeners) {
+                    parentDispatch = parent.getBroadcasterInternal(type).getDispatch(true);
+                    invalidateDispatchCache();
+                }
             }
         }
 
@@ -172,114 +180,53 @@ public class DefaultListenerManager implements ListenerManager {
             ensureAllWithoutLoggerInitialized();
         }
 
-        void maybeAdd(final ListenerDetails listener) {
+        void maybeAdd(ListenerDetails listener) {
             if (type.isInstance(listener.listener)) {
-                if (broadcasterLock.tryLock()) {
-                    try {
-                        listeners.add(listener);
-                        invalidateDispatchCache();
-                    } finally {
-                        broadcasterLock.unlock();
-                    }
-                } else {
-                    synchronized (queuedOperations) {
-                        queuedOperations.add(new Runnable() {
-                            @Override
-                            public void run() {
-                                listeners.add(listener);
-                            }
-                        });
-                    }
+                synchronized (listeners) {
+                    listeners.add(listener);
+                    invalidateDispatchCache();
                 }
             }
         }
 
-        void maybeRemove(final ListenerDetails listener) {
-            if (broadcasterLock.tryLock()) {
-                try {
-                    if (listeners.remove(listener)) {
-                        invalidateDispatchCache();
-                    }
-                } finally {
-                    broadcasterLock.unlock();
-                }
-            } else {
-                synchronized (queuedOperations) {
-                    queuedOperations.add(new Runnable() {
-                        @Override
-                        public void run() {
-                            listeners.remove(listener);
-                        }
-                    });
+        void maybeRemove(ListenerDetails listener) {
+            synchronized (listeners) {
+                if (listeners.remove(listener)) {
+                    invalidateDispatchCache();
                 }
             }
         }
 
-        void maybeSetLogger(final ListenerDetails candidate) {
+        void maybeSetLogger(ListenerDetails candidate) {
             if (type.isInstance(candidate.listener)) {
-                if (broadcasterLock.tryLock()) {
-                    try {
-                        doSetLogger(candidate);
-                        invalidateDispatchCache();
-                    } finally {
-                        broadcasterLock.unlock();
-                    }
-                } else {
-                    synchronized (queuedOperations) {
-                        queuedOperations.add(new Runnable() {
-                            @Override
-                            public void run() {
-                                doSetLogger(candidate);
-                            }
-                        });
+                synchronized (listeners) {
+                    if (logger == null && parent != null) {
+                        parentDispatch = parent.getBroadcasterInternal(type).getDispatch(false);
                     }
-                }
-            }
-        }
-
-        private void doSetLogger(ListenerDetails candidate) {
-            if (logger == null && parent != null) {
-                parentDispatch = parent.getBroadcasterInternal(type).getDispatch(false);
-            }
-            logger = candidate;
-        }
-
-        private List<Dispatch<MethodInvocation>> startNotification(boolean includeLogger) {
-            takeOwnership();
-
-            // Take a snapshot while holding lock
-            List<Dispatch<MethodInvocation>> result = includeLogger ? allWithLogger : allWithNoLogger;
-            doStartNotification(result);
-            return result;
-        }
-
-        private void doStartNotification(List<Dispatch<MethodInvocation>> result) {
-            for (Dispatch<MethodInvocation> dispatch : result) {
-                if (dispatch instanceof ListenerDetails) {
-                    ListenerDetails listenerDetails = (ListenerDetails) dispatch;
-                    listenerDetails.startNotification();
+                    logger = candidate;
+                    invalidateDispatchCache();
                 }
             }
         }
 
         private void ensureAllWithoutLoggerInitialized() {
             if (parentDispatch == null && listeners.isEmpty()) {
-                allWithNoLogger = Collections.emptyList();
+                allWithNoLogger = ListenerSnapshot.EMPTY;
             } else {
                 List<Dispatch<MethodInvocation>> dispatchers = new ArrayList<Dispatch<MethodInvocation>>();
                 if (parentDispatch != null) {
                     dispatchers.add(parentDispatch);
                 }
                 dispatchers.addAll(listeners);
-                allWithNoLogger = dispatchers;
+                allWithNoLogger = new ListenerSnapshot(dispatchers);
             }
         }
 
         private void ensureAllWithLoggerInitialized() {
             if (logger == null && parentDispatch == null && listeners.isEmpty()) {
-                allWithLogger = Collections.emptyList();
+                allWithLogger = ListenerSnapshot.EMPTY;
             } else {
-                allWithLogger = buildAllWithLogger();
+                allWithLogger = new ListenerSnapshot(buildAllWithLogger());
             }
         }
 
@@ -304,27 +251,6 @@ public class DefaultListenerManager implements ListenerManager {
             return result;
         }
 
-        private void endNotification(List<Dispatch<MethodInvocation>> dispatchers) {
-            for (Dispatch<MethodInvocation> dispatcher : dispatchers) {
-                if (dispatcher instanceof ListenerDetails) {
-                    ListenerDetails listener = (ListenerDetails) dispatcher;
-                    listener.endNotification();
-                }
-            }
-            try {
-                synchronized (queuedOperations) {
-                    if (!queuedOperations.isEmpty()) {
-                        for (Runnable queuedOperation : queuedOperations) {
-                            queuedOperation.run();
-                        }
-                        invalidateDispatchCache();
-                    }
-                }
-            } finally {
-                broadcasterLock.unlock();
-            }
-        }
-
         private class ListenerDispatch extends AbstractBroadcastDispatch<T> {
             private final boolean includeLogger;
 
@@ -335,16 +261,80 @@ public class DefaultListenerManager implements ListenerManager {
 
             @Override
             public void dispatch(MethodInvocation invocation) {
-                List<Dispatch<MethodInvocation>> dispatchers = startNotification(includeLogger);
+                ListenerSnapshot snapshot = includeLogger ? allWithLogger : allWithNoLogger;
+                if (snapshot.dispatchers.isEmpty()) {
+                    return;
+                }
+                Notification notification = new Notification(snapshot);
                 try {
-                    if (!dispatchers.isEmpty()) {
-                        dispatch(invocation, dispatchers.iterator());
-                    }
+                    dispatch(invocation, notification);
                 } finally {
-                    endNotification(dispatchers);
+                    notification.end();
                 }
             }
         }
+
+        /**
+         * Iterates over the listeners of a snapshot, taking ownership of this listener type once the first listener that requires ordered delivery is reached.
+         */
+        private class Notification implements Iterator<Dispatch<MethodInvocation>> {
+            private final ListenerSnapshot snapshot;
+            private int next;
+            private boolean ownsLock;
+
+            Notification(ListenerSnapshot snapshot) {
+                this.snapshot = snapshot;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < snapshot.dispatchers.size();
+            }
+
+            @Override
+            public Dispatch<MethodInvocation> next() {
+                if (next == snapshot.firstOrdered) {
+                    takeOwnership();
+                    ownsLock = true;
+                }
+                return snapshot.dispatchers.get(next++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            void end() {
+                if (ownsLock) {
+                    broadcasterLock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * An immutable list of the dispatchers for a listener type, along with the position of the first listener that requires ordered delivery.
+     */
+    private static class ListenerSnapshot {
+        static final ListenerSnapshot EMPTY = new ListenerSnapshot(Collections.<Dispatch<MethodInvocation>>emptyList());
+
+        final List<Dispatch<MethodInvocation>> dispatchers;
+        final int firstOrdered;
+
+        ListenerSnapshot(List<Dispatch<MethodInvocation>> dispatchers) {
+            this.dispatchers = dispatchers;
+            int index = 0;
+            while (index < dispatchers.size() && !requiresOrdering(dispatchers.get(index))) {
+                index++;
+            }
+            this.firstOrdered = index;
+        }
+
+        // The dispatch of the parent takes care of ordering for its own listeners
+        private static boolean requiresOrdering(Dispatch<MethodInvocation> dispatch) {
+            return dispatch instanceof DefaultListenerManager.ListenerDetails && !((DefaultListenerManager.ListenerDetails) dispatch).threadSafe;
+        }
     }
 
     /**
@@ -353,12 +343,15 @@ public class DefaultListenerManager implements ListenerManager {
     private class ListenerDetails implements Dispatch<MethodInvocation> {
         final Object listener;
         final Dispatch<MethodInvocation> dispatch;
+        final boolean threadSafe;
         final AtomicBoolean removed = new AtomicBoolean();
-        final ReentrantLock notifyingLock = new ReentrantLock();
+        // Thread-safe listeners can be notified by many threads at once, others by one thread at a time
+        final ReentrantReadWriteLock notifyingLock = new ReentrantReadWriteLock();
 
         public ListenerDetails(Object listener) {
             this.listener = listener;
             this.dispatch = new ReflectionDispatch(listener);
+            this.threadSafe = listener instanceof ThreadSafe;
         }
 
         void disconnect() {
@@ -367,28 +360,31 @@ public class DefaultListenerManager implements ListenerManager {
 
         @Override
         public void dispatch(MethodInvocation message) {
-            if (!removed.get()) {
-                dispatch.dispatch(message);
+            Lock lock = threadSafe ? notifyingLock.readLock() : notifyingLock.writeLock();
+            lock.lock();
+            try {
+                if (!removed.get()) {
+                    dispatch.dispatch(message);
+                }
+            } finally {
+                lock.unlock();
             }
         }
 
-        void startNotification() {
-            notifyingLock.lock();
-        }
-
-        void endNotification() {
-            notifyingLock.unlock();
-        }
-
         void remove() {
-            // block until the listener has finished notifying.
-            notifyingLock.lock();
+            // block until the listener has finished notifying, unless it is being notified by this thread.
+            boolean notifyingOnThisThread = notifyingLock.getReadHoldCount() > 0;
+            if (!notifyingOnThisThread) {
+                notifyingLock.writeLock().lock();
+            }
             try {
                 for (EventBroadcast<?> broadcaster : Lists.newArrayList(broadcasters.values())) {
                     broadcaster.maybeRemove(this);
                 }
             } finally {
-                notifyingLock.unlock();
+                if (!notifyingOnThisThread) {
+                    notifyingLock.writeLock().unlock();
+                }
             }
         }
 
@@ -24,6 +24,9 @@ package org.gradle.internal.event;
  *
  * <p>Implementations are thread-safe: A listener is notified by at most 1 thread at a time, and so do not need to be thread-safe. All listeners
  * of a given type received events in the same order. Listeners can be added and removed at any time.
+ *
+ * <p>Listeners that implement {@link org.gradle.internal.concurrent.ThreadSafe} are exempt from this: they are notified by each thread as it
+ * generates events, concurrently with other threads, and so may receive events in a different order to other listeners.
  */
 public interface ListenerManager {
     /**
@@ -31,7 +34,8 @@ public interface ListenerManager {
      * single invocation of this method.  There is no order dependency: if a broadcaster has already been made for type
      * T, the listener will be registered with it if <code>(listener instanceof T)</code> returns true.
      *
-     * <p>A listener will be used by a single thread at a time, so the listener implementation does not need to be thread-safe.
+     * <p>A listener will be used by a single thread at a time, so the listener implementation does not need to be thread-safe,
+     * unless it implements {@link org.gradle.internal.concurrent.ThreadSafe}.
      *
      * <p>The listener will not receive events that are currently being broadcast from some other thread.
      *
@@ -15,6 +15,7 @@
  */
 package org.gradle.internal.remote;
 
+import org.gradle.internal.serialize.Serializer;
 import org.gradle.internal.serialize.SerializerRegistry;
 
 public interface ObjectConnectionBuilder {
@@ -54,4 +55,10 @@ public interface ObjectConnectionBuilder {
      * Adds a set of specified serializers for incoming and outgoing method parameters. For any types that are not known to any registry added using this method, then Java serialization is used.
      */
     void useParameterSerializers(SerializerRegistry serializers);
+
+    /**
+     * Uses the given serializer for incoming and outgoing method arguments of exactly the given type, where the method parameter is declared as {@code Object} or {@code Object[]}.
+     * Both ends of the connection must use the same serializers.
+     */
+    <T> void useArgumentSerializer(Class<T> type, Serializer<T> serializer);
 }
@@ -30,6 +30,7 @@ import org.gradle.internal.remote.internal.hub.queue.EndPointQueue;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -45,6 +46,10 @@ public class MessageHub implements AsyncStoppable {
     private enum State {Running, Stopping, Stopped}
 
     private static final Discard DISCARD = new Discard();
+    // Outgoing messages are flushed after at most this many messages. The socket stream also writes out whenever its buffer is full
+    private static final int MAX_MESSAGES_PER_FLUSH = 1000;
+    // The longest time a batch of outgoing messages is held back before it is flushed, not counting the time to write it
+    private static final long BATCH_WINDOW_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
     private final ManagedExecutor workers;
     private final String displayName;
     private final Action<? super Throwable> errorHandler;
@@ -315,19 +320,45 @@ public class MessageHub implements AsyncStoppable {
                         } finally {
                             lock.unlock();
                         }
-                        for (InterHubMessage message : messages) {
+                        // Coalesce the messages that arrive while writing into a single flush
+                        long deadline = System.nanoTime() + BATCH_WINDOW_NANOS;
+                        int written = 0;
+                        while (true) {
+                            for (InterHubMessage message : messages) {
+                                try {
+                                    connection.dispatch(message);
+                                } catch (RecoverableMessageIOException e) {
+                                    addToIncoming(new StreamFailureMessage(e));
+                                }
+                                if (message instanceof EndOfStream) {
+                                    connection.flush();
+                                    return;
+                                }
+                            }
+                            written += messages.size();
+                            messages.clear();
+                            if (written >= MAX_MESSAGES_PER_FLUSH) {
+                                break;
+                            }
+                            // The window is measured from the start of the batch, so a steady trickle of messages does not delay the first one
+                            long remaining = deadline - System.nanoTime();
+                            if (remaining <= 0) {
+                                break;
+                            }
+                            // Only wait for more messages when they are arriving faster than they can be written, so single messages are not delayed
+                            long window = written > 1 ? remaining : 0;
+                            boolean received;
+                            lock.lock();
                             try {
-                                connection.dispatch(message);
-                            } catch (RecoverableMessageIOException e) {
-                                addToIncoming(new StreamFailureMessage(e));
+                                received = queue.poll(messages, window);
+                            } finally {
+                                lock.unlock();
                             }
-                            if (message instanceof EndOfStream) {
-                                connection.flush();
-                                return;
+                            if (!received) {
+                                break;
                             }
                         }
                         connection.flush();
-                        messages.clear();
                     }
                 } finally {
                     lock.lock();
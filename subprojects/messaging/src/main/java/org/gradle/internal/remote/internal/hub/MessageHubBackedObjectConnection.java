@@ -33,6 +33,7 @@ import org.gradle.internal.remote.ObjectConnection;
 import org.gradle.internal.remote.internal.ConnectCompletion;
 import org.gradle.internal.remote.internal.RemoteConnection;
 import org.gradle.internal.remote.internal.hub.protocol.InterHubMessage;
+import org.gradle.internal.serialize.Serializer;
 import org.gradle.internal.serialize.SerializerRegistry;
 import org.gradle.internal.serialize.StatefulSerializer;
 import org.gradle.internal.serialize.kryo.TypeSafeSerializer;
@@ -40,8 +41,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class MessageHubBackedObjectConnection implements ObjectConnection {
@@ -51,6 +54,7 @@ public class MessageHubBackedObjectConnection implements ObjectConnection {
     private RemoteConnection<InterHubMessage> connection;
     //    private ClassLoader methodParamClassLoader;
     private List<SerializerRegistry> paramSerializers = new ArrayList<SerializerRegistry>();
+    private Map<Class<?>, Serializer<?>> argumentSerializers = new HashMap<Class<?>, Serializer<?>>();
     private Set<ClassLoader> methodParamClassLoaders = new HashSet<ClassLoader>();
 
     public MessageHubBackedObjectConnection(ExecutorFactory executorFactory, ConnectCompletion completion) {
@@ -93,6 +97,10 @@ public class MessageHubBackedObjectConnection implements ObjectConnection {
         this.paramSerializers.add(serializer);
     }
 
+    public <T> void useArgumentSerializer(Class<T> type, Serializer<T> serializer) {
+        this.argumentSerializers.put(type, serializer);
+    }
+
     public void connect() {
         ClassLoader methodParamClassLoader;
         if (methodParamClassLoaders.size() == 0) {
@@ -102,7 +110,8 @@ public class MessageHubBackedObjectConnection implements ObjectConnection {
         } else {
             methodParamClassLoader = new CachingClassLoader(new MultiParentClassLoader(methodParamClassLoaders));
         }
-        MethodArgsSerializer argsSerializer = new DefaultMethodArgsSerializer(paramSerializers, new JavaSerializationBackedMethodArgsSerializer(methodParamClassLoader));
+        MethodArgsSerializer argsSerializer = new DefaultMethodArgsSerializer(paramSerializers,
+            new SchemaBackedMethodArgsSerializer(methodParamClassLoader, argumentSerializers, new JavaSerializationBackedMethodArgsSerializer(methodParamClassLoader)));
 
         StatefulSerializer<InterHubMessage> serializer = new InterHubMessageSerializer(
             new TypeSafeSerializer<MethodInvocation>(MethodInvocation.class,
@@ -0,0 +1,358 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.remote.internal.hub;
+
+import com.google.common.collect.ImmutableMap;
+import org.gradle.internal.Cast;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.Message;
+import org.gradle.internal.serialize.Serializer;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes method arguments by their declared parameter types. Arguments of simple types, such as strings, numbers, files,
+ * enums and classes, are written in a compact binary form. Arguments of other types are written using Java serialization,
+ * one argument at a time. Methods that only take arguments of other types use the given Java serialization based serializer.
+ *
+ * <p>Arguments declared as {@code Object} or {@code Object[]} are written by their runtime types instead. Values of simple types,
+ * and of the types that a serializer is given for, are written in binary form too. This is how the arguments of requests to
+ * workers are sent.</p>
+ *
+ * <p>Classes are written as an index into a table that is built up as they are first sent over the connection, so that the
+ * name of each class is sent and looked up only once. An instance keeps one such table for each direction, so it must only be
+ * used for a single connection, and only from one thread at a time for each direction. This is how
+ * {@link MessageHubBackedObjectConnection} uses it.</p>
+ */
+class SchemaBackedMethodArgsSerializer implements MethodArgsSerializer {
+    private static final Map<Class<?>, Serializer<?>> PRIMITIVE_SERIALIZERS = ImmutableMap.<Class<?>, Serializer<?>>builder()
+        .put(Integer.TYPE, BaseSerializerFactory.INTEGER_SERIALIZER)
+        .put(Long.TYPE, BaseSerializerFactory.LONG_SERIALIZER)
+        .put(Boolean.TYPE, BaseSerializerFactory.BOOLEAN_SERIALIZER)
+        .put(Byte.TYPE, BaseSerializerFactory.BYTE_SERIALIZER)
+        .put(Short.TYPE, BaseSerializerFactory.SHORT_SERIALIZER)
+        .put(Float.TYPE, BaseSerializerFactory.FLOAT_SERIALIZER)
+        .put(Double.TYPE, BaseSerializerFactory.DOUBLE_SERIALIZER)
+        .build();
+    private static final Map<Class<?>, Serializer<?>> VALUE_SERIALIZERS = ImmutableMap.<Class<?>, Serializer<?>>builder()
+        .put(String.class, BaseSerializerFactory.STRING_SERIALIZER)
+        .put(Integer.class, BaseSerializerFactory.INTEGER_SERIALIZER)
+        .put(Long.class, BaseSerializerFactory.LONG_SERIALIZER)
+        .put(Boolean.class, BaseSerializerFactory.BOOLEAN_SERIALIZER)
+        .put(Byte.class, BaseSerializerFactory.BYTE_SERIALIZER)
+        .put(Short.class, BaseSerializerFactory.SHORT_SERIALIZER)
+        .put(Float.class, BaseSerializerFactory.FLOAT_SERIALIZER)
+        .put(Double.class, BaseSerializerFactory.DOUBLE_SERIALIZER)
+        .put(File.class, BaseSerializerFactory.FILE_SERIALIZER)
+        .put(byte[].class, BaseSerializerFactory.BYTE_ARRAY_SERIALIZER)
+        .build();
+    private static final Map<String, Class<?>> PRIMITIVE_TYPES;
+    static {
+        PRIMITIVE_TYPES = new HashMap<String, Class<?>>();
+        for (Class<?> type : new Class<?>[]{Boolean.TYPE, Byte.TYPE, Character.TYPE, Short.TYPE, Integer.TYPE, Long.TYPE, Float.TYPE, Double.TYPE, Void.TYPE}) {
+            PRIMITIVE_TYPES.put(type.getName(), type);
+        }
+    }
+
+    private static final byte NULL_VALUE = 0;
+    private static final byte BINARY_VALUE = 1;
+    private static final byte OBJECT_ARRAY_VALUE = 2;
+    private static final byte JAVA_SERIALIZED_VALUE = 3;
+
+    private final ClassLoader classLoader;
+    private final Map<Class<?>, Serializer<?>> argumentSerializers;
+    private final MethodArgsSerializer javaSerializationArgsSerializer;
+    private final ClassSerializer classSerializer = new ClassSerializer();
+    private final Serializer<Object> runtimeTypeSerializer = new RuntimeTypeSerializer();
+    private final Serializer<Object> javaSerializationArgSerializer = new JavaSerializationArgSerializer();
+
+    public SchemaBackedMethodArgsSerializer(ClassLoader classLoader, MethodArgsSerializer javaSerializationArgsSerializer) {
+        this(classLoader, Collections.<Class<?>, Serializer<?>>emptyMap(), javaSerializationArgsSerializer);
+    }
+
+    /**
+     * @param argumentSerializers the serializers to use for arguments of exactly the given runtime types, where the parameter is declared as {@code Object} or {@code Object[]}.
+     */
+    public SchemaBackedMethodArgsSerializer(ClassLoader classLoader, Map<Class<?>, Serializer<?>> argumentSerializers, MethodArgsSerializer javaSerializationArgsSerializer) {
+        this.classLoader = classLoader;
+        this.argumentSerializers = ImmutableMap.copyOf(argumentSerializers);
+        this.javaSerializationArgsSerializer = javaSerializationArgsSerializer;
+    }
+
+    @Override
+    public Serializer<Object[]> forTypes(Class<?>[] types) {
+        Serializer<Object>[] serializers = Cast.uncheckedCast(new Serializer<?>[types.length]);
+        boolean anySimpleType = false;
+        for (int i = 0; i < types.length; i++) {
+            Serializer<Object> serializer = forType(types[i]);
+            if (serializer == null) {
+                serializer = javaSerializationArgSerializer;
+            } else {
+                anySimpleType = true;
+            }
+            serializers[i] = serializer;
+        }
+        if (!anySimpleType) {
+            return javaSerializationArgsSerializer.forTypes(types);
+        }
+        return new ArraySerializer(serializers);
+    }
+
+    private Serializer<Object> forType(Class<?> type) {
+        if (type.isPrimitive()) {
+            // Never null, and boxed again by reflection when the method is called
+            return Cast.uncheckedCast(PRIMITIVE_SERIALIZERS.get(type));
+        }
+        if (type.equals(Object.class)) {
+            return runtimeTypeSerializer;
+        }
+        if (type.equals(Object[].class)) {
+            return Cast.uncheckedCast(new NullableSerializer(new ObjectArraySerializer()));
+        }
+        Serializer<?> serializer = forValueType(type);
+        if (serializer == null && type.equals(Class[].class)) {
+            serializer = new ClassArraySerializer(classSerializer);
+        }
+        if (serializer == null) {
+            return null;
+        }
+        return new NullableSerializer(Cast.<Serializer<Object>>uncheckedCast(serializer));
+    }
+
+    @Nullable
+    private Serializer<?> forValueType(Class<?> type) {
+        Serializer<?> serializer = VALUE_SERIALIZERS.get(type);
+        if (serializer == null && type.isEnum()) {
+            serializer = new BaseSerializerFactory().getSerializerFor(type);
+        }
+        if (serializer == null && type.equals(Class.class)) {
+            serializer = classSerializer;
+        }
+        return serializer;
+    }
+
+    @Nullable
+    private Serializer<Object> forRuntimeType(Class<?> type) {
+        Serializer<?> serializer = argumentSerializers.get(type);
+        if (serializer == null) {
+            serializer = forValueType(type);
+        }
+        return Cast.uncheckedCast(serializer);
+    }
+
+    private static Class<?> runtimeTypeOf(Object value) {
+        if (value instanceof Enum) {
+            // Constants with a body are instances of a subclass
+            return ((Enum<?>) value).getDeclaringClass();
+        }
+        if (value instanceof Class) {
+            return Class.class;
+        }
+        return value.getClass();
+    }
+    private static class ArraySerializer implements Serializer<Object[]> {
+        private final Serializer<Object>[] serializers;
+
+        ArraySerializer(Serializer<Object>[] serializers) {
+            this.serializers = serializers;
+        }
+
+        @Override
+        public Object[] read(Decoder decoder) throws Exception {
+            Object[] result = new Object[serializers.length];
+            for (int i = 0; i < serializers.length; i++) {
+                result[i] = serializers[i].read(decoder);
+            }
+            return result;
+        }
+
+        @Override
+        public void write(Encoder encoder, Object[] value) throws Exception {
+            for (int i = 0; i < value.length; i++) {
+                serializers[i].write(encoder, value[i]);
+            }
+        }
+    }
+
+    private static class NullableSerializer implements Serializer<Object> {
+        private final Serializer<Object> serializer;
+
+        NullableSerializer(Serializer<Object> serializer) {
+            this.serializer = serializer;
+        }
+
+        @Override
+        public Object read(Decoder decoder) throws Exception {
+            if (!decoder.readBoolean()) {
+                return null;
+            }
+            return serializer.read(decoder);
+        }
+
+        @Override
+        public void write(Encoder encoder, Object value) throws Exception {
+            encoder.writeBoolean(value != null);
+            if (value != null) {
+                serializer.write(encoder, value);
+            }
+        }
+    }
+
+    private class JavaSerializationArgSerializer implements Serializer<Object> {
+        @Override
+        public Object read(Decoder decoder) throws Exception {
+            return Message.receive(decoder.getInputStream(), classLoader);
+        }
+
+        @Override
+        public void write(Encoder encoder, Object value) throws Exception {
+            Message.send(value, encoder.getOutputStream());
+        }
+    }
+
+    private class RuntimeTypeSerializer implements Serializer<Object> {
+        @Override
+        public Object read(Decoder decoder) throws Exception {
+            switch (decoder.readByte()) {
+                case NULL_VALUE:
+                    return null;
+                case BINARY_VALUE:
+                    Class<?> type = classSerializer.read(decoder);
+                    Serializer<Object> serializer = forRuntimeType(type);
+                    if (serializer == null) {
+                        throw new IllegalStateException("No serializer available for argument of type " + type.getName() + ".");
+                    }
+                    return serializer.read(decoder);
+                case OBJECT_ARRAY_VALUE:
+                    return new ObjectArraySerializer().read(decoder);
+                case JAVA_SERIALIZED_VALUE:
+                    return javaSerializationArgSerializer.read(decoder);
+                default:
+                    throw new IllegalStateException("Unexpected argument encoding.");
+            }
+        }
+
+        @Override
+        public void write(Encoder encoder, Object value) throws Exception {
+            if (value == null) {
+                encoder.writeByte(NULL_VALUE);
+                return;
+            }
+            if (value.getClass().equals(Object[].class)) {
+                encoder.writeByte(OBJECT_ARRAY_VALUE);
+                new ObjectArraySerializer().write(encoder, (Object[]) value);
+                return;
+            }
+            Class<?> type = runtimeTypeOf(value);
+            Serializer<Object> serializer = forRuntimeType(type);
+            if (serializer == null) {
+                encoder.writeByte(JAVA_SERIALIZED_VALUE);
+                javaSerializationArgSerializer.write(encoder, value);
+                return;
+            }
+            encoder.writeByte(BINARY_VALUE);
+            classSerializer.write(encoder, type);
+            serializer.write(encoder, value);
+        }
+    }
+
+    private class ObjectArraySerializer implements Serializer<Object[]> {
+        @Override
+        public Object[] read(Decoder decoder) throws Exception {
+            Object[] result = new Object[decoder.readSmallInt()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = runtimeTypeSerializer.read(decoder);
+            }
+            return result;
+        }
+
+        @Override
+        public void write(Encoder encoder, Object[] value) throws Exception {
+            encoder.writeSmallInt(value.length);
+            for (Object element : value) {
+                runtimeTypeSerializer.write(encoder, element);
+            }
+        }
+    }
+
+    private class ClassSerializer implements Serializer<Class<?>> {
+        // One table for each direction of the connection
+        private final Map<Class<?>, Integer> writtenClasses = new HashMap<Class<?>, Integer>();
+        private final List<Class<?>> readClasses = new ArrayList<Class<?>>();
+
+        @Override
+        public Class<?> read(Decoder decoder) throws Exception {
+            int classId = decoder.readSmallInt();
+            if (classId < readClasses.size()) {
+                return readClasses.get(classId);
+            }
+            String className = decoder.readString();
+            Class<?> type = PRIMITIVE_TYPES.get(className);
+            if (type == null) {
+                type = Class.forName(className, false, classLoader);
+            }
+            readClasses.add(type);
+            return type;
+        }
+
+        @Override
+        public void write(Encoder encoder, Class<?> value) throws Exception {
+            Integer classId = writtenClasses.get(value);
+            if (classId != null) {
+                encoder.writeSmallInt(classId);
+                return;
+            }
+            classId = writtenClasses.size();
+            writtenClasses.put(value, classId);
+            encoder.writeSmallInt(classId);
+            encoder.writeString(value.getName());
+        }
+    }
+
+    private static class ClassArraySerializer implements Serializer<Class<?>[]> {
+        private final ClassSerializer classSerializer;
+
+        ClassArraySerializer(ClassSerializer classSerializer) {
+            this.classSerializer = classSerializer;
+        }
+
+        @Override
+        public Class<?>[] read(Decoder decoder) throws Exception {
+            Class<?>[] result = new Class<?>[decoder.readSmallInt()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = classSerializer.read(decoder);
+            }
+            return result;
+        }
+
+        @Override
+        public void write(Encoder encoder, Class<?>[] value) throws Exception {
+            encoder.writeSmallInt(value.length);
+            for (Class<?> type : value) {
+                classSerializer.write(encoder, type);
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.remote.internal.inet;
+
+import com.google.common.base.Charsets;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.remote.internal.ConnectCompletion;
+import org.gradle.internal.remote.internal.KryoBackedMessageSerializer;
+import org.gradle.internal.remote.internal.RemoteConnection;
+import org.gradle.internal.serialize.StatefulSerializer;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Sets up a connection whose messages are exchanged through a pair of {@link SharedMemoryRingBuffer}s, one per direction.
+ *
+ * <p>The accepting side creates and maps the file, and sends its path over the socket. The connecting side maps the file
+ * and acknowledges, after which the accepting side deletes the file again. The mapping stays valid until both processes
+ * have let go of it, and nothing is left behind when either of them dies. The file is created in a directory that only
+ * the current user can access, so that no other process can map it.</p>
+ */
+class SharedMemoryConnectCompletion implements ConnectCompletion {
+    private static final int RING_BUFFER_SIZE = 4 * 1024 * 1024;
+    private static final File SHARED_MEMORY_DIR = new File("/dev/shm");
+
+    private final SocketChannel socket;
+    private final boolean accepting;
+
+    SharedMemoryConnectCompletion(SocketChannel socket, boolean accepting) {
+        this.socket = socket;
+        this.accepting = accepting;
+    }
+
+    @Override
+    public String toString() {
+        return socket.socket().getLocalSocketAddress() + " to " + socket.socket().getRemoteSocketAddress() + " using shared memory";
+    }
+
+    @Override
+    public <T> RemoteConnection<T> create(StatefulSerializer<T> serializer) {
+        try {
+            MappedByteBuffer mapping = accepting ? createMapping() : openMapping();
+            SharedMemoryRingBuffer first = new SharedMemoryRingBuffer(region(mapping, 0));
+            SharedMemoryRingBuffer second = new SharedMemoryRingBuffer(region(mapping, RING_BUFFER_SIZE));
+            SharedMemoryRingBuffer outgoing = accepting ? first : second;
+            SharedMemoryRingBuffer incoming = accepting ? second : first;
+            SharedMemoryRingBuffer.Doorbell doorbell = new SharedMemoryRingBuffer.Doorbell(socket);
+            return new SocketConnection<T>(socket, incoming.newInputStream(doorbell), outgoing.newOutputStream(doorbell), new KryoBackedMessageSerializer(), serializer);
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    private MappedByteBuffer createMapping() throws IOException {
+        File dir = createPrivateDir();
+        File file = new File(dir, "ring");
+        file.deleteOnExit();
+        try {
+            MappedByteBuffer mapping = map(file);
+            byte[] path = file.getAbsolutePath().getBytes(Charsets.UTF_8);
+            ByteBuffer message = ByteBuffer.allocate(4 + path.length);
+            message.putInt(path.length);
+            message.put(path);
+            message.flip();
+            writeFully(message);
+            // Wait for the peer to map the file
+            readFully(ByteBuffer.allocate(1));
+            return mapping;
+        } finally {
+            file.delete();
+            dir.delete();
+        }
+    }
+
+    private static File createPrivateDir() throws IOException {
+        File parent = SHARED_MEMORY_DIR.isDirectory() ? SHARED_MEMORY_DIR : null;
+        File dir = File.createTempFile("gradle-worker-", ".ring", parent);
+        if (!dir.delete() || !dir.mkdir()) {
+            throw new IOException("Could not create directory " + dir + ".");
+        }
+        // Registered before the file in it, so that it is deleted after the file
+        dir.deleteOnExit();
+        // Restrict access before anything is created in the directory
+        boolean ownerOnly = dir.setReadable(false, false) && dir.setReadable(true, true)
+            && dir.setWritable(false, false) && dir.setWritable(true, true)
+            && dir.setExecutable(false, false) && dir.setExecutable(true, true);
+        if (!ownerOnly) {
+            dir.delete();
+            throw new IOException("Could not restrict access to directory " + dir + ".");
+        }
+        return dir;
+    }
+
+    private MappedByteBuffer openMapping() throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        readFully(length);
+        ByteBuffer path = ByteBuffer.allocate(length.getInt(0));
+        readFully(path);
+        MappedByteBuffer mapping = map(new File(new String(path.array(), Charsets.UTF_8)));
+        writeFully(ByteBuffer.wrap(new byte[]{1}));
+        return mapping;
+    }
+
+    private static MappedByteBuffer map(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.setLength(2L * RING_BUFFER_SIZE);
+            return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, 2L * RING_BUFFER_SIZE);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static ByteBuffer region(MappedByteBuffer mapping, int offset) {
+        ByteBuffer region = mapping.duplicate();
+        region.position(offset);
+        region.limit(offset + RING_BUFFER_SIZE);
+        return region.slice();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            socket.write(buffer);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (socket.read(buffer) < 0) {
+                throw new EOFException("Connection closed while setting up shared memory.");
+            }
+        }
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.remote.internal.inet;
+
+import org.gradle.internal.UncheckedException;
+import sun.misc.Unsafe;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.SocketException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A single producer, single consumer ring buffer in a region of a memory mapped file, shared between two processes.
+ *
+ * <p>The region starts with a header holding the total number of bytes written and read so far, followed by the data.
+ * The writer only updates the write position and the reader only updates the read position. Each side publishes its
+ * position with an ordered write after copying the data, and reads the position of the other side with a volatile read
+ * before copying the data, so the data is always visible to the other side before the position that covers it.</p>
+ *
+ * <p>Each time the writer publishes data, it rings a {@link Doorbell} by sending a single byte over a socket. The reader
+ * blocks on the socket while the buffer is empty. When the buffer is full, the writer flags that it is waiting for space
+ * and blocks until the reader rings back after it has freed up some space.</p>
+ */
+class SharedMemoryRingBuffer {
+    private static final int WRITE_POSITION = 0;
+    private static final int READ_POSITION = 8;
+    private static final int WRITER_WAITING = 16;
+    static final int HEADER_SIZE = 64;
+
+    private static final Unsafe UNSAFE;
+    private static final long ADDRESS_OFFSET;
+    static {
+        try {
+            Field theUnsafe = Unsafe.class.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            UNSAFE = (Unsafe) theUnsafe.get(null);
+            ADDRESS_OFFSET = UNSAFE.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    private final ByteBuffer data;
+    private final int capacity;
+    // The header is accessed through Unsafe, either in the backing array or at the native address of the region
+    private final Object headerBase;
+    private final long headerOffset;
+    private long writePosition;
+    private long publishedPosition;
+    private long readPosition;
+
+    SharedMemoryRingBuffer(ByteBuffer region) {
+        region = region.slice();
+        if (region.hasArray()) {
+            headerBase = region.array();
+            headerOffset = Unsafe.ARRAY_BYTE_BASE_OFFSET + region.arrayOffset();
+        } else {
+            headerBase = null;
+            headerOffset = UNSAFE.getLong(region, ADDRESS_OFFSET);
+        }
+        region.position(HEADER_SIZE);
+        this.data = region.slice();
+        this.capacity = data.capacity();
+        this.writePosition = getVolatile(WRITE_POSITION);
+        this.publishedPosition = writePosition;
+        this.readPosition = getVolatile(READ_POSITION);
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Copies as many of the given bytes into the buffer as there is space for, without making them visible to the reader.
+     */
+    int write(byte[] src, int offset, int length) {
+        int free = (int) (capacity - (writePosition - getVolatile(READ_POSITION)));
+        int count = Math.min(length, free);
+        int start = (int) (writePosition % capacity);
+        int first = Math.min(count, capacity - start);
+        data.position(start);
+        data.put(src, offset, first);
+        if (count > first) {
+            data.position(0);
+            data.put(src, offset + first, count - first);
+        }
+        writePosition += count;
+        return count;
+    }
+
+    /**
+     * Makes the bytes written so far visible to the reader.
+     *
+     * @return false if there was nothing new to publish.
+     */
+    boolean publish() {
+        if (writePosition == publishedPosition) {
+            return false;
+        }
+        UNSAFE.putOrderedLong(headerBase, headerOffset + WRITE_POSITION, writePosition);
+        publishedPosition = writePosition;
+        return true;
+    }
+
+    /**
+     * Copies as many published bytes out of the buffer as are available, freeing up their space for the writer.
+     */
+    int read(byte[] dest, int offset, int length) {
+        int available = (int) (getVolatile(WRITE_POSITION) - readPosition);
+        int count = Math.min(length, available);
+        int start = (int) (readPosition % capacity);
+        int first = Math.min(count, capacity - start);
+        data.position(start);
+        data.get(dest, offset, first);
+        if (count > first) {
+            data.position(0);
+            data.get(dest, offset + first, count - first);
+        }
+        readPosition += count;
+        // Volatile rather than ordered, so that the writer either sees the space or has flagged that it waits for it
+        UNSAFE.putLongVolatile(headerBase, headerOffset + READ_POSITION, readPosition);
+        return count;
+    }
+
+    /**
+     * Flags that the writer waits for space, and returns whether the buffer is still full.
+     */
+    boolean awaitSpace() {
+        UNSAFE.putLongVolatile(headerBase, headerOffset + WRITER_WAITING, 1);
+        if (writePosition - getVolatile(READ_POSITION) < capacity) {
+            UNSAFE.putLongVolatile(headerBase, headerOffset + WRITER_WAITING, 0);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Clears the flag that the writer waits for space, returning whether it was set.
+     */
+    boolean takeWriterWaiting() {
+        return getVolatile(WRITER_WAITING) != 0 && UNSAFE.compareAndSwapLong(headerBase, headerOffset + WRITER_WAITING, 1, 0);
+    }
+
+    private long getVolatile(int position) {
+        return UNSAFE.getLongVolatile(headerBase, headerOffset + position);
+    }
+
+    OutputStream newOutputStream(Doorbell doorbell) {
+        return new RingBufferOutputStream(this, doorbell);
+    }
+
+    InputStream newInputStream(Doorbell doorbell) {
+        return new RingBufferInputStream(this, doorbell);
+    }
+
+    /**
+     * Wakes up the peer process by sending single bytes over a socket, and lets threads of this process wait for the peer to do so.
+     * Rings of both directions go over the same socket, so a ring only means that the state of either buffer may have changed.
+     */
+    static class Doorbell {
+        private final SocketChannel socket;
+        private final ByteBuffer ringByte = ByteBuffer.allocate(1);
+        private final ByteBuffer receivedBytes = ByteBuffer.allocate(64);
+        private final Object lock = new Object();
+        private long rings;
+        private boolean closed;
+
+        Doorbell(SocketChannel socket) {
+            this.socket = socket;
+            try {
+                // Rings are single bytes, which would otherwise be held back until the previous ring has been acknowledged
+                socket.socket().setTcpNoDelay(true);
+            } catch (SocketException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+
+        /**
+         * Wakes up the peer. Fails when the peer has gone away.
+         */
+        void ring() throws IOException {
+            synchronized (ringByte) {
+                ringByte.clear();
+                while (ringByte.hasRemaining()) {
+                    if (socket.write(ringByte) < 0) {
+                        throw new EOFException();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Blocks until the peer rings. Only one thread may call this.
+         *
+         * @return false when the peer has gone away.
+         */
+        boolean receive() throws IOException {
+            // Several rings may be pending, consume them all at once
+            receivedBytes.clear();
+            boolean open;
+            try {
+                open = socket.read(receivedBytes) >= 0;
+            } catch (ClosedChannelException e) {
+                open = false;
+            } catch (IOException e) {
+                if (!SocketConnection.isEndOfStream(e)) {
+                    throw e;
+                }
+                open = false;
+            }
+            synchronized (lock) {
+                rings++;
+                closed = !open;
+                lock.notifyAll();
+            }
+            return open;
+        }
+
+        long getRings() {
+            synchronized (lock) {
+                return rings;
+            }
+        }
+
+        /**
+         * Waits until the thread calling {@link #receive()} has seen a ring after the given one, or the timeout expires.
+         *
+         * @return false when the peer has gone away.
+         */
+        boolean awaitRing(long previousRings, long timeoutMillis) throws IOException {
+            synchronized (lock) {
+                if (rings == previousRings && !closed) {
+                    try {
+                        lock.wait(timeoutMillis);
+                    } catch (InterruptedException e) {
+                        throw new IOException("Interrupted while waiting for the peer.");
+                    }
+                }
+                return !closed;
+            }
+        }
+    }
+
+    private static class RingBufferOutputStream extends OutputStream {
+        // Rings are only seen once the receiving thread of this process is idle, so check for space every now and then anyway
+        private static final long SPACE_WAIT_TIMEOUT = 10;
+        private final SharedMemoryRingBuffer ringBuffer;
+        private final Doorbell doorbell;
+        private final byte[] writeBuffer = new byte[1];
+
+        RingBufferOutputStream(SharedMemoryRingBuffer ringBuffer, Doorbell doorbell) {
+            this.ringBuffer = ringBuffer;
+            this.doorbell = doorbell;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            writeBuffer[0] = (byte) b;
+            write(writeBuffer, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] src, int offset, int length) throws IOException {
+            int remaining = length;
+            int currentPos = offset;
+            while (remaining > 0) {
+                int count = ringBuffer.write(src, currentPos, remaining);
+                remaining -= count;
+                currentPos += count;
+                if (remaining > 0) {
+                    waitForReader();
+                }
+            }
+        }
+
+        private void waitForReader() throws IOException {
+            // Buffer is full: hand over what has been written and wait for the reader to free up some space
+            flush();
+            while (true) {
+                long rings = doorbell.getRings();
+                if (!ringBuffer.awaitSpace()) {
+                    return;
+                }
+                if (!doorbell.awaitRing(rings, SPACE_WAIT_TIMEOUT)) {
+                    throw new EOFException("The reader has gone away.");
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (ringBuffer.publish()) {
+                doorbell.ring();
+            }
+        }
+    }
+
+    private static class RingBufferInputStream extends InputStream {
+        private final SharedMemoryRingBuffer ringBuffer;
+        private final Doorbell doorbell;
+        private final byte[] readBuffer = new byte[1];
+        private boolean endOfStream;
+
+        RingBufferInputStream(SharedMemoryRingBuffer ringBuffer, Doorbell doorbell) {
+            this.ringBuffer = ringBuffer;
+            this.doorbell = doorbell;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int nread = read(readBuffer, 0, 1);
+            if (nread <= 0) {
+                return nread;
+            }
+            return readBuffer[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] dest, int offset, int max) throws IOException {
+            if (max == 0) {
+                return 0;
+            }
+            while (true) {
+                int count = ringBuffer.read(dest, offset, max);
+                if (count > 0) {
+                    if (ringBuffer.takeWriterWaiting()) {
+                        wakeUpWriter();
+                    }
+                    return count;
+                }
+                if (endOfStream) {
+                    return -1;
+                }
+                endOfStream = !doorbell.receive();
+            }
+        }
+
+        private void wakeUpWriter() {
+            try {
+                doorbell.ring();
+            } catch (IOException e) {
+                // The writer has gone away, but the bytes it has written can still be read
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.remote.internal.inet;
+
+import org.gradle.internal.os.OperatingSystem;
+
+/**
+ * Whether connections to worker processes exchange their messages through shared memory instead of through the socket.
+ *
+ * <p>This is opt-in and only available on Linux. The socket is still used to set up the connection and to wake up the
+ * receiving side. Both sides of a connection must agree on the transport, so the decision is made once per process.</p>
+ */
+public class SharedMemoryTransport {
+    public static final String SHARED_MEMORY_PROPERTY = "org.gradle.internal.remote.sharedMemory";
+
+    private static final boolean ENABLED = Boolean.getBoolean(SHARED_MEMORY_PROPERTY) && OperatingSystem.current().isLinux();
+
+    private SharedMemoryTransport() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+}
@@ -50,16 +50,16 @@ public class SocketConnection<T> implements RemoteConnection<T> {
     private final FlushableEncoder encoder;
 
     public SocketConnection(SocketChannel socket, MessageSerializer streamSerializer, StatefulSerializer<T> messageSerializer) {
+        this(socket, nonBlockingInputStream(socket), nonBlockingOutputStream(socket), streamSerializer, messageSerializer);
+    }
+
+    /**
+     * Creates a connection that exchanges the message bytes through the given streams rather than through the socket itself.
+     */
+    SocketConnection(SocketChannel socket, InputStream instr, OutputStream outstr, MessageSerializer streamSerializer, StatefulSerializer<T> messageSerializer) {
         this.socket = socket;
-        try {
-            // NOTE: we use non-blocking IO as there is no reliable way when using blocking IO to shutdown reads while
-            // keeping writes active. For example, Socket.shutdownInput() does not work on Windows.
-            socket.configureBlocking(false);
-            outstr = new SocketOutputStream(socket);
-            instr = new SocketInputStream(socket);
-        } catch (IOException e) {
-            throw UncheckedException.throwAsUncheckedException(e);
-        }
+        this.instr = instr;
+        this.outstr = outstr;
         InetSocketAddress localSocketAddress = (InetSocketAddress) socket.socket().getLocalSocketAddress();
         localAddress = new SocketInetAddress(localSocketAddress.getAddress(), localSocketAddress.getPort());
         InetSocketAddress remoteSocketAddress = (InetSocketAddress) socket.socket().getRemoteSocketAddress();
@@ -69,6 +69,25 @@ public class SocketConnection<T> implements RemoteConnection<T> {
         objectWriter = messageSerializer.newWriter(encoder);
     }
 
+    private static InputStream nonBlockingInputStream(SocketChannel socket) {
+        try {
+            // NOTE: we use non-blocking IO as there is no reliable way when using blocking IO to shutdown reads while
+            // keeping writes active. For example, Socket.shutdownInput() does not work on Windows.
+            socket.configureBlocking(false);
+            return new SocketInputStream(socket);
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    private static OutputStream nonBlockingOutputStream(SocketChannel socket) {
+        try {
+            return new SocketOutputStream(socket);
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
     @Override
     public String toString() {
         return "socket connection from " + localAddress + " to " + remoteAddress;
@@ -93,7 +112,7 @@ public class SocketConnection<T> implements RemoteConnection<T> {
         }
     }
 
-    private static boolean isEndOfStream(Exception e) {
+    static boolean isEndOfStream(Exception e) {
         if (e instanceof EOFException) {
             return true;
         }
@@ -154,7 +173,8 @@ public class SocketConnection<T> implements RemoteConnection<T> {
             this.socket = socket;
             selector = Selector.open();
             socket.register(selector, SelectionKey.OP_READ);
-            buffer = ByteBuffer.allocateDirect(4096);
+            // Same size as the sending buffer, so that a batch of messages flushed at once is usually read at once
+            buffer = ByteBuffer.allocateDirect(32 * 1024);
             buffer.limit(0);
         }
 
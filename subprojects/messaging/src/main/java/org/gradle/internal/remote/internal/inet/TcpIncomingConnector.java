@@ -42,11 +42,20 @@ public class TcpIncomingConnector implements IncomingConnector {
     private final ExecutorFactory executorFactory;
     private final InetAddressFactory addressFactory;
     private final IdGenerator<UUID> idGenerator;
+    private final boolean sharedMemory;
 
     public TcpIncomingConnector(ExecutorFactory executorFactory, InetAddressFactory addressFactory, IdGenerator<UUID> idGenerator) {
+        this(executorFactory, addressFactory, idGenerator, false);
+    }
+
+    /**
+     * @param sharedMemory whether to exchange messages through shared memory. Only use when the connecting side does so as well.
+     */
+    public TcpIncomingConnector(ExecutorFactory executorFactory, InetAddressFactory addressFactory, IdGenerator<UUID> idGenerator, boolean sharedMemory) {
         this.executorFactory = executorFactory;
         this.addressFactory = addressFactory;
         this.idGenerator = idGenerator;
+        this.sharedMemory = sharedMemory;
     }
 
     public ConnectionAcceptor accept(Action<ConnectCompletion> action, boolean allowRemote) {
@@ -109,7 +118,7 @@ public class TcpIncomingConnector implements IncomingConnector {
                         }
                         LOGGER.debug("Accepted connection from {} to {}.", socket.socket().getRemoteSocketAddress(), socket.socket().getLocalSocketAddress());
                         try {
-                            action.execute(new SocketConnectCompletion(socket));
+                            action.execute(sharedMemory ? new SharedMemoryConnectCompletion(socket, true) : new SocketConnectCompletion(socket));
                         } catch (Throwable t) {
                             socket.close();
                             throw t;
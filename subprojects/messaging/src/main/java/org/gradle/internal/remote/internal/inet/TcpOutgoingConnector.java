@@ -31,6 +31,18 @@ import java.util.List;
 public class TcpOutgoingConnector implements OutgoingConnector {
     private static final Logger LOGGER = LoggerFactory.getLogger(TcpOutgoingConnector.class);
     private static final int CONNECT_TIMEOUT = 10000;
+    private final boolean sharedMemory;
+
+    public TcpOutgoingConnector() {
+        this(false);
+    }
+
+    /**
+     * @param sharedMemory whether to exchange messages through shared memory. Only use when the accepting side does so as well.
+     */
+    public TcpOutgoingConnector(boolean sharedMemory) {
+        this.sharedMemory = sharedMemory;
+    }
 
     public ConnectCompletion connect(Address destinationAddress) throws org.gradle.internal.remote.internal.ConnectException {
         if (!(destinationAddress instanceof InetEndpoint)) {
@@ -61,7 +73,7 @@ public class TcpOutgoingConnector implements OutgoingConnector {
                     continue;
                 }
                 LOGGER.debug("Connected to address {}.", socketChannel.socket().getRemoteSocketAddress());
-                return new SocketConnectCompletion(socketChannel);
+                return sharedMemory ? new SharedMemoryConnectCompletion(socketChannel, false) : new SocketConnectCompletion(socketChannel);
             }
             throw new org.gradle.internal.remote.internal.ConnectException(String.format("Could not connect to server %s. Tried addresses: %s.",
                     destinationAddress, candidateAddresses), lastFailure);
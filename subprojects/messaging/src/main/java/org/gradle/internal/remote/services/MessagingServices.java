@@ -47,6 +47,18 @@ import java.util.UUID;
  */
 public class MessagingServices extends DefaultServiceRegistry implements Stoppable {
     private final IdGenerator<UUID> idGenerator = new UUIDGenerator();
+    private final boolean sharedMemory;
+
+    public MessagingServices() {
+        this(false);
+    }
+
+    /**
+     * @param sharedMemory whether connections exchange their messages through shared memory. All processes that talk to each other must agree on this.
+     */
+    public MessagingServices(boolean sharedMemory) {
+        this.sharedMemory = sharedMemory;
+    }
 
     public void stop() {
         close();
@@ -61,14 +73,15 @@ public class MessagingServices extends DefaultServiceRegistry implements Stoppab
     }
 
     protected OutgoingConnector createOutgoingConnector() {
-        return new TcpOutgoingConnector();
+        return new TcpOutgoingConnector(sharedMemory);
     }
 
     protected IncomingConnector createIncomingConnector(ExecutorFactory executorFactory, InetAddressFactory inetAddressFactory) {
         return new TcpIncomingConnector(
                 executorFactory,
                 inetAddressFactory,
-                idGenerator
+                idGenerator,
+                sharedMemory
         );
     }
 
@@ -16,6 +16,7 @@
 
 package org.gradle.internal.event
 
+import org.gradle.internal.concurrent.ThreadSafe
 import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 import spock.lang.Ignore
 import spock.lang.Timeout
@@ -259,6 +260,73 @@ class DefaultListenerManagerTest extends ConcurrentSpec {
         instant.bReceived > instant.aHandled
     }
 
+    def notifyDoesNotBlockWhenAnotherThreadIsNotifyingThreadSafeListener() {
+        given:
+        def listener1 = { String p ->
+            if (p == "a") {
+                instant.aReceived
+                thread.block()
+                instant.aHandled
+            } else {
+                instant.bReceived
+            }
+        } as ThreadSafeFooListener
+
+        manager.addListener(listener1)
+        def broadcaster = manager.getBroadcaster(TestFooListener.class)
+
+        when:
+        async {
+            start {
+                broadcaster.foo("a")
+            }
+            start {
+                thread.blockUntil.aReceived
+                broadcaster.foo("b")
+            }
+        }
+
+        then:
+        instant.bReceived < instant.aHandled
+    }
+
+    def notifyBlocksOnListenerThatIsNotThreadSafeWhenAnotherThreadIsNotifyingIt() {
+        given:
+        def listener1 = { String p ->
+            if (p == "b") {
+                instant.bReceivedByThreadSafeListener
+            }
+        } as ThreadSafeFooListener
+        def listener2 = { String p ->
+            if (p == "a") {
+                instant.aReceived
+                thread.block()
+                instant.aHandled
+            } else {
+                instant.bReceived
+            }
+        } as TestFooListener
+
+        manager.addListener(listener1)
+        manager.addListener(listener2)
+        def broadcaster = manager.getBroadcaster(TestFooListener.class)
+
+        when:
+        async {
+            start {
+                broadcaster.foo("a")
+            }
+            start {
+                thread.blockUntil.aReceived
+                broadcaster.foo("b")
+            }
+        }
+
+        then:
+        instant.bReceivedByThreadSafeListener < instant.aHandled
+        instant.bReceived > instant.aHandled
+    }
+
     def notifyDoesNotBlockWhenAnotherThreadIsNotifyingOnDifferentType() {
         given:
         def listener1 = { String p ->
@@ -864,6 +932,48 @@ class DefaultListenerManagerTest extends ConcurrentSpec {
         instant.removed > instant.handled
     }
 
+    def removingThreadSafeListenerBlocksWhileAnotherThreadIsNotifyingListener() {
+        given:
+        def listener1 = {
+            instant.received
+            thread.block()
+            instant.handled
+        } as ThreadSafeFooListener
+        manager.addListener(listener1)
+
+        when:
+        async {
+            start {
+                manager.getBroadcaster(TestFooListener.class).foo("param")
+            }
+            thread.blockUntil.received
+            manager.removeListener(listener1)
+            instant.removed
+        }
+
+        then:
+        instant.removed > instant.handled
+    }
+
+    def threadSafeListenerCanRemoveItself() {
+        given:
+        def listener1
+        listener1 = {
+            manager.removeListener(listener1)
+        } as ThreadSafeFooListener
+        manager.addListener(listener1)
+        manager.addListener(fooListener2)
+        def broadcaster = manager.getBroadcaster(TestFooListener.class)
+
+        when:
+        broadcaster.foo("param")
+        broadcaster.foo("param")
+
+        then:
+        2 * fooListener2.foo("param")
+        0 * _
+    }
+
     def removingListenerDoesNotBlockWhileAnotherThreadIsNotifyingOnDifferentType() {
         given:
         def listener1 = {
@@ -899,6 +1009,9 @@ class DefaultListenerManagerTest extends ConcurrentSpec {
     public interface BothListener extends TestFooListener, TestBarListener {
     }
 
+    public interface ThreadSafeFooListener extends TestFooListener, ThreadSafe {
+    }
+
     public interface TestBazListener {
         void baz()
     }
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.remote.internal.hub
+
+import org.gradle.internal.serialize.Decoder
+import org.gradle.internal.serialize.Encoder
+import org.gradle.internal.serialize.Message
+import org.gradle.internal.serialize.Serializer
+import org.gradle.internal.serialize.SerializerSpec
+
+import java.util.concurrent.TimeUnit
+
+class SchemaBackedMethodArgsSerializerTest extends SerializerSpec {
+    def javaSerialization = new JavaSerializationBackedMethodArgsSerializer(getClass().classLoader)
+    def serializer = new SchemaBackedMethodArgsSerializer(getClass().classLoader, javaSerialization)
+
+    def "serializes args of simple types"() {
+        def args = ["a", 12L, 3, true, new File("f"), [1, 2] as byte[], TimeUnit.SECONDS, Runnable, [String, int] as Class[]] as Object[]
+
+        expect:
+        def arraySerializer = serializer.forTypes([String, Long, int, boolean, File, byte[], TimeUnit, Class, Class[]] as Class[])
+        serialize(args, arraySerializer) == args
+    }
+
+    def "serializes null args"() {
+        def args = [null, null, "a"] as Object[]
+
+        expect:
+        def arraySerializer = serializer.forTypes([String, Class[], Object] as Class[])
+        serialize(args, arraySerializer) == args
+    }
+
+    def "uses java serialization for args of other types"() {
+        def args = ["a", [1, 2], new StringBuilder("b")] as Object[]
+
+        when:
+        def arraySerializer = serializer.forTypes([String, List, Object] as Class[])
+        def result = serialize(args, arraySerializer)
+
+        then:
+        result[0] == "a"
+        result[1] == [1, 2]
+        result[2].toString() == "b"
+    }
+
+    def "uses given serializer when no arg is of a simple type"() {
+        def javaSerialization = Mock(MethodArgsSerializer)
+        def serializer = new SchemaBackedMethodArgsSerializer(getClass().classLoader, javaSerialization)
+        def arraySerializer = Stub(Serializer)
+
+        when:
+        def result = serializer.forTypes([List, Map] as Class[])
+
+        then:
+        1 * javaSerialization.forTypes(_) >> arraySerializer
+        result == arraySerializer
+    }
+
+    def "writes class names only once"() {
+        def arraySerializer = serializer.forTypes([String, Class[]] as Class[])
+        def args = ["method", [String, File, String] as Class[]] as Object[]
+
+        when:
+        def first = toBytes(args, arraySerializer)
+        def second = toBytes(args, arraySerializer)
+
+        then:
+        second.length < first.length
+        second.length < javaSerializedLength(args)
+        fromBytes(first, arraySerializer) == args
+        fromBytes(second, arraySerializer) == args
+    }
+
+    def "writes class names only once for all methods"() {
+        def firstMethod = serializer.forTypes([Class] as Class[])
+        def secondMethod = serializer.forTypes([String, Class] as Class[])
+
+        when:
+        def first = toBytes([File] as Object[], firstMethod)
+        def second = toBytes(["a", File] as Object[], secondMethod)
+
+        then:
+        second.length < first.length
+        fromBytes(first, firstMethod) == [File] as Object[]
+        fromBytes(second, secondMethod) == ["a", File] as Object[]
+    }
+
+    def "writes primitive args without null marker"() {
+        expect:
+        toBytes([12] as Object[], serializer.forTypes([int] as Class[])).length == toBytes([12] as Object[], serializer.forTypes([Integer] as Class[])).length - 1
+        serialize([1.5d, 2 as byte] as Object[], serializer.forTypes([double, byte] as Class[])) == [1.5d, 2 as byte] as Object[]
+    }
+
+    def "serializes args declared as objects by their runtime types"() {
+        def args = ["method", [String, File] as Class[], ["a", new File("f"), null, TimeUnit.SECONDS, 12L, ["nested"] as Object[], new StringBuilder("b")] as Object[], 3L] as Object[]
+
+        when:
+        def arraySerializer = serializer.forTypes([String, Class[], Object[], Object] as Class[])
+        def result = serialize(args, arraySerializer)
+
+        then:
+        result[0] == "method"
+        result[1] == [String, File] as Class[]
+        result[2][0..4] == ["a", new File("f"), null, TimeUnit.SECONDS, 12L]
+        result[2][5] == ["nested"] as Object[]
+        result[2][6].toString() == "b"
+        result[3] == 3L
+        toBytes(args, arraySerializer).length < javaSerializedLength(args)
+    }
+
+    def "uses given serializer for args declared as objects"() {
+        def argSerializer = new Serializer<StringBuilder>() {
+            StringBuilder read(Decoder decoder) { new StringBuilder(decoder.readString() + " read") }
+            void write(Encoder encoder, StringBuilder value) { encoder.writeString(value.toString()) }
+        }
+        def serializer = new SchemaBackedMethodArgsSerializer(getClass().classLoader, [(StringBuilder): argSerializer], javaSerialization)
+
+        when:
+        def result = serialize([[new StringBuilder("a")] as Object[]] as Object[], serializer.forTypes([Object[]] as Class[]))
+
+        then:
+        result[0][0].toString() == "a read"
+    }
+
+    private static int javaSerializedLength(Object value) {
+        def bytes = new ByteArrayOutputStream()
+        Message.send(value, bytes)
+        return bytes.size()
+    }
+}
@@ -162,4 +162,42 @@ class MultiEndPointQueueTest extends AbstractQueueTest {
         messages.size() == 1
         messages[0] instanceof EndOfStream
     }
+
+    def "endpoint polling receives messages queued since it last took messages"() {
+        given:
+        def message1 = unicast()
+        def message2 = unicast()
+        def endpoint = queue.newEndpoint()
+        queue.dispatch(message1)
+        queue.dispatch(message2)
+
+        when:
+        def messages = []
+        def received = endpoint.poll(messages, 0)
+
+        then:
+        received
+        messages == [message1, message2]
+    }
+
+    def "endpoint polling stays waiting when no message arrives"() {
+        given:
+        def message = unicast()
+        def endpoint = queue.newEndpoint()
+
+        when:
+        def messages = []
+        def received = endpoint.poll(messages, 0)
+
+        then:
+        !received
+        messages.empty
+
+        when:
+        queue.dispatch(message)
+        endpoint.take(messages)
+
+        then:
+        messages == [message]
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.remote.internal.inet
+
+import org.gradle.api.Action
+import org.gradle.internal.id.UUIDGenerator
+import org.gradle.internal.remote.internal.ConnectCompletion
+import org.gradle.internal.serialize.BaseSerializerFactory
+import org.gradle.internal.serialize.Serializers
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+import org.gradle.util.Requires
+import org.gradle.util.TestPrecondition
+import spock.lang.Shared
+import spock.lang.Timeout
+
+@Timeout(60)
+@Requires(TestPrecondition.LINUX)
+class SharedMemoryConnectionTest extends ConcurrentSpec {
+    @Shared def serializer = Serializers.stateful(BaseSerializerFactory.STRING_SERIALIZER)
+    final def outgoingConnector = new TcpOutgoingConnector(true)
+    final def incomingConnector = new TcpIncomingConnector(executorFactory, new InetAddressFactory(), new UUIDGenerator(), true)
+
+    def "exchanges messages in both directions"() {
+        def received = []
+
+        when:
+        def acceptor = incomingConnector.accept({ ConnectCompletion completion ->
+            def connection = completion.create(serializer)
+            def message
+            while ((message = connection.receive()) != null && message != "done") {
+                connection.dispatch("reply to " + message)
+                connection.flush()
+            }
+            connection.stop()
+        } as Action, false)
+        def connection = outgoingConnector.connect(acceptor.address).create(serializer)
+        3.times {
+            connection.dispatch("message " + it)
+            connection.flush()
+            received << connection.receive()
+        }
+        connection.dispatch("done")
+        connection.flush()
+
+        then:
+        received == ["reply to message 0", "reply to message 1", "reply to message 2"]
+        connection.receive() == null
+
+        cleanup:
+        connection?.stop()
+        acceptor?.stop()
+    }
+
+    def "writer waits for reader when more is sent than fits into the buffer"() {
+        def message = "x" * 100000
+        def count = 200
+
+        when:
+        def acceptor = incomingConnector.accept({ ConnectCompletion completion ->
+            def connection = completion.create(serializer)
+            count.times {
+                connection.dispatch(message + it)
+            }
+            connection.flush()
+            connection.stop()
+        } as Action, false)
+        def connection = outgoingConnector.connect(acceptor.address).create(serializer)
+        def received = []
+        def next
+        while ((next = connection.receive()) != null) {
+            received << next
+        }
+
+        then:
+        received.size() == count
+        received.every { it.startsWith(message) }
+        received.last() == message + (count - 1)
+
+        cleanup:
+        connection?.stop()
+        acceptor?.stop()
+    }
+
+    def "does not leave the shared memory file behind"() {
+        def sharedMemoryDir = new File("/dev/shm").isDirectory() ? new File("/dev/shm") : new File(System.getProperty("java.io.tmpdir"))
+        def before = sharedMemoryDir.list().findAll { it.startsWith("gradle-worker-") } as Set
+
+        when:
+        def acceptor = incomingConnector.accept({ ConnectCompletion completion ->
+            def connection = completion.create(serializer)
+            connection.dispatch("hello")
+            connection.flush()
+            connection.stop()
+        } as Action, false)
+        def connection = outgoingConnector.connect(acceptor.address).create(serializer)
+
+        then:
+        connection.receive() == "hello"
+        (sharedMemoryDir.list().findAll { it.startsWith("gradle-worker-") } as Set) == before
+
+        cleanup:
+        connection?.stop()
+        acceptor?.stop()
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.remote.internal.inet
+
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+
+class SharedMemoryRingBufferTest extends Specification {
+    def region = ByteBuffer.allocate(SharedMemoryRingBuffer.HEADER_SIZE + 8)
+    def writer = new SharedMemoryRingBuffer(region)
+    def reader = new SharedMemoryRingBuffer(region)
+
+    def "bytes are visible to the reader only once published"() {
+        def bytes = new byte[8]
+
+        when:
+        writer.write([1, 2, 3] as byte[], 0, 3)
+
+        then:
+        reader.read(bytes, 0, 8) == 0
+
+        when:
+        writer.publish()
+
+        then:
+        reader.read(bytes, 0, 8) == 3
+        bytes[0..2] == [1, 2, 3] as byte[]
+        !writer.publish()
+    }
+
+    def "writes only as many bytes as there is space for"() {
+        def bytes = new byte[8]
+
+        expect:
+        writer.write(new byte[12], 0, 12) == 8
+        writer.write(new byte[1], 0, 1) == 0
+        writer.publish()
+        reader.read(bytes, 0, 3) == 3
+        writer.write(new byte[4], 0, 4) == 3
+    }
+
+    def "wraps around the end of the buffer"() {
+        def bytes = new byte[8]
+        writer.write(new byte[6], 0, 6)
+        writer.publish()
+        reader.read(bytes, 0, 6)
+
+        when:
+        writer.write([1, 2, 3, 4, 5] as byte[], 0, 5)
+        writer.publish()
+
+        then:
+        reader.read(bytes, 0, 8) == 5
+        bytes[0..4] == [1, 2, 3, 4, 5] as byte[]
+    }
+
+    def "picks up positions from an existing region"() {
+        writer.write([1, 2] as byte[], 0, 2)
+        writer.publish()
+        def bytes = new byte[2]
+
+        expect:
+        new SharedMemoryRingBuffer(region).read(bytes, 0, 2) == 2
+        bytes == [1, 2] as byte[]
+    }
+
+    def "can use a region outside of the heap"() {
+        def direct = ByteBuffer.allocateDirect(SharedMemoryRingBuffer.HEADER_SIZE + 8)
+        def directWriter = new SharedMemoryRingBuffer(direct)
+        def directReader = new SharedMemoryRingBuffer(direct)
+        def bytes = new byte[8]
+
+        when:
+        directWriter.write([1, 2, 3] as byte[], 0, 3)
+        directWriter.publish()
+
+        then:
+        directReader.read(bytes, 0, 8) == 3
+        bytes[0..2] == [1, 2, 3] as byte[]
+    }
+
+    def "reader is told to wake up the writer once it waits for space"() {
+        def bytes = new byte[8]
+        writer.write(new byte[8], 0, 8)
+        writer.publish()
+
+        expect:
+        !reader.takeWriterWaiting()
+        writer.awaitSpace()
+        reader.read(bytes, 0, 2) == 2
+        reader.takeWriterWaiting()
+        !reader.takeWriterWaiting()
+        !writer.awaitSpace()
+    }
+
+    def "writer does not wait when there is space"() {
+        writer.write(new byte[4], 0, 4)
+
+        expect:
+        !writer.awaitSpace()
+        !reader.takeWriterWaiting()
+    }
+}
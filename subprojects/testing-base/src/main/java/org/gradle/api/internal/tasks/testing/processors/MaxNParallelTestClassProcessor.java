@@ -16,37 +16,61 @@
 
 package org.gradle.api.internal.tasks.testing.processors;
 
-import org.gradle.internal.Factory;
+import org.gradle.api.internal.tasks.testing.TestClassCompletionListener;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
-import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.Factory;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.actor.Actor;
 import org.gradle.internal.actor.ActorFactory;
+import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.dispatch.DispatchException;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
 
 /**
- * Manages a set of parallel TestClassProcessors. Uses a simple round-robin algorithm to assign test classes to
- * processors.
+ * Manages a set of parallel TestClassProcessors. Test classes are queued and handed to a processor only once it has
+ * finished with the previous one, so that a processor which happens to get slow test classes does not hold up the
+ * others. Processors signal that they are ready using {@link TestClassCompletionListener}.
+ *
+ * <p>Queued test classes are ordered by how long they took to run last time, longest first. Test classes without a
+ * previous duration are new or were not run last time, and go first.</p>
  */
 public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     private final int maxProcessors;
     private final Factory<TestClassProcessor> factory;
     private final ActorFactory actorFactory;
+    private final Object lock = new Object();
+    private final Map<String, Long> previousDurations;
+    private final PriorityQueue<QueuedTestClass> pending = new PriorityQueue<QueuedTestClass>();
+    private final List<ProcessorSlot> slots = new ArrayList<ProcessorSlot>();
     private TestResultProcessor resultProcessor;
-    private int pos;
     private List<TestClassProcessor> processors = new ArrayList<TestClassProcessor>();
     private List<Actor> actors = new ArrayList<Actor>();
     private Actor resultProcessorActor;
+    private long sequenceNumber;
 
     public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory) {
+        this(maxProcessors, factory, actorFactory, Collections.<String, Long>emptyMap());
+    }
+
+    /**
+     * @param previousDurations The duration of each test class the last time it ran, keyed by test class name.
+     */
+    public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory, Map<String, Long> previousDurations) {
         this.maxProcessors = maxProcessors;
         this.factory = factory;
         this.actorFactory = actorFactory;
+        this.previousDurations = previousDurations;
     }
 
     @Override
@@ -58,27 +82,171 @@ public class MaxNParallelTestClassProcessor implements TestClassProcessor {
 
     @Override
     public void processTestClass(TestClassRunInfo testClass) {
-        TestClassProcessor processor;
-        if (processors.size() < maxProcessors) {
-            processor = factory.create();
-            Actor actor = actorFactory.createActor(processor);
-            processor = actor.getProxy(TestClassProcessor.class);
-            actors.add(actor);
-            processors.add(processor);
-            processor.startProcessing(resultProcessor);
-        } else {
-            processor = processors.get(pos);
-            pos = (pos + 1) % processors.size();
-        }
-        processor.processTestClass(testClass);
+        synchronized (lock) {
+            pending.add(new QueuedTestClass(testClass, previousDurations.get(testClass.getTestClassName()), sequenceNumber++));
+            dispatchPending();
+        }
+    }
+
+    private void dispatchPending() {
+        while (!pending.isEmpty()) {
+            ProcessorSlot slot;
+            if (slots.size() < maxProcessors) {
+                slot = startSlot();
+            } else {
+                slot = findIdleSlot();
+                if (slot == null) {
+                    return;
+                }
+            }
+            slot.outstanding++;
+            slot.assigned++;
+            slot.processor.processTestClass(pending.poll().testClass);
+        }
+    }
+
+    private ProcessorSlot findIdleSlot() {
+        // Prefer the processor that has seen the fewest test classes. This spreads the test classes evenly over the
+        // processors when they complete straight away and defer running the tests until they are stopped
+        ProcessorSlot idle = null;
+        for (ProcessorSlot slot : slots) {
+            if (slot.outstanding == 0 && (idle == null || slot.assigned < idle.assigned)) {
+                idle = slot;
+            }
+        }
+        return idle;
+    }
+
+    private ProcessorSlot startSlot() {
+        ProcessorSlot slot = new ProcessorSlot();
+        Actor actor = actorFactory.createActor(new CompletionTrackingTestClassProcessor(factory.create(), slot));
+        TestClassProcessor processor = actor.getProxy(TestClassProcessor.class);
+        actors.add(actor);
+        processors.add(processor);
+        slot.processor = processor;
+        slots.add(slot);
+        processor.startProcessing(slot);
+        return slot;
     }
 
     @Override
     public void stop() {
+        synchronized (lock) {
+            while (!pending.isEmpty()) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+        }
         try {
             CompositeStoppable.stoppable(processors).add(actors).add(resultProcessorActor).stop();
         } catch (DispatchException e) {
             throw UncheckedException.throwAsUncheckedException(e.getCause());
         }
     }
+
+    /**
+     * The result processor given to a single processor. Forwards results and keeps track of whether the processor is
+     * ready for another test class.
+     */
+    private class ProcessorSlot implements TestResultProcessor, TestClassCompletionListener {
+        private TestClassProcessor processor;
+        private int outstanding;
+        private int assigned;
+
+        @Override
+        public void started(TestDescriptorInternal test, TestStartEvent event) {
+            resultProcessor.started(test, event);
+        }
+
+        @Override
+        public void completed(Object testId, TestCompleteEvent event) {
+            resultProcessor.completed(testId, event);
+        }
+
+        @Override
+        public void output(Object testId, TestOutputEvent event) {
+            resultProcessor.output(testId, event);
+        }
+
+        @Override
+        public void failure(Object testId, Throwable result) {
+            resultProcessor.failure(testId, result);
+        }
+
+        @Override
+        public void testClassCompleted() {
+            synchronized (lock) {
+                if (outstanding > 0) {
+                    outstanding--;
+                }
+                dispatchPending();
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Frees up the slot when a processor fails to accept a test class, as it will never signal completion for it.
+     * The failure is still reported when the processor's actor is stopped.
+     */
+    private static class CompletionTrackingTestClassProcessor implements TestClassProcessor {
+        private final TestClassProcessor delegate;
+        private final TestClassCompletionListener completionListener;
+
+        CompletionTrackingTestClassProcessor(TestClassProcessor delegate, TestClassCompletionListener completionListener) {
+            this.delegate = delegate;
+            this.completionListener = completionListener;
+        }
+
+        @Override
+        public void startProcessing(TestResultProcessor resultProcessor) {
+            delegate.startProcessing(resultProcessor);
+        }
+
+        @Override
+        public void processTestClass(TestClassRunInfo testClass) {
+            boolean accepted = false;
+            try {
+                delegate.processTestClass(testClass);
+                accepted = true;
+            } finally {
+                if (!accepted) {
+                    completionListener.testClassCompleted();
+                }
+            }
+        }
+
+        @Override
+        public void stop() {
+            delegate.stop();
+        }
+    }
+
+    private static class QueuedTestClass implements Comparable<QueuedTestClass> {
+        private final TestClassRunInfo testClass;
+        private final Long previousDuration;
+        private final long sequenceNumber;
+
+        QueuedTestClass(TestClassRunInfo testClass, Long previousDuration, long sequenceNumber) {
+            this.testClass = testClass;
+            this.previousDuration = previousDuration;
+            this.sequenceNumber = sequenceNumber;
+        }
+
+        @Override
+        public int compareTo(QueuedTestClass other) {
+            if (previousDuration == null || other.previousDuration == null) {
+                if (previousDuration != other.previousDuration) {
+                    return previousDuration == null ? -1 : 1;
+                }
+            } else if (!previousDuration.equals(other.previousDuration)) {
+                return other.previousDuration.compareTo(previousDuration);
+            }
+            // Otherwise keep the order in which the test classes were found
+            return sequenceNumber < other.sequenceNumber ? -1 : 1;
+        }
+    }
 }
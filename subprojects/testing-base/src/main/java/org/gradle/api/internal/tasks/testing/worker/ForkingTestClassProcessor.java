@@ -18,10 +18,12 @@ package org.gradle.api.internal.tasks.testing.worker;
 
 import org.gradle.api.Action;
 import org.gradle.api.internal.classpath.ModuleRegistry;
+import org.gradle.api.internal.tasks.testing.TestClassCompletionListener;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.internal.dispatch.StreamCompletion;
 import org.gradle.internal.remote.ObjectConnection;
 import org.gradle.internal.work.WorkerLeaseRegistry;
 import org.gradle.process.JavaForkOptions;
@@ -33,6 +35,7 @@ import org.gradle.util.CollectionUtils;
 import java.io.File;
 import java.net.URL;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ForkingTestClassProcessor implements TestClassProcessor {
     private final WorkerLeaseRegistry.WorkerLease currentWorkerLease;
@@ -42,9 +45,11 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
     private final Iterable<File> classPath;
     private final Action<WorkerProcessBuilder> buildConfigAction;
     private final ModuleRegistry moduleRegistry;
+    private final AtomicInteger outstandingTestClasses = new AtomicInteger();
     private RemoteTestClassProcessor remoteProcessor;
     private WorkerProcess workerProcess;
     private TestResultProcessor resultProcessor;
+    private TestClassCompletionListener completionListener;
     private WorkerLeaseRegistry.WorkerLeaseCompletion completion;
 
     public ForkingTestClassProcessor(WorkerLeaseRegistry.WorkerLease parentWorkerLease, WorkerProcessFactory workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction, ModuleRegistry moduleRegistry) {
@@ -60,6 +65,9 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
     @Override
     public void startProcessing(TestResultProcessor resultProcessor) {
         this.resultProcessor = resultProcessor;
+        if (resultProcessor instanceof TestClassCompletionListener) {
+            completionListener = (TestClassCompletionListener) resultProcessor;
+        }
     }
 
     @Override
@@ -69,6 +77,7 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
             remoteProcessor = forkProcess();
         }
 
+        outstandingTestClasses.incrementAndGet();
         remoteProcessor.processTestClass(testClass);
     }
 
@@ -87,6 +96,7 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
         ObjectConnection connection = workerProcess.getConnection();
         connection.useParameterSerializers(TestEventSerializer.create());
         connection.addIncoming(TestResultProcessor.class, resultProcessor);
+        connection.addIncoming(TestClassCompletionListener.class, new WorkerCompletionListener());
         RemoteTestClassProcessor remoteProcessor = connection.addOutgoing(RemoteTestClassProcessor.class);
         connection.connect();
         remoteProcessor.startProcessing();
@@ -94,6 +104,13 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
     }
 
     List<URL> getTestWorkerImplementationClasspath() {
+        return CollectionUtils.flattenCollections(URL.class, getWorkerCoreClasspath(moduleRegistry), getTestFrameworkImplementationClasspath(moduleRegistry));
+    }
+
+    /**
+     * The classpath of the test worker, without the integration of the test frameworks.
+     */
+    static List<URL> getWorkerCoreClasspath(ModuleRegistry moduleRegistry) {
         return CollectionUtils.flattenCollections(URL.class,
             moduleRegistry.getModule("gradle-core-api").getImplementationClasspath().getAsURLs(),
             moduleRegistry.getModule("gradle-core").getImplementationClasspath().getAsURLs(),
@@ -103,13 +120,21 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
             moduleRegistry.getModule("gradle-cli").getImplementationClasspath().getAsURLs(),
             moduleRegistry.getModule("gradle-native").getImplementationClasspath().getAsURLs(),
             moduleRegistry.getModule("gradle-testing-base").getImplementationClasspath().getAsURLs(),
-            moduleRegistry.getModule("gradle-testing-jvm").getImplementationClasspath().getAsURLs(),
             moduleRegistry.getModule("gradle-process-services").getImplementationClasspath().getAsURLs(),
             moduleRegistry.getExternalModule("slf4j-api").getImplementationClasspath().getAsURLs(),
             moduleRegistry.getExternalModule("jul-to-slf4j").getImplementationClasspath().getAsURLs(),
             moduleRegistry.getExternalModule("native-platform").getImplementationClasspath().getAsURLs(),
             moduleRegistry.getExternalModule("kryo").getImplementationClasspath().getAsURLs(),
-            moduleRegistry.getExternalModule("commons-lang").getImplementationClasspath().getAsURLs(),
+            moduleRegistry.getExternalModule("commons-lang").getImplementationClasspath().getAsURLs()
+        );
+    }
+
+    /**
+     * The classpath of the test framework integration, which is linked against the test framework.
+     */
+    static List<URL> getTestFrameworkImplementationClasspath(ModuleRegistry moduleRegistry) {
+        return CollectionUtils.flattenCollections(URL.class,
+            moduleRegistry.getModule("gradle-testing-jvm").getImplementationClasspath().getAsURLs(),
             moduleRegistry.getExternalModule("junit").getImplementationClasspath().getAsURLs()
         );
     }
@@ -125,4 +150,35 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
             }
         }
     }
+
+    private boolean releaseOutstandingTestClass() {
+        while (true) {
+            int outstanding = outstandingTestClasses.get();
+            if (outstanding == 0) {
+                return false;
+            }
+            if (outstandingTestClasses.compareAndSet(outstanding, outstanding - 1)) {
+                return true;
+            }
+        }
+    }
+
+    private class WorkerCompletionListener implements TestClassCompletionListener, StreamCompletion {
+        @Override
+        public void testClassCompleted() {
+            if (releaseOutstandingTestClass() && completionListener != null) {
+                completionListener.testClassCompleted();
+            }
+        }
+
+        @Override
+        public void endStream() {
+            // The worker has stopped or crashed, so it is not going to complete any of the test classes still outstanding
+            while (releaseOutstandingTestClass()) {
+                if (completionListener != null) {
+                    completionListener.testClassCompleted();
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import com.google.common.collect.ImmutableSet;
+import org.gradle.api.Action;
+import org.gradle.api.internal.classpath.ModuleRegistry;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.api.logging.LogLevel;
+import org.gradle.internal.Factory;
+import org.gradle.internal.classpath.DefaultClassPath;
+import org.gradle.internal.remote.ObjectConnection;
+import org.gradle.internal.work.WorkerLeaseRegistry;
+import org.gradle.process.JavaForkOptions;
+import org.gradle.process.internal.worker.WorkerProcess;
+import org.gradle.process.internal.worker.WorkerProcessBuilder;
+import org.gradle.process.internal.worker.WorkerProcessFactory;
+import org.gradle.util.GUtil;
+
+import java.io.File;
+import java.util.Set;
+
+/**
+ * Runs test classes in a worker from the {@link TestWorkerPool}, starting a new one when there is no idle worker of
+ * the right kind, and returns the worker to the pool when done.
+ */
+public class PooledForkingTestClassProcessor implements TestClassProcessor {
+    private final WorkerLeaseRegistry.WorkerLease currentWorkerLease;
+    private final WorkerProcessFactory workerFactory;
+    private final WorkerTestClassProcessorFactory processorFactory;
+    private final JavaForkOptions options;
+    private final Iterable<File> classPath;
+    private final Action<WorkerProcessBuilder> buildConfigAction;
+    private final ModuleRegistry moduleRegistry;
+    private final TestWorkerPool workerPool;
+    private PooledTestWorkerClient client;
+    private TestResultProcessor resultProcessor;
+    private WorkerLeaseRegistry.WorkerLeaseCompletion completion;
+
+    public PooledForkingTestClassProcessor(WorkerLeaseRegistry.WorkerLease parentWorkerLease, WorkerProcessFactory workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction, ModuleRegistry moduleRegistry, TestWorkerPool workerPool) {
+        this.currentWorkerLease = parentWorkerLease;
+        this.workerFactory = workerFactory;
+        this.processorFactory = processorFactory;
+        this.options = options;
+        this.classPath = classPath;
+        this.buildConfigAction = buildConfigAction;
+        this.moduleRegistry = moduleRegistry;
+        this.workerPool = workerPool;
+    }
+
+    @Override
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        this.resultProcessor = resultProcessor;
+    }
+
+    @Override
+    public void processTestClass(TestClassRunInfo testClass) {
+        if (client == null) {
+            completion = currentWorkerLease.startChild();
+            client = reserveClient();
+            client.startSession(createSessionSpec(client), resultProcessor);
+        }
+
+        client.processTestClass(testClass);
+    }
+
+    private PooledTestWorkerClient reserveClient() {
+        final TestWorkerKey key = TestWorkerKey.of(options, processorFactory.getClass().getName());
+        PooledTestWorkerClient idleClient = workerPool.reserveIdleClient(key);
+        if (idleClient != null) {
+            return idleClient;
+        }
+        return workerPool.reserveNewClient(new Factory<PooledTestWorkerClient>() {
+            @Override
+            public PooledTestWorkerClient create() {
+                return startWorker(key);
+            }
+        });
+    }
+
+    PooledTestWorkerClient startWorker(TestWorkerKey key) {
+        WorkerProcessBuilder builder = workerFactory.create(new PooledTestWorker());
+        builder.setBaseName("Gradle Test Executor");
+        builder.setImplementationClasspath(ForkingTestClassProcessor.getWorkerCoreClasspath(moduleRegistry));
+        LogLevel logLevel = workerPool.getCurrentLogLevel();
+        builder.setLogLevel(logLevel);
+        builder.enableJvmMemoryInfoPublishing(true);
+        options.copyTo(builder.getJavaCommand());
+        builder.getJavaCommand().jvmArgs("-Dorg.gradle.native=false");
+        buildConfigAction.execute(builder);
+        // There are no application classes in the system ClassLoader to share, the packages are shared by each session instead
+        Set<String> sharedPackages = ImmutableSet.copyOf(builder.getSharedPackages());
+
+        WorkerProcess workerProcess = builder.build();
+        workerProcess.start();
+
+        ObjectConnection connection = workerProcess.getConnection();
+        connection.useParameterSerializers(TestEventSerializer.create());
+        PooledTestWorkerClient.SessionResultDispatcher dispatcher = new PooledTestWorkerClient.SessionResultDispatcher();
+        connection.addIncoming(TestWorkerSessionResultProcessor.class, dispatcher);
+        RemoteSessionTestClassProcessor remoteProcessor = connection.addOutgoing(RemoteSessionTestClassProcessor.class);
+        connection.connect();
+        return new PooledTestWorkerClient(key, workerProcess, remoteProcessor, dispatcher, sharedPackages, logLevel);
+    }
+
+    private TestWorkerSessionSpec createSessionSpec(PooledTestWorkerClient client) {
+        return new TestWorkerSessionSpec(
+            DefaultClassPath.of(ImmutableSet.copyOf(classPath)).getAsURLs(),
+            ForkingTestClassProcessor.getTestFrameworkImplementationClasspath(moduleRegistry),
+            client.getSharedPackages(),
+            GUtil.serialize(processorFactory));
+    }
+
+    @Override
+    public void stop() {
+        if (client != null) {
+            boolean sessionSucceeded = false;
+            try {
+                client.endSession();
+                sessionSucceeded = true;
+            } finally {
+                workerPool.release(client, sessionSucceeded);
+                completion.leaseFinish();
+            }
+        }
+    }
+}
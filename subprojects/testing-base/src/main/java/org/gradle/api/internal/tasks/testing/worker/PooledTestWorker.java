@@ -0,0 +1,202 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.ClassLoaderUtils;
+import org.gradle.internal.classloader.FilteringClassLoader;
+import org.gradle.internal.classloader.MultiParentClassLoader;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.dispatch.ContextClassLoaderProxy;
+import org.gradle.internal.id.IdGenerator;
+import org.gradle.internal.io.ClassLoaderObjectInputStream;
+import org.gradle.internal.remote.ObjectConnection;
+import org.gradle.internal.time.Clock;
+import org.gradle.process.internal.worker.WorkerProcessContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A test worker that runs the tests of several test tasks one after the other, each in a session of its own.
+ *
+ * <p>The worker process is started without any application classes. For each session, the test runtime classpath is
+ * loaded in a fresh ClassLoader, along with the test framework integration which sees the shared packages of the test
+ * runtime classpath, in the same way as {@link TestWorker} arranges them through the system ClassLoader. System
+ * properties are restored once a session has completed.</p>
+ */
+public class PooledTestWorker implements Action<WorkerProcessContext>, RemoteSessionTestClassProcessor, Serializable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PooledTestWorker.class);
+    private transient CountDownLatch completed;
+    private transient WorkerProcessContext workerProcessContext;
+    private transient TestWorkerSessionResultProcessor resultProcessor;
+    private transient Properties initialSystemProperties;
+    private transient TestWorker.TestFrameworkServiceRegistry testServices;
+    private transient URLClassLoader applicationClassLoader;
+    private transient URLClassLoader frameworkClassLoader;
+    private transient TestClassProcessor processor;
+    private transient Throwable sessionFailure;
+
+    @Override
+    public void execute(WorkerProcessContext workerProcessContext) {
+        LOGGER.info("{} started executing tests.", workerProcessContext.getDisplayName());
+
+        this.workerProcessContext = workerProcessContext;
+        completed = new CountDownLatch(1);
+
+        System.setProperty(TestWorker.WORKER_ID_SYS_PROPERTY, workerProcessContext.getWorkerId().toString());
+        initialSystemProperties = copy(System.getProperties());
+
+        ObjectConnection serverConnection = workerProcessContext.getServerConnection();
+        serverConnection.useParameterSerializers(TestEventSerializer.create());
+        resultProcessor = serverConnection.addOutgoing(TestWorkerSessionResultProcessor.class);
+        serverConnection.addIncoming(RemoteSessionTestClassProcessor.class, this);
+        serverConnection.connect();
+
+        try {
+            completed.await();
+        } catch (InterruptedException e) {
+            throw new UncheckedException(e);
+        } finally {
+            LOGGER.info("{} finished executing tests.", workerProcessContext.getDisplayName());
+            System.setSecurityManager(null);
+        }
+    }
+
+    @Override
+    public void startSession(TestWorkerSessionSpec spec) {
+        Thread.currentThread().setName("Test worker");
+        sessionFailure = null;
+        try {
+            applicationClassLoader = new URLClassLoader(spec.getApplicationClasspath().toArray(new URL[0]), ClassLoaderUtils.getPlatformClassLoader());
+            FilteringClassLoader.Spec sharedPackages = new FilteringClassLoader.Spec();
+            for (String sharedPackage : spec.getSharedPackages()) {
+                sharedPackages.allowPackage(sharedPackage);
+            }
+            ClassLoader frameworkParent = new MultiParentClassLoader(new FilteringClassLoader(applicationClassLoader, sharedPackages), getClass().getClassLoader());
+            frameworkClassLoader = new URLClassLoader(spec.getFrameworkClasspath().toArray(new URL[0]), frameworkParent);
+
+            WorkerTestClassProcessorFactory factory = (WorkerTestClassProcessorFactory) new ClassLoaderObjectInputStream(new ByteArrayInputStream(spec.getSerializedProcessorFactory()), frameworkClassLoader).readObject();
+            testServices = new TestWorker.TestFrameworkServiceRegistry(workerProcessContext);
+            TestClassProcessor targetProcessor = factory.create(testServices);
+            IdGenerator<Object> idGenerator = testServices.get(IdGenerator.class);
+            targetProcessor = new WorkerTestClassProcessor(targetProcessor, idGenerator.generateId(),
+                workerProcessContext.getDisplayName(), testServices.get(Clock.class));
+            processor = new ContextClassLoaderProxy<TestClassProcessor>(TestClassProcessor.class, targetProcessor, applicationClassLoader).getSource();
+            processor.startProcessing(resultProcessor);
+        } catch (Throwable t) {
+            sessionFailure = t;
+            processor = null;
+        }
+    }
+
+    @Override
+    public void processTestClass(TestClassRunInfo testClass) {
+        Thread.currentThread().setName("Test worker");
+        try {
+            if (processor != null) {
+                processor.processTestClass(testClass);
+            }
+        } catch (Throwable t) {
+            if (sessionFailure == null) {
+                sessionFailure = t;
+            }
+        } finally {
+            // Clean the interrupted status
+            Thread.interrupted();
+            resultProcessor.testClassCompleted();
+        }
+    }
+
+    @Override
+    public void endSession() {
+        Thread.currentThread().setName("Test worker");
+        try {
+            if (processor != null) {
+                processor.stop();
+            }
+        } catch (Throwable t) {
+            if (sessionFailure == null) {
+                sessionFailure = t;
+            }
+        } finally {
+            cleanUpSession();
+        }
+        if (sessionFailure != null) {
+            resultProcessor.sessionFailed(sessionFailure);
+        } else {
+            resultProcessor.sessionCompleted(getHeapUsedAfterGc(), Runtime.getRuntime().maxMemory());
+        }
+    }
+
+    private void cleanUpSession() {
+        try {
+            CompositeStoppable.stoppable(testServices).stop();
+            ClassLoaderUtils.tryClose(frameworkClassLoader);
+            ClassLoaderUtils.tryClose(applicationClassLoader);
+        } finally {
+            processor = null;
+            testServices = null;
+            frameworkClassLoader = null;
+            applicationClassLoader = null;
+            // Clean out anything the tests might have changed
+            System.setProperties(copy(initialSystemProperties));
+            System.setSecurityManager(null);
+        }
+    }
+
+    @Override
+    public void stop() {
+        completed.countDown();
+    }
+
+    private static long getHeapUsedAfterGc() {
+        long used = 0;
+        boolean known = false;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                MemoryUsage usage = pool.getCollectionUsage();
+                if (usage != null) {
+                    used += usage.getUsed();
+                    known = true;
+                }
+            }
+        }
+        return known ? used : -1;
+    }
+
+    private static Properties copy(Properties properties) {
+        Properties copy = new Properties();
+        copy.putAll(properties);
+        return copy;
+    }
+}
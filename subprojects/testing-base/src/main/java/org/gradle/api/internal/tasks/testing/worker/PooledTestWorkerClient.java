@@ -0,0 +1,217 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestClassCompletionListener;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent;
+import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.TestStartEvent;
+import org.gradle.api.logging.LogLevel;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.dispatch.StreamCompletion;
+import org.gradle.process.internal.health.memory.JvmMemoryStatus;
+import org.gradle.process.internal.worker.WorkerClientPool;
+import org.gradle.process.internal.worker.WorkerProcess;
+
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The build process side of a running {@link PooledTestWorker}.
+ */
+public class PooledTestWorkerClient implements WorkerClientPool.Client {
+    private final TestWorkerKey key;
+    private final WorkerProcess workerProcess;
+    private final RemoteSessionTestClassProcessor remoteProcessor;
+    private final SessionResultDispatcher dispatcher;
+    private final Set<String> sharedPackages;
+    private final LogLevel logLevel;
+
+    PooledTestWorkerClient(TestWorkerKey key, WorkerProcess workerProcess, RemoteSessionTestClassProcessor remoteProcessor, SessionResultDispatcher dispatcher, Set<String> sharedPackages, LogLevel logLevel) {
+        this.key = key;
+        this.workerProcess = workerProcess;
+        this.remoteProcessor = remoteProcessor;
+        this.dispatcher = dispatcher;
+        this.sharedPackages = sharedPackages;
+        this.logLevel = logLevel;
+    }
+
+    public TestWorkerKey getKey() {
+        return key;
+    }
+
+    public Set<String> getSharedPackages() {
+        return sharedPackages;
+    }
+
+    @Override
+    public LogLevel getLogLevel() {
+        return logLevel;
+    }
+
+    public boolean isAlive() {
+        return !dispatcher.streamEnded;
+    }
+
+    public JvmMemoryStatus getJvmMemoryStatus() {
+        return workerProcess.getJvmMemoryStatus();
+    }
+
+    /**
+     * The heap in use after the last garbage collection, as reported at the end of the last session, or -1 when not known.
+     */
+    public long getHeapUsedAfterGc() {
+        return dispatcher.heapUsedAfterGc;
+    }
+
+    /**
+     * The maximum heap of the worker, as reported at the end of the last session, or -1 when not known.
+     */
+    public long getMaxHeap() {
+        return dispatcher.maxHeap;
+    }
+
+    public void startSession(TestWorkerSessionSpec spec, TestResultProcessor resultProcessor) {
+        dispatcher.startSession(resultProcessor);
+        remoteProcessor.startSession(spec);
+    }
+
+    public void processTestClass(TestClassRunInfo testClass) {
+        dispatcher.outstandingTestClasses.incrementAndGet();
+        remoteProcessor.processTestClass(testClass);
+    }
+
+    /**
+     * Blocks until the worker has finished running the tests of the current session.
+     */
+    public void endSession() {
+        remoteProcessor.endSession();
+        try {
+            dispatcher.sessionEnded.await();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        if (dispatcher.streamEnded) {
+            // The worker has gone away, report why
+            workerProcess.waitForStop();
+        }
+        if (dispatcher.sessionFailure != null) {
+            throw UncheckedException.throwAsUncheckedException(dispatcher.sessionFailure);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (isAlive()) {
+            remoteProcessor.stop();
+        }
+        workerProcess.waitForStop();
+    }
+
+    /**
+     * Forwards the results of the worker to the result processor of the current session.
+     */
+    static class SessionResultDispatcher implements TestWorkerSessionResultProcessor, StreamCompletion {
+        private final AtomicInteger outstandingTestClasses = new AtomicInteger();
+        private volatile TestResultProcessor resultProcessor;
+        private volatile TestClassCompletionListener completionListener;
+        private volatile CountDownLatch sessionEnded;
+        private volatile Throwable sessionFailure;
+        private volatile boolean streamEnded;
+        private volatile long heapUsedAfterGc = -1;
+        private volatile long maxHeap = -1;
+
+        void startSession(TestResultProcessor resultProcessor) {
+            this.resultProcessor = resultProcessor;
+            this.completionListener = resultProcessor instanceof TestClassCompletionListener ? (TestClassCompletionListener) resultProcessor : null;
+            this.sessionFailure = null;
+            this.sessionEnded = new CountDownLatch(1);
+        }
+
+        @Override
+        public void started(TestDescriptorInternal test, TestStartEvent event) {
+            resultProcessor.started(test, event);
+        }
+
+        @Override
+        public void completed(Object testId, TestCompleteEvent event) {
+            resultProcessor.completed(testId, event);
+        }
+
+        @Override
+        public void output(Object testId, TestOutputEvent event) {
+            resultProcessor.output(testId, event);
+        }
+
+        @Override
+        public void failure(Object testId, Throwable result) {
+            resultProcessor.failure(testId, result);
+        }
+
+        @Override
+        public void testClassCompleted() {
+            if (releaseOutstandingTestClass() && completionListener != null) {
+                completionListener.testClassCompleted();
+            }
+        }
+
+        @Override
+        public void sessionCompleted(long heapUsedAfterGc, long maxHeap) {
+            this.heapUsedAfterGc = heapUsedAfterGc;
+            this.maxHeap = maxHeap;
+            sessionEnded.countDown();
+        }
+
+        @Override
+        public void sessionFailed(Throwable failure) {
+            sessionFailure = failure;
+            sessionEnded.countDown();
+        }
+
+        @Override
+        public void endStream() {
+            streamEnded = true;
+            // The worker has stopped or crashed, so it is not going to complete any of the test classes still outstanding
+            while (releaseOutstandingTestClass()) {
+                if (completionListener != null) {
+                    completionListener.testClassCompleted();
+                }
+            }
+            CountDownLatch sessionEnded = this.sessionEnded;
+            if (sessionEnded != null) {
+                sessionEnded.countDown();
+            }
+        }
+
+        private boolean releaseOutstandingTestClass() {
+            while (true) {
+                int outstanding = outstandingTestClasses.get();
+                if (outstanding == 0) {
+                    return false;
+                }
+                if (outstandingTestClasses.compareAndSet(outstanding, outstanding - 1)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
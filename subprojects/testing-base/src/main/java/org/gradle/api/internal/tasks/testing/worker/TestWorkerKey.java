@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.gradle.process.JavaForkOptions;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Identifies the test workers that can run the tests of a task: those started with the same JVM, JVM arguments,
+ * environment and working directory, for the same test framework.
+ */
+public class TestWorkerKey {
+    private final String executable;
+    private final File workingDir;
+    private final ImmutableList<String> jvmArgs;
+    private final ImmutableMap<String, String> environment;
+    private final String testFramework;
+
+    private TestWorkerKey(String executable, File workingDir, ImmutableList<String> jvmArgs, ImmutableMap<String, String> environment, String testFramework) {
+        this.executable = executable;
+        this.workingDir = workingDir;
+        this.jvmArgs = jvmArgs;
+        this.environment = environment;
+        this.testFramework = testFramework;
+    }
+
+    public static TestWorkerKey of(JavaForkOptions options, String testFramework) {
+        ImmutableMap.Builder<String, String> environment = ImmutableMap.builder();
+        for (Map.Entry<String, Object> entry : options.getEnvironment().entrySet()) {
+            environment.put(entry.getKey(), String.valueOf(entry.getValue()));
+        }
+        return new TestWorkerKey(options.getExecutable(), options.getWorkingDir(), ImmutableList.copyOf(options.getAllJvmArgs()), environment.build(), testFramework);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        TestWorkerKey other = (TestWorkerKey) o;
+        return Objects.equal(executable, other.executable)
+            && Objects.equal(workingDir, other.workingDir)
+            && jvmArgs.equals(other.jvmArgs)
+            && environment.equals(other.environment)
+            && testFramework.equals(other.testFramework);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(executable, workingDir, jvmArgs, environment, testFramework);
+    }
+
+    @Override
+    public String toString() {
+        return testFramework + " worker using " + executable + " " + jvmArgs;
+    }
+}
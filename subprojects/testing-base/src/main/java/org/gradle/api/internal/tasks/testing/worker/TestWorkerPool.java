@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.Transformer;
+import org.gradle.api.logging.LogLevel;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.specs.Spec;
+import org.gradle.internal.Factory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.logging.LoggingManagerInternal;
+import org.gradle.process.internal.health.memory.JvmMemoryStatus;
+import org.gradle.process.internal.health.memory.MemoryHolder;
+import org.gradle.process.internal.health.memory.MemoryManager;
+import org.gradle.process.internal.worker.WorkerClientPool;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps test workers alive between test tasks, and between builds for as long as the daemon runs, so that they can be
+ * reused by later test tasks that need the same kind of worker.
+ *
+ * <p>A worker whose heap is mostly used by live objects after its last garbage collection is stopped when it is
+ * released, rather than kept, as the next test task is likely to run out of memory in it. Idle workers are stopped when
+ * the system runs low on memory.</p>
+ */
+public class TestWorkerPool implements Stoppable, MemoryHolder {
+    public static final String REUSE_TEST_WORKERS_PROPERTY = "org.gradle.test.reuseWorkers";
+
+    private static final Logger LOGGER = Logging.getLogger(TestWorkerPool.class);
+    private static final double MAX_USED_HEAP_RATIO = 0.8;
+
+    private final WorkerClientPool<PooledTestWorkerClient> clients;
+    private final MemoryManager memoryManager;
+
+    public TestWorkerPool(LoggingManagerInternal loggingManager, MemoryManager memoryManager) {
+        this.clients = new WorkerClientPool<PooledTestWorkerClient>("test worker", loggingManager);
+        this.memoryManager = memoryManager;
+        memoryManager.addMemoryHolder(this);
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(REUSE_TEST_WORKERS_PROPERTY);
+    }
+
+    public LogLevel getCurrentLogLevel() {
+        return clients.getCurrentLogLevel();
+    }
+
+    /**
+     * Returns an idle worker for the given key, or null when there is none.
+     */
+    @Nullable
+    public PooledTestWorkerClient reserveIdleClient(final TestWorkerKey key) {
+        Spec<PooledTestWorkerClient> matchesKey = new Spec<PooledTestWorkerClient>() {
+            @Override
+            public boolean isSatisfiedBy(PooledTestWorkerClient client) {
+                return client.getKey().equals(key);
+            }
+        };
+        PooledTestWorkerClient client;
+        while ((client = clients.reserveIdleClient(matchesKey)) != null) {
+            if (client.isAlive()) {
+                return client;
+            }
+            clients.discard(client);
+        }
+        return null;
+    }
+
+    public PooledTestWorkerClient reserveNewClient(Factory<PooledTestWorkerClient> starter) {
+        return clients.reserveNewClient(starter);
+    }
+
+    /**
+     * Returns a worker to the pool once a test task is done with it. Workers that did not end their session cleanly or have little heap left are stopped instead.
+     */
+    public void release(PooledTestWorkerClient client, boolean sessionSucceeded) {
+        if (sessionSucceeded && client.isAlive() && hasHeapLeft(client)) {
+            clients.release(client);
+        } else {
+            clients.discard(client);
+        }
+    }
+
+    private static boolean hasHeapLeft(PooledTestWorkerClient client) {
+        // The committed heap does not shrink once the heap has grown, so look at what is still in use after garbage collection
+        long usedHeap = client.getHeapUsedAfterGc();
+        long maxHeap = client.getMaxHeap();
+        if (usedHeap >= 0 && maxHeap > 0 && usedHeap > maxHeap * MAX_USED_HEAP_RATIO) {
+            LOGGER.info("Stopping test worker that uses {} of {} bytes of heap after garbage collection.", usedHeap, maxHeap);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public long attemptToRelease(final long memoryAmountBytes) throws IllegalArgumentException {
+        if (memoryAmountBytes < 0) {
+            throw new IllegalArgumentException("Negative memory amount");
+        }
+        final long[] releasedBytes = new long[1];
+        clients.selectIdleClientsToStop(new Transformer<List<PooledTestWorkerClient>, List<PooledTestWorkerClient>>() {
+            @Override
+            public List<PooledTestWorkerClient> transform(List<PooledTestWorkerClient> idleClients) {
+                List<PooledTestWorkerClient> toStop = new ArrayList<PooledTestWorkerClient>();
+                for (PooledTestWorkerClient client : idleClients) {
+                    if (releasedBytes[0] >= memoryAmountBytes) {
+                        break;
+                    }
+                    toStop.add(client);
+                    releasedBytes[0] += getCommittedMemory(client);
+                }
+                return toStop;
+            }
+        });
+        return releasedBytes[0];
+    }
+
+    private static long getCommittedMemory(PooledTestWorkerClient client) {
+        try {
+            JvmMemoryStatus memoryStatus = client.getJvmMemoryStatus();
+            return memoryStatus.getCommittedMemory();
+        } catch (UnsupportedOperationException e) {
+            // This means the worker does not support reporting jvm memory info
+        } catch (IllegalStateException e) {
+            // This means the worker has not reported memory usage yet
+        }
+        return 0;
+    }
+
+    @Override
+    public void stop() {
+        memoryManager.removeMemoryHolder(this);
+        clients.stop();
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.TestClassCompletionListener;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+
+/**
+ * Receives the results of a session of a reusable test worker. The end of the session is sent on the same channel as
+ * the results, so that it arrives after all of them.
+ */
+public interface TestWorkerSessionResultProcessor extends TestResultProcessor, TestClassCompletionListener {
+    /**
+     * @param heapUsedAfterGc The heap of the worker in use after its last garbage collection, or -1 when not known.
+     * @param maxHeap The maximum heap of the worker.
+     */
+    void sessionCompleted(long heapUsedAfterGc, long maxHeap);
+
+    void sessionFailed(Throwable failure);
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import java.io.Serializable;
+import java.net.URL;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Describes the tests of a single task to run in a reusable test worker.
+ */
+public class TestWorkerSessionSpec implements Serializable {
+    private final List<URL> applicationClasspath;
+    private final List<URL> frameworkClasspath;
+    private final Set<String> sharedPackages;
+    private final byte[] serializedProcessorFactory;
+
+    public TestWorkerSessionSpec(List<URL> applicationClasspath, List<URL> frameworkClasspath, Set<String> sharedPackages, byte[] serializedProcessorFactory) {
+        this.applicationClasspath = applicationClasspath;
+        this.frameworkClasspath = frameworkClasspath;
+        this.sharedPackages = sharedPackages;
+        this.serializedProcessorFactory = serializedProcessorFactory;
+    }
+
+    /**
+     * The test runtime classpath.
+     */
+    public List<URL> getApplicationClasspath() {
+        return applicationClasspath;
+    }
+
+    /**
+     * The implementation of the test framework integration, which needs to see the test framework from the test runtime classpath.
+     */
+    public List<URL> getFrameworkClasspath() {
+        return frameworkClasspath;
+    }
+
+    /**
+     * The packages of the test runtime classpath that are visible to the test framework integration.
+     */
+    public Set<String> getSharedPackages() {
+        return sharedPackages;
+    }
+
+    /**
+     * The {@link org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory} to use, which can only be deserialized once the framework classpath is available.
+     */
+    public byte[] getSerializedProcessorFactory() {
+        return serializedProcessorFactory;
+    }
+}
@@ -16,8 +16,10 @@
 
 package org.gradle.api.internal.tasks.testing.processors
 
+import org.gradle.api.internal.tasks.testing.TestClassCompletionListener
 import org.gradle.api.internal.tasks.testing.TestClassProcessor
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent
 import org.gradle.api.internal.tasks.testing.TestResultProcessor
 import org.gradle.internal.actor.Actor
 import org.gradle.internal.actor.ActorFactory
@@ -71,9 +73,9 @@ class MaxNParallelTestClassProcessorTest extends Specification {
 
         then:
         1 * factory.create() >> processor1
-        1 * actorFactory.createActor(processor1) >> actor1
+        1 * actorFactory.createActor({ it.delegate == processor1 }) >> actor1
         1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
-        1 * asyncProcessor1.startProcessing(asyncResultProcessor)
+        1 * asyncProcessor1.startProcessing(_ as TestClassCompletionListener)
         1 * asyncProcessor1.processTestClass(test)
 
         when:
@@ -85,6 +87,25 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         1 * resultProcessorActor.stop()
     }
 
+    def forwardsResultsToThreadSafeWrapper() {
+        TestClassRunInfo test = Mock()
+        TestCompleteEvent event = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestResultProcessor processorResults = null
+
+        startProcessor()
+        1 * factory.create() >> Mock(TestClassProcessor)
+        1 * actorFactory.createActor(_) >> Stub(Actor) { getProxy(TestClassProcessor) >> asyncProcessor1 }
+        1 * asyncProcessor1.startProcessing(_) >> { processorResults = it[0] }
+        processor.processTestClass(test)
+
+        when:
+        processorResults.completed("id", event)
+
+        then:
+        1 * asyncResultProcessor.completed("id", event)
+    }
+
     def startsMultipleProcessorsOnDemandAndStopsAtEnd() {
         TestClassRunInfo test = Mock()
         TestClassProcessor processor1 = Mock()
@@ -101,9 +122,9 @@ class MaxNParallelTestClassProcessorTest extends Specification {
 
         then:
         1 * factory.create() >> processor1
-        1 * actorFactory.createActor(processor1) >> actor1
+        1 * actorFactory.createActor({ it.delegate == processor1 }) >> actor1
         1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
-        1 * asyncProcessor1.startProcessing(asyncResultProcessor)
+        1 * asyncProcessor1.startProcessing(_)
         1 * asyncProcessor1.processTestClass(test)
 
         when:
@@ -111,9 +132,9 @@ class MaxNParallelTestClassProcessorTest extends Specification {
 
         then:
         1 * factory.create() >> processor2
-        1 * actorFactory.createActor(processor2) >> actor2
+        1 * actorFactory.createActor({ it.delegate == processor2 }) >> actor2
         1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
-        1 * asyncProcessor2.startProcessing(asyncResultProcessor)
+        1 * asyncProcessor2.startProcessing(_)
         1 * asyncProcessor2.processTestClass(test)
 
         when:
@@ -124,47 +145,120 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         1 * asyncProcessor2.stop()
     }
 
-    def roundRobinsTestClassesToProcessors() {
-        TestClassRunInfo test = Mock()
-        TestClassProcessor processor1 = Mock()
-        TestClassProcessor processor2 = Mock()
+    def handsTestClassToProcessorThatCompletesFirst() {
+        TestClassRunInfo test1 = test("Test1")
+        TestClassRunInfo test2 = test("Test2")
+        TestClassRunInfo test3 = test("Test3")
+        TestClassRunInfo test4 = test("Test4")
         TestClassProcessor asyncProcessor1 = Mock()
         TestClassProcessor asyncProcessor2 = Mock()
-        Actor actor1 = Mock()
-        Actor actor2 = Mock()
+        TestClassCompletionListener listener1 = null
+        TestClassCompletionListener listener2 = null
 
         startProcessor()
+        2 * factory.create() >> Mock(TestClassProcessor)
+        2 * actorFactory.createActor(_) >>> [Stub(Actor) { getProxy(TestClassProcessor) >> asyncProcessor1 }, Stub(Actor) { getProxy(TestClassProcessor) >> asyncProcessor2 }]
+        1 * asyncProcessor1.startProcessing(_) >> { listener1 = it[0] }
+        1 * asyncProcessor2.startProcessing(_) >> { listener2 = it[0] }
+        processor.processTestClass(test1)
+        processor.processTestClass(test2)
 
         when:
-        processor.processTestClass(test)
+        processor.processTestClass(test3)
+        processor.processTestClass(test4)
 
         then:
-        1 * factory.create() >> processor1
-        1 * actorFactory.createActor(processor1) >> actor1
-        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
-        1 * asyncProcessor1.startProcessing(asyncResultProcessor)
-        1 * asyncProcessor1.processTestClass(test)
+        0 * asyncProcessor1.processTestClass(_)
+        0 * asyncProcessor2.processTestClass(_)
 
         when:
-        processor.processTestClass(test)
+        listener2.testClassCompleted()
 
         then:
-        1 * factory.create() >> processor2
-        1 * actorFactory.createActor(processor2) >> actor2
-        1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
-        1 * asyncProcessor2.startProcessing(asyncResultProcessor)
-        1 * asyncProcessor2.processTestClass(test)
+        1 * asyncProcessor2.processTestClass(test3)
+        0 * asyncProcessor1.processTestClass(_)
 
         when:
-        processor.processTestClass(test)
+        listener2.testClassCompleted()
 
         then:
-        1 * asyncProcessor1.processTestClass(test)
+        1 * asyncProcessor2.processTestClass(test4)
+        0 * asyncProcessor1.processTestClass(_)
+    }
+
+    def spreadsTestClassesOverProcessorsThatCompleteImmediately() {
+        TestClassRunInfo test = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        TestClassCompletionListener listener1 = null
+        TestClassCompletionListener listener2 = null
+
+        startProcessor()
+        2 * factory.create() >> Mock(TestClassProcessor)
+        2 * actorFactory.createActor(_) >>> [Stub(Actor) { getProxy(TestClassProcessor) >> asyncProcessor1 }, Stub(Actor) { getProxy(TestClassProcessor) >> asyncProcessor2 }]
+        1 * asyncProcessor1.startProcessing(_) >> { listener1 = it[0] }
+        1 * asyncProcessor2.startProcessing(_) >> { listener2 = it[0] }
 
         when:
-        processor.processTestClass(test)
+        4.times { processor.processTestClass(test) }
 
         then:
-        1 * asyncProcessor2.processTestClass(test)
+        2 * asyncProcessor1.processTestClass(test) >> { listener1.testClassCompleted() }
+        2 * asyncProcessor2.processTestClass(test) >> { listener2.testClassCompleted() }
+    }
+
+    def ordersQueuedTestClassesByPreviousDurationLongestFirst() {
+        def processor = new MaxNParallelTestClassProcessor(1, factory, actorFactory, [Short: 10L, Long: 1000L, Medium: 100L])
+        TestClassProcessor asyncProcessor = Mock()
+        TestClassCompletionListener listener = null
+        def started = []
+
+        1 * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        1 * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        processor.startProcessing(resultProcessor)
+        1 * factory.create() >> Mock(TestClassProcessor)
+        1 * actorFactory.createActor(_) >> Stub(Actor) { getProxy(TestClassProcessor) >> asyncProcessor }
+        1 * asyncProcessor.startProcessing(_) >> { listener = it[0] }
+        _ * asyncProcessor.processTestClass(_) >> { TestClassRunInfo testClass -> started << testClass.testClassName }
+
+        when:
+        ["First", "Short", "Long", "New", "Medium"].each { processor.processTestClass(test(it)) }
+        4.times { listener.testClassCompleted() }
+
+        then:
+        started == ["First", "New", "Long", "Medium", "Short"]
+    }
+
+    def handsOutRemainingTestClassesBeforeStopping() {
+        TestClassRunInfo test1 = test("Test1")
+        TestClassRunInfo test2 = test("Test2")
+        TestClassRunInfo test3 = test("Test3")
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        TestClassCompletionListener listener1 = null
+
+        startProcessor()
+        2 * factory.create() >> Mock(TestClassProcessor)
+        2 * actorFactory.createActor(_) >>> [Stub(Actor) { getProxy(TestClassProcessor) >> asyncProcessor1 }, Stub(Actor) { getProxy(TestClassProcessor) >> asyncProcessor2 }]
+        1 * asyncProcessor1.startProcessing(_) >> { listener1 = it[0] }
+        processor.processTestClass(test1)
+        processor.processTestClass(test2)
+        processor.processTestClass(test3)
+
+        when:
+        def stopper = Thread.start { processor.stop() }
+        listener1.testClassCompleted()
+        stopper.join()
+
+        then:
+        1 * asyncProcessor1.processTestClass(test3)
+        1 * asyncProcessor1.stop()
+        1 * asyncProcessor2.stop()
+    }
+
+    def test(String name) {
+        return Stub(TestClassRunInfo) {
+            getTestClassName() >> name
+        }
     }
 }
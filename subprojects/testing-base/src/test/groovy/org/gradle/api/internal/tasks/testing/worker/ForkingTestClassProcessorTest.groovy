@@ -19,9 +19,12 @@ package org.gradle.api.internal.tasks.testing.worker
 import org.gradle.api.Action
 import org.gradle.api.internal.classpath.Module
 import org.gradle.api.internal.classpath.ModuleRegistry
+import org.gradle.api.internal.tasks.testing.TestClassCompletionListener
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory
 import org.gradle.internal.classpath.ClassPath
+import org.gradle.internal.dispatch.StreamCompletion
 import org.gradle.internal.remote.ObjectConnection
 import org.gradle.internal.work.WorkerLeaseRegistry
 import org.gradle.process.JavaForkOptions
@@ -76,6 +79,40 @@ class ForkingTestClassProcessorTest extends Specification {
         1 * workerProcessBuilder.setImplementationClasspath(_) >> { assert it[0].size() == 16 }
     }
 
+    def "notifies completion listener when the worker completes a test class"() {
+        def resultProcessor = Mock(ResultProcessorWithCompletion)
+        def remoteProcessor = Mock(RemoteTestClassProcessor)
+        TestClassCompletionListener workerListener = null
+        def connection = Stub(ObjectConnection) {
+            addOutgoing(_) >> remoteProcessor
+            addIncoming(TestClassCompletionListener, _) >> { workerListener = it[1] }
+        }
+        _ * workerProcessFactory.create(_) >> workerProcessBuilder
+        _ * workerProcessBuilder.build() >> workerProcess
+        _ * workerProcessBuilder.getJavaCommand() >> Stub(JavaExecHandleBuilder)
+        _ * workerProcess.getConnection() >> connection
+        _ * moduleRegistry.getModule(_) >> { module(it[0]) }
+        _ * moduleRegistry.getExternalModule(_) >> { module(it[0]) }
+
+        given:
+        processor.startProcessing(resultProcessor)
+        processor.processTestClass(Mock(TestClassRunInfo))
+        processor.processTestClass(Mock(TestClassRunInfo))
+        processor.processTestClass(Mock(TestClassRunInfo))
+
+        when:
+        workerListener.testClassCompleted()
+
+        then:
+        1 * resultProcessor.testClassCompleted()
+
+        when:
+        ((StreamCompletion) workerListener).endStream()
+
+        then:
+        2 * resultProcessor.testClassCompleted()
+    }
+
     def module(String module) {
         return Stub(Module) {
             _ * getImplementationClasspath() >> {
@@ -85,4 +122,7 @@ class ForkingTestClassProcessorTest extends Specification {
             }
         }
     }
+
+    interface ResultProcessorWithCompletion extends TestResultProcessor, TestClassCompletionListener {
+    }
 }
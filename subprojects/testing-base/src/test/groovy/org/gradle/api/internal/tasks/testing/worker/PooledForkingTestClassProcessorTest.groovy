@@ -0,0 +1,157 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.api.Action
+import org.gradle.api.internal.classpath.Module
+import org.gradle.api.internal.classpath.ModuleRegistry
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory
+import org.gradle.internal.Factory
+import org.gradle.internal.classpath.ClassPath
+import org.gradle.internal.service.ServiceRegistry
+import org.gradle.internal.work.WorkerLeaseRegistry
+import org.gradle.process.JavaForkOptions
+import org.gradle.process.internal.worker.WorkerProcessFactory
+import spock.lang.Specification
+import spock.lang.Subject
+
+class PooledForkingTestClassProcessorTest extends Specification {
+    def completion = Mock(WorkerLeaseRegistry.WorkerLeaseCompletion)
+    def workerLease = Mock(WorkerLeaseRegistry.WorkerLease)
+    def moduleRegistry = Stub(ModuleRegistry) {
+        getModule(_) >> { module(it[0]) }
+        getExternalModule(_) >> { module(it[0]) }
+    }
+    def options = Stub(JavaForkOptions) {
+        getExecutable() >> "java"
+        getWorkingDir() >> new File("some-dir")
+        getAllJvmArgs() >> []
+        getEnvironment() >> [:]
+    }
+    def workerPool = Mock(TestWorkerPool)
+    def client = Mock(PooledTestWorkerClient) {
+        getSharedPackages() >> (["org.junit"] as Set)
+    }
+    def resultProcessor = Mock(TestResultProcessor)
+    def key = TestWorkerKey.of(options, ProcessorFactory.name)
+
+    @Subject
+        processor = Spy(PooledForkingTestClassProcessor, constructorArgs: [workerLease, Mock(WorkerProcessFactory), new ProcessorFactory(), options, [new File("classpath.jar")], Mock(Action), moduleRegistry, workerPool])
+
+    def "runs test classes in an idle worker from the pool"() {
+        def test1 = Mock(TestClassRunInfo)
+        def test2 = Mock(TestClassRunInfo)
+
+        when:
+        processor.startProcessing(resultProcessor)
+        processor.processTestClass(test1)
+        processor.processTestClass(test2)
+
+        then:
+        1 * workerLease.startChild() >> completion
+        1 * workerPool.reserveIdleClient(key) >> client
+        0 * workerPool.reserveNewClient(_)
+        0 * processor.startWorker(_)
+        1 * client.startSession({ it.sharedPackages == ["org.junit"] as Set && it.applicationClasspath == [new File("classpath.jar").toURI().toURL()] }, resultProcessor)
+
+        then:
+        1 * client.processTestClass(test1)
+        1 * client.processTestClass(test2)
+    }
+
+    def "starts a new worker when there is no idle worker of the right kind"() {
+        when:
+        processor.startProcessing(resultProcessor)
+        processor.processTestClass(Mock(TestClassRunInfo))
+
+        then:
+        1 * workerLease.startChild() >> completion
+        1 * workerPool.reserveIdleClient(key) >> null
+        1 * workerPool.reserveNewClient(_) >> { Factory<PooledTestWorkerClient> starter -> starter.create() }
+        1 * processor.startWorker(key) >> client
+        1 * client.startSession(_, resultProcessor)
+        1 * client.processTestClass(_)
+    }
+
+    def "returns worker to the pool when the session ends"() {
+        given:
+        workerLease.startChild() >> completion
+        workerPool.reserveIdleClient(key) >> client
+        processor.startProcessing(resultProcessor)
+        processor.processTestClass(Mock(TestClassRunInfo))
+
+        when:
+        processor.stop()
+
+        then:
+        1 * client.endSession()
+
+        then:
+        1 * workerPool.release(client, true)
+        1 * completion.leaseFinish()
+    }
+
+    def "stops worker when the session fails"() {
+        def failure = new RuntimeException("broken")
+
+        given:
+        workerLease.startChild() >> completion
+        workerPool.reserveIdleClient(key) >> client
+        processor.startProcessing(resultProcessor)
+        processor.processTestClass(Mock(TestClassRunInfo))
+
+        when:
+        processor.stop()
+
+        then:
+        1 * client.endSession() >> { throw failure }
+        1 * workerPool.release(client, false)
+        1 * completion.leaseFinish()
+        def e = thrown(RuntimeException)
+        e == failure
+    }
+
+    def "does not use a worker when there are no test classes"() {
+        when:
+        processor.startProcessing(resultProcessor)
+        processor.stop()
+
+        then:
+        0 * workerLease._
+        0 * workerPool._
+    }
+
+    def module(String module) {
+        return Stub(Module) {
+            _ * getImplementationClasspath() >> {
+                Stub(ClassPath) {
+                    _ * getAsURLs() >> { [new URL("file://${module}.jar")] }
+                }
+            }
+        }
+    }
+
+    static class ProcessorFactory implements WorkerTestClassProcessorFactory, Serializable {
+        @Override
+        TestClassProcessor create(ServiceRegistry serviceRegistry) {
+            throw new UnsupportedOperationException()
+        }
+    }
+}
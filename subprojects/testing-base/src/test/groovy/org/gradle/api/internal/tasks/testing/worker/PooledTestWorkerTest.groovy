@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory
+import org.gradle.internal.remote.ObjectConnection
+import org.gradle.internal.service.DefaultServiceRegistry
+import org.gradle.internal.service.ServiceRegistry
+import org.gradle.internal.time.Clock
+import org.gradle.internal.time.Time
+import org.gradle.process.internal.worker.WorkerProcessContext
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+import org.gradle.util.GUtil
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+
+class PooledTestWorkerTest extends ConcurrentSpec {
+    @Rule SetSystemProperties properties = new SetSystemProperties()
+    def workerContext = Mock(WorkerProcessContext)
+    def connection = Mock(ObjectConnection)
+    def processor = Mock(TestClassProcessor)
+    def resultProcessor = Mock(TestWorkerSessionResultProcessor)
+    def test = Mock(TestClassRunInfo)
+    def worker = new PooledTestWorker()
+    def spec = new TestWorkerSessionSpec([], [], [] as Set, GUtil.serialize(new ProcessorFactory()))
+
+    def setup() {
+        ProcessorFactory.processor = processor
+        ProcessorFactory.failure = null
+        workerContext.workerId >> "<worker-id>"
+        workerContext.displayName >> "<worker>"
+        workerContext.serverConnection >> connection
+        workerContext.serviceRegistry >> new DefaultServiceRegistry().add(Clock, Time.clock())
+        connection.addOutgoing(TestWorkerSessionResultProcessor) >> resultProcessor
+    }
+
+    def "runs the tests of each session and reports when the session has completed"() {
+        when:
+        runSessions {
+            2.times {
+                worker.startSession(spec)
+                worker.processTestClass(test)
+                worker.endSession()
+            }
+        }
+
+        then:
+        2 * processor.startProcessing(_)
+        2 * processor.processTestClass(test)
+        2 * processor.stop()
+        2 * resultProcessor.testClassCompleted()
+        2 * resultProcessor.sessionCompleted(_, { it > 0 })
+        0 * resultProcessor.sessionFailed(_)
+    }
+
+    def "reports failure of a session and runs the next one"() {
+        def failure = new RuntimeException("broken")
+
+        when:
+        runSessions {
+            ProcessorFactory.failure = failure
+            worker.startSession(spec)
+            worker.processTestClass(test)
+            worker.endSession()
+            ProcessorFactory.failure = null
+            worker.startSession(spec)
+            worker.processTestClass(test)
+            worker.endSession()
+        }
+
+        then:
+        1 * processor.processTestClass(test)
+        2 * resultProcessor.testClassCompleted()
+        1 * resultProcessor.sessionFailed(failure)
+        1 * resultProcessor.sessionCompleted(_, _)
+    }
+
+    def "restores system properties changed by a session"() {
+        when:
+        runSessions {
+            worker.startSession(spec)
+            worker.processTestClass(test)
+            worker.endSession()
+            assert System.getProperty("changed.by.test") == null
+        }
+
+        then:
+        1 * processor.processTestClass(test) >> { System.setProperty("changed.by.test", "value") }
+        1 * resultProcessor.sessionCompleted(_, _)
+    }
+
+    private void runSessions(Closure sessions) {
+        connection.connect() >> {
+            start {
+                sessions.call()
+                worker.stop()
+            }
+        }
+        async {
+            worker.execute(workerContext)
+        }
+    }
+
+    static class ProcessorFactory implements WorkerTestClassProcessorFactory, Serializable {
+        static TestClassProcessor processor
+        static RuntimeException failure
+
+        @Override
+        TestClassProcessor create(ServiceRegistry serviceRegistry) {
+            if (failure != null) {
+                throw failure
+            }
+            return processor
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.api.logging.LogLevel
+import org.gradle.internal.Factory
+import org.gradle.internal.logging.LoggingManagerInternal
+import org.gradle.internal.logging.events.LogLevelChangeEvent
+import org.gradle.internal.logging.events.OutputEventListener
+import org.gradle.process.JavaForkOptions
+import org.gradle.process.internal.health.memory.JvmMemoryStatus
+import org.gradle.process.internal.health.memory.MemoryManager
+import spock.lang.Specification
+import spock.lang.Subject
+
+class TestWorkerPoolTest extends Specification {
+    def loggingManager = Mock(LoggingManagerInternal) {
+        getLevel() >> LogLevel.LIFECYCLE
+    }
+    def memoryManager = Mock(MemoryManager)
+    def key = key("java")
+
+    @Subject pool = new TestWorkerPool(loggingManager, memoryManager)
+
+    def "unregisters as memory holder and log level listener when stopped"() {
+        when:
+        pool.stop()
+
+        then:
+        1 * memoryManager.removeMemoryHolder(pool)
+        1 * loggingManager.removeOutputEventListener(_)
+    }
+
+    def "does not reserve idle client when no clients"() {
+        expect:
+        pool.reserveIdleClient(key) == null
+    }
+
+    def "reserves released client with matching key"() {
+        def client = client(key)
+        pool.release(pool.reserveNewClient(starter(client)), true)
+
+        expect:
+        pool.reserveIdleClient(key("java")) == client
+        pool.reserveIdleClient(key) == null
+    }
+
+    def "does not reserve released client with different key"() {
+        def client = client(key)
+        pool.release(pool.reserveNewClient(starter(client)), true)
+
+        expect:
+        pool.reserveIdleClient(key("other-java")) == null
+        pool.reserveIdleClient(key) == client
+    }
+
+    def "stops client when released after failed session"() {
+        def client = client(key)
+        pool.reserveNewClient(starter(client))
+
+        when:
+        pool.release(client, false)
+
+        then:
+        1 * client.stop()
+        pool.reserveIdleClient(key) == null
+    }
+
+    def "stops client when released with most of its heap in use after garbage collection"() {
+        def client = client(key, memoryStatus(1000, 1000), 900)
+        pool.reserveNewClient(starter(client))
+
+        when:
+        pool.release(client, true)
+
+        then:
+        1 * client.stop()
+        pool.reserveIdleClient(key) == null
+    }
+
+    def "keeps client with most of its heap committed but little in use after garbage collection"() {
+        def client = client(key, memoryStatus(1000, 1000), 100)
+        pool.reserveNewClient(starter(client))
+
+        when:
+        pool.release(client, true)
+
+        then:
+        0 * client.stop()
+        pool.reserveIdleClient(key) == client
+    }
+
+    def "keeps client when it does not report memory usage"() {
+        def client = client(key, null, -1)
+        pool.reserveNewClient(starter(client))
+
+        when:
+        pool.release(client, true)
+
+        then:
+        0 * client.stop()
+        pool.reserveIdleClient(key) == client
+    }
+
+    def "stops idle client that has died"() {
+        def client = client(key)
+        pool.release(pool.reserveNewClient(starter(client)), true)
+
+        when:
+        def reserved = pool.reserveIdleClient(key)
+
+        then:
+        client.isAlive() >> false
+        1 * client.stop()
+        reserved == null
+    }
+
+    def "stops idle client when log level changes"() {
+        OutputEventListener listener = null
+        def debugLoggingManager = Stub(LoggingManagerInternal) {
+            getLevel() >> LogLevel.LIFECYCLE
+            addOutputEventListener(_) >> { OutputEventListener l -> listener = l }
+        }
+        def debugPool = new TestWorkerPool(debugLoggingManager, memoryManager)
+        def client = client(key)
+        debugPool.release(debugPool.reserveNewClient(starter(client)), true)
+
+        when:
+        listener.onOutput(new LogLevelChangeEvent(LogLevel.DEBUG))
+        def reserved = debugPool.reserveIdleClient(key)
+
+        then:
+        1 * client.stop()
+        reserved == null
+        debugPool.currentLogLevel == LogLevel.DEBUG
+    }
+
+    def "stops idle clients to release memory"() {
+        def client1 = client(key, memoryStatus(100, 1000))
+        def client2 = client(key, memoryStatus(100, 1000))
+        def busy = client(key, memoryStatus(100, 1000))
+        pool.release(pool.reserveNewClient(starter(client1)), true)
+        pool.release(pool.reserveNewClient(starter(client2)), true)
+        pool.reserveNewClient(starter(busy))
+
+        when:
+        def released = pool.attemptToRelease(50)
+
+        then:
+        released == 100
+        1 * client1.stop()
+        0 * client2.stop()
+        0 * busy.stop()
+
+        when:
+        released = pool.attemptToRelease(1000)
+
+        then:
+        released == 100
+        1 * client2.stop()
+        0 * busy.stop()
+    }
+
+    def "stops all clients when stopped"() {
+        def idle = client(key)
+        def busy = client(key)
+        pool.release(pool.reserveNewClient(starter(idle)), true)
+        pool.reserveNewClient(starter(busy))
+
+        when:
+        pool.stop()
+
+        then:
+        1 * idle.stop()
+        1 * busy.stop()
+        pool.reserveIdleClient(key) == null
+    }
+
+    private PooledTestWorkerClient client(TestWorkerKey key, JvmMemoryStatus memoryStatus = memoryStatus(100, 1000), long heapUsedAfterGc = 50) {
+        Mock(PooledTestWorkerClient) {
+            getKey() >> key
+            isAlive() >> true
+            getLogLevel() >> LogLevel.LIFECYCLE
+            getHeapUsedAfterGc() >> heapUsedAfterGc
+            getMaxHeap() >> (memoryStatus == null ? -1 : memoryStatus.maxMemory)
+            getJvmMemoryStatus() >> {
+                if (memoryStatus == null) {
+                    throw new IllegalStateException("no memory status")
+                }
+                memoryStatus
+            }
+        }
+    }
+
+    private JvmMemoryStatus memoryStatus(long committed, long max) {
+        Stub(JvmMemoryStatus) {
+            getCommittedMemory() >> committed
+            getMaxMemory() >> max
+        }
+    }
+
+    private Factory<PooledTestWorkerClient> starter(PooledTestWorkerClient client) {
+        Stub(Factory) {
+            create() >> client
+        }
+    }
+
+    private TestWorkerKey key(String executable) {
+        def options = Stub(JavaForkOptions) {
+            getExecutable() >> executable
+            getWorkingDir() >> new File("some-dir")
+            getAllJvmArgs() >> ["-Xmx64m"]
+            getEnvironment() >> [FOO: "bar"]
+        }
+        TestWorkerKey.of(options, "junit")
+    }
+}
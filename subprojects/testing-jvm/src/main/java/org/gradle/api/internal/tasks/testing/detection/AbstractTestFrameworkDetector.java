@@ -16,11 +16,14 @@
 
 package org.gradle.api.internal.tasks.testing.detection;
 
+import com.google.common.base.Optional;
+import com.google.common.collect.Maps;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.gradle.api.GradleException;
 import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.internal.hash.HashCode;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Type;
 
@@ -29,40 +32,45 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 import static org.gradle.internal.FileUtils.hasExtension;
 
+/**
+ * Base class for test framework detectors. Class files may be processed from several threads at once.
+ */
 public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor> implements TestFrameworkDetector {
     protected static final String TEST_CASE = "junit/framework/TestCase";
     protected static final String GROOVY_TEST_CASE = "groovy/util/GroovyTestCase";
     protected static final String JAVA_LANG_OBJECT = "java/lang/Object";
 
-    private List<File> testClassDirectories;
-    private final ClassFileExtractionManager classFileExtractionManager;
-    private final Map<File, Boolean> superClasses;
+    private volatile List<File> testClassDirectories;
+    private final LibraryClassFileIndex libraryClassFileIndex;
+    private final ConcurrentMap<String, Boolean> superClasses;
+    private final ConcurrentMap<String, Optional<TestClassInfo>> libraryClasses;
     private TestClassProcessor testClassProcessor;
+    private TestClassInfoCache classInfoCache;
     private final List<String> knownTestCaseClassNames;
 
     private Set<File> testClassesDirectories;
     private Set<File> testClasspath;
 
-    protected AbstractTestFrameworkDetector(ClassFileExtractionManager classFileExtractionManager) {
-        assert classFileExtractionManager != null;
-        this.classFileExtractionManager = classFileExtractionManager;
-        this.superClasses = new HashMap<File, Boolean>();
+    protected AbstractTestFrameworkDetector(LibraryClassFileIndex libraryClassFileIndex) {
+        assert libraryClassFileIndex != null;
+        this.libraryClassFileIndex = libraryClassFileIndex;
+        this.superClasses = Maps.newConcurrentMap();
+        this.libraryClasses = Maps.newConcurrentMap();
         this.knownTestCaseClassNames = new ArrayList<String>();
         addKnownTestCaseClassNames(TEST_CASE, GROOVY_TEST_CASE);
     }
 
     protected abstract T createClassVisitor();
 
-    protected File getSuperTestClassFile(String superClassName) {
-        prepareClasspath();
+    protected TestClassInfo getSuperTestClass(String superClassName) {
+        List<File> testClassDirectories = prepareClasspath();
         if (StringUtils.isEmpty(superClassName)) {
             throw new IllegalArgumentException("superClassName is empty!");
         }
@@ -79,22 +87,33 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
         }
 
         if (superTestClassFile != null) {
-            return superTestClassFile;
+            return classInfo(superTestClassFile);
         } else if (JAVA_LANG_OBJECT.equals(superClassName)) {
             // java.lang.Object found, which is not a test class
             return null;
         } else {
             // super test class file not in test class directories
-            return classFileExtractionManager.getLibraryClassFile(superClassName);
+            return libraryClassInfo(superClassName);
+        }
+    }
+
+    private TestClassInfo libraryClassInfo(String className) {
+        // Many test classes share the same library base classes, so each of them is read once, and classes not found are remembered as well
+        Optional<TestClassInfo> classInfo = libraryClasses.get(className);
+        if (classInfo == null) {
+            byte[] classBytes = libraryClassFileIndex.getClassFile(className);
+            classInfo = Optional.fromNullable(classBytes == null ? null : classInfo(classBytes, className));
+            libraryClasses.put(className, classInfo);
         }
+        return classInfo.orNull();
     }
 
-    private void prepareClasspath() {
+    private synchronized List<File> prepareClasspath() {
         if (testClassDirectories != null) {
-            return;
+            return testClassDirectories;
         }
 
-        testClassDirectories = new ArrayList<File>();
+        List<File> testClassDirectories = new ArrayList<File>();
 
         if (testClassesDirectories != null) {
             testClassDirectories.addAll(testClassesDirectories);
@@ -104,10 +123,12 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
                 if (file.isDirectory()) {
                     testClassDirectories.add(file);
                 } else if (file.isFile() && hasExtension(file, ".jar")) {
-                    classFileExtractionManager.addLibraryJar(file);
+                    libraryClassFileIndex.addLibraryJar(file);
                 }
             }
         }
+        this.testClassDirectories = testClassDirectories;
+        return testClassDirectories;
     }
 
     @Override
@@ -120,53 +141,75 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
         this.testClasspath = testClasspath;
     }
 
-    protected TestClassVisitor classVisitor(final File testClassFile) {
-        final TestClassVisitor classVisitor = createClassVisitor();
+    @Override
+    public void setClassInfoCache(TestClassInfoCache classInfoCache) {
+        this.classInfoCache = classInfoCache;
+    }
+
+    protected TestClassInfo classInfo(final File testClassFile) {
+        HashCode hash = null;
+        if (classInfoCache != null) {
+            hash = classInfoCache.hash(testClassFile);
+            TestClassInfo classInfo = classInfoCache.get(hash);
+            if (classInfo != null) {
+                return classInfo;
+            }
+        }
 
         InputStream classStream = null;
+        TestClassInfo classInfo;
         try {
             classStream = new BufferedInputStream(new FileInputStream(testClassFile));
-            final ClassReader classReader = new ClassReader(IOUtils.toByteArray(classStream));
-            classReader.accept(classVisitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+            classInfo = classInfo(IOUtils.toByteArray(classStream), testClassFile.getAbsolutePath());
+        } catch (GradleException e) {
+            throw e;
         } catch (Throwable e) {
             throw new GradleException("failed to read class file " + testClassFile.getAbsolutePath(), e);
         } finally {
             IOUtils.closeQuietly(classStream);
         }
 
-        return classVisitor;
+        if (classInfoCache != null) {
+            classInfoCache.put(hash, classInfo);
+        }
+        return classInfo;
+    }
+
+    private TestClassInfo classInfo(byte[] classBytes, String location) {
+        final TestClassVisitor classVisitor = createClassVisitor();
+        try {
+            final ClassReader classReader = new ClassReader(classBytes);
+            classReader.accept(classVisitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+        } catch (Throwable e) {
+            throw new GradleException("failed to read class file " + location, e);
+        }
+        return TestClassInfo.of(classVisitor);
     }
 
     @Override
     public boolean processTestClass(File testClassFile) {
-        return processTestClass(testClassFile, false);
+        return processTestClass(classInfo(testClassFile), false);
     }
 
-    protected abstract boolean processTestClass(File testClassFile, boolean superClass);
-
-    protected boolean processSuperClass(File testClassFile) {
-        boolean isTest = false;
-
-        Boolean isSuperTest = superClasses.get(testClassFile);
+    protected abstract boolean processTestClass(TestClassInfo classInfo, boolean superClass);
 
+    protected boolean processSuperClass(TestClassInfo classInfo) {
+        // Classes found through several subclasses at once may be processed more than once, which is harmless
+        Boolean isSuperTest = superClasses.get(classInfo.getClassName());
         if (isSuperTest == null) {
-            isTest = processTestClass(testClassFile, true);
-
-            superClasses.put(testClassFile, isTest);
-        } else {
-            isTest = isSuperTest;
+            isSuperTest = processTestClass(classInfo, true);
+            superClasses.put(classInfo.getClassName(), isSuperTest);
         }
-
-        return isTest;
+        return isSuperTest;
     }
 
     /**
      * In none super class mode a test class is published when the class is a test and it is not abstract. In super class mode it must not publish the class otherwise it will get published multiple
      * times (for each extending class).
      */
-    protected void publishTestClass(boolean isTest, TestClassVisitor classVisitor, boolean superClass) {
-        if (isTest && !classVisitor.isAbstract() && !superClass) {
-            String className = Type.getObjectType(classVisitor.getClassName()).getClassName();
+    protected void publishTestClass(boolean isTest, TestClassInfo classInfo, boolean superClass) {
+        if (isTest && !classInfo.isAbstract() && !superClass) {
+            String className = Type.getObjectType(classInfo.getClassName()).getClassName();
             testClassProcessor.processTestClass(new DefaultTestClassRunInfo(className));
         }
     }
@@ -176,6 +219,11 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
         this.testClassProcessor = testClassProcessor;
     }
 
+    @Override
+    public void stopDetection() {
+        libraryClassFileIndex.close();
+    }
+
     public void addKnownTestCaseClassNames(String... knownTestCaseClassNames) {
         if (knownTestCaseClassNames != null && knownTestCaseClassNames.length != 0) {
             for (String knownTestCaseClassName : knownTestCaseClassNames) {
@@ -25,19 +25,26 @@ import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
 import org.gradle.api.internal.tasks.testing.processors.MaxNParallelTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.RestartEveryNTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.processors.SelectingTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.TestMainAction;
 import org.gradle.api.internal.tasks.testing.worker.ForkingTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.worker.PooledForkingTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerPool;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.testing.Test;
 import org.gradle.internal.Factory;
 import org.gradle.internal.actor.ActorFactory;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.time.Clock;
 import org.gradle.internal.work.WorkerLeaseRegistry;
 import org.gradle.process.internal.worker.WorkerProcessFactory;
 
 import java.io.File;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -54,10 +61,16 @@ public class DefaultTestExecuter implements TestExecuter {
     private final BuildOperationExecutor buildOperationExecutor;
     private final int maxWorkerCount;
     private final Clock clock;
+    private final Map<String, Long> previousTestClassDurations;
+    private final TestWorkerPool testWorkerPool;
+    private final Spec<? super String> testClassSelection;
+    private final ExecutorFactory executorFactory;
+    private final FileHasher fileHasher;
 
     public DefaultTestExecuter(WorkerProcessFactory workerFactory, ActorFactory actorFactory, ModuleRegistry moduleRegistry,
                                WorkerLeaseRegistry workerLeaseRegistry, BuildOperationExecutor buildOperationExecutor, int maxWorkerCount,
-                               Clock clock) {
+                               Clock clock, Map<String, Long> previousTestClassDurations, TestWorkerPool testWorkerPool,
+                               Spec<? super String> testClassSelection, ExecutorFactory executorFactory, FileHasher fileHasher) {
         this.workerFactory = workerFactory;
         this.actorFactory = actorFactory;
         this.moduleRegistry = moduleRegistry;
@@ -65,6 +78,11 @@ public class DefaultTestExecuter implements TestExecuter {
         this.buildOperationExecutor = buildOperationExecutor;
         this.maxWorkerCount = maxWorkerCount;
         this.clock = clock;
+        this.previousTestClassDurations = previousTestClassDurations;
+        this.testWorkerPool = testWorkerPool;
+        this.testClassSelection = testClassSelection;
+        this.executorFactory = executorFactory;
+        this.fileHasher = fileHasher;
     }
 
     @Override
@@ -73,8 +91,13 @@ public class DefaultTestExecuter implements TestExecuter {
         final WorkerTestClassProcessorFactory testInstanceFactory = testFramework.getProcessorFactory();
         final WorkerLeaseRegistry.WorkerLease currentWorkerLease = workerLeaseRegistry.getCurrentWorkerLease();
         final Set<File> classpath = ImmutableSet.copyOf(testTask.getClasspath());
+        final boolean reuseWorkers = TestWorkerPool.isEnabled() && testTask.getForkEvery() == 0;
         final Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
             public TestClassProcessor create() {
+                if (reuseWorkers) {
+                    return new PooledForkingTestClassProcessor(currentWorkerLease, workerFactory, testInstanceFactory, testTask,
+                        classpath, testFramework.getWorkerConfigurationAction(), moduleRegistry, testWorkerPool);
+                }
                 return new ForkingTestClassProcessor(currentWorkerLease, workerFactory, testInstanceFactory, testTask,
                     classpath, testFramework.getWorkerConfigurationAction(), moduleRegistry);
             }
@@ -84,16 +107,20 @@ public class DefaultTestExecuter implements TestExecuter {
                 return new RestartEveryNTestClassProcessor(forkingProcessorFactory, testTask.getForkEvery());
             }
         };
-        TestClassProcessor processor = new MaxNParallelTestClassProcessor(getMaxParallelForks(testTask), reforkingProcessorFactory, actorFactory);
+        TestClassProcessor processor = new MaxNParallelTestClassProcessor(getMaxParallelForks(testTask), reforkingProcessorFactory, actorFactory, previousTestClassDurations);
+        processor = new SelectingTestClassProcessor(processor, testClassSelection);
 
         final FileTree testClassFiles = testTask.getCandidateClassFiles();
 
         Runnable detector;
+        TestClassInfoCache classInfoCache = null;
         if (testTask.isScanForTestClasses()) {
             TestFrameworkDetector testFrameworkDetector = testFramework.getDetector();
             testFrameworkDetector.setTestClasses(testTask.getTestClassesDirs().getFiles());
             testFrameworkDetector.setTestClasspath(classpath);
-            detector = new DefaultTestClassScanner(testClassFiles, testFrameworkDetector, processor);
+            classInfoCache = new TestClassInfoCache(new File(testTask.getTemporaryDir(), "test-detection.bin"), testFrameworkDetector.getClass().getName(), fileHasher);
+            testFrameworkDetector.setClassInfoCache(classInfoCache);
+            detector = new DefaultTestClassScanner(testClassFiles, testFrameworkDetector, processor, executorFactory, maxWorkerCount);
         } else {
             detector = new DefaultTestClassScanner(testClassFiles, null, processor);
         }
@@ -101,6 +128,10 @@ public class DefaultTestExecuter implements TestExecuter {
         final Object testTaskOperationId = buildOperationExecutor.getCurrentOperation().getParentId();
 
         new TestMainAction(detector, processor, testResultProcessor, clock, testTaskOperationId, testTask.getPath(), "Gradle Test Run " + testTask.getIdentityPath()).run();
+
+        if (classInfoCache != null) {
+            classInfoCache.write();
+        }
     }
 
     private int getMaxParallelForks(Test testTask) {
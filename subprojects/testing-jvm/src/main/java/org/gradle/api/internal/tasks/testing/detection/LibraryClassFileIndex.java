@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import com.google.common.collect.Maps;
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.GradleException;
+import org.gradle.internal.concurrent.CompositeStoppable;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Finds class files in library jars, by the packages each jar contains. Class files are read straight from the jars, without extracting them.
+ */
+public class LibraryClassFileIndex {
+    private final ConcurrentMap<String, Set<File>> packageJarFiles = Maps.newConcurrentMap();
+    private final Map<File, ZipFile> openJarFiles = Maps.newHashMap();
+
+    /**
+     * Adds all packages found in the given jar file to the index.
+     */
+    public synchronized void addLibraryJar(File libraryJar) {
+        try {
+            ZipFile zipFile = new ZipFile(libraryJar);
+            try {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    String entryName = entries.nextElement().getName();
+                    // Look at the class files rather than the directory entries, which jars do not always contain
+                    if (!entryName.endsWith(".class") || entryName.startsWith("META-INF/")) {
+                        continue;
+                    }
+                    String packageName = packageName(entryName);
+                    Set<File> jarFiles = packageJarFiles.get(packageName);
+                    if (jarFiles == null) {
+                        jarFiles = new LinkedHashSet<File>();
+                        packageJarFiles.put(packageName, jarFiles);
+                    }
+                    jarFiles.add(libraryJar);
+                }
+            } finally {
+                zipFile.close();
+            }
+        } catch (IOException e) {
+            throw new GradleException("failed to scan jar file for packages (" + libraryJar.getAbsolutePath() + ")", e);
+        }
+    }
+
+    /**
+     * Returns the contents of the class file for the given internal class name, or null when none of the jars contain the class.
+     * The jars are kept open until {@link #close()} is called.
+     */
+    @Nullable
+    public byte[] getClassFile(String className) {
+        Set<File> jarFiles = packageJarFiles.get(packageName(className));
+        if (jarFiles == null) {
+            return null;
+        }
+        String entryName = className + ".class";
+        for (File jarFile : jarFiles) {
+            try {
+                ZipFile zipFile = open(jarFile);
+                ZipEntry entry = zipFile.getEntry(entryName);
+                if (entry != null) {
+                    InputStream input = zipFile.getInputStream(entry);
+                    try {
+                        return IOUtils.toByteArray(input);
+                    } finally {
+                        input.close();
+                    }
+                }
+            } catch (IOException e) {
+                throw new GradleException("failed to read class file from jar (" + jarFile + ")", e);
+            }
+        }
+        return null;
+    }
+
+    private synchronized ZipFile open(File jarFile) throws IOException {
+        ZipFile zipFile = openJarFiles.get(jarFile);
+        if (zipFile == null) {
+            zipFile = new ZipFile(jarFile);
+            openJarFiles.put(jarFile, zipFile);
+        }
+        return zipFile;
+    }
+
+    /**
+     * Closes the jars opened to read class files from.
+     */
+    public synchronized void close() {
+        try {
+            CompositeStoppable.stoppable(openJarFiles.values()).stop();
+        } finally {
+            openJarFiles.clear();
+        }
+    }
+
+    private static String packageName(String path) {
+        return path.substring(0, path.lastIndexOf('/') + 1);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import com.google.common.collect.Maps;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.FlushableEncoder;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers what a test framework detector found out about class files, keyed by the hash of their content, so that
+ * class files that have not changed since the last run are not parsed again.
+ *
+ * <p>The hashes come from the build wide {@link FileHasher}, which does not read files again that have not changed since
+ * they were last hashed.</p>
+ */
+public class TestClassInfoCache {
+    private static final int CACHE_VERSION = 1;
+    private static final Logger LOGGER = Logging.getLogger(TestClassInfoCache.class);
+
+    private final File cacheFile;
+    private final String detectorId;
+    private final FileHasher fileHasher;
+    private final Map<HashCode, TestClassInfo> previousEntries;
+    private final ConcurrentMap<HashCode, TestClassInfo> currentEntries = Maps.newConcurrentMap();
+
+    /**
+     * @param detectorId identifies the detector the entries were created by. The entries are discarded when it changes.
+     */
+    public TestClassInfoCache(File cacheFile, String detectorId, FileHasher fileHasher) {
+        this.cacheFile = cacheFile;
+        this.detectorId = detectorId;
+        this.fileHasher = fileHasher;
+        this.previousEntries = read();
+    }
+
+    public HashCode hash(File classFile) {
+        return fileHasher.hash(classFile);
+    }
+
+    @Nullable
+    public TestClassInfo get(HashCode hash) {
+        TestClassInfo classInfo = currentEntries.get(hash);
+        if (classInfo == null) {
+            classInfo = previousEntries.get(hash);
+            if (classInfo != null) {
+                currentEntries.put(hash, classInfo);
+            }
+        }
+        return classInfo;
+    }
+
+    public void put(HashCode hash, TestClassInfo classInfo) {
+        currentEntries.put(hash, classInfo);
+    }
+
+    /**
+     * Writes the entries used since this cache was created, dropping those of class files that have gone away.
+     */
+    public void write() {
+        try {
+            OutputStream outputStream = new FileOutputStream(cacheFile);
+            try {
+                FlushableEncoder encoder = new KryoBackedEncoder(outputStream);
+                encoder.writeSmallInt(CACHE_VERSION);
+                encoder.writeString(detectorId);
+                encoder.writeSmallInt(currentEntries.size());
+                for (Map.Entry<HashCode, TestClassInfo> entry : currentEntries.entrySet()) {
+                    TestClassInfo classInfo = entry.getValue();
+                    encoder.writeBinary(entry.getKey().toByteArray());
+                    encoder.writeString(classInfo.getClassName());
+                    encoder.writeNullableString(classInfo.getSuperClassName());
+                    encoder.writeBoolean(classInfo.isTest());
+                    encoder.writeBoolean(classInfo.isAbstract());
+                }
+                encoder.flush();
+            } finally {
+                outputStream.close();
+            }
+        } catch (IOException e) {
+            // Only means that all class files are parsed again next time
+            LOGGER.debug("Could not write test class detection cache " + cacheFile + ".", e);
+        }
+    }
+
+    private Map<HashCode, TestClassInfo> read() {
+        if (!cacheFile.isFile()) {
+            return Collections.emptyMap();
+        }
+        try {
+            InputStream inputStream = new FileInputStream(cacheFile);
+            try {
+                Decoder decoder = new KryoBackedDecoder(inputStream);
+                if (decoder.readSmallInt() != CACHE_VERSION || !detectorId.equals(decoder.readString())) {
+                    return Collections.emptyMap();
+                }
+                int count = decoder.readSmallInt();
+                Map<HashCode, TestClassInfo> entries = Maps.newHashMapWithExpectedSize(count);
+                for (int i = 0; i < count; i++) {
+                    HashCode hash = HashCode.fromBytes(decoder.readBinary());
+                    entries.put(hash, new TestClassInfo(decoder.readString(), decoder.readNullableString(), decoder.readBoolean(), decoder.readBoolean()));
+                }
+                return entries;
+            } finally {
+                inputStream.close();
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Could not read test class detection cache " + cacheFile + ".", e);
+            return Collections.emptyMap();
+        }
+    }
+}
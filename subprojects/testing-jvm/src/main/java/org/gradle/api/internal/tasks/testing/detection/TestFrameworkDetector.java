@@ -25,7 +25,17 @@ public interface TestFrameworkDetector {
 
     boolean processTestClass(File testClassFile);
 
+    /**
+     * Releases what was held on to while processing test classes, such as open library jars.
+     */
+    void stopDetection();
+
     void setTestClasses(Set<File> testClasses);
 
     void setTestClasspath(Set<File> classpath);
+
+    /**
+     * Sets the cache to look up class files in before parsing them.
+     */
+    void setClassInfoCache(TestClassInfoCache classInfoCache);
 }
@@ -15,11 +15,13 @@
  */
 package org.gradle.api.internal.tasks.testing.junit.report;
 
+import com.google.common.collect.Sets;
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
 import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestFailure;
 import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult;
+import org.gradle.api.internal.tasks.testing.junit.result.TestReportIndex;
 import org.gradle.api.internal.tasks.testing.junit.result.TestResultsProvider;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
@@ -33,19 +35,26 @@ import org.gradle.internal.time.Timer;
 import org.gradle.reporting.HtmlReportBuilder;
 import org.gradle.reporting.HtmlReportRenderer;
 import org.gradle.reporting.ReportRenderer;
+import org.gradle.util.GradleVersion;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.Set;
 
 import static org.gradle.api.tasks.testing.TestResult.ResultType.SKIPPED;
 
 public class DefaultTestReport implements TestReporter {
     private final BuildOperationExecutor buildOperationExecutor;
+    private final File indexFile;
     private final static Logger LOG = Logging.getLogger(DefaultTestReport.class);
 
-    public DefaultTestReport(BuildOperationExecutor buildOperationExecutor) {
+    /**
+     * @param indexFile where to remember which results the report was generated from, see {@link TestReportIndex}.
+     */
+    public DefaultTestReport(BuildOperationExecutor buildOperationExecutor, File indexFile) {
         this.buildOperationExecutor = buildOperationExecutor;
+        this.indexFile = indexFile;
     }
 
     @Override
@@ -53,16 +62,25 @@ public class DefaultTestReport implements TestReporter {
         LOG.info("Generating HTML test report...");
 
         Timer clock = Time.startTimer();
-        AllTestResults model = loadModelFromProvider(resultsProvider);
-        generateFiles(model, resultsProvider, reportDir);
+        TestReportIndex reportIndex = new TestReportIndex(indexFile, "html," + reportDir + "," + GradleVersion.current().getVersion());
+        Set<String> upToDateClasses = Sets.newHashSet();
+        AllTestResults model = loadModelFromProvider(resultsProvider, reportDir, reportIndex, upToDateClasses);
+        generateFiles(model, resultsProvider, reportDir, upToDateClasses);
+        reportIndex.write();
+        if (!upToDateClasses.isEmpty()) {
+            LOG.info("Skipped {} test class pages that are unchanged.", upToDateClasses.size());
+        }
         LOG.info("Finished generating test html results ({}) into: {}", clock.getElapsed(), reportDir);
     }
 
-    private AllTestResults loadModelFromProvider(TestResultsProvider resultsProvider) {
+    private AllTestResults loadModelFromProvider(TestResultsProvider resultsProvider, final File reportDir, final TestReportIndex reportIndex, final Set<String> upToDateClasses) {
         final AllTestResults model = new AllTestResults();
         resultsProvider.visitClasses(new Action<TestClassResult>() {
             public void execute(TestClassResult classResult) {
-                model.addTestClass(classResult.getId(), classResult.getClassName());
+                ClassTestResults classResults = model.addTestClass(classResult.getId(), classResult.getClassName());
+                if (reportIndex.isUpToDate(classResult, new File(reportDir, classResults.getBaseUrl()))) {
+                    upToDateClasses.add(classResult.getClassName());
+                }
                 List<TestMethodResult> collectedResults = classResult.getResults();
                 for (TestMethodResult collectedResult : collectedResults) {
                     final TestResult testResult = model.addTest(classResult.getId(), classResult.getClassName(), collectedResult.getName(), collectedResult.getDuration());
@@ -80,7 +98,7 @@ public class DefaultTestReport implements TestReporter {
         return model;
     }
 
-    private void generateFiles(AllTestResults model, final TestResultsProvider resultsProvider, File reportDir) {
+    private void generateFiles(AllTestResults model, final TestResultsProvider resultsProvider, File reportDir, final Set<String> upToDateClasses) {
         try {
             HtmlReportRenderer htmlRenderer = new HtmlReportRenderer();
             htmlRenderer.render(model, new ReportRenderer<AllTestResults, HtmlReportBuilder>() {
@@ -93,6 +111,9 @@ public class DefaultTestReport implements TestReporter {
                             for (PackageTestResults packageResults : model.getPackages()) {
                                 queue.add(generator(packageResults.getBaseUrl(), packageResults, new PackagePageRenderer(), output));
                                 for (ClassTestResults classResults : packageResults.getClasses()) {
+                                    if (upToDateClasses.contains(classResults.getName())) {
+                                        continue;
+                                    }
                                     queue.add(generator(classResults.getBaseUrl(), classResults, new ClassPageRenderer(resultsProvider), output));
                                 }
                             }
@@ -29,6 +29,7 @@ import org.gradle.internal.operations.RunnableBuildOperation;
 import org.gradle.internal.progress.BuildOperationDescriptor;
 import org.gradle.internal.time.Time;
 import org.gradle.internal.time.Timer;
+import org.gradle.util.GradleVersion;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -36,20 +37,26 @@ import java.io.FileOutputStream;
 public class Binary2JUnitXmlReportGenerator {
 
     private final File testResultsDir;
+    private final File indexFile;
     private final TestResultsProvider testResultsProvider;
     private JUnitXmlResultWriter xmlWriter;
     private final BuildOperationExecutor buildOperationExecutor;
+    private final String reportSettings;
     private final static Logger LOG = Logging.getLogger(Binary2JUnitXmlReportGenerator.class);
 
-    public Binary2JUnitXmlReportGenerator(File testResultsDir, TestResultsProvider testResultsProvider, TestOutputAssociation outputAssociation, BuildOperationExecutor buildOperationExecutor, String hostName) {
+    public Binary2JUnitXmlReportGenerator(File testResultsDir, File indexFile, TestResultsProvider testResultsProvider, TestOutputAssociation outputAssociation, BuildOperationExecutor buildOperationExecutor, String hostName) {
         this.testResultsDir = testResultsDir;
+        this.indexFile = indexFile;
         this.testResultsProvider = testResultsProvider;
         this.xmlWriter = new JUnitXmlResultWriter(hostName, testResultsProvider, outputAssociation);
         this.buildOperationExecutor = buildOperationExecutor;
+        this.reportSettings = testResultsDir + "," + hostName + "," + outputAssociation + "," + GradleVersion.current().getVersion();
     }
 
     public void generate() {
         Timer clock = Time.startTimer();
+        final TestReportIndex reportIndex = new TestReportIndex(indexFile, reportSettings);
+        final int[] skipped = new int[1];
 
         buildOperationExecutor.runAll(new Action<BuildOperationQueue<JUnitXmlReportFileGenerator>>() {
             @Override
@@ -57,11 +64,19 @@ public class Binary2JUnitXmlReportGenerator {
                 testResultsProvider.visitClasses(new Action<TestClassResult>() {
                     public void execute(final TestClassResult result) {
                         final File reportFile = new File(testResultsDir, getReportFileName(result));
+                        if (reportIndex.isUpToDate(result, reportFile)) {
+                            skipped[0]++;
+                            return;
+                        }
                         queue.add(new JUnitXmlReportFileGenerator(result, reportFile, xmlWriter));
                     }
                 });
             }
         });
+        reportIndex.write();
+        if (skipped[0] > 0) {
+            LOG.info("Skipped {} test XML results that are unchanged.", skipped[0]);
+        }
 
         LOG.info("Finished generating test XML results ({}) into: {}", clock.getElapsed(), testResultsDir);
     }
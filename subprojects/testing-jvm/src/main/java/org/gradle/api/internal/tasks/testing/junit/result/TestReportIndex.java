@@ -0,0 +1,157 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result;
+
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.FlushableEncoder;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers which test class results the files of a report were generated from, so that the files of classes whose
+ * results have not changed since are not generated again.
+ *
+ * <p>This pays off when a report is generated from results that are partly the same as last time, such as an aggregate
+ * report over several test tasks of which only some have run again.</p>
+ *
+ * <p>The index is kept outside of the report directory, so that it does not become part of the outputs of the task.</p>
+ */
+public class TestReportIndex {
+    private static final int INDEX_VERSION = 1;
+    private static final Logger LOGGER = Logging.getLogger(TestReportIndex.class);
+
+    private final File indexFile;
+    private final String settings;
+    private final Map<String, HashCode> previousHashes;
+    private final ConcurrentMap<String, HashCode> currentHashes = Maps.newConcurrentMap();
+
+    /**
+     * @param settings describes everything apart from the results that goes into the generated files. The files are all generated again when this changes.
+     */
+    public TestReportIndex(File indexFile, String settings) {
+        this.indexFile = indexFile;
+        this.settings = settings;
+        this.previousHashes = read();
+    }
+
+    /**
+     * Returns whether the given report file was generated from the same results as the given ones.
+     */
+    public boolean isUpToDate(TestClassResult result, File reportFile) {
+        HashCode hash = hash(result);
+        currentHashes.put(result.getClassName(), hash);
+        return hash.equals(previousHashes.get(result.getClassName())) && reportFile.isFile();
+    }
+
+    /**
+     * Records the results that the report has been generated from. Call once all files of the report have been generated.
+     */
+    public void write() {
+        try {
+            Files.createParentDirs(indexFile);
+            OutputStream outputStream = new FileOutputStream(indexFile);
+            try {
+                FlushableEncoder encoder = new KryoBackedEncoder(outputStream);
+                encoder.writeSmallInt(INDEX_VERSION);
+                encoder.writeString(settings);
+                encoder.writeSmallInt(currentHashes.size());
+                for (Map.Entry<String, HashCode> entry : currentHashes.entrySet()) {
+                    encoder.writeString(entry.getKey());
+                    encoder.writeBinary(entry.getValue().toByteArray());
+                }
+                encoder.flush();
+            } finally {
+                outputStream.close();
+            }
+        } catch (IOException e) {
+            // Only means that all files are generated again next time
+            LOGGER.debug("Could not write test report index " + indexFile + ".", e);
+        }
+    }
+
+    private Map<String, HashCode> read() {
+        if (!indexFile.isFile()) {
+            return Collections.emptyMap();
+        }
+        try {
+            InputStream inputStream = new FileInputStream(indexFile);
+            try {
+                Decoder decoder = new KryoBackedDecoder(inputStream);
+                if (decoder.readSmallInt() != INDEX_VERSION || !settings.equals(decoder.readString())) {
+                    return Collections.emptyMap();
+                }
+                int count = decoder.readSmallInt();
+                Map<String, HashCode> hashes = Maps.newHashMapWithExpectedSize(count);
+                for (int i = 0; i < count; i++) {
+                    hashes.put(decoder.readString(), HashCode.fromBytes(decoder.readBinary()));
+                }
+                return hashes;
+            } finally {
+                inputStream.close();
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Could not read test report index " + indexFile + ".", e);
+            return Collections.emptyMap();
+        }
+    }
+
+    private static HashCode hash(TestClassResult result) {
+        // The start time identifies the run, and so also the output of the class
+        Hasher hasher = Hashing.md5().newHasher();
+        hasher.putString(result.getClassName());
+        hasher.putLong(result.getStartTime());
+        hasher.putInt(result.getResults().size());
+        for (TestMethodResult methodResult : result.getResults()) {
+            hasher.putString(methodResult.getName());
+            hasher.putInt(methodResult.getResultType().ordinal());
+            hasher.putLong(methodResult.getDuration());
+            hasher.putLong(methodResult.getEndTime());
+            hasher.putInt(methodResult.getFailures().size());
+            for (TestFailure failure : methodResult.getFailures()) {
+                putNullableString(hasher, failure.getExceptionType());
+                putNullableString(hasher, failure.getMessage());
+                putNullableString(hasher, failure.getStackTrace());
+            }
+        }
+        return hasher.hash();
+    }
+
+    private static void putNullableString(Hasher hasher, @Nullable String value) {
+        hasher.putBoolean(value != null);
+        if (value != null) {
+            hasher.putString(value);
+        }
+    }
+}
@@ -0,0 +1,407 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.selection;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.EmptyFileVisitor;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.file.RelativePath;
+import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory;
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer;
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassAnalysis;
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.specs.Specs;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.StreamHasher;
+import org.gradle.internal.nativeintegration.filesystem.FileSystem;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Selects the test classes that need to run because classes they depend on have changed since they last passed.
+ *
+ * <p>The dependencies of a test class are the classes it references from its byte code, directly or through other classes
+ * of the test runtime classpath. The classes in jars are compared entry by entry, so a jar rebuilt with the same classes
+ * is not a change. Changes to anything else on the classpath, such as resources, cause all test classes to run. So do
+ * changes to classes that any class may depend on without referencing them, as does a test run with no changed classes at all, as the task must be running for some other reason.</p>
+ *
+ * <p>Test classes that have not passed in the previous runs are always selected.</p>
+ */
+public class ChangedClassesTestSelector {
+    public static final String SELECTIVE_TESTING_PROPERTY = "org.gradle.test.selective";
+
+    private static final Logger LOGGER = Logging.getLogger(ChangedClassesTestSelector.class);
+    private static final String CLASS_FILE_EXTENSION = ".class";
+
+    private final TestSelectionIndexSerializer serializer;
+    private final DirectoryFileTreeFactory directoryFileTreeFactory;
+    private final FileHasher fileHasher;
+    private final StreamHasher streamHasher;
+    private final ClassDependenciesAnalyzer analyzer;
+    private final Set<String> skippedTestClasses = Collections.synchronizedSet(Sets.<String>newHashSet());
+    private TestSelectionIndex previousIndex;
+    private Map<String, TestSelectionIndex.ClassEntry> currentClasses;
+    private Map<String, HashCode> currentOtherFiles;
+    private Set<String> affectedClasses;
+
+    public ChangedClassesTestSelector(File indexFile, DirectoryFileTreeFactory directoryFileTreeFactory, FileHasher fileHasher, StreamHasher streamHasher, ClassDependenciesAnalyzer analyzer) {
+        this.serializer = new TestSelectionIndexSerializer(indexFile);
+        this.directoryFileTreeFactory = directoryFileTreeFactory;
+        this.fileHasher = fileHasher;
+        this.streamHasher = streamHasher;
+        this.analyzer = analyzer;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(SELECTIVE_TESTING_PROPERTY);
+    }
+
+    /**
+     * Snapshots the given test runtime classpath and returns which test classes to run.
+     */
+    public Spec<String> select(Iterable<File> classpath) {
+        previousIndex = readPreviousIndex();
+        snapshot(classpath);
+        affectedClasses = findAffectedClasses();
+        if (affectedClasses == null) {
+            return Specs.satisfyAll();
+        }
+        final Set<String> passedTestClasses = previousIndex.getPassedTestClasses();
+        final Set<String> affected = affectedClasses;
+        return new Spec<String>() {
+            @Override
+            public boolean isSatisfiedBy(String testClassName) {
+                if (passedTestClasses.contains(testClassName) && !affected.contains(testClassName)) {
+                    skippedTestClasses.add(testClassName);
+                    return false;
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Records the results of the test classes that ran, for selecting the test classes of the next run.
+     */
+    public void recordResults(Collection<TestClassResult> results) {
+        Set<String> passedTestClasses = Sets.newHashSet();
+        if (affectedClasses != null) {
+            passedTestClasses.addAll(previousIndex.getPassedTestClasses());
+            passedTestClasses.removeAll(affectedClasses);
+        }
+        for (TestClassResult result : results) {
+            if (result.getFailuresCount() == 0) {
+                passedTestClasses.add(result.getClassName());
+            } else {
+                passedTestClasses.remove(result.getClassName());
+            }
+        }
+        passedTestClasses.retainAll(currentClasses.keySet());
+        serializer.write(new TestSelectionIndex(currentClasses, currentOtherFiles, passedTestClasses));
+        if (!skippedTestClasses.isEmpty()) {
+            LOGGER.info("Skipped {} test classes that passed before and are not affected by the changes since.", skippedTestClasses.size());
+        }
+    }
+
+    @Nullable
+    private TestSelectionIndex readPreviousIndex() {
+        try {
+            return serializer.read();
+        } catch (RuntimeException e) {
+            LOGGER.debug("Could not read the test selection index of the previous test run.", e);
+            return null;
+        }
+    }
+
+    private void snapshot(Iterable<File> classpath) {
+        final Map<String, TestSelectionIndex.ClassEntry> previousClasses = previousIndex == null
+            ? Collections.<String, TestSelectionIndex.ClassEntry>emptyMap()
+            : previousIndex.getClasses();
+        currentClasses = Maps.newHashMap();
+        currentOtherFiles = Maps.newHashMap();
+        for (File file : classpath) {
+            if (file.isDirectory()) {
+                directoryFileTreeFactory.create(file).visit(new EmptyFileVisitor() {
+                    @Override
+                    public void visitFile(FileVisitDetails fileDetails) {
+                        HashCode hash = fileHasher.hash(fileDetails);
+                        String path = fileDetails.getRelativePath().getPathString();
+                        if (path.endsWith(CLASS_FILE_EXTENSION)) {
+                            addClass(path, hash, fileDetails, previousClasses);
+                        } else {
+                            currentOtherFiles.put(fileDetails.getFile().getAbsolutePath(), hash);
+                        }
+                    }
+                });
+            } else if (file.isFile()) {
+                snapshotJar(file, previousClasses);
+            }
+        }
+    }
+
+    private void snapshotJar(File jar, Map<String, TestSelectionIndex.ClassEntry> previousClasses) {
+        ZipFile zipFile;
+        try {
+            zipFile = new ZipFile(jar);
+        } catch (IOException e) {
+            LOGGER.debug("Could not read " + jar + " as a jar, comparing it as a whole.", e);
+            currentOtherFiles.put(jar.getAbsolutePath(), fileHasher.hash(jar));
+            return;
+        }
+        try {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                JarEntryElement element = new JarEntryElement(jar, entry, read(zipFile, entry));
+                HashCode hash = streamHasher.hash(element.open());
+                if (entry.getName().endsWith(CLASS_FILE_EXTENSION)) {
+                    addClass(entry.getName(), hash, element, previousClasses);
+                } else {
+                    currentOtherFiles.put(element.toString(), hash);
+                }
+            }
+        } finally {
+            try {
+                zipFile.close();
+            } catch (IOException e) {
+                LOGGER.debug("Could not close " + jar + ".", e);
+            }
+        }
+    }
+
+    private static byte[] read(ZipFile zipFile, ZipEntry entry) {
+        try {
+            InputStream inputStream = zipFile.getInputStream(entry);
+            try {
+                return ByteStreams.toByteArray(inputStream);
+            } finally {
+                inputStream.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void addClass(String path, HashCode hash, FileTreeElement classFile, Map<String, TestSelectionIndex.ClassEntry> previousClasses) {
+        String className = path.substring(0, path.length() - CLASS_FILE_EXTENSION.length()).replace('/', '.');
+        if (currentClasses.containsKey(className)) {
+            // Shadowed by a class earlier on the classpath
+            return;
+        }
+        TestSelectionIndex.ClassEntry previousEntry = previousClasses.get(className);
+        if (previousEntry != null && previousEntry.getHash().equals(hash)) {
+            currentClasses.put(className, previousEntry);
+        } else {
+            currentClasses.put(className, analyze(hash, classFile));
+        }
+    }
+
+    private TestSelectionIndex.ClassEntry analyze(HashCode hash, FileTreeElement classFile) {
+        try {
+            ClassAnalysis analysis = analyzer.getClassAnalysis(hash, classFile);
+            return new TestSelectionIndex.ClassEntry(hash, analysis.getClassDependencies(), analysis.getConstants(), analysis.getLiterals(), analysis.isDependencyToAll());
+        } catch (RuntimeException e) {
+            LOGGER.debug("Could not analyze class file " + classFile + ", treating it as a dependency of all classes.", e);
+            return new TestSelectionIndex.ClassEntry(hash, Collections.<String>emptySet(), Collections.<Integer>emptySet(), Collections.<Integer>emptySet(), true);
+        }
+    }
+
+    /**
+     * Returns the classes affected by the changes since the previous run, or null when all test classes need to run.
+     */
+    @Nullable
+    private Set<String> findAffectedClasses() {
+        if (previousIndex == null) {
+            LOGGER.info("No previous test run recorded, running all test classes.");
+            return null;
+        }
+        if (!previousIndex.getOtherFiles().equals(currentOtherFiles)) {
+            LOGGER.info("Resources on the test runtime classpath have changed, running all test classes.");
+            return null;
+        }
+        Map<String, TestSelectionIndex.ClassEntry> previousClasses = previousIndex.getClasses();
+        Set<String> changedClasses = Sets.newHashSet();
+        for (Map.Entry<String, TestSelectionIndex.ClassEntry> entry : currentClasses.entrySet()) {
+            TestSelectionIndex.ClassEntry previousEntry = previousClasses.get(entry.getKey());
+            if (previousEntry == null || !previousEntry.getHash().equals(entry.getValue().getHash())) {
+                changedClasses.add(entry.getKey());
+            }
+        }
+        for (String className : previousClasses.keySet()) {
+            if (!currentClasses.containsKey(className)) {
+                changedClasses.add(className);
+            }
+        }
+        if (changedClasses.isEmpty()) {
+            LOGGER.info("No classes on the test runtime classpath have changed, running all test classes.");
+            return null;
+        }
+
+        Set<Integer> changedConstants = Sets.newHashSet();
+        for (String className : changedClasses) {
+            for (TestSelectionIndex.ClassEntry entry : new TestSelectionIndex.ClassEntry[]{previousClasses.get(className), currentClasses.get(className)}) {
+                if (entry == null) {
+                    continue;
+                }
+                if (entry.isDependencyToAll()) {
+                    LOGGER.info("Changed class {} may affect any class, running all test classes.", className);
+                    return null;
+                }
+                changedConstants.addAll(entry.getConstants());
+            }
+        }
+
+        // Walk the dependencies recorded by the previous run: a class can only behave differently now when something it used then has changed
+        Map<String, Set<String>> dependents = Maps.newHashMap();
+        Set<String> affected = Sets.newHashSet(changedClasses);
+        Deque<String> queue = new ArrayDeque<String>(changedClasses);
+        for (Map.Entry<String, TestSelectionIndex.ClassEntry> entry : previousClasses.entrySet()) {
+            String className = entry.getKey();
+            for (String dependency : entry.getValue().getDependencies()) {
+                Set<String> classDependents = dependents.get(dependency);
+                if (classDependents == null) {
+                    classDependents = Sets.newHashSet();
+                    dependents.put(dependency, classDependents);
+                }
+                classDependents.add(className);
+            }
+            // Constants are inlined by the compiler, so they do not show up as a dependency
+            if (!changedConstants.isEmpty() && !Collections.disjoint(entry.getValue().getLiterals(), changedConstants) && affected.add(className)) {
+                queue.add(className);
+            }
+        }
+        while (!queue.isEmpty()) {
+            Set<String> classDependents = dependents.get(queue.poll());
+            if (classDependents == null) {
+                continue;
+            }
+            for (String dependent : classDependents) {
+                if (affected.add(dependent)) {
+                    queue.add(dependent);
+                }
+            }
+        }
+        return affected;
+    }
+
+    private static class JarEntryElement implements FileTreeElement {
+        private final File jar;
+        private final ZipEntry entry;
+        private final byte[] content;
+
+        JarEntryElement(File jar, ZipEntry entry, byte[] content) {
+            this.jar = jar;
+            this.entry = entry;
+            this.content = content;
+        }
+
+        @Override
+        public InputStream open() {
+            return new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public void copyTo(OutputStream output) {
+            try {
+                output.write(content);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public boolean copyTo(File target) {
+            try {
+                Files.write(content, target);
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public File getFile() {
+            throw new UnsupportedOperationException("Entries of " + jar + " are not extracted.");
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return false;
+        }
+
+        @Override
+        public long getLastModified() {
+            return entry.getTime();
+        }
+
+        @Override
+        public long getSize() {
+            return content.length;
+        }
+
+        @Override
+        public String getName() {
+            return getRelativePath().getLastName();
+        }
+
+        @Override
+        public String getPath() {
+            return entry.getName();
+        }
+
+        @Override
+        public RelativePath getRelativePath() {
+            return RelativePath.parse(true, entry.getName());
+        }
+
+        @Override
+        public int getMode() {
+            return FileSystem.DEFAULT_FILE_MODE;
+        }
+
+        @Override
+        public String toString() {
+            return jar.getAbsolutePath() + "!/" + entry.getName();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.selection;
+
+import org.gradle.internal.hash.HashCode;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What a test task saw of its runtime classpath when it last ran, and which test classes passed against it.
+ */
+public class TestSelectionIndex {
+    private final Map<String, ClassEntry> classes;
+    private final Map<String, HashCode> otherFiles;
+    private final Set<String> passedTestClasses;
+
+    public TestSelectionIndex(Map<String, ClassEntry> classes, Map<String, HashCode> otherFiles, Set<String> passedTestClasses) {
+        this.classes = classes;
+        this.otherFiles = otherFiles;
+        this.passedTestClasses = passedTestClasses;
+    }
+
+    /**
+     * The classes found in the directories of the classpath, by class name.
+     */
+    public Map<String, ClassEntry> getClasses() {
+        return classes;
+    }
+
+    /**
+     * The hashes of everything else on the classpath, such as jars and resources, by path.
+     */
+    public Map<String, HashCode> getOtherFiles() {
+        return otherFiles;
+    }
+
+    /**
+     * The test classes that ran without failures and have not been affected by a change since.
+     */
+    public Set<String> getPassedTestClasses() {
+        return passedTestClasses;
+    }
+
+    public static class ClassEntry {
+        private final HashCode hash;
+        private final Set<String> dependencies;
+        private final Set<Integer> constants;
+        private final Set<Integer> literals;
+        private final boolean dependencyToAll;
+
+        public ClassEntry(HashCode hash, Set<String> dependencies, Set<Integer> constants, Set<Integer> literals, boolean dependencyToAll) {
+            this.hash = hash;
+            this.dependencies = dependencies;
+            this.constants = constants;
+            this.literals = literals;
+            this.dependencyToAll = dependencyToAll;
+        }
+
+        public HashCode getHash() {
+            return hash;
+        }
+
+        /**
+         * The classes referenced from the byte code of this class.
+         */
+        public Set<String> getDependencies() {
+            return dependencies;
+        }
+
+        /**
+         * The hashes of the constants declared by this class, which the compiler may have inlined into other classes.
+         */
+        public Set<Integer> getConstants() {
+            return constants;
+        }
+
+        /**
+         * The hashes of the literals used by this class, some of which may be inlined constants of other classes.
+         */
+        public Set<Integer> getLiterals() {
+            return literals;
+        }
+
+        public boolean isDependencyToAll() {
+            return dependencyToAll;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.selection;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.FlushableEncoder;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Set;
+
+public class TestSelectionIndexSerializer {
+    private static final int INDEX_VERSION = 1;
+
+    private final File indexFile;
+
+    public TestSelectionIndexSerializer(File indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Returns the index written by the previous test run, or null when there is none or it was written in a different format.
+     */
+    @Nullable
+    public TestSelectionIndex read() {
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        try {
+            InputStream inputStream = new FileInputStream(indexFile);
+            try {
+                Decoder decoder = new KryoBackedDecoder(inputStream);
+                if (decoder.readSmallInt() != INDEX_VERSION) {
+                    return null;
+                }
+                return read(decoder);
+            } finally {
+                inputStream.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private TestSelectionIndex read(Decoder decoder) throws IOException {
+        int classCount = decoder.readSmallInt();
+        Map<String, TestSelectionIndex.ClassEntry> classes = Maps.newHashMapWithExpectedSize(classCount);
+        for (int i = 0; i < classCount; i++) {
+            String className = decoder.readString();
+            HashCode hash = HashCode.fromBytes(decoder.readBinary());
+            Set<String> dependencies = readStrings(decoder);
+            Set<Integer> constants = readInts(decoder);
+            Set<Integer> literals = readInts(decoder);
+            boolean dependencyToAll = decoder.readBoolean();
+            classes.put(className, new TestSelectionIndex.ClassEntry(hash, dependencies, constants, literals, dependencyToAll));
+        }
+        int otherFileCount = decoder.readSmallInt();
+        Map<String, HashCode> otherFiles = Maps.newHashMapWithExpectedSize(otherFileCount);
+        for (int i = 0; i < otherFileCount; i++) {
+            otherFiles.put(decoder.readString(), HashCode.fromBytes(decoder.readBinary()));
+        }
+        Set<String> passedTestClasses = readStrings(decoder);
+        return new TestSelectionIndex(classes, otherFiles, passedTestClasses);
+    }
+
+    public void write(TestSelectionIndex index) {
+        try {
+            OutputStream outputStream = new FileOutputStream(indexFile);
+            try {
+                FlushableEncoder encoder = new KryoBackedEncoder(outputStream);
+                encoder.writeSmallInt(INDEX_VERSION);
+                write(index, encoder);
+                encoder.flush();
+            } finally {
+                outputStream.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(TestSelectionIndex index, Encoder encoder) throws IOException {
+        encoder.writeSmallInt(index.getClasses().size());
+        for (Map.Entry<String, TestSelectionIndex.ClassEntry> entry : index.getClasses().entrySet()) {
+            TestSelectionIndex.ClassEntry classEntry = entry.getValue();
+            encoder.writeString(entry.getKey());
+            encoder.writeBinary(classEntry.getHash().toByteArray());
+            writeStrings(classEntry.getDependencies(), encoder);
+            writeInts(classEntry.getConstants(), encoder);
+            writeInts(classEntry.getLiterals(), encoder);
+            encoder.writeBoolean(classEntry.isDependencyToAll());
+        }
+        encoder.writeSmallInt(index.getOtherFiles().size());
+        for (Map.Entry<String, HashCode> entry : index.getOtherFiles().entrySet()) {
+            encoder.writeString(entry.getKey());
+            encoder.writeBinary(entry.getValue().toByteArray());
+        }
+        writeStrings(index.getPassedTestClasses(), encoder);
+    }
+
+    private static Set<String> readStrings(Decoder decoder) throws IOException {
+        int count = decoder.readSmallInt();
+        Set<String> strings = Sets.newHashSetWithExpectedSize(count);
+        for (int i = 0; i < count; i++) {
+            strings.add(decoder.readString());
+        }
+        return strings;
+    }
+
+    private static void writeStrings(Set<String> strings, Encoder encoder) throws IOException {
+        encoder.writeSmallInt(strings.size());
+        for (String string : strings) {
+            encoder.writeString(string);
+        }
+    }
+
+    private static Set<Integer> readInts(Decoder decoder) throws IOException {
+        int count = decoder.readSmallInt();
+        Set<Integer> ints = Sets.newHashSetWithExpectedSize(count);
+        for (int i = 0; i < count; i++) {
+            ints.add(decoder.readInt());
+        }
+        return ints;
+    }
+
+    private static void writeInts(Set<Integer> ints, Encoder encoder) throws IOException {
+        encoder.writeSmallInt(ints.size());
+        for (Integer value : ints) {
+            encoder.writeInt(value);
+        }
+    }
+}
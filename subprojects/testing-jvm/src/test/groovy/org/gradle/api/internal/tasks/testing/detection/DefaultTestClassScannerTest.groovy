@@ -21,6 +21,8 @@ import org.gradle.api.file.FileTree
 import org.gradle.api.file.FileVisitDetails
 import org.gradle.api.file.FileVisitor
 import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.ManagedExecutor
 import org.junit.Test
 import spock.lang.Specification
 
@@ -50,6 +52,52 @@ public class DefaultTestClassScannerTest extends Specification {
             visitor.visitFile({new File('class2.class')} as FileVisitDetails)
         }
 
+        then:
+        1 * detector.stopDetection()
+        0 * _._
+    }
+
+    def "detects test classes using as many threads as there are workers"() {
+        def executorFactory = Mock(ExecutorFactory)
+        def executor = Mock(ManagedExecutor)
+        def scanner = new DefaultTestClassScanner(files, detector, processor, executorFactory, 3)
+
+        when:
+        scanner.run()
+
+        then:
+        1 * detector.startDetection(_)
+        1 * executorFactory.create("Test class detection", 3) >> executor
+        1 * files.visit(_) >> { FileVisitor visitor ->
+            visitor.visitFile({ new File('class1.class') } as FileVisitDetails)
+        }
+        1 * executor.execute(_) >> { Runnable runnable -> runnable.run() }
+        1 * detector.processTestClass(new File("class1.class"))
+
+        then:
+        1 * executor.stop()
+
+        then:
+        1 * detector.stopDetection()
+        0 * _._
+    }
+
+    def "detects test classes on the calling thread when there is a single worker"() {
+        def executorFactory = Mock(ExecutorFactory)
+        def scanner = new DefaultTestClassScanner(files, detector, processor, executorFactory, 1)
+
+        when:
+        scanner.run()
+
+        then:
+        1 * detector.startDetection(processor)
+        1 * files.visit(_) >> { FileVisitor visitor ->
+            visitor.visitFile({ new File('class1.class') } as FileVisitDetails)
+        }
+        1 * detector.processTestClass(new File("class1.class"))
+
+        then:
+        1 * detector.stopDetection()
         0 * _._
     }
 }
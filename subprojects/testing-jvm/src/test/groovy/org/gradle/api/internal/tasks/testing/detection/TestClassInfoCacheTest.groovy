@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection
+
+import org.gradle.internal.hash.FileHasher
+import org.gradle.internal.hash.HashCode
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class TestClassInfoCacheTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+    def cacheFile = temporaryFolder.file("test-detection.bin")
+    def fileHasher = Stub(FileHasher)
+    def hash1 = HashCode.fromInt(1)
+    def hash2 = HashCode.fromInt(2)
+
+    def "reads back entries written by a previous run"() {
+        def cache = newCache()
+        cache.put(hash1, new TestClassInfo("org/SomeTest", "org/BaseTest", true, false))
+        cache.put(hash2, new TestClassInfo("org/Base", null, false, true))
+        cache.write()
+
+        when:
+        def reloaded = newCache()
+
+        then:
+        with(reloaded.get(hash1)) {
+            className == "org/SomeTest"
+            superClassName == "org/BaseTest"
+            test
+            !isAbstract()
+        }
+        with(reloaded.get(hash2)) {
+            className == "org/Base"
+            superClassName == null
+            !test
+            isAbstract()
+        }
+    }
+
+    def "only keeps entries used since the cache was read"() {
+        def cache = newCache()
+        cache.put(hash1, new TestClassInfo("org/SomeTest", null, true, false))
+        cache.put(hash2, new TestClassInfo("org/Gone", null, true, false))
+        cache.write()
+
+        when:
+        def reloaded = newCache()
+        reloaded.get(hash1)
+        reloaded.write()
+
+        then:
+        newCache().get(hash1) != null
+        newCache().get(hash2) == null
+    }
+
+    def "discards entries of another detector"() {
+        def cache = newCache()
+        cache.put(hash1, new TestClassInfo("org/SomeTest", null, true, false))
+        cache.write()
+
+        expect:
+        newCache("other").get(hash1) == null
+    }
+
+    def "ignores unreadable cache file"() {
+        cacheFile << "broken"
+
+        expect:
+        newCache().get(hash1) == null
+    }
+
+    private TestClassInfoCache newCache(String detectorId = "junit") {
+        new TestClassInfoCache(cacheFile, detectorId, fileHasher)
+    }
+}
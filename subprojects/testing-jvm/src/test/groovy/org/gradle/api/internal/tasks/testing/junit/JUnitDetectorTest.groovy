@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.detection.LibraryClassFileIndex
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import spock.lang.Specification
+
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class JUnitDetectorTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def libraryClassFileIndex = Spy(LibraryClassFileIndex)
+    def detector = new JUnitDetector(libraryClassFileIndex)
+    def testClassProcessor = Mock(TestClassProcessor)
+    def classesDir = tmpDir.createDir("classes")
+    def libraryJar = tmpDir.file("lib.jar")
+
+    def setup() {
+        libraryJar.withOutputStream { output ->
+            def zip = new ZipOutputStream(output)
+            zip.putNextEntry(new ZipEntry("lib/Base.class"))
+            zip.write(classFile("lib/Base", "java/lang/Object"))
+            zip.closeEntry()
+            zip.close()
+        }
+        detector.testClasses = [classesDir] as Set
+        detector.testClasspath = [libraryJar] as Set
+        detector.startDetection(testClassProcessor)
+    }
+
+    def "reads each library super class once and remembers library classes that are not found"() {
+        given:
+        def testClasses = [
+            testClass("FirstTest", "lib/Base"),
+            testClass("SecondTest", "lib/Base"),
+            testClass("ThirdTest", "lib/Missing"),
+            testClass("FourthTest", "lib/Missing")
+        ]
+
+        when:
+        testClasses.each { detector.processTestClass(it) }
+        detector.stopDetection()
+
+        then:
+        1 * libraryClassFileIndex.getClassFile("lib/Base")
+        1 * libraryClassFileIndex.getClassFile("lib/Missing")
+        1 * libraryClassFileIndex.close()
+    }
+
+    private TestFile testClass(String className, String superClassName) {
+        def file = classesDir.file("${className}.class")
+        file.bytes = classFile(className, superClassName)
+        file
+    }
+
+    private static byte[] classFile(String className, String superClassName) {
+        def writer = new ClassWriter(0)
+        writer.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC, className, null, superClassName, null)
+        writer.visitEnd()
+        writer.toByteArray()
+    }
+}
@@ -49,7 +49,7 @@ class Binary2JUnitXmlReportGeneratorSpec extends Specification {
         buildOperationExecutor = new DefaultBuildOperationExecutor(
             Mock(BuildOperationListener), Mock(Clock), new NoOpProgressLoggerFactory(),
             new DefaultBuildOperationQueueFactory(workerLeaseService), new DefaultExecutorFactory(), Mock(ResourceLockCoordinationService), parallelExecutionManager, new DefaultBuildOperationIdFactory())
-        Binary2JUnitXmlReportGenerator reportGenerator = new Binary2JUnitXmlReportGenerator(temp.testDirectory, resultsProvider, TestOutputAssociation.WITH_SUITE, buildOperationExecutor, "localhost")
+        Binary2JUnitXmlReportGenerator reportGenerator = new Binary2JUnitXmlReportGenerator(temp.testDirectory.createDir("results"), temp.testDirectory.file("report-index.bin"), resultsProvider, TestOutputAssociation.WITH_SUITE, buildOperationExecutor, "localhost")
         reportGenerator.xmlWriter = Mock(JUnitXmlResultWriter)
         return reportGenerator
     }
@@ -82,6 +82,32 @@ class Binary2JUnitXmlReportGeneratorSpec extends Specification {
         numThreads << [ 1, 4 ]
     }
 
+    def "writes results only for classes whose results have changed since the previous report"() {
+        def fooTest = new TestClassResult(1, 'FooTest', 100)
+            .add(new TestMethodResult(1, "foo"))
+        def barTest = new TestClassResult(2, 'BarTest', 100)
+            .add(new TestMethodResult(2, "bar"))
+        def rerunBarTest = new TestClassResult(2, 'BarTest', 200)
+            .add(new TestMethodResult(2, "bar"))
+        def runs = 0
+
+        resultsProvider.visitClasses(_) >> { Action action ->
+            action.execute(fooTest)
+            action.execute(runs++ == 0 ? barTest : rerunBarTest)
+        }
+        generatorWithMaxThreads(1).generate()
+        generator = generatorWithMaxThreads(1)
+
+        when:
+        generator.generate()
+
+        then:
+        0 * generator.xmlWriter.write(fooTest, _)
+        1 * generator.xmlWriter.write(rerunBarTest, _)
+        temp.testDirectory.file("report-index.bin").exists()
+        temp.testDirectory.file("results").list() as Set == ["TEST-FooTest.xml", "TEST-BarTest.xml"] as Set
+    }
+
     def "adds context information to the failure if something goes wrong"() {
         generator = generatorWithMaxThreads(1)
 
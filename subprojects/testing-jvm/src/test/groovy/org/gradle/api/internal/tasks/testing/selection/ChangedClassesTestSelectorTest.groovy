@@ -0,0 +1,212 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.selection
+
+import org.gradle.api.file.FileTreeElement
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.api.internal.tasks.compile.incremental.analyzer.ClassDependenciesAnalyzer
+import org.gradle.api.internal.tasks.compile.incremental.deps.ClassAnalysis
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult
+import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult
+import org.gradle.api.tasks.testing.TestResult
+import org.gradle.internal.hash.HashCode
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class ChangedClassesTestSelectorTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+    def classesDir = temporaryFolder.createDir("classes")
+    def jar = temporaryFolder.file("lib.jar") << "jar"
+    def classesJar = temporaryFolder.file("classes.jar")
+    def indexFile = temporaryFolder.file("test-selection.bin")
+    def classpath = [classesDir, jar, classesJar]
+    Map<String, Set<String>> dependencies = [:]
+    Map<String, Set<Integer>> constants = [:]
+    Map<String, Set<Integer>> literals = [:]
+    def analyzer = Stub(ClassDependenciesAnalyzer) {
+        getClassAnalysis(_, _) >> { HashCode hash, FileTreeElement classFile ->
+            def className = classFile.relativePath.pathString.replace(".class", "").replace("/", ".")
+            new ClassAnalysis(className, dependencies[className] ?: [] as Set, false, constants[className] ?: [] as Set, literals[className] ?: [] as Set, [] as Set)
+        }
+    }
+
+    def setup() {
+        classFile("org.Prod")
+        classFile("org.Helper", "org.Prod")
+        classFile("org.Other")
+        classFile("org.ProdTest", "org.Helper")
+        classFile("org.OtherTest", "org.Other")
+    }
+
+    def "runs all test classes when there is no previous run"() {
+        expect:
+        selected() == ["org.OtherTest", "org.ProdTest"]
+    }
+
+    def "runs test classes that depend on changed classes"() {
+        runAndPass()
+        classFile("org.Prod", null, "changed")
+
+        expect:
+        selected() == ["org.ProdTest"]
+    }
+
+    def "runs test classes that depend on removed classes"() {
+        runAndPass()
+        classesDir.file("org/Other.class").delete()
+
+        expect:
+        selected() == ["org.OtherTest"]
+    }
+
+    def "runs changed and new test classes"() {
+        runAndPass()
+        classFile("org.OtherTest", "org.Other", "changed")
+        classFile("org.NewTest")
+
+        expect:
+        selected() == ["org.NewTest", "org.OtherTest"]
+    }
+
+    def "runs test classes that have failed"() {
+        runAndPass(["org.ProdTest"])
+        classFile("org.Other", null, "changed")
+
+        expect:
+        selected() == ["org.OtherTest", "org.ProdTest"]
+    }
+
+    def "runs test classes that were affected by a change but did not run"() {
+        runAndPass()
+        classFile("org.Prod", null, "changed")
+        run([])
+        classFile("org.Other", null, "changed")
+
+        expect:
+        selected() == ["org.OtherTest", "org.ProdTest"]
+    }
+
+    def "runs test classes that use changed constants"() {
+        constants["org.Other"] = [42] as Set
+        literals["org.ProdTest"] = [42] as Set
+        runAndPass()
+        classFile("org.Other", null, "changed")
+
+        expect:
+        selected() == ["org.OtherTest", "org.ProdTest"]
+    }
+
+    def "runs all test classes when a jar has changed"() {
+        runAndPass()
+        jar << "changed"
+        classFile("org.Prod", null, "changed")
+
+        expect:
+        selected() == ["org.OtherTest", "org.ProdTest"]
+    }
+
+    def "does not run all test classes when a jar is rebuilt with the same entries"() {
+        jarFile(["org.Lib": ""], ["lib.properties": "a=1"])
+        classFile("org.ProdTest", "org.Lib")
+        runAndPass()
+        classesJar.delete()
+        jarFile(["org.Lib": ""], ["lib.properties": "a=1"])
+        classFile("org.Other", null, "changed")
+
+        expect:
+        selected() == ["org.OtherTest"]
+    }
+
+    def "runs test classes that depend on changed classes in a jar"() {
+        jarFile(["org.Lib": "", "org.Unused": ""])
+        classFile("org.ProdTest", "org.Lib")
+        runAndPass()
+        jarFile(["org.Lib": "changed", "org.Unused": ""])
+
+        expect:
+        selected() == ["org.ProdTest"]
+    }
+
+    def "runs all test classes when a resource in a jar has changed"() {
+        jarFile(["org.Lib": ""], ["lib.properties": "a=1"])
+        runAndPass()
+        jarFile(["org.Lib": ""], ["lib.properties": "a=2"])
+        classFile("org.Prod", null, "changed")
+
+        expect:
+        selected() == ["org.OtherTest", "org.ProdTest"]
+    }
+
+    def "runs all test classes when no class has changed"() {
+        runAndPass()
+
+        expect:
+        selected() == ["org.OtherTest", "org.ProdTest"]
+    }
+
+    private void classFile(String className, String dependency = null, String content = "") {
+        classesDir.file(className.replace(".", "/") + ".class").text = className + content
+        dependencies[className] = dependency == null ? [] as Set : [dependency] as Set
+    }
+
+    private void jarFile(Map<String, String> classes, Map<String, String> resources = [:]) {
+        classesJar.withOutputStream { outputStream ->
+            def zipOutput = new ZipOutputStream(outputStream)
+            classes.each { className, content ->
+                zipOutput.putNextEntry(new ZipEntry(className.replace(".", "/") + ".class"))
+                zipOutput.write((className + content).bytes)
+                dependencies[className] = [] as Set
+            }
+            resources.each { path, content ->
+                zipOutput.putNextEntry(new ZipEntry(path))
+                zipOutput.write(content.bytes)
+            }
+            zipOutput.finish()
+        }
+    }
+
+    private List<String> selected() {
+        def spec = selector().select(classpath)
+        testClasses().findAll { spec.isSatisfiedBy(it) }
+    }
+
+    private void runAndPass(List<String> failed = []) {
+        run(testClasses(), failed)
+    }
+
+    private void run(List<String> ran, List<String> failed = []) {
+        def selector = selector()
+        def spec = selector.select(classpath)
+        def results = ran.findAll { spec.isSatisfiedBy(it) }.collect { className ->
+            def resultType = failed.contains(className) ? TestResult.ResultType.FAILURE : TestResult.ResultType.SUCCESS
+            new TestClassResult(1, className, 0).add(new TestMethodResult(1, "test", resultType, 1, 1))
+        }
+        selector.recordResults(results)
+    }
+
+    private List<String> testClasses() {
+        dependencies.keySet().findAll { it.endsWith("Test") }.sort()
+    }
+
+    private ChangedClassesTestSelector selector() {
+        new ChangedClassesTestSelector(indexFile, TestFiles.directoryFileTreeFactory(), TestFiles.fileHasher(), TestFiles.streamHasher(), analyzer)
+    }
+}
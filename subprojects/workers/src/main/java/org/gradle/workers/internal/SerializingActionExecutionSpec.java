@@ -42,6 +42,13 @@ public class SerializingActionExecutionSpec implements ActionExecutionSpec {
         this.params = serialize(params);
     }
 
+    SerializingActionExecutionSpec(Class<? extends Runnable> implementationClass, String displayName, File executionWorkingDir, byte[] serializedParams) {
+        this.implementationClass = implementationClass;
+        this.displayName = displayName;
+        this.executionWorkingDir = executionWorkingDir;
+        this.params = serializedParams;
+    }
+
     @Override
     public Class<? extends Runnable> getImplementationClass() {
         return implementationClass;
@@ -62,6 +69,10 @@ public class SerializingActionExecutionSpec implements ActionExecutionSpec {
         return deserialize(classLoader);
     }
 
+    byte[] getSerializedParams() {
+        return params;
+    }
+
     private byte[] serialize(Object[] params) {
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         try {
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.workers.internal;
+
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.Serializer;
+
+import java.io.File;
+
+/**
+ * Sends a {@link SerializingActionExecutionSpec} to a worker daemon. The parameters are already serialized, so only the other properties need encoding.
+ */
+public class SerializingActionExecutionSpecSerializer implements Serializer<SerializingActionExecutionSpec> {
+    private final ClassLoader classLoader;
+
+    public SerializingActionExecutionSpecSerializer(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    @Override
+    public SerializingActionExecutionSpec read(Decoder decoder) throws Exception {
+        Class<? extends Runnable> implementationClass = Class.forName(decoder.readString(), false, classLoader).asSubclass(Runnable.class);
+        String displayName = decoder.readString();
+        String workingDir = decoder.readNullableString();
+        byte[] params = decoder.readBinary();
+        return new SerializingActionExecutionSpec(implementationClass, displayName, workingDir == null ? null : new File(workingDir), params);
+    }
+
+    @Override
+    public void write(Encoder encoder, SerializingActionExecutionSpec value) throws Exception {
+        encoder.writeString(value.getImplementationClass().getName());
+        encoder.writeString(value.getDisplayName());
+        encoder.writeNullableString(value.getExecutionWorkingDir() == null ? null : value.getExecutionWorkingDir().getPath());
+        encoder.writeBinary(value.getSerializedParams());
+    }
+}
@@ -17,13 +17,13 @@
 package org.gradle.workers.internal;
 
 import org.gradle.api.logging.LogLevel;
-import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.progress.BuildOperationState;
 import org.gradle.internal.work.WorkerLeaseRegistry.WorkerLease;
 import org.gradle.process.internal.health.memory.JvmMemoryStatus;
+import org.gradle.process.internal.worker.WorkerClientPool;
 import org.gradle.process.internal.worker.WorkerProcess;
 
-class WorkerDaemonClient implements Worker, Stoppable {
+class WorkerDaemonClient implements Worker, WorkerClientPool.Client {
     private final DaemonForkOptions forkOptions;
     private final WorkerDaemonProcess<ActionExecutionSpec> workerDaemonProcess;
     private final WorkerProcess workerProcess;
@@ -73,6 +73,7 @@ class WorkerDaemonClient implements Worker, Stoppable {
         return forkOptions.getKeepAliveMode();
     }
 
+    @Override
     public LogLevel getLogLevel() {
         return logLevel;
     }
@@ -17,129 +17,99 @@
 package org.gradle.workers.internal;
 
 import org.gradle.api.Transformer;
-import org.gradle.api.logging.LogLevel;
-import org.gradle.api.logging.Logger;
-import org.gradle.api.logging.Logging;
 import org.gradle.api.specs.Spec;
 import org.gradle.initialization.SessionLifecycleListener;
-import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.Factory;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.logging.LoggingManagerInternal;
-import org.gradle.internal.logging.events.LogLevelChangeEvent;
-import org.gradle.internal.logging.events.OutputEvent;
-import org.gradle.internal.logging.events.OutputEventListener;
+import org.gradle.process.internal.worker.WorkerClientPool;
 import org.gradle.util.CollectionUtils;
 
-import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
 
 public class WorkerDaemonClientsManager implements Stoppable {
 
-    private static final Logger LOGGER = Logging.getLogger(WorkerDaemonClientsManager.class);
-
-    private final Object lock = new Object();
-    private final List<WorkerDaemonClient> allClients = new ArrayList<WorkerDaemonClient>();
-    private final List<WorkerDaemonClient> idleClients = new ArrayList<WorkerDaemonClient>();
-
+    private final WorkerClientPool<WorkerDaemonClient> clients;
     private final WorkerDaemonStarter workerDaemonStarter;
     private final ListenerManager listenerManager;
-    private final LoggingManagerInternal loggingManager;
     private final SessionLifecycleListener stopSessionScopeWorkers;
-    private final OutputEventListener logLevelChangeEventListener;
-    private LogLevel currentLogLevel;
 
     public WorkerDaemonClientsManager(WorkerDaemonStarter workerDaemonStarter, ListenerManager listenerManager, LoggingManagerInternal loggingManager) {
+        this.clients = new WorkerClientPool<WorkerDaemonClient>("worker daemon", loggingManager);
         this.workerDaemonStarter = workerDaemonStarter;
         this.listenerManager = listenerManager;
-        this.loggingManager = loggingManager;
         this.stopSessionScopeWorkers = new StopSessionScopedWorkers();
         listenerManager.addListener(stopSessionScopeWorkers);
-        this.logLevelChangeEventListener = new LogLevelChangeEventListener();
-        loggingManager.addOutputEventListener(logLevelChangeEventListener);
-        this.currentLogLevel = loggingManager.getLevel();
+    }
+
+    public List<WorkerDaemonClient> getAllClients() {
+        return clients.getAllClients();
+    }
+
+    public List<WorkerDaemonClient> getIdleClients() {
+        return clients.getIdleClients();
     }
 
     // TODO - should supply and check for the same parameters as passed to reserveNewClient()
     public WorkerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions) {
-        return reserveIdleClient(forkOptions, idleClients);
+        return clients.reserveIdleClient(new CompatibleWith(forkOptions));
     }
 
-    WorkerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions, List<WorkerDaemonClient> clients) {
-        synchronized (lock) {
-            Iterator<WorkerDaemonClient> it = clients.iterator();
-            while (it.hasNext()) {
-                WorkerDaemonClient candidate = it.next();
-                if (candidate.isCompatibleWith(forkOptions)) {
-                    it.remove();
-                    if (candidate.getLogLevel() != currentLogLevel) {
-                        // TODO: Send a message to workers to change their log level rather than stopping
-                        LOGGER.info("Log level has changed, stopping idle worker daemon with out-of-date log level.");
-                        candidate.stop();
-                    } else {
-                        return candidate;
-                    }
-                }
-            }
-            return null;
-        }
+    WorkerDaemonClient reserveIdleClient(DaemonForkOptions forkOptions, List<WorkerDaemonClient> candidates) {
+        return clients.reserveIdleClient(new CompatibleWith(forkOptions), candidates);
     }
 
-    public WorkerDaemonClient reserveNewClient(Class<? extends WorkerProtocol<ActionExecutionSpec>> workerProtocolImplementationClass, DaemonForkOptions forkOptions) {
-        //allow the daemon to be started concurrently
-        WorkerDaemonClient client = workerDaemonStarter.startDaemon(workerProtocolImplementationClass, forkOptions);
-        synchronized (lock) {
-            allClients.add(client);
-        }
-        return client;
+    public WorkerDaemonClient reserveNewClient(final Class<? extends WorkerProtocol<ActionExecutionSpec>> workerProtocolImplementationClass, final DaemonForkOptions forkOptions) {
+        return clients.reserveNewClient(new Factory<WorkerDaemonClient>() {
+            @Override
+            public WorkerDaemonClient create() {
+                return workerDaemonStarter.startDaemon(workerProtocolImplementationClass, forkOptions);
+            }
+        });
     }
 
     public void release(WorkerDaemonClient client) {
-        synchronized (lock) {
-            idleClients.add(client);
-        }
+        clients.release(client);
     }
 
     @Override
     public void stop() {
-        synchronized (lock) {
-            stopWorkers(allClients);
-            allClients.clear();
-            idleClients.clear();
-            listenerManager.removeListener(stopSessionScopeWorkers);
-            loggingManager.removeOutputEventListener(logLevelChangeEventListener);
-        }
+        listenerManager.removeListener(stopSessionScopeWorkers);
+        clients.stop();
     }
 
     /**
      * Select idle daemon clients to stop.
      *
-     * @param selectionFunction Gets all idle daemon clients, daemons of returned clients are stopped
+     * @param selectionFunction Gets all idle daemon clients, least used first, daemons of returned clients are stopped
      */
-    public void selectIdleClientsToStop(Transformer<List<WorkerDaemonClient>, List<WorkerDaemonClient>> selectionFunction) {
-        synchronized (lock) {
-            List<WorkerDaemonClient> sortedClients = CollectionUtils.sort(idleClients, new Comparator<WorkerDaemonClient>() {
-                @Override
-                public int compare(WorkerDaemonClient o1, WorkerDaemonClient o2) {
-                    return new Integer(o1.getUses()).compareTo(o2.getUses());
-                }
-            });
-            List<WorkerDaemonClient> clientsToStop = selectionFunction.transform(new ArrayList<WorkerDaemonClient>(sortedClients));
-            if (!clientsToStop.isEmpty()) {
-                stopWorkers(clientsToStop);
+    public void selectIdleClientsToStop(final Transformer<List<WorkerDaemonClient>, List<WorkerDaemonClient>> selectionFunction) {
+        clients.selectIdleClientsToStop(new Transformer<List<WorkerDaemonClient>, List<WorkerDaemonClient>>() {
+            @Override
+            public List<WorkerDaemonClient> transform(List<WorkerDaemonClient> idleClients) {
+                List<WorkerDaemonClient> sortedClients = CollectionUtils.sort(idleClients, new Comparator<WorkerDaemonClient>() {
+                    @Override
+                    public int compare(WorkerDaemonClient o1, WorkerDaemonClient o2) {
+                        return new Integer(o1.getUses()).compareTo(o2.getUses());
+                    }
+                });
+                return selectionFunction.transform(sortedClients);
             }
-        }
+        });
     }
 
-    private void stopWorkers(List<WorkerDaemonClient> clientsToStop) {
-        if (clientsToStop.size() > 0) {
-            LOGGER.debug("Stopping {} worker daemon(s).", clientsToStop.size());
-            CompositeStoppable.stoppable(clientsToStop).stop();
-            LOGGER.info("Stopped {} worker daemon(s).", clientsToStop.size());
-            idleClients.removeAll(clientsToStop);
-            allClients.removeAll(clientsToStop);
+    private static class CompatibleWith implements Spec<WorkerDaemonClient> {
+        private final DaemonForkOptions forkOptions;
+
+        CompatibleWith(DaemonForkOptions forkOptions) {
+            this.forkOptions = forkOptions;
+        }
+
+        @Override
+        public boolean isSatisfiedBy(WorkerDaemonClient client) {
+            return client.isCompatibleWith(forkOptions);
         }
     }
 
@@ -149,29 +119,12 @@ public class WorkerDaemonClientsManager implements Stoppable {
 
         @Override
         public void beforeComplete() {
-            synchronized (lock) {
-                List<WorkerDaemonClient> sessionScopedClients = CollectionUtils.filter(allClients, new Spec<WorkerDaemonClient>() {
-                    @Override
-                    public boolean isSatisfiedBy(WorkerDaemonClient client) {
-                        return client.getKeepAliveMode() == KeepAliveMode.SESSION;
-                    }
-                });
-                stopWorkers(sessionScopedClients);
-            }
-        }
-    }
-
-    private class LogLevelChangeEventListener implements OutputEventListener {
-        @Override
-        public void onOutput(OutputEvent event) {
-            if (event instanceof LogLevelChangeEvent) {
-                LogLevelChangeEvent logLevelChangeEvent = (LogLevelChangeEvent) event;
-                if (currentLogLevel != logLevelChangeEvent.getNewLogLevel()) {
-                    synchronized (lock) {
-                        currentLogLevel = logLevelChangeEvent.getNewLogLevel();
-                    }
+            clients.stopClients(new Spec<WorkerDaemonClient>() {
+                @Override
+                public boolean isSatisfiedBy(WorkerDaemonClient client) {
+                    return client.getKeepAliveMode() == KeepAliveMode.SESSION;
                 }
-            }
+            });
         }
     }
 }
@@ -44,6 +44,8 @@ public class WorkerDaemonStarter {
         builder.setLogLevel(loggingManager.getLevel()); // NOTE: might make sense to respect per-compile-task log level
         builder.applicationClasspath(forkOptions.getClasspath());
         builder.sharedPackages(forkOptions.getSharedPackages());
+        builder.registerArgumentSerializer(SerializingActionExecutionSpec.class, SerializingActionExecutionSpecSerializer.class);
+        builder.registerArgumentSerializer(SimpleActionExecutionSpec.class, SimpleActionExecutionSpecSerializer.class);
         JavaExecHandleBuilder javaCommand = builder.getJavaCommand();
         forkOptions.getJavaForkOptions().copyTo(javaCommand);
         WorkerDaemonProcess workerDaemonProcess = builder.build();
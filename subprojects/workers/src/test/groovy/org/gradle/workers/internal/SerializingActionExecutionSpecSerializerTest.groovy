@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.workers.internal
+
+import org.gradle.internal.serialize.SerializerSpec
+
+class SerializingActionExecutionSpecSerializerTest extends SerializerSpec {
+    def serializer = new SerializingActionExecutionSpecSerializer(getClass().classLoader)
+
+    def "serializes spec"() {
+        def spec = new SerializingActionExecutionSpec(TestRunnable, "action", new File("dir"), ["a", 12] as Object[])
+
+        when:
+        def result = usesEfficientSerialization(spec, serializer)
+
+        then:
+        result.implementationClass == TestRunnable
+        result.displayName == "action"
+        result.executionWorkingDir == new File("dir")
+        result.getParams(getClass().classLoader) == ["a", 12] as Object[]
+    }
+
+    def "serializes spec without working directory"() {
+        def spec = new SerializingActionExecutionSpec(TestRunnable, "action", null, [] as Object[])
+
+        expect:
+        serialize(spec, serializer).executionWorkingDir == null
+    }
+
+    static class TestRunnable implements Runnable {
+        @Override
+        void run() {
+        }
+    }
+}